@@ -48,6 +48,9 @@ public final class BPMConstants {
     /** {urn:switchyard-component-bpm:bpm:1.0}correlationKey . */
     public static final String CORRELATION_KEY_PROPERTY = new QName(BPM_NAMESPACE, CORRELATION_KEY).toString();
 
+    /** runtimeStrategy implementation property; SINGLETON (the default) or PER_PROCESS_INSTANCE, which requires persistence and doesn't support SIGNAL_EVENT_ALL. */
+    public static final String RUNTIME_STRATEGY = "runtimeStrategy";
+
     private BPMConstants() {}
 
 }
@@ -1,6 +1,9 @@
 package org.switchyard.component.bpm;
 
 import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+import org.jboss.logging.annotations.LogMessage;
+import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageLogger;
 /**
  * <p/>
@@ -15,4 +18,12 @@ public interface BPMLogger {
      */
     BPMLogger ROOT_LOGGER = Logger.getMessageLogger(BPMLogger.class, BPMLogger.class.getPackage().getName());
 
+    /**
+     * perProcessInstanceRequiresPersistence method definition.
+     * @param runtimeStrategy runtimeStrategy
+     */
+    @LogMessage(level = Level.WARN)
+    @Message(id = 31600, value = "runtimeStrategy %s requires persistence; using a singleton session instead")
+    void perProcessInstanceRequiresPersistence(String runtimeStrategy);
+
 }
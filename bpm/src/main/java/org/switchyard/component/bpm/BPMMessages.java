@@ -58,5 +58,20 @@ public interface BPMMessages {
      */
     @Message(id = 32004, value = "Unsupported operation type: %s")
     HandlerException unsupportedOperationType(BPMOperationType operationType);
-}
 
+    /**
+     * unsupportedRuntimeStrategy method definition.
+     * @param runtimeStrategy the runtimeStrategy
+     * @return IllegalArgumentException
+     */
+    @Message(id = 32005, value = "Unsupported runtimeStrategy: %s; use SINGLETON or PER_PROCESS_INSTANCE")
+    IllegalArgumentException unsupportedRuntimeStrategy(String runtimeStrategy);
+
+    /**
+     * cannotSignalEventAllPerProcessInstance method definition.
+     * @return HandlerException
+     */
+    @Message(id = 32006, value = "Cannot signalEventAll with the PER_PROCESS_INSTANCE runtimeStrategy: every process instance has its own session; use signalEvent with a processInstanceId or correlationKey instead")
+    HandlerException cannotSignalEventAllPerProcessInstance();
+
+}
@@ -32,6 +32,8 @@ import org.kie.internal.KieInternalServices;
 import org.kie.internal.process.CorrelationAwareProcessRuntime;
 import org.kie.internal.process.CorrelationKey;
 import org.kie.internal.process.CorrelationKeyFactory;
+import org.kie.internal.runtime.manager.context.CorrelationKeyContext;
+import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
 import org.switchyard.Context;
 import org.switchyard.Exchange;
 import org.switchyard.ExchangePattern;
@@ -40,6 +42,7 @@ import org.switchyard.Message;
 import org.switchyard.ServiceDomain;
 import org.switchyard.common.lang.Strings;
 import org.switchyard.component.bpm.BPMConstants;
+import org.switchyard.component.bpm.BPMLogger;
 import org.switchyard.component.bpm.BPMMessages;
 import org.switchyard.component.bpm.config.model.BPMComponentImplementationModel;
 import org.switchyard.component.bpm.operation.BPMOperationType;
@@ -48,7 +51,9 @@ import org.switchyard.component.common.knowledge.operation.KnowledgeOperation;
 import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeEngine;
 import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeManager;
 import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeManagerRegistry;
+import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeManagerType;
 import org.switchyard.component.common.knowledge.transaction.TransactionHelper;
+import org.switchyard.config.model.property.PropertiesModel;
 
 /**
  * A "bpm" implementation of a KnowledgeExchangeHandler.
@@ -60,6 +65,7 @@ public class BPMExchangeHandler extends KnowledgeExchangeHandler {
     private static final KnowledgeOperation DEFAULT_OPERATION = new KnowledgeOperation(BPMOperationType.START_PROCESS);
 
     private final boolean _persistent;
+    private final boolean _perProcessInstance;
     private final String _processId;
     private final CorrelationKeyFactory _correlationKeyFactory;
     private KnowledgeRuntimeManager _runtimeManager;
@@ -73,6 +79,7 @@ public class BPMExchangeHandler extends KnowledgeExchangeHandler {
     public BPMExchangeHandler(BPMComponentImplementationModel model, ServiceDomain serviceDomain, QName serviceName) {
         super(model, serviceDomain, serviceName);
         _persistent = model.isPersistent();
+        _perProcessInstance = isPerProcessInstance(model);
         _processId = model.getProcessId();
         _correlationKeyFactory = KieInternalServices.Factory.get().newCorrelationKeyFactory();
     }
@@ -83,10 +90,8 @@ public class BPMExchangeHandler extends KnowledgeExchangeHandler {
     @Override
     protected void doStart() {
         super.doStart();
-        _runtimeManager = newSingletonRuntimeManager();
-        // TODO: SWITCHYARD-1584
-        //_runtimeManager = newPerProcessInstanceRuntimeManager();
-        //_runtimeManager = _persistent ? newPerProcessInstanceRuntimeManager() : newSingletonRuntimeManager();
+        // SWITCHYARD-1584: a session per process instance, so that independent instances don't serialise on one session
+        _runtimeManager = _perProcessInstance ? newPerProcessInstanceRuntimeManager() : newSingletonRuntimeManager();
         KnowledgeRuntimeManagerRegistry.putRuntimeManager(getServiceDomain().getName(), getServiceName(), _runtimeManager);
     }
 
@@ -128,12 +133,15 @@ public class BPMExchangeHandler extends KnowledgeExchangeHandler {
             case START_PROCESS: {
                 try {
                     txh.begin();
-                    KnowledgeRuntimeEngine runtime = getRuntimeEngine();
+                    CorrelationKey correlationKey = getCorrelationKey(exchange, inputMessage);
+                    // the new process instance has no session mapped to it yet, so an empty context is used;
+                    // a per process instance session started with a correlationKey can later be found by it
+                    KnowledgeRuntimeEngine runtime = (KnowledgeRuntimeEngine)_runtimeManager.getRuntimeEngine(
+                            correlationKey != null ? CorrelationKeyContext.get() : ProcessInstanceIdContext.get());
                     //sessionIdentifier = runtime.getSessionIdentifier();
                     setGlobals(inputMessage, operation, runtime, true);
                     Map<String, Object> inputMap = getInputMap(inputMessage, operation, runtime);
                     ProcessInstance processInstance;
-                    CorrelationKey correlationKey = getCorrelationKey(exchange, inputMessage);
                     if (correlationKey != null) {
                         processInstance = ((CorrelationAwareProcessRuntime)runtime.getKieSession()).startProcess(_processId, correlationKey, inputMap);
                     } else {
@@ -144,9 +152,7 @@ public class BPMExchangeHandler extends KnowledgeExchangeHandler {
                         expressionVariables.putAll(getGlobalVariables(runtime));
                         expressionVariables.putAll(getProcessInstanceVariables(processInstance));
                     }
-                    if (!_persistent) {
-                        _runtimeManager.disposeRuntimeEngine(runtime);
-                    }
+                    disposeRuntimeEngine(runtime);
                     txh.commit();
                 } catch (RuntimeException re) {
                     txh.rollback();
@@ -156,6 +162,10 @@ public class BPMExchangeHandler extends KnowledgeExchangeHandler {
             }
             case SIGNAL_EVENT:
             case SIGNAL_EVENT_ALL: {
+                if (_perProcessInstance && BPMOperationType.SIGNAL_EVENT_ALL.equals(operationType)) {
+                    // a new session would only hold a process instance yet to be started, so the event would be lost
+                    throw BPMMessages.MESSAGES.cannotSignalEventAllPerProcessInstance();
+                }
                 try {
                     txh.begin();
                     KnowledgeRuntimeEngine runtime;
@@ -187,9 +197,7 @@ public class BPMExchangeHandler extends KnowledgeExchangeHandler {
                             expressionVariables.putAll(getGlobalVariables(runtime));
                         }
                     }
-                    if (!_persistent) {
-                        _runtimeManager.disposeRuntimeEngine(runtime);
-                    }
+                    disposeRuntimeEngine(runtime);
                     txh.commit();
                 } catch (RuntimeException re) {
                     txh.rollback();
@@ -212,9 +220,7 @@ public class BPMExchangeHandler extends KnowledgeExchangeHandler {
                         expressionVariables.putAll(getProcessInstanceVariables(processInstance));
                     }
                     runtime.getKieSession().abortProcessInstance(processInstanceId);
-                    if (!_persistent) {
-                        _runtimeManager.disposeRuntimeEngine(runtime);
-                    }
+                    disposeRuntimeEngine(runtime);
                     txh.commit();
                 } catch (RuntimeException re) {
                     txh.rollback();
@@ -251,6 +257,31 @@ public class BPMExchangeHandler extends KnowledgeExchangeHandler {
         return (KnowledgeRuntimeEngine)_runtimeManager.getRuntimeEngine();
     }
 
+    private void disposeRuntimeEngine(KnowledgeRuntimeEngine runtime) {
+        // a persistent singleton session outlives the request; a per process instance
+        // one is released, and jBPM defers its disposal until the transaction completes
+        if (!_persistent || _perProcessInstance) {
+            _runtimeManager.disposeRuntimeEngine(runtime);
+        }
+    }
+
+    private static boolean isPerProcessInstance(BPMComponentImplementationModel model) {
+        PropertiesModel properties = model.getProperties();
+        String runtimeStrategy = properties != null ? Strings.trimToNull(properties.toProperties().getProperty(BPMConstants.RUNTIME_STRATEGY)) : null;
+        if (runtimeStrategy == null || KnowledgeRuntimeManagerType.SINGLETON.name().equalsIgnoreCase(runtimeStrategy)) {
+            return false;
+        }
+        if (!KnowledgeRuntimeManagerType.PER_PROCESS_INSTANCE.name().equalsIgnoreCase(runtimeStrategy)) {
+            throw BPMMessages.MESSAGES.unsupportedRuntimeStrategy(runtimeStrategy);
+        }
+        // without persistence, disposing the session of a process instance would discard the instance
+        if (!model.isPersistent()) {
+            BPMLogger.ROOT_LOGGER.perProcessInstanceRequiresPersistence(runtimeStrategy);
+            return false;
+        }
+        return true;
+    }
+
     private KnowledgeRuntimeEngine getRuntimeEngine(Exchange exchange, Message message) throws HandlerException {
         RuntimeEngine runtimeEngine = null;
         Long processInstanceId = getProcessInstanceId(exchange, message);
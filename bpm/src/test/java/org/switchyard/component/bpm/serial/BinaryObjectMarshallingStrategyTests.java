@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.bpm.serial;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.component.common.knowledge.serial.BinaryObjectMarshallingStrategy;
+
+/**
+ * Tests the binary marshalling strategy for process variables.
+ */
+public class BinaryObjectMarshallingStrategyTests {
+
+    private final BinaryObjectMarshallingStrategy _strategy = new BinaryObjectMarshallingStrategy();
+
+    @Test
+    public void testAccept() throws Exception {
+        Assert.assertTrue(_strategy.accept(new Order()));
+        Assert.assertFalse(_strategy.accept("string"));
+        Assert.assertFalse(_strategy.accept(new ArrayList<Object>()));
+        Assert.assertFalse(_strategy.accept(null));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Order order = newOrder();
+        byte[] bytes = _strategy.marshal(null, null, order);
+        Order read = (Order)_strategy.unmarshal(null, null, bytes, getClass().getClassLoader());
+        Assert.assertEquals(order.id, read.id);
+        Assert.assertEquals("ACME", read.customer);
+        Assert.assertEquals(new BigDecimal("99.95"), read.total);
+        Assert.assertEquals(order.created, read.created);
+        Assert.assertEquals(Status.OPEN, read.status);
+        Assert.assertEquals(order.reference, read.reference);
+        Assert.assertTrue(read.rush);
+        Assert.assertEquals(3, read.items.size());
+        Assert.assertEquals("sku-2", read.items.get(2).sku);
+        Assert.assertEquals(2, read.items.get(2).quantity);
+        Assert.assertEquals("blue", read.attributes.get("color"));
+        Assert.assertNull(read.note);
+        Assert.assertEquals("transient", read.cache);
+    }
+
+    @Test
+    public void testReferences() throws Exception {
+        Order order = newOrder();
+        order.attributes.put("first", order.items.get(0));
+        Order read = (Order)_strategy.unmarshal(null, null, _strategy.marshal(null, null, order), getClass().getClassLoader());
+        Assert.assertSame(read, read.items.get(0).order);
+        Assert.assertSame(read.items.get(0), read.attributes.get("first"));
+    }
+
+    @Test
+    public void testWriteRead() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        _strategy.write(oos, newOrder());
+        oos.writeUTF("after");
+        oos.close();
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        Order read = (Order)_strategy.read(ois);
+        Assert.assertEquals(3, read.items.size());
+        Assert.assertEquals("after", ois.readUTF());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalid() throws Exception {
+        _strategy.unmarshal(null, null, new byte[] {1, 19, 5}, getClass().getClassLoader());
+    }
+
+    private static Order newOrder() {
+        Order order = new Order();
+        order.id = 42L;
+        order.customer = "ACME";
+        order.total = new BigDecimal("99.95");
+        order.created = new Date(1234567890L);
+        order.status = Status.OPEN;
+        order.reference = UUID.randomUUID();
+        order.rush = true;
+        for (int i = 0; i < 3; i++) {
+            LineItem item = new LineItem();
+            item.sku = "sku-" + i;
+            item.quantity = i;
+            item.order = order;
+            order.items.add(item);
+        }
+        order.attributes.put("color", "blue");
+        return order;
+    }
+
+    public enum Status {
+        OPEN, CLOSED
+    }
+
+    public static class Order {
+        private long id;
+        private String customer;
+        private BigDecimal total;
+        private Date created;
+        private Status status;
+        private UUID reference;
+        private boolean rush;
+        private String note;
+        private List<LineItem> items = new ArrayList<LineItem>();
+        private Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+        private transient String cache = "transient";
+    }
+
+    public static class LineItem {
+        private String sku;
+        private int quantity;
+        private Order order;
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.bpm.serial;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.switchyard.component.common.knowledge.serial.BinaryObjectMarshallingStrategy;
+import org.switchyard.component.common.knowledge.serial.SerializerObjectMarshallingStrategy;
+import org.switchyard.serial.FormatType;
+import org.switchyard.serial.SerializerFactory;
+
+/**
+ * Compares the size and speed of the JSON and binary marshalling strategies on process variable graphs.
+ * Not run as part of the test suite; execute the main method directly.
+ */
+public final class ObjectMarshallingStrategyBenchmark {
+
+    private static final int WARMUP = 5000;
+    private static final int ITERATIONS = 20000;
+
+    private ObjectMarshallingStrategyBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional line item counts of the orders marshalled (default 1, 10 and 100)
+     * @throws Exception on failure
+     */
+    public static void main(String[] args) throws Exception {
+        int[] sizes = new int[] {1, 10, 100};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        ObjectMarshallingStrategy json = new SerializerObjectMarshallingStrategy(SerializerFactory.create(FormatType.JSON, null, true));
+        ObjectMarshallingStrategy binary = new BinaryObjectMarshallingStrategy();
+        ClassLoader loader = ObjectMarshallingStrategyBenchmark.class.getClassLoader();
+        for (int size : sizes) {
+            Order order = createOrder(size);
+            int iterations = Math.max(ITERATIONS / size, 100);
+            for (int i = 0; i < 2; i++) {
+                boolean report = i == 1;
+                int runs = report ? iterations : Math.max(WARMUP / size, 100);
+                long jsonTime = 0;
+                long binaryTime = 0;
+                int jsonSize = 0;
+                int binarySize = 0;
+                for (int n = 0; n < runs; n++) {
+                    long start = System.nanoTime();
+                    if (json.accept(order)) {
+                        byte[] bytes = json.marshal(null, null, order);
+                        json.unmarshal(null, null, bytes, loader);
+                        jsonSize = bytes.length;
+                    }
+                    jsonTime += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    if (binary.accept(order)) {
+                        byte[] bytes = binary.marshal(null, null, order);
+                        binary.unmarshal(null, null, bytes, loader);
+                        binarySize = bytes.length;
+                    }
+                    binaryTime += System.nanoTime() - start;
+                }
+                if (report) {
+                    print("json", size, jsonSize, jsonTime, runs);
+                    print("binary", size, binarySize, binaryTime, runs);
+                }
+            }
+        }
+    }
+
+    private static void print(String strategy, int items, int size, long nanos, int iterations) {
+        System.out.println(String.format("%-8s %4d items %8d bytes %10.2f us/round-trip", strategy, items, size, nanos / 1000.0 / iterations));
+    }
+
+    private static Order createOrder(int items) {
+        Customer customer = new Customer();
+        customer.setName("ACME Corporation");
+        customer.setEmail("orders@acme.example");
+        customer.setVip(true);
+        Order order = new Order();
+        order.setId(1234567L);
+        order.setCustomer(customer);
+        order.setCreated(new Date(1400000000000L));
+        order.setStatus("APPROVED");
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < items; i++) {
+            LineItem item = new LineItem();
+            item.setSku("SKU-" + i);
+            item.setDescription("Line item number " + i);
+            item.setQuantity(i % 5 + 1);
+            item.setPrice(new BigDecimal("19.99"));
+            order.getItems().add(item);
+            total = total.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        order.setTotal(total);
+        order.getAttributes().put("channel", "web");
+        order.getAttributes().put("region", "emea");
+        order.getAttributes().put("priority", "normal");
+        return order;
+    }
+
+    /**
+     * An order process variable.
+     */
+    public static class Order {
+        private long _id;
+        private Customer _customer;
+        private Date _created;
+        private String _status;
+        private BigDecimal _total;
+        private List<LineItem> _items = new ArrayList<LineItem>();
+        private Map<String, String> _attributes = new LinkedHashMap<String, String>();
+
+        public long getId() {
+            return _id;
+        }
+
+        public void setId(long id) {
+            _id = id;
+        }
+
+        public Customer getCustomer() {
+            return _customer;
+        }
+
+        public void setCustomer(Customer customer) {
+            _customer = customer;
+        }
+
+        public Date getCreated() {
+            return _created;
+        }
+
+        public void setCreated(Date created) {
+            _created = created;
+        }
+
+        public String getStatus() {
+            return _status;
+        }
+
+        public void setStatus(String status) {
+            _status = status;
+        }
+
+        public BigDecimal getTotal() {
+            return _total;
+        }
+
+        public void setTotal(BigDecimal total) {
+            _total = total;
+        }
+
+        public List<LineItem> getItems() {
+            return _items;
+        }
+
+        public void setItems(List<LineItem> items) {
+            _items = items;
+        }
+
+        public Map<String, String> getAttributes() {
+            return _attributes;
+        }
+
+        public void setAttributes(Map<String, String> attributes) {
+            _attributes = attributes;
+        }
+    }
+
+    /**
+     * The customer of an order.
+     */
+    public static class Customer {
+        private String _name;
+        private String _email;
+        private boolean _vip;
+
+        public String getName() {
+            return _name;
+        }
+
+        public void setName(String name) {
+            _name = name;
+        }
+
+        public String getEmail() {
+            return _email;
+        }
+
+        public void setEmail(String email) {
+            _email = email;
+        }
+
+        public boolean isVip() {
+            return _vip;
+        }
+
+        public void setVip(boolean vip) {
+            _vip = vip;
+        }
+    }
+
+    /**
+     * A line item of an order.
+     */
+    public static class LineItem {
+        private String _sku;
+        private String _description;
+        private int _quantity;
+        private BigDecimal _price;
+
+        public String getSku() {
+            return _sku;
+        }
+
+        public void setSku(String sku) {
+            _sku = sku;
+        }
+
+        public String getDescription() {
+            return _description;
+        }
+
+        public void setDescription(String description) {
+            _description = description;
+        }
+
+        public int getQuantity() {
+            return _quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            _quantity = quantity;
+        }
+
+        public BigDecimal getPrice() {
+            return _price;
+        }
+
+        public void setPrice(BigDecimal price) {
+            _price = price;
+        }
+    }
+}
@@ -15,10 +15,17 @@ package org.switchyard.component.bpm.service;
 
 import static org.switchyard.component.bpm.BPMConstants.CORRELATION_KEY_PROPERTY;
 import static org.switchyard.component.bpm.BPMConstants.PROCESSS_INSTANCE_ID_PROPERTY;
+import static org.switchyard.component.bpm.BPMConstants.RUNTIME_STRATEGY;
 import static org.switchyard.component.common.knowledge.service.SwitchYardServiceTaskHandler.SWITCHYARD_SERVICE_TASK;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.activation.DataSource;
@@ -30,10 +37,17 @@ import org.junit.runner.RunWith;
 import org.kie.api.KieBase;
 import org.kie.api.io.ResourceType;
 import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.manager.RuntimeEngine;
+import org.kie.api.runtime.process.ProcessInstance;
 import org.kie.api.runtime.process.WorkflowProcessInstance;
+import org.kie.internal.KieInternalServices;
 import org.kie.internal.builder.KnowledgeBuilder;
 import org.kie.internal.builder.KnowledgeBuilderFactory;
 import org.kie.internal.io.ResourceFactory;
+import org.kie.internal.process.CorrelationAwareProcessRuntime;
+import org.kie.internal.process.CorrelationKey;
+import org.kie.internal.runtime.manager.SessionNotFoundException;
+import org.kie.internal.runtime.manager.context.CorrelationKeyContext;
 import org.switchyard.BaseHandler;
 import org.switchyard.Exchange;
 import org.switchyard.HandlerException;
@@ -51,7 +65,12 @@ import org.switchyard.component.bpm.exchange.BPMExchangeHandler;
 import org.switchyard.component.common.knowledge.annotation.Input;
 import org.switchyard.component.common.knowledge.annotation.Manifest;
 import org.switchyard.component.common.knowledge.annotation.Output;
+import org.switchyard.component.common.knowledge.annotation.Property;
 import org.switchyard.component.common.knowledge.annotation.Resource;
+import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeManager;
+import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeManagerRegistry;
+import org.switchyard.component.common.knowledge.service.AsyncSwitchYardServiceTaskHandler;
+import org.switchyard.component.common.knowledge.service.ServiceTaskExecutor;
 import org.switchyard.component.common.knowledge.service.SwitchYardServiceInvoker;
 import org.switchyard.component.common.knowledge.service.SwitchYardServiceTaskHandler;
 import org.switchyard.extensions.java.JavaService;
@@ -106,6 +125,121 @@ public class BPMServiceTests {
         Assert.assertEquals("message handled", holder.getValue());
     }
 
+    @Test
+    public void testCallServiceAsync() throws Exception {
+        final Holder holder = new Holder();
+        serviceDomain.registerService(new QName("CallService"), new InOnlyService(), new BaseHandler(){
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                holder.setValue("message handled");
+            }
+        });
+        serviceDomain.registerServiceReference(new QName("CallService"), new InOnlyService());
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add(ResourceFactory.newClassPathResource(CALL_SERVICE_BPMN), ResourceType.BPMN2);
+        KieBase kbase = kbuilder.newKnowledgeBase();
+        KieSession ksession = kbase.newKieSession();
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        AsyncSwitchYardServiceTaskHandler assth = new AsyncSwitchYardServiceTaskHandler();
+        assth.setProcessRuntime(ksession);
+        assth.setInvoker(new SwitchYardServiceInvoker(serviceDomain));
+        assth.setExecutor(new Executor() {
+            public void execute(Runnable task) {
+                tasks.add(task);
+            }
+        });
+        ksession.getWorkItemManager().registerWorkItemHandler(SWITCHYARD_SERVICE_TASK, assth);
+        ProcessInstance processInstance = ksession.startProcess("CallService");
+        // the process waits in the service task until the executor has invoked the service
+        Assert.assertNull(holder.getValue());
+        Assert.assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+        Assert.assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        Assert.assertEquals("message handled", holder.getValue());
+        Assert.assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+        ksession.halt();
+        ksession.dispose();
+    }
+
+    @Test
+    public void testCallServiceAsyncWithoutExecutor() throws Exception {
+        final Holder holder = new Holder();
+        serviceDomain.registerService(new QName("CallService"), new InOnlyService(), new BaseHandler(){
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                holder.setValue("message handled");
+            }
+        });
+        serviceDomain.registerServiceReference(new QName("CallService"), new InOnlyService());
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add(ResourceFactory.newClassPathResource(CALL_SERVICE_BPMN), ResourceType.BPMN2);
+        KieBase kbase = kbuilder.newKnowledgeBase();
+        KieSession ksession = kbase.newKieSession();
+        AsyncSwitchYardServiceTaskHandler assth = new AsyncSwitchYardServiceTaskHandler();
+        assth.setProcessRuntime(ksession);
+        assth.setInvoker(new SwitchYardServiceInvoker(serviceDomain));
+        ksession.getWorkItemManager().registerWorkItemHandler(SWITCHYARD_SERVICE_TASK, assth);
+        // the session wasn't built by a RuntimeManager, so there is no executor to invoke the service on
+        Assert.assertNull(assth.getExecutor());
+        ProcessInstance processInstance = ksession.startProcess("CallService");
+        Assert.assertEquals("message handled", holder.getValue());
+        Assert.assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+        ksession.halt();
+        ksession.dispose();
+    }
+
+    @Test
+    public void testServiceTaskExecutorShutdown() throws Exception {
+        ServiceTaskExecutor executor = new ServiceTaskExecutor();
+        final CountDownLatch invoked = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                invoked.countDown();
+            }
+        });
+        Assert.assertTrue(invoked.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.isShutdown());
+        try {
+            executor.execute(new Runnable() {
+                public void run() {}
+            });
+            Assert.fail("Expected the executor to reject services once shut down");
+        } catch (RejectedExecutionException ree) {
+            // the RuntimeManager it belonged to is closed
+            ree.getMessage();
+        }
+    }
+
+    @Test
+    public void testCallServiceAsyncFailure() throws Exception {
+        serviceDomain.registerService(new QName("CallService"), new InOnlyService(), new BaseHandler(){
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                throw new HandlerException("service failed");
+            }
+        });
+        serviceDomain.registerServiceReference(new QName("CallService"), new InOnlyService());
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add(ResourceFactory.newClassPathResource(CALL_SERVICE_BPMN), ResourceType.BPMN2);
+        KieBase kbase = kbuilder.newKnowledgeBase();
+        KieSession ksession = kbase.newKieSession();
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        AsyncSwitchYardServiceTaskHandler assth = new AsyncSwitchYardServiceTaskHandler();
+        assth.setProcessRuntime(ksession);
+        assth.setInvoker(new SwitchYardServiceInvoker(serviceDomain));
+        assth.setExecutor(new Executor() {
+            public void execute(Runnable task) {
+                tasks.add(task);
+            }
+        });
+        ksession.getWorkItemManager().registerWorkItemHandler(SWITCHYARD_SERVICE_TASK, assth);
+        ProcessInstance processInstance = ksession.startProcess("CallService");
+        Assert.assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        // the THROW fault can't reach the caller, so the work item is aborted instead of staying active
+        Assert.assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+        ksession.halt();
+        ksession.dispose();
+    }
+
     @BPM(processId="AccessAttachment", manifest=@Manifest(resources=@Resource(location=ACCESS_ATTACHMENT_BPMN, type="BPMN2")))
     public interface AccessAttachment {
         @StartProcess(inputs={
@@ -245,6 +379,65 @@ public class BPMServiceTests {
         Assert.assertEquals("2", holder.getValue());
     }
 
+    @BPM(processId="ControlProcess", persistent=true,
+            properties=@Property(name=RUNTIME_STRATEGY, value="PER_PROCESS_INSTANCE"),
+            manifest=@Manifest(resources=@Resource(location=CONTROL_PROCESS_BPMN, type="BPMN2")))
+    public interface PerProcessInstanceProcesses {
+        @StartProcess
+        public Object process(Object content);
+        @SignalEventAll(eventId="test")
+        public void signal(Object content);
+    }
+
+    @Test
+    public void testSignalAllProcessesPerProcessInstance() throws Exception {
+        QName serviceName = new QName("PerProcessInstanceProcesses");
+        BPMExchangeHandler handler = startPerProcessInstanceHandler(serviceName);
+        InvocationFaultException fault = null;
+        try {
+            new Invoker(serviceDomain, serviceName).operation("signal").sendInOut(null);
+        } catch (InvocationFaultException ife) {
+            fault = ife;
+        }
+        handler.stop();
+        Assert.assertNotNull(fault);
+    }
+
+    @Test
+    public void testStartCorrelatedProcessPerProcessInstance() throws Exception {
+        QName serviceName = new QName("PerProcessInstanceProcesses");
+        BPMExchangeHandler handler = startPerProcessInstanceHandler(serviceName);
+        KnowledgeRuntimeManager runtimeManager = KnowledgeRuntimeManagerRegistry.getRuntimeManager(serviceDomain.getName(), serviceName);
+        CorrelationKey correlationKey = KieInternalServices.Factory.get().newCorrelationKeyFactory().newCorrelationKey("A");
+        SessionNotFoundException notFound = null;
+        try {
+            // no session is mapped to a correlationKey before its process instance is started
+            runtimeManager.getRuntimeEngine(correlationKey);
+        } catch (SessionNotFoundException snfe) {
+            notFound = snfe;
+        }
+        Assert.assertNotNull(notFound);
+        // the context the handler starts a correlated process instance in
+        RuntimeEngine runtime = runtimeManager.getRuntimeEngine(CorrelationKeyContext.get());
+        ProcessInstance processInstance = ((CorrelationAwareProcessRuntime)runtime.getKieSession()).startProcess(
+                "ControlProcess", correlationKey, new HashMap<String, Object>());
+        runtimeManager.disposeRuntimeEngine(runtime);
+        handler.stop();
+        Assert.assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+    }
+
+    private BPMExchangeHandler startPerProcessInstanceHandler(QName serviceName) {
+        BPMComponentImplementationModel bci_model = (BPMComponentImplementationModel)new BPMSwitchYardScanner().scan(PerProcessInstanceProcesses.class).getImplementation();
+        bci_model.getComponent().setName(null);
+        BPMExchangeHandler handler = new BPMExchangeHandler(bci_model, serviceDomain, serviceName);
+        // the handler keeps the per process instance strategy, while its sessions are built without a database
+        bci_model.setPersistent(false);
+        Service service = serviceDomain.registerService(serviceName, JavaService.fromClass(PerProcessInstanceProcesses.class), handler);
+        serviceDomain.registerServiceReference(service.getName(), service.getInterface(), service.getProviderHandler());
+        handler.start();
+        return handler;
+    }
+
     @Test
     public void testFaultResultProcessSuccess() throws Exception {
         runFaultResultProcess(false);
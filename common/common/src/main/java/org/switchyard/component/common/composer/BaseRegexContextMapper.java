@@ -14,8 +14,12 @@
 package org.switchyard.component.common.composer;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -34,12 +38,18 @@ import org.switchyard.common.xml.XMLHelper;
  */
 public class BaseRegexContextMapper<D extends BindingData> extends BaseContextMapper<D> implements RegexContextMapper<D> {
 
-    private final List<Pattern> _includes = new ArrayList<Pattern>();
-    private final List<Pattern> _excludes = new ArrayList<Pattern>();
-    private final List<Pattern> _includeNamespaces = new ArrayList<Pattern>();
-    private final List<Pattern> _excludeNamespaces = new ArrayList<Pattern>();
+    // upper bound of remembered match decisions per mapper; the memo is reset once exceeded
+    private static final int MAX_CACHED_MATCHES = 1024;
 
-    private void setPatternList(String regexs, List<Pattern> patternList) {
+    private volatile PatternList _includes = PatternList.EMPTY;
+    private volatile PatternList _excludes = PatternList.EMPTY;
+    private volatile PatternList _includeNamespaces = PatternList.EMPTY;
+    private volatile PatternList _excludeNamespaces = PatternList.EMPTY;
+
+    private final ConcurrentMap<String, Boolean> _nameMatches = new ConcurrentHashMap<String, Boolean>();
+    private final ConcurrentMap<QName, Boolean> _qnameMatches = new ConcurrentHashMap<QName, Boolean>();
+
+    private PatternList createPatternList(String regexs) {
         Set<String> regexSet = Strings.uniqueSplitTrimToNull(regexs, ",");
         List<Pattern> tmpList = new ArrayList<Pattern>();
         for (String regex : regexSet) {
@@ -50,10 +60,12 @@ public class BaseRegexContextMapper<D extends BindingData> extends BaseContextMa
                 throw CommonCommonMessages.MESSAGES.isNotAValidRegexPattern(regex, pse.getMessage());
             }
         }
-        synchronized (patternList) {
-            patternList.clear();
-            patternList.addAll(tmpList);
-        }
+        return new PatternList(tmpList);
+    }
+
+    private void clearMatches() {
+        _nameMatches.clear();
+        _qnameMatches.clear();
     }
 
     /**
@@ -61,7 +73,8 @@ public class BaseRegexContextMapper<D extends BindingData> extends BaseContextMa
      */
     @Override
     public ContextMapper<D> setIncludes(String includes) {
-        setPatternList(includes, _includes);
+        _includes = createPatternList(includes);
+        clearMatches();
         return this;
     }
 
@@ -70,7 +83,8 @@ public class BaseRegexContextMapper<D extends BindingData> extends BaseContextMa
      */
     @Override
     public ContextMapper<D> setExcludes(String excludes) {
-        setPatternList(excludes, _excludes);
+        _excludes = createPatternList(excludes);
+        clearMatches();
         return this;
     }
 
@@ -79,7 +93,8 @@ public class BaseRegexContextMapper<D extends BindingData> extends BaseContextMa
      */
     @Override
     public ContextMapper<D> setIncludeNamespaces(String includeNamespaces) {
-        setPatternList(includeNamespaces, _includeNamespaces);
+        _includeNamespaces = createPatternList(includeNamespaces);
+        clearMatches();
         return this;
     }
 
@@ -88,7 +103,8 @@ public class BaseRegexContextMapper<D extends BindingData> extends BaseContextMa
      */
     @Override
     public ContextMapper<D> setExcludeNamespaces(String excludeNamespaces) {
-        setPatternList(excludeNamespaces, _excludeNamespaces);
+        _excludeNamespaces = createPatternList(excludeNamespaces);
+        clearMatches();
         return this;
     }
 
@@ -97,7 +113,15 @@ public class BaseRegexContextMapper<D extends BindingData> extends BaseContextMa
      */
     @Override
     public boolean matches(String name) {
-        return matches(XMLHelper.createQName(name));
+        if (name == null) {
+            return false;
+        }
+        Boolean matches = _nameMatches.get(name);
+        if (matches == null) {
+            matches = matches(XMLHelper.createQName(name));
+            remember(_nameMatches, name, matches);
+        }
+        return matches;
     }
 
     /**
@@ -105,35 +129,94 @@ public class BaseRegexContextMapper<D extends BindingData> extends BaseContextMa
      */
     @Override
     public boolean matches(QName qname) {
-        return qname != null && matches(qname.getLocalPart(), _includes, _excludes) && matches(qname.getNamespaceURI(), _includeNamespaces, _excludeNamespaces);
+        if (qname == null) {
+            return false;
+        }
+        Boolean matches = _qnameMatches.get(qname);
+        if (matches == null) {
+            matches = matches(qname.getLocalPart(), _includes, _excludes) && matches(qname.getNamespaceURI(), _includeNamespaces, _excludeNamespaces);
+            remember(_qnameMatches, qname, matches);
+        }
+        return matches;
     }
 
-    private boolean matches(String test, List<Pattern> includes, List<Pattern> excludes) {
-        boolean green = false;
-        boolean red = false;
-        for (Pattern include : includes) {
-            if (include.matcher(test).matches()) {
-                green = true;
-                break;
-            } else {
-                red = true;
-            }
+    private <K> void remember(ConcurrentMap<K, Boolean> memo, K key, Boolean matches) {
+        if (memo.size() >= MAX_CACHED_MATCHES) {
+            memo.clear();
         }
-        boolean matches = green || !red;
+        memo.put(key, matches);
+    }
+
+    private boolean matches(String test, PatternList includes, PatternList excludes) {
+        // included when there are no includes or any of them matches,
+        // then kept when there are no excludes or any of them does not match
+        boolean matches = includes.isEmpty() || includes.anyMatches(test);
         if (matches) {
-            green = false;
-            red = false;
-            for (Pattern exclude : excludes) {
-                if (!exclude.matcher(test).matches()) {
-                    green = true;
-                    break;
+            matches = excludes.isEmpty() || !excludes.allMatch(test);
+        }
+        return matches;
+    }
+
+    /**
+     * An immutable list of patterns, with a set lookup when all of them are literals.
+     */
+    private static final class PatternList {
+
+        private static final PatternList EMPTY = new PatternList(Collections.<Pattern>emptyList());
+
+        private final List<Pattern> _patterns;
+        private final Set<String> _literals;
+
+        private PatternList(List<Pattern> patterns) {
+            _patterns = patterns;
+            Set<String> literals = new HashSet<String>();
+            for (Pattern pattern : patterns) {
+                if (isLiteral(pattern.pattern())) {
+                    literals.add(pattern.pattern());
                 } else {
-                    red = true;
+                    literals = null;
+                    break;
                 }
             }
-            matches = green || !red;
+            _literals = literals;
+        }
+
+        private boolean isEmpty() {
+            return _patterns.isEmpty();
+        }
+
+        private boolean anyMatches(String test) {
+            if (_literals != null) {
+                return _literals.contains(test);
+            }
+            for (Pattern pattern : _patterns) {
+                if (pattern.matcher(test).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean allMatch(String test) {
+            if (_literals != null) {
+                return _literals.size() == 1 && _literals.contains(test);
+            }
+            for (Pattern pattern : _patterns) {
+                if (!pattern.matcher(test).matches()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isLiteral(String regex) {
+            for (int i = 0; i < regex.length(); i++) {
+                if ("\\^$.|?*+()[]{}".indexOf(regex.charAt(i)) > -1) {
+                    return false;
+                }
+            }
+            return true;
         }
-        return matches;
     }
 
 }
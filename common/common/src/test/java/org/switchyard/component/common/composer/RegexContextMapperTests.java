@@ -135,4 +135,26 @@ public class RegexContextMapperTests {
         assertFalse(_regexContextMapper.matches(XMLHelper.createQName("urn:foo:2.0", "keith")));
     }
 
+    @Test
+    public void testLiteralIncludesExcludes() throws Exception {
+        _regexContextMapper.setIncludes("david, tom, keith");
+        _regexContextMapper.setExcludes("keith");
+        assertTrue(_regexContextMapper.matches("david"));
+        assertTrue(_regexContextMapper.matches("tom"));
+        assertFalse(_regexContextMapper.matches("keith"));
+        assertFalse(_regexContextMapper.matches("tomc"));
+    }
+
+    @Test
+    public void testMatchesRecomputedAfterChange() throws Exception {
+        _regexContextMapper.setIncludes("foo");
+        assertTrue(_regexContextMapper.matches("foo"));
+        assertFalse(_regexContextMapper.matches("bar"));
+        _regexContextMapper.setIncludes("bar");
+        assertFalse(_regexContextMapper.matches("foo"));
+        assertTrue(_regexContextMapper.matches("bar"));
+        _regexContextMapper.setExcludes("bar");
+        assertFalse(_regexContextMapper.matches("bar"));
+    }
+
 }
@@ -93,5 +93,23 @@ public interface CommonKnowledgeLogger {
     @LogMessage(level = Level.DEBUG)
     @Message(id = 34608, value = "Attempt to register listener returned null")
     void attemptToRegisterListenerReturnedNull();
+
+    /**
+     * problemCompletingWorkItem method definition.
+     * @param workItemId the workItemId
+     * @param tMessage tMessage
+     */
+    @LogMessage(level = Level.WARN)
+    @Message(id = 34609, value = "problem completing work item %s asynchronously; it stays active: %s")
+    void problemCompletingWorkItem(long workItemId, String tMessage);
+
+    /**
+     * abortingWorkItem method definition.
+     * @param workItemId the workItemId
+     * @param tMessage tMessage
+     */
+    @LogMessage(level = Level.WARN)
+    @Message(id = 34610, value = "work item %s failed asynchronously and is aborted: %s")
+    void abortingWorkItem(long workItemId, String tMessage);
 }
 
@@ -13,6 +13,8 @@
  */
 package org.switchyard.component.common.knowledge;
 
+import java.io.IOException;
+
 import javax.transaction.HeuristicMixedException;
 import javax.transaction.HeuristicRollbackException;
 import javax.transaction.NotSupportedException;
@@ -230,5 +232,27 @@ public interface CommonKnowledgeMessages {
      */
     @Message(id = 34725, value = "Could not instantiate workItemHandler class: %s")
     SwitchYardException couldNotInstantiateWorkItemHandlerClass(String workItemHandlerClassName);
-}
 
+    /**
+     * unsupportedMarshallingStrategy method definition.
+     * @param marshallingStrategy the marshallingStrategy
+     * @return IllegalArgumentException
+     */
+    @Message(id = 34726, value = "Unsupported marshallingStrategy: %s; use JSON or BINARY")
+    IllegalArgumentException unsupportedMarshallingStrategy(String marshallingStrategy);
+
+    /**
+     * invalidBinaryMarshalledObject method definition.
+     * @return IOException
+     */
+    @Message(id = 34727, value = "Invalid or unsupported binary marshalled object")
+    IOException invalidBinaryMarshalledObject();
+
+    /**
+     * cannotBuildKieBase method definition.
+     * @param errors the errors
+     * @return IllegalArgumentException
+     */
+    @Message(id = 34728, value = "Cannot build KieBase: %s")
+    IllegalArgumentException cannotBuildKieBase(String errors);
+}
@@ -36,6 +36,9 @@ public final class KnowledgeConstants {
     /** Fault. */
     public static final String FAULT = "Fault";
 
+    /** marshallingStrategy implementation property; JSON (the default) or BINARY, for the variables of persistent sessions. */
+    public static final String MARSHALLING_STRATEGY = "marshallingStrategy";
+
     private KnowledgeConstants() {}
 
 }
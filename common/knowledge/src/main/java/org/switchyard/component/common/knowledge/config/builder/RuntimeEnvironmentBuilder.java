@@ -13,9 +13,15 @@
  */
 package org.switchyard.component.common.knowledge.config.builder;
 
+import static org.switchyard.component.common.knowledge.KnowledgeConstants.MARSHALLING_STRATEGY;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.TreeMap;
 
 import javax.persistence.EntityManagerFactory;
 import javax.transaction.TransactionManager;
@@ -32,8 +38,12 @@ import org.jbpm.runtime.manager.impl.mapper.JPAMapper;
 import org.jbpm.services.task.commands.TaskCommandExecutorImpl;
 import org.jbpm.services.task.events.TaskEventSupport;
 import org.jbpm.services.task.impl.command.CommandBasedTaskService;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
 import org.kie.api.builder.ReleaseId;
 import org.kie.api.io.Resource;
+import org.kie.api.io.ResourceConfiguration;
+import org.kie.api.io.ResourceType;
 import org.kie.api.marshalling.ObjectMarshallingStrategy;
 import org.kie.api.runtime.Environment;
 import org.kie.api.runtime.EnvironmentName;
@@ -43,14 +53,18 @@ import org.kie.api.runtime.manager.RuntimeEnvironment;
 import org.kie.api.runtime.manager.RuntimeEnvironmentBuilderFactory;
 import org.kie.api.task.TaskService;
 import org.kie.api.task.UserGroupCallback;
+import org.kie.internal.builder.KnowledgeBuilderConfiguration;
+import org.kie.internal.builder.KnowledgeBuilderFactory;
 import org.kie.internal.runtime.conf.AuditMode;
 import org.kie.internal.runtime.conf.DeploymentDescriptor;
 import org.kie.internal.runtime.manager.InternalRegisterableItemsFactory;
 import org.kie.internal.runtime.manager.Mapper;
 import org.kie.internal.runtime.manager.TaskServiceFactory;
 import org.switchyard.ServiceDomain;
+import org.switchyard.common.lang.Strings;
 import org.switchyard.common.type.reflect.Access;
 import org.switchyard.common.type.reflect.FieldAccess;
+import org.switchyard.component.common.knowledge.CommonKnowledgeMessages;
 import org.switchyard.component.common.knowledge.config.builder.patch.PatchedLocalTaskServiceFactory;
 import org.switchyard.component.common.knowledge.config.builder.patch.PatchedRuntimeEnvironmentBuilder;
 import org.switchyard.component.common.knowledge.config.items.CompoundRegisterableItemsFactory;
@@ -60,7 +74,10 @@ import org.switchyard.component.common.knowledge.config.manifest.Manifest;
 import org.switchyard.component.common.knowledge.config.manifest.RemoteManifest;
 import org.switchyard.component.common.knowledge.config.manifest.ResourcesManifest;
 import org.switchyard.component.common.knowledge.config.model.KnowledgeComponentImplementationModel;
+import org.switchyard.component.common.knowledge.runtime.KieBaseCache;
+import org.switchyard.component.common.knowledge.serial.BinaryObjectMarshallingStrategy;
 import org.switchyard.component.common.knowledge.serial.SerializerObjectMarshallingStrategy;
+import org.switchyard.component.common.knowledge.service.ServiceTaskExecutor;
 import org.switchyard.component.common.knowledge.transaction.TransactionManagerLocator;
 import org.switchyard.serial.FormatType;
 import org.switchyard.serial.SerializerFactory;
@@ -104,6 +121,7 @@ public class RuntimeEnvironmentBuilder extends KnowledgeBuilder {
      */
     public RuntimeEnvironment build() {
         final org.kie.api.runtime.manager.RuntimeEnvironmentBuilder jbpmRuntimeEnvironmentBuilder;
+        KieBaseCache.Reference<?> kieBaseReference = null;
         Manifest manifest = _manifestBuilder.build();
         if (manifest instanceof RemoteManifest) {
             RemoteManifest remoteManifest = (RemoteManifest)manifest;
@@ -117,17 +135,24 @@ public class RuntimeEnvironmentBuilder extends KnowledgeBuilder {
             ReleaseId releaseId = containerManifest.getReleaseId();
             String sessionName = containerManifest.getSessionName();
             if (releaseId != null) {
-                if (baseName != null || sessionName != null) {
-                    jbpmRuntimeEnvironmentBuilder = _runtimeEnvironmentBuilderFactory.newDefaultBuilder(releaseId, baseName, sessionName);
+                if (containerManifest.isScan()) {
+                    // a scanned container gets updated in place, so it can't be shared
+                    if (baseName != null || sessionName != null) {
+                        jbpmRuntimeEnvironmentBuilder = _runtimeEnvironmentBuilderFactory.newDefaultBuilder(releaseId, baseName, sessionName);
+                    } else {
+                        jbpmRuntimeEnvironmentBuilder = _runtimeEnvironmentBuilderFactory.newDefaultBuilder(releaseId);
+                    }
                 } else {
-                    jbpmRuntimeEnvironmentBuilder = _runtimeEnvironmentBuilderFactory.newDefaultBuilder(releaseId);
+                    KieBaseCache.Reference<KieContainer> kieContainerReference = acquireKieContainer(releaseId);
+                    kieBaseReference = kieContainerReference;
+                    jbpmRuntimeEnvironmentBuilder = newContainerBuilder(kieContainerReference, baseName, sessionName, false);
                 }
                 // we can't update classpath containers, so no point adding it to environment below here
                 containerManifest.addToEnvironment(jbpmRuntimeEnvironmentBuilder);
-            } else if (baseName != null || sessionName != null) {
-                jbpmRuntimeEnvironmentBuilder = _runtimeEnvironmentBuilderFactory.newClasspathKmoduleDefaultBuilder(baseName, sessionName);
             } else {
-                jbpmRuntimeEnvironmentBuilder = _runtimeEnvironmentBuilderFactory.newClasspathKmoduleDefaultBuilder();
+                KieBaseCache.Reference<KieContainer> kieContainerReference = acquireClasspathKieContainer();
+                kieBaseReference = kieContainerReference;
+                jbpmRuntimeEnvironmentBuilder = newContainerBuilder(kieContainerReference, baseName, sessionName, true);
             }
         } else {
             if (_persistent) {
@@ -137,11 +162,37 @@ public class RuntimeEnvironmentBuilder extends KnowledgeBuilder {
             }
             if (manifest instanceof ResourcesManifest) {
                 ResourcesManifest resourcesManifest = (ResourcesManifest)manifest;
-                for (Resource resource : resourcesManifest.buildResources()) {
-                    jbpmRuntimeEnvironmentBuilder.addAsset(resource, resource.getResourceType());
+                List<Resource> resources = resourcesManifest.buildResources();
+                String resourcesHash = hash(resources);
+                if (resourcesHash != null) {
+                    KieBaseCache.Reference<KieBase> kieBaseResourcesReference = acquireKieBase(resourcesHash, resources);
+                    kieBaseReference = kieBaseResourcesReference;
+                    jbpmRuntimeEnvironmentBuilder.knowledgeBase(kieBaseResourcesReference.get());
+                } else {
+                    for (Resource resource : resources) {
+                        jbpmRuntimeEnvironmentBuilder.addAsset(resource, resource.getResourceType());
+                    }
                 }
             }
         }
+        if (kieBaseReference == null) {
+            return build(jbpmRuntimeEnvironmentBuilder, manifest);
+        }
+        // released when the RuntimeManager is closed, or here if the RuntimeEnvironment can't be built
+        kieBaseReference.addToEnvironment(jbpmRuntimeEnvironmentBuilder);
+        boolean built = false;
+        try {
+            RuntimeEnvironment runtimeEnvironment = build(jbpmRuntimeEnvironmentBuilder, manifest);
+            built = true;
+            return runtimeEnvironment;
+        } finally {
+            if (!built) {
+                kieBaseReference.release();
+            }
+        }
+    }
+
+    private RuntimeEnvironment build(org.kie.api.runtime.manager.RuntimeEnvironmentBuilder jbpmRuntimeEnvironmentBuilder, Manifest manifest) {
         jbpmRuntimeEnvironmentBuilder.classLoader(getClassLoader());
         jbpmRuntimeEnvironmentBuilder.persistence(_persistent);
         // provides a noop EntityManagerFactory if no persistence
@@ -170,6 +221,8 @@ public class RuntimeEnvironmentBuilder extends KnowledgeBuilder {
             jbpmRuntimeEnvironmentBuilder.addConfiguration(name, value); // add to KieSessionConfiguration
             jbpmRuntimeEnvironmentBuilder.addEnvironmentEntry(name, value); // add to Environment (SWITCHYARD-2393)
         }
+        // shut down when the RuntimeManager is closed; no thread is started unless a service task is invoked asynchronously
+        new ServiceTaskExecutor().addToEnvironment(jbpmRuntimeEnvironmentBuilder);
         // things that need to be done to the original RuntimeEnvironment before the jBPM RuntimeEnvironmentBuilder is built (get->init)
         /*
         Access<SimpleRuntimeEnvironment> simpleREAccess = new FieldAccess<SimpleRuntimeEnvironment>(
@@ -221,8 +274,7 @@ public class RuntimeEnvironmentBuilder extends KnowledgeBuilder {
         RuntimeEnvironment runtimeEnvironment = jbpmRuntimeEnvironmentBuilder.get();
         Environment environment = runtimeEnvironment.getEnvironment();
         // our ObjectMarshallingStrategy can be added to the Environment after the jBPM RuntimeEnvironmentBuilder is built (get->init)
-        List<ObjectMarshallingStrategy> new_oms = new ArrayList<ObjectMarshallingStrategy>();
-        new_oms.add(new SerializerObjectMarshallingStrategy(SerializerFactory.create(FormatType.JSON, null, true)));
+        List<ObjectMarshallingStrategy> new_oms = newObjectMarshallingStrategies(properties.getProperty(MARSHALLING_STRATEGY));
         ObjectMarshallingStrategy[] old_oms = (ObjectMarshallingStrategy[])environment.get(EnvironmentName.OBJECT_MARSHALLING_STRATEGIES);
         if (old_oms != null) {
             for (int i=0; i < old_oms.length; i++) {
@@ -235,4 +287,113 @@ public class RuntimeEnvironmentBuilder extends KnowledgeBuilder {
         return runtimeEnvironment;
     }
 
+    private KieBaseCache.Reference<KieContainer> acquireKieContainer(final ReleaseId releaseId) {
+        return KieBaseCache.acquire(getClassLoader(), "container:" + releaseId.toExternalForm(), new KieBaseCache.Factory<KieContainer>() {
+            @Override
+            public KieContainer create() {
+                return PatchedRuntimeEnvironmentBuilder.newKieContainer(releaseId);
+            }
+        });
+    }
+
+    private KieBaseCache.Reference<KieContainer> acquireClasspathKieContainer() {
+        return KieBaseCache.acquire(getClassLoader(), "classpath", new KieBaseCache.Factory<KieContainer>() {
+            @Override
+            public KieContainer create() {
+                return KieServices.Factory.get().newKieClasspathContainer();
+            }
+        });
+    }
+
+    private org.kie.api.runtime.manager.RuntimeEnvironmentBuilder newContainerBuilder(
+            KieBaseCache.Reference<KieContainer> kieContainerReference, String baseName, String sessionName, boolean classpath) {
+        boolean created = false;
+        try {
+            org.kie.api.runtime.manager.RuntimeEnvironmentBuilder jbpmRuntimeEnvironmentBuilder;
+            if (classpath) {
+                jbpmRuntimeEnvironmentBuilder = PatchedRuntimeEnvironmentBuilder.getClasspathKmoduleDefault(kieContainerReference.get(), baseName, sessionName);
+            } else {
+                jbpmRuntimeEnvironmentBuilder = PatchedRuntimeEnvironmentBuilder.getDefault(kieContainerReference.get(), baseName, sessionName);
+            }
+            created = true;
+            return jbpmRuntimeEnvironmentBuilder;
+        } finally {
+            if (!created) {
+                kieContainerReference.release();
+            }
+        }
+    }
+
+    private KieBaseCache.Reference<KieBase> acquireKieBase(String resourcesHash, final List<Resource> resources) {
+        return KieBaseCache.acquire(getClassLoader(), "resources:" + resourcesHash, new KieBaseCache.Factory<KieBase>() {
+            @Override
+            public KieBase create() {
+                KnowledgeBuilderConfiguration kbuilderConfiguration = KnowledgeBuilderFactory.newKnowledgeBuilderConfiguration(null, getClassLoader());
+                org.kie.internal.builder.KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder(kbuilderConfiguration);
+                for (Resource resource : resources) {
+                    if (resource.getResourceType() != null) {
+                        kbuilder.add(resource, resource.getResourceType());
+                        if (kbuilder.hasErrors()) {
+                            throw CommonKnowledgeMessages.MESSAGES.cannotBuildKieBase(kbuilder.getErrors().toString());
+                        }
+                    }
+                }
+                return kbuilder.newKnowledgeBase();
+            }
+        });
+    }
+
+    /**
+     * Hashes the types, configurations and contents of the resources, so services built from the same
+     * resources share one KieBase.
+     * @param resources the resources
+     * @return the hash, or null if a resource couldn't be read
+     */
+    private static String hash(List<Resource> resources) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[8192];
+            for (Resource resource : resources) {
+                ResourceType resourceType = resource.getResourceType();
+                ResourceConfiguration resourceConfiguration = resource.getConfiguration();
+                StringBuilder header = new StringBuilder();
+                header.append(resourceType != null ? resourceType.getName() : null).append('|');
+                if (resourceConfiguration != null) {
+                    header.append(new TreeMap<Object, Object>(resourceConfiguration.toProperties()));
+                }
+                digest.update(header.toString().getBytes("UTF-8"));
+                InputStream is = resource.getInputStream();
+                try {
+                    int count;
+                    while ((count = is.read(buffer)) != -1) {
+                        digest.update(buffer, 0, count);
+                    }
+                } finally {
+                    is.close();
+                }
+                digest.update((byte)0);
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (Exception e) {
+            // the resources will be compiled for this service alone
+            return null;
+        }
+    }
+
+    private static List<ObjectMarshallingStrategy> newObjectMarshallingStrategies(String marshallingStrategy) {
+        List<ObjectMarshallingStrategy> oms = new ArrayList<ObjectMarshallingStrategy>();
+        ObjectMarshallingStrategy json = new SerializerObjectMarshallingStrategy(SerializerFactory.create(FormatType.JSON, null, true));
+        marshallingStrategy = Strings.trimToNull(marshallingStrategy);
+        if (marshallingStrategy == null || "JSON".equalsIgnoreCase(marshallingStrategy)) {
+            oms.add(json);
+        } else if ("BINARY".equalsIgnoreCase(marshallingStrategy)) {
+            // jBPM reads a variable back with the strategy it was written with, so variables written as JSON stay readable
+            oms.add(new BinaryObjectMarshallingStrategy());
+            oms.add(json);
+        } else {
+            throw CommonKnowledgeMessages.MESSAGES.unsupportedMarshallingStrategy(marshallingStrategy);
+        }
+        return oms;
+    }
+
 }
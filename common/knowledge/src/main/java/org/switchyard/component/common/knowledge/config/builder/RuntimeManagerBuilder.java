@@ -19,6 +19,7 @@ import org.kie.api.runtime.manager.RuntimeManagerFactory;
 import org.switchyard.ServiceDomain;
 import org.switchyard.component.common.knowledge.config.manifest.RemoteManifest;
 import org.switchyard.component.common.knowledge.config.model.KnowledgeComponentImplementationModel;
+import org.switchyard.component.common.knowledge.runtime.KieBaseCache;
 import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeManagerType;
 import org.switchyard.component.common.knowledge.runtime.remote.RemoteRuntimeManager;
 
@@ -57,19 +58,31 @@ public class RuntimeManagerBuilder extends KnowledgeBuilder {
         if (remoteManifest != null) {
             runtimeManager = new RemoteRuntimeManager(remoteManifest.buildConfiguration(), identifier);
         } else {
-            switch (type) {
-                case SINGLETON:
-                    runtimeManager = _runtimeManagerFactory.newSingletonRuntimeManager(runtimeEnvironment, identifier);
-                    break;
-                case PER_REQUEST:
-                    runtimeManager = _runtimeManagerFactory.newPerRequestRuntimeManager(runtimeEnvironment, identifier);
-                    break;
-                case PER_PROCESS_INSTANCE:
-                    runtimeManager = _runtimeManagerFactory.newPerProcessInstanceRuntimeManager(runtimeEnvironment, identifier);
-                    break;
-                default:
-                    runtimeManager = null;
-                    break;
+            boolean built = false;
+            try {
+                switch (type) {
+                    case SINGLETON:
+                        runtimeManager = _runtimeManagerFactory.newSingletonRuntimeManager(runtimeEnvironment, identifier);
+                        break;
+                    case PER_REQUEST:
+                        runtimeManager = _runtimeManagerFactory.newPerRequestRuntimeManager(runtimeEnvironment, identifier);
+                        break;
+                    case PER_PROCESS_INSTANCE:
+                        runtimeManager = _runtimeManagerFactory.newPerProcessInstanceRuntimeManager(runtimeEnvironment, identifier);
+                        break;
+                    default:
+                        runtimeManager = null;
+                        break;
+                }
+                built = runtimeManager != null;
+            } finally {
+                if (!built) {
+                    // otherwise released when the RuntimeManager is closed
+                    KieBaseCache.Reference<?> kieBaseReference = KieBaseCache.Reference.removeFromEnvironment(runtimeEnvironment.getEnvironment());
+                    if (kieBaseReference != null) {
+                        kieBaseReference.release();
+                    }
+                }
             }
         }
         return runtimeManager;
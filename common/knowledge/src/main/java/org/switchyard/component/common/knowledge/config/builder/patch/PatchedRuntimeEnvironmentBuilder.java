@@ -230,11 +230,34 @@ public class PatchedRuntimeEnvironmentBuilder implements RuntimeEnvironmentBuild
      *
      */
     public static RuntimeEnvironmentBuilder getDefault(ReleaseId releaseId, String kbaseName, String ksessionName) {
+        return getDefault(newKieContainer(releaseId), kbaseName, ksessionName);
+    }
+
+    /**
+     * Resolves the kjar and creates a new <code>KieContainer</code> for it.
+     * @param releaseId <code>ReleaseId</code> that described the kjar
+     * @return the new <code>KieContainer</code>
+     */
+    public static KieContainer newKieContainer(ReleaseId releaseId) {
         MavenRepository repository = MavenRepository.getMavenRepository();
         repository.resolveArtifact(releaseId.toExternalForm());
         KieServices ks = KieServices.Factory.get();
-        KieContainer kieContainer = ks.newKieContainer(releaseId);
-        
+        return ks.newKieContainer(releaseId);
+    }
+
+    /**
+     * Provides default configuration of <code>RuntimeEnvironmentBuilder</code> that is based on.
+     * <ul>
+     *  <li>DefaultRuntimeEnvironment</li>
+     * </ul>
+     * This one is tailored to works smoothly with kjars as the notion of kbase and ksessions
+     * @param kieContainer <code>KieContainer</code> of the kjar, which may be shared
+     * @param kbaseName name of the kbase defined in kmodule.xml stored in kjar
+     * @param ksessionName name of the ksession define in kmodule.xml stored in kjar
+     * @return new instance of <code>RuntimeEnvironmentBuilder</code> that is already preconfigured with defaults
+     *
+     */
+    public static RuntimeEnvironmentBuilder getDefault(KieContainer kieContainer, String kbaseName, String ksessionName) {
         DeploymentDescriptorManager descriptorManager = new DeploymentDescriptorManager();
         List<DeploymentDescriptor> descriptorHierarchy = descriptorManager.getDeploymentDescriptorHierarchy(kieContainer);
         DeploymentDescriptorMerger merger = new DeploymentDescriptorMerger();
@@ -331,6 +354,22 @@ public class PatchedRuntimeEnvironmentBuilder implements RuntimeEnvironmentBuild
         return setupClasspathKmoduleBuilder(KieServices.Factory.get().getKieClasspathContainer(), kbaseName, ksessionName);
     }
 
+    /**
+     * Provides default configuration of <code>RuntimeEnvironmentBuilder</code> that is based on.
+     * <ul>
+     *  <li>DefaultRuntimeEnvironment</li>
+     * </ul>
+     * It relies on the given classpath KieContainer, which may be shared.
+     * @param kieContainer classpath <code>KieContainer</code>
+     * @param kbaseName name of the kbase defined in kmodule.xml
+     * @param ksessionName name of the ksession define in kmodule.xml
+     * @return new instance of <code>RuntimeEnvironmentBuilder</code> that is already preconfigured with defaults
+     *
+     */
+    public static RuntimeEnvironmentBuilder getClasspathKmoduleDefault(KieContainer kieContainer, String kbaseName, String ksessionName) {
+        return setupClasspathKmoduleBuilder(kieContainer, kbaseName, ksessionName);
+    }
+
     private static RuntimeEnvironmentBuilder setupClasspathKmoduleBuilder(KieContainer kieContainer,
                                                                           String kbaseName,
                                                                           String ksessionName) {
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.common.knowledge.expression;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.switchyard.common.property.PropertyResolver;
+
+/**
+ * Compiled expressions keyed by property resolver and expression text, so that expression mappings
+ * repeating an expression share one compiled Expression.
+ * <p/>
+ * A cache belongs to the operations of one component implementation; it isn't kept process-wide,
+ * since compiled expressions hold on to the classes, and so to the class loader, of the deployment.
+ */
+public final class ExpressionCache {
+
+    private final Map<PropertyResolver, Map<String, Expression>> _expressions = new IdentityHashMap<PropertyResolver, Map<String, Expression>>();
+
+    /**
+     * Gets a cached Expression, or creates it.
+     * @param expression the expression string
+     * @param propertyResolver the property resolver
+     * @return the Expression
+     */
+    public synchronized Expression get(String expression, PropertyResolver propertyResolver) {
+        Map<String, Expression> expressions = _expressions.get(propertyResolver);
+        if (expressions == null) {
+            expressions = new HashMap<String, Expression>();
+            _expressions.put(propertyResolver, expressions);
+        }
+        Expression compiled = expressions.get(expression);
+        if (compiled == null) {
+            compiled = ExpressionFactory.INSTANCE.create(expression, null, propertyResolver);
+            expressions.put(expression, compiled);
+        }
+        return compiled;
+    }
+
+}
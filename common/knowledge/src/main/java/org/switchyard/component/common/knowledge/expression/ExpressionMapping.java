@@ -16,8 +16,10 @@ package org.switchyard.component.common.knowledge.expression;
 import org.switchyard.common.lang.Strings;
 import org.switchyard.common.property.PropertyResolver;
 import org.switchyard.common.property.SystemAndTestPropertyResolver;
+import org.switchyard.component.common.knowledge.config.model.FaultModel;
 import org.switchyard.component.common.knowledge.config.model.InputModel;
 import org.switchyard.component.common.knowledge.config.model.MappingModel;
+import org.switchyard.component.common.knowledge.config.model.OutputModel;
 
 /**
  * An expression mapping.
@@ -26,23 +28,45 @@ import org.switchyard.component.common.knowledge.config.model.MappingModel;
  */
 public final class ExpressionMapping {
 
+    /** The variable holding the value assigned by the output-to expression. */
+    public static final String OUTPUT_VARIABLE = "_varOutput";
+
     private final PropertyResolver _propertyResolver;
     private final String _from;
     private final String _to;
     private final String _output;
     private Expression _fromExpression = null;
     private Expression _toExpression = null;
+    private Expression _outputToExpression = null;
 
     /**
      * Constructs an expression mapping from a mapping model.
      * @param mappingModel the mapping model
      */
     public ExpressionMapping(MappingModel mappingModel) {
+        this(mappingModel, null);
+    }
+
+    /**
+     * Constructs an expression mapping from a mapping model, compiling its from expression, and the
+     * output-to expression of an output or fault, up front.
+     * @param mappingModel the mapping model
+     * @param expressionCache the cache the expressions are taken from, or null to compile them on first use
+     */
+    public ExpressionMapping(MappingModel mappingModel, ExpressionCache expressionCache) {
         PropertyResolver propertyResolver = mappingModel.getModelConfiguration().getPropertyResolver();
         _propertyResolver = propertyResolver != null ? propertyResolver : SystemAndTestPropertyResolver.INSTANCE;
         _from = Strings.trimToNull(mappingModel.getFrom());
         _to = Strings.trimToNull(mappingModel.getTo());
         _output = mappingModel instanceof InputModel ? Strings.trimToNull(((InputModel)mappingModel).getOutput()) : null;
+        if (expressionCache != null) {
+            if (_from != null) {
+                _fromExpression = expressionCache.get(_from, _propertyResolver);
+            }
+            if (_to != null && (mappingModel instanceof OutputModel || mappingModel instanceof FaultModel)) {
+                _outputToExpression = expressionCache.get(toOutputTo(_to), _propertyResolver);
+            }
+        }
     }
 
     /**
@@ -91,6 +115,17 @@ public final class ExpressionMapping {
         return _toExpression;
     }
 
+    /**
+     * Gets the expression assigning the {@link #OUTPUT_VARIABLE} to the to.
+     * @return the output-to expression
+     */
+    public Expression getOutputToExpression() {
+        if (_outputToExpression == null && _to != null) {
+            _outputToExpression = ExpressionFactory.INSTANCE.create(toOutputTo(_to), null, _propertyResolver);
+        }
+        return _outputToExpression;
+    }
+
     /**
      * Gets the output.
      * @return the output
@@ -99,4 +134,8 @@ public final class ExpressionMapping {
         return _output;
     }
 
+    private static String toOutputTo(String to) {
+        return to + " = " + OUTPUT_VARIABLE;
+    }
+
 }
@@ -22,6 +22,7 @@ import org.mvel2.ParserContext;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.integration.impl.ImmutableDefaultFactory;
+import org.mvel2.integration.impl.MapVariableResolver;
 import org.mvel2.integration.impl.MapVariableResolverFactory;
 import org.mvel2.integration.impl.SimpleValueResolver;
 import org.switchyard.common.property.PropertyResolver;
@@ -33,6 +34,13 @@ import org.switchyard.common.property.PropertyResolver;
  */
 public class MVELExpression implements Expression {
 
+    private static final ThreadLocal<VariablesFactory> VARIABLES_FACTORY = new ThreadLocal<VariablesFactory>() {
+        @Override
+        protected VariablesFactory initialValue() {
+            return new VariablesFactory();
+        }
+    };
+
     private final String _expression;
     private final PropertyResolverFactory _propertyResolverFactory;
     private Serializable _compiled;
@@ -92,11 +100,122 @@ public class MVELExpression implements Expression {
      */
     @Override
     public Object run(Map<String, Object> variables) {
-        if (variables == null) {
-            variables = new HashMap<String, Object>();
+        VariablesFactory factory = VARIABLES_FACTORY.get();
+        if (factory.isAttached()) {
+            // an expression run while another one is running on this thread
+            factory = new VariablesFactory();
+        }
+        factory.attach(variables, _propertyResolverFactory);
+        try {
+            return isCompiled() ? MVEL.executeExpression(_compiled, factory) : MVEL.eval(_expression, factory);
+        } finally {
+            factory.detach();
+        }
+    }
+
+    /**
+     * A variable resolver factory reused by the expressions run on one thread; it is attached to
+     * the variables of a run, and detached from them afterwards so that it doesn't keep them alive.
+     * The variables an expression assigns only live for its run: they neither change the variables
+     * of the caller nor leak into the expressions run after it with the same variables.
+     */
+    @SuppressWarnings("serial")
+    private static final class VariablesFactory extends MapVariableResolverFactory {
+
+        private final CallerVariablesFactory _callerFactory = new CallerVariablesFactory();
+        private boolean _attached;
+
+        private VariablesFactory() {
+            super(new HashMap<String, Object>());
+        }
+
+        private boolean isAttached() {
+            return _attached;
+        }
+
+        private void attach(Map<String, Object> variables, VariableResolverFactory nextFactory) {
+            _callerFactory.attach(variables, nextFactory);
+            setNextFactory(_callerFactory);
+            _attached = true;
         }
-        VariableResolverFactory factory = new MapVariableResolverFactory(variables, _propertyResolverFactory);
-        return isCompiled() ? MVEL.executeExpression(_compiled, factory) : MVEL.eval(_expression, factory);
+
+        private void detach() {
+            if (variableResolvers != null) {
+                variableResolvers.clear();
+            }
+            variables.clear();
+            _callerFactory.detach();
+            setNextFactory(null);
+            _attached = false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public VariableResolver createVariable(String name, Object value) {
+            // a variable of the caller is shadowed rather than set
+            if (!variables.containsKey(name)) {
+                variables.put(name, null);
+            }
+            VariableResolver resolver = getVariableResolver(name);
+            resolver.setValue(value);
+            return resolver;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public VariableResolver createVariable(String name, Object value, Class<?> type) {
+            if (variables.containsKey(name)) {
+                // defined twice in this run
+                return super.createVariable(name, value, type);
+            }
+            VariableResolver resolver = new MapVariableResolver(variables, name, type);
+            resolver.setValue(value);
+            if (variableResolvers != null) {
+                variableResolvers.put(name, resolver);
+            }
+            return resolver;
+        }
+
+    }
+
+    /**
+     * Resolves the variables of the caller to copies of their values, so that they are read only.
+     */
+    @SuppressWarnings("serial")
+    private static final class CallerVariablesFactory extends MapVariableResolverFactory {
+
+        private final Map<String, Object> _empty = new HashMap<String, Object>();
+
+        private CallerVariablesFactory() {
+            super(new HashMap<String, Object>());
+            variables = _empty;
+        }
+
+        private void attach(Map<String, Object> variables, VariableResolverFactory nextFactory) {
+            this.variables = variables != null ? variables : _empty;
+            setNextFactory(nextFactory);
+        }
+
+        private void detach() {
+            variables = _empty;
+            setNextFactory(null);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public VariableResolver getVariableResolver(String name) {
+            if (variables.containsKey(name)) {
+                return new SimpleValueResolver(variables.get(name));
+            }
+            return super.getVariableResolver(name);
+        }
+
     }
 
     @SuppressWarnings("serial")
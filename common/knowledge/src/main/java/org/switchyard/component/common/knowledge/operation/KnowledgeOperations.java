@@ -49,8 +49,7 @@ import org.switchyard.component.common.knowledge.config.model.OperationsModel;
 import org.switchyard.component.common.knowledge.config.model.OutputModel;
 import org.switchyard.component.common.knowledge.config.model.OutputsModel;
 import org.switchyard.component.common.knowledge.expression.ContextMap;
-import org.switchyard.component.common.knowledge.expression.Expression;
-import org.switchyard.component.common.knowledge.expression.ExpressionFactory;
+import org.switchyard.component.common.knowledge.expression.ExpressionCache;
 import org.switchyard.component.common.knowledge.expression.ExpressionMapping;
 import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeEngine;
 
@@ -70,6 +69,7 @@ public final class KnowledgeOperations {
     public static void registerOperations(KnowledgeComponentImplementationModel model, Map<String, KnowledgeOperation> operations, KnowledgeOperation defaultOperation) {
         OperationsModel operationsModel = model.getOperations();
         if (operationsModel != null) {
+            ExpressionCache expressionCache = new ExpressionCache();
             for (OperationModel operationModel : operationsModel.getOperations()) {
                 String name = Strings.trimToNull(operationModel.getName());
                 if (name == null) {
@@ -84,7 +84,7 @@ public final class KnowledgeOperations {
                     eventId = defaultOperation.getEventId();
                 }
                 KnowledgeOperation operation = new KnowledgeOperation(type, eventId);
-                mapExpressions(operationModel, operation);
+                mapExpressions(operationModel, operation, expressionCache);
                 if (operations.containsKey(name)) {
                     throw CommonKnowledgeMessages.MESSAGES.cannotRegisterOperation(type.toString(), name);
                 }
@@ -96,29 +96,29 @@ public final class KnowledgeOperations {
         }
     }
 
-    private static void mapExpressions(OperationModel operationModel, KnowledgeOperation operation) {
+    private static void mapExpressions(OperationModel operationModel, KnowledgeOperation operation, ExpressionCache expressionCache) {
         GlobalsModel globalsModel = operationModel.getGlobals();
         if (globalsModel != null) {
             for (GlobalModel globalModel : globalsModel.getGlobals()) {
-                operation.getGlobalExpressionMappings().add(new ExpressionMapping(globalModel));
+                operation.getGlobalExpressionMappings().add(new ExpressionMapping(globalModel, expressionCache));
             }
         }
         InputsModel inputsModel = operationModel.getInputs();
         if (inputsModel != null) {
             for (InputModel inputModel : inputsModel.getInputs()) {
-                operation.getInputExpressionMappings().add(new ExpressionMapping(inputModel));
+                operation.getInputExpressionMappings().add(new ExpressionMapping(inputModel, expressionCache));
             }
         }
         OutputsModel outputsModel = operationModel.getOutputs();
         if (outputsModel != null) {
             for (OutputModel outputModel : outputsModel.getOutputs()) {
-                operation.getOutputExpressionMappings().add(new ExpressionMapping(outputModel));
+                operation.getOutputExpressionMappings().add(new ExpressionMapping(outputModel, expressionCache));
             }
         }
         FaultsModel faultsModel = operationModel.getFaults();
         if (faultsModel != null) {
             for (FaultModel faultModel : faultsModel.getFaults()) {
-                operation.getFaultExpressionMappings().add(new ExpressionMapping(faultModel));
+                operation.getFaultExpressionMappings().add(new ExpressionMapping(faultModel, expressionCache));
             }
         }
     }
@@ -320,6 +320,7 @@ public final class KnowledgeOperations {
             if (!expressionVariables.containsKey(defaultReturnVariable)) {
                 expressionVariables.put(defaultReturnVariable, null);
             }
+            Map<String, Object> variables = getVariables(message, expressionVariables);
             for (Entry<String, List<ExpressionMapping>> toListEntry : toListMap.entrySet()) {
                 List<Object> from_list = new ArrayList<Object>();
                 ExpressionMapping to_em = null;
@@ -327,7 +328,7 @@ public final class KnowledgeOperations {
                     if (to_em == null) {
                         to_em = from_em;
                     }
-                    Object from_value = run(message, from_em.getFromExpression(), expressionVariables);
+                    Object from_value = from_em.getFromExpression().run(variables);
                     if (from_value != null) {
                         from_list.add(from_value);
                     } else {
@@ -349,11 +350,8 @@ public final class KnowledgeOperations {
                         output = from_list;
                         break;
                 }
-                String output_var = toVariable(output);
-                expressionVariables.put(output_var, output);
-                String output_to = to_em.getTo() + " = " + output_var;
-                Expression output_to_expr = ExpressionFactory.INSTANCE.create(output_to, null, to_em.getPropertyResolver());
-                run(message, output_to_expr, expressionVariables);
+                variables.put(ExpressionMapping.OUTPUT_VARIABLE, output);
+                to_em.getOutputToExpression().run(variables);
             }
         }
     }
@@ -410,7 +408,8 @@ public final class KnowledgeOperations {
 
     private static Map<String, List<Object>> getListMap(Message message, List<ExpressionMapping> expressionMappings, boolean expand, String undefinedVariable, Map<String, Object> expressionVariables) {
         Map<String, List<Object>> map = new HashMap<String, List<Object>>();
-        if (expressionMappings != null) {
+        if (expressionMappings != null && expressionMappings.size() > 0) {
+            Map<String, Object> variables = getVariables(message, expressionVariables);
             for (ExpressionMapping em : expressionMappings) {
                 String variable = em.getTo();
                 if (variable == null && undefinedVariable != null) {
@@ -422,7 +421,7 @@ public final class KnowledgeOperations {
                         list = new ArrayList<Object>();
                         map.put(variable, list);
                     }
-                    Object value = run(message, em.getFromExpression(), expressionVariables);
+                    Object value = em.getFromExpression().run(variables);
                     if (expand) {
                         expand(value, list);
                     } else if (value != null) {
@@ -434,7 +433,7 @@ public final class KnowledgeOperations {
         return map;
     }
 
-    private static Object run(Message message, Expression expression, Map<String, Object> expressionVariables) {
+    private static Map<String, Object> getVariables(Message message, Map<String, Object> expressionVariables) {
         Map<String, Object> variables = new HashMap<String, Object>();
         if (expressionVariables != null) {
             variables.putAll(expressionVariables);
@@ -442,7 +441,7 @@ public final class KnowledgeOperations {
         // these always take precedence!
         variables.put(CONTEXT, new ContextMap(message.getContext(), Scope.MESSAGE));
         variables.put(MESSAGE, message);
-        return expression.run(variables);
+        return variables;
     }
 
     private static void expand(Object value, List<Object> list) {
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.common.knowledge.runtime;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.manager.RuntimeEnvironmentBuilder;
+
+/**
+ * KieBases, or the KieContainers holding them, shared by the knowledge services of a deployment
+ * which are built from the same resources or the same container release id.
+ * <p/>
+ * Entries are scoped by the class loader of the deployment, so services of different deployments
+ * never share one, and are reference counted: every RuntimeManager holds a {@link Reference} which
+ * is released when it is closed, and an entry is dropped with its last reference.
+ * <p/>
+ * The class loader of a deployment is held strongly, but only while one of its values is referenced,
+ * and a cached value built from the deployment holds the class loader anyway. Once the RuntimeManagers
+ * of a deployment are closed on undeploy, nothing of it is left in the cache.
+ */
+public final class KieBaseCache {
+
+    private static final Map<ClassLoader, Map<String, Entry>> ENTRIES = new IdentityHashMap<ClassLoader, Map<String, Entry>>();
+
+    private KieBaseCache() {}
+
+    /**
+     * Acquires a reference to a cached value, creating the value if it isn't cached yet.
+     * @param <T> the type of value
+     * @param classLoader the class loader of the deployment
+     * @param key the key of the value, unique for the type of value
+     * @param factory creates the value
+     * @return the Reference
+     */
+    public static <T> Reference<T> acquire(ClassLoader classLoader, String key, Factory<T> factory) {
+        Entry entry;
+        synchronized (ENTRIES) {
+            Map<String, Entry> entries = ENTRIES.get(classLoader);
+            if (entries == null) {
+                entries = new HashMap<String, Entry>();
+                ENTRIES.put(classLoader, entries);
+            }
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(classLoader, key);
+                entries.put(key, entry);
+            }
+            entry._references++;
+        }
+        Reference<T> reference = new Reference<T>(entry);
+        boolean created = false;
+        try {
+            // values are created outside the lock, so one deployment compiling doesn't hold up the others
+            reference._value = entry.get(factory);
+            created = true;
+        } finally {
+            if (!created) {
+                reference.release();
+            }
+        }
+        return reference;
+    }
+
+    /**
+     * If any value is cached for the class loader of a deployment.
+     * @param classLoader the class loader of the deployment
+     * @return if any value is cached
+     */
+    static boolean isCached(ClassLoader classLoader) {
+        synchronized (ENTRIES) {
+            return ENTRIES.containsKey(classLoader);
+        }
+    }
+
+    private static void release(Entry entry) {
+        synchronized (ENTRIES) {
+            if (--entry._references == 0) {
+                Map<String, Entry> entries = ENTRIES.get(entry._classLoader);
+                if (entries != null && entries.get(entry._key) == entry) {
+                    entries.remove(entry._key);
+                    if (entries.isEmpty()) {
+                        ENTRIES.remove(entry._classLoader);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a value to be cached.
+     * @param <T> the type of value
+     */
+    public interface Factory<T> {
+        /**
+         * Creates the value.
+         * @return the value
+         */
+        T create();
+    }
+
+    /**
+     * A reference to a cached value.
+     * @param <T> the type of value
+     */
+    public static final class Reference<T> {
+
+        private static final String REFERENCE = Reference.class.getName();
+
+        private final Entry _entry;
+        private final AtomicBoolean _released = new AtomicBoolean();
+        private T _value;
+
+        private Reference(Entry entry) {
+            _entry = entry;
+        }
+
+        /**
+         * Gets the cached value.
+         * @return the value
+         */
+        public T get() {
+            return _value;
+        }
+
+        /**
+         * Releases the reference; further calls do nothing.
+         */
+        public void release() {
+            if (_released.compareAndSet(false, true)) {
+                KieBaseCache.release(_entry);
+            }
+        }
+
+        /**
+         * Adds the Reference to the RuntimeEnvironmentBuilder's Environment.
+         * @param reb the RuntimeEnvironmentBuilder
+         */
+        public void addToEnvironment(RuntimeEnvironmentBuilder reb) {
+            reb.addEnvironmentEntry(REFERENCE, this);
+        }
+
+        /**
+         * Removes and returns the Reference from the Environment.
+         * @param e the Environment
+         * @return the Reference
+         */
+        public static Reference<?> removeFromEnvironment(Environment e) {
+            Object reference = e.get(REFERENCE);
+            if (reference != null) {
+                e.set(REFERENCE, null);
+            }
+            return Reference.class.cast(reference);
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final ClassLoader _classLoader;
+        private final String _key;
+        private int _references = 0;
+        private Object _value;
+
+        private Entry(ClassLoader classLoader, String key) {
+            _classLoader = classLoader;
+            _key = key;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized <T> T get(Factory<T> factory) {
+            if (_value == null) {
+                _value = factory.create();
+            }
+            return (T)_value;
+        }
+
+    }
+
+}
@@ -20,6 +20,7 @@ import java.util.Set;
 
 import javax.xml.namespace.QName;
 
+import org.kie.api.KieBase;
 import org.kie.api.KieServices;
 import org.kie.api.builder.KieScanner;
 import org.kie.api.builder.ReleaseId;
@@ -31,10 +32,12 @@ import org.kie.api.runtime.KieContainer;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.manager.Context;
 import org.kie.api.runtime.manager.RuntimeEngine;
+import org.kie.api.runtime.manager.RuntimeEnvironment;
 import org.kie.api.runtime.manager.RuntimeManager;
 import org.kie.internal.process.CorrelationKey;
 import org.kie.internal.runtime.manager.Disposable;
 import org.kie.internal.runtime.manager.DisposeListener;
+import org.kie.internal.runtime.manager.InternalRuntimeManager;
 import org.kie.internal.runtime.manager.context.CorrelationKeyContext;
 import org.kie.internal.runtime.manager.context.EmptyContext;
 import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
@@ -44,6 +47,7 @@ import org.switchyard.component.common.knowledge.config.builder.ChannelBuilder;
 import org.switchyard.component.common.knowledge.config.builder.LoggerBuilder;
 import org.switchyard.component.common.knowledge.config.items.ExtendedRegisterableItemsFactory;
 import org.switchyard.component.common.knowledge.config.manifest.ContainerManifest;
+import org.switchyard.component.common.knowledge.service.ServiceTaskExecutor;
 
 /**
  * KnowledgeRuntimeManager.
@@ -166,8 +170,11 @@ public class KnowledgeRuntimeManager implements RuntimeManager {
     @Override
     public RuntimeEngine getRuntimeEngine(Context<?> context) {
         KnowledgeRuntimeEngine runtimeEngine;
-        if (context == null || _type != KnowledgeRuntimeManagerType.PER_PROCESS_INSTANCE) {
+        if (_type != KnowledgeRuntimeManagerType.PER_PROCESS_INSTANCE) {
             context = EmptyContext.get();
+        } else if (context == null) {
+            // a session for a process instance which is yet to be started
+            context = ProcessInstanceIdContext.get();
         }
         final ClassLoader origTCCL = Classes.setTCCL(_classLoader);
         try {
@@ -203,8 +210,16 @@ public class KnowledgeRuntimeManager implements RuntimeManager {
                         ExtendedRegisterableItemsFactory extendedRIF = ExtendedRegisterableItemsFactory.Env.removeFromEnvironment(environment);
                         if (extendedRIF != null) {
                             List<KieBaseEventListener> baseListeners = extendedRIF.getKieBaseEventListeners(runtimeEngine);
-                            for (KieBaseEventListener baseListener : baseListeners) {
-                                session.getKieBase().addEventListener(baseListener);
+                            for (final KieBaseEventListener baseListener : baseListeners) {
+                                final KieBase kieBase = session.getKieBase();
+                                kieBase.addEventListener(baseListener);
+                                // the KieBase may be shared with other services, and outlive this session
+                                disposable.addDisposeListener(new DisposeListener() {
+                                    @Override
+                                    public void onDispose(RuntimeEngine runtime) {
+                                        kieBase.removeEventListener(baseListener);
+                                    }
+                                });
                             }
                         }
                         for (ChannelBuilder builder : _channelBuilders) {
@@ -279,7 +294,24 @@ public class KnowledgeRuntimeManager implements RuntimeManager {
      */
     @Override
     public void close() {
-        _runtimeManager.close();
+        try {
+            _runtimeManager.close();
+        } finally {
+            // the environment holds a reference to a shared KieBase, and the executor of asynchronous service tasks
+            if (_runtimeManager instanceof InternalRuntimeManager) {
+                RuntimeEnvironment runtimeEnvironment = ((InternalRuntimeManager)_runtimeManager).getEnvironment();
+                if (runtimeEnvironment != null) {
+                    KieBaseCache.Reference<?> kieBaseReference = KieBaseCache.Reference.removeFromEnvironment(runtimeEnvironment.getEnvironment());
+                    if (kieBaseReference != null) {
+                        kieBaseReference.release();
+                    }
+                    ServiceTaskExecutor serviceTaskExecutor = ServiceTaskExecutor.removeFromEnvironment(runtimeEnvironment.getEnvironment());
+                    if (serviceTaskExecutor != null) {
+                        serviceTaskExecutor.shutdown();
+                    }
+                }
+            }
+        }
     }
 
     /* attempt at fixing SWITCHYARD-2240
@@ -0,0 +1,888 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.common.knowledge.serial;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.switchyard.common.type.Classes;
+import org.switchyard.component.common.knowledge.CommonKnowledgeMessages;
+import org.switchyard.serial.FormatType;
+import org.switchyard.serial.Serializer;
+import org.switchyard.serial.SerializerFactory;
+
+/**
+ * An ObjectMarshallingStrategy writing process and session variables in a compact, type-tagged
+ * binary form, as an alternative to the JSON {@link SerializerObjectMarshallingStrategy}.
+ * <p/>
+ * Well known JDK values, lists, sets and maps are written directly. Other objects whose class has
+ * a no-arg constructor are written field by field; the fields of a class are looked up once and
+ * cached, and a class is named once per marshalled object, with later occurrences written as an
+ * index. Shared and circular references are kept. Serializable objects which customize their
+ * serialization, or have no no-arg constructor, are written with Java serialization, and anything
+ * else is carried as a JSON graph.
+ * <p/>
+ * Fields are matched by name when read, so fields added to or removed from a class since an
+ * object was written are left at their default or skipped.
+ */
+public class BinaryObjectMarshallingStrategy implements ObjectMarshallingStrategy {
+
+    private static final byte VERSION = 1;
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte SHORT = 8;
+    private static final byte BYTE = 9;
+    private static final byte CHAR = 10;
+    private static final byte BYTES = 11;
+    private static final byte DATE = 12;
+    private static final byte BIG_DECIMAL = 13;
+    private static final byte BIG_INTEGER = 14;
+    private static final byte ENUM = 15;
+    private static final byte COLLECTION = 16;
+    private static final byte MAP = 17;
+    private static final byte ARRAY = 18;
+    private static final byte BEAN = 19;
+    private static final byte SERIALIZED = 20;
+    private static final byte GRAPH = 21;
+    private static final byte REF = 22;
+
+    private static final Map<Class<?>, Codec> VALUE_CODECS = new HashMap<Class<?>, Codec>();
+    static {
+        VALUE_CODECS.put(String.class, new Codec(STRING));
+        VALUE_CODECS.put(Boolean.class, new Codec(TRUE));
+        VALUE_CODECS.put(Integer.class, new Codec(INT));
+        VALUE_CODECS.put(Long.class, new Codec(LONG));
+        VALUE_CODECS.put(Double.class, new Codec(DOUBLE));
+        VALUE_CODECS.put(Float.class, new Codec(FLOAT));
+        VALUE_CODECS.put(Short.class, new Codec(SHORT));
+        VALUE_CODECS.put(Byte.class, new Codec(BYTE));
+        VALUE_CODECS.put(Character.class, new Codec(CHAR));
+        VALUE_CODECS.put(byte[].class, new Codec(BYTES));
+        VALUE_CODECS.put(Date.class, new Codec(DATE));
+        VALUE_CODECS.put(BigDecimal.class, new Codec(BIG_DECIMAL));
+        VALUE_CODECS.put(BigInteger.class, new Codec(BIG_INTEGER));
+    }
+
+    private static final Class<?>[] COLLECTION_TYPES = new Class<?>[] {
+        ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class
+    };
+
+    private static final Class<?>[] MAP_TYPES = new Class<?>[] {
+        HashMap.class, LinkedHashMap.class
+    };
+
+    private static final ThreadLocal<Buffer> BUFFER = new ThreadLocal<Buffer>() {
+        @Override
+        protected Buffer initialValue() {
+            return new Buffer();
+        }
+    };
+
+    private final ClassFilter _classFilter = new ClassFilter();
+    private final ConcurrentMap<Class<?>, Codec> _codecs = new ConcurrentHashMap<Class<?>, Codec>();
+    private final Serializer _graphSerializer = SerializerFactory.create(FormatType.JSON, null, true);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean accept(Object object) {
+        return _classFilter.accept(object);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(ObjectOutputStream os, Object object) throws IOException {
+        byte[] bytes = marshal(null, os, object);
+        os.writeInt(bytes.length);
+        os.write(bytes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object read(ObjectInputStream os) throws IOException, ClassNotFoundException {
+        byte[] bytes = new byte[os.readInt()];
+        os.readFully(bytes);
+        return unmarshal(null, os, bytes, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] marshal(Context context, ObjectOutputStream os, Object object) throws IOException {
+        Buffer buffer = BUFFER.get();
+        buffer.reset();
+        try {
+            buffer.write(VERSION);
+            new Writer(buffer).writeValue(object);
+            return buffer.toByteArray();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object unmarshal(Context context, ObjectInputStream is, byte[] object, ClassLoader classloader) throws IOException, ClassNotFoundException {
+        Reader reader = new Reader(object, classloader);
+        if (reader.read() != VERSION) {
+            throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+        }
+        return reader.readValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Context createContext() {
+        return null;
+    }
+
+    private Codec getCodec(Class<?> type) {
+        Codec codec = VALUE_CODECS.get(type);
+        if (codec == null) {
+            codec = _codecs.get(type);
+            if (codec == null) {
+                codec = newCodec(type);
+                _codecs.put(type, codec);
+            }
+        }
+        return codec;
+    }
+
+    private static Codec newCodec(Class<?> type) {
+        if (type.isEnum() || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+            return new Codec(ENUM);
+        }
+        for (Class<?> collectionType : COLLECTION_TYPES) {
+            if (type == collectionType) {
+                return new Codec(COLLECTION, getNoArgConstructor(type));
+            }
+        }
+        for (Class<?> mapType : MAP_TYPES) {
+            if (type == mapType) {
+                return new Codec(MAP, getNoArgConstructor(type));
+            }
+        }
+        if (type.isArray()) {
+            return new Codec(type.getComponentType().isPrimitive() ? SERIALIZED : ARRAY);
+        }
+        Constructor<?> constructor = isBean(type) ? getNoArgConstructor(type) : null;
+        if (constructor != null) {
+            return new Codec(BEAN, constructor, getFields(type));
+        }
+        return new Codec(Serializable.class.isAssignableFrom(type) ? SERIALIZED : GRAPH);
+    }
+
+    private static boolean isBean(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers()) || Externalizable.class.isAssignableFrom(type)) {
+            return false;
+        }
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            // the fields of library classes, and classes customizing their serialization, are left to Java serialization
+            if (ClassFilter.isIgnored(c)
+                    || hasMethod(c, "writeObject", ObjectOutputStream.class)
+                    || hasMethod(c, "readObject", ObjectInputStream.class)
+                    || hasMethod(c, "writeReplace")
+                    || hasMethod(c, "readResolve")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            type.getDeclaredMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException nsme) {
+            return false;
+        }
+    }
+
+    private static Constructor<?> getNoArgConstructor(Class<?> type) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Field[] getFields(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            hierarchy.add(0, c);
+        }
+        List<Field> fields = new ArrayList<Field>();
+        for (Class<?> c : hierarchy) {
+            List<Field> declared = new ArrayList<Field>();
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    field.setAccessible(true);
+                    declared.add(field);
+                }
+            }
+            // the order of getDeclaredFields isn't specified, so it is made stable across JVMs
+            Collections.sort(declared, new Comparator<Field>() {
+                @Override
+                public int compare(Field f1, Field f2) {
+                    return f1.getName().compareTo(f2.getName());
+                }
+            });
+            fields.addAll(declared);
+        }
+        return fields.toArray(new Field[fields.size()]);
+    }
+
+    private static String[] getFieldNames(Field[] fields) {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (Field field : fields) {
+            Integer count = counts.get(field.getName());
+            counts.put(field.getName(), count != null ? count + 1 : 1);
+        }
+        String[] names = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            String name = fields[i].getName();
+            // a field hidden by a subclass field of the same name is qualified by its declaring class
+            names[i] = counts.get(name) > 1 ? fields[i].getDeclaringClass().getName() + "." + name : name;
+        }
+        return names;
+    }
+
+    private static Class<?> loadClass(String name, ClassLoader classLoader) throws IOException {
+        Class<?> type;
+        if (name.startsWith("[")) {
+            try {
+                type = Class.forName(name, false, classLoader != null ? classLoader : Classes.getTCCL());
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            }
+        } else {
+            type = Classes.forName(name, classLoader, Classes.getTCCL(), BinaryObjectMarshallingStrategy.class.getClassLoader());
+        }
+        if (type == null) {
+            throw new IOException(new ClassNotFoundException(name));
+        }
+        return type;
+    }
+
+    /**
+     * How objects of a class are written, with the reflective members the class needs.
+     */
+    private static final class Codec {
+
+        private final byte _tag;
+        private final Constructor<?> _constructor;
+        private final Field[] _fields;
+        private final String[] _fieldNames;
+        private volatile Map<String, Field> _fieldsByName;
+
+        private Codec(byte tag) {
+            this(tag, null, null);
+        }
+
+        private Codec(byte tag, Constructor<?> constructor) {
+            this(tag, constructor, null);
+        }
+
+        private Codec(byte tag, Constructor<?> constructor, Field[] fields) {
+            // a list, set or map whose constructor can't be used is written with Java serialization
+            _tag = (tag == COLLECTION || tag == MAP) && constructor == null ? SERIALIZED : tag;
+            _constructor = constructor;
+            _fields = fields;
+            _fieldNames = fields != null ? getFieldNames(fields) : null;
+        }
+
+        private Object newInstance() throws IOException {
+            try {
+                return _constructor.newInstance();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+
+        private Field getField(String name) {
+            Map<String, Field> fieldsByName = _fieldsByName;
+            if (fieldsByName == null) {
+                fieldsByName = new HashMap<String, Field>();
+                for (int i = 0; i < _fields.length; i++) {
+                    fieldsByName.put(_fieldNames[i], _fields[i]);
+                }
+                _fieldsByName = fieldsByName;
+            }
+            return fieldsByName.get(name);
+        }
+    }
+
+    /**
+     * Writes the values of one marshalled object, numbering the classes and the referenceable objects written.
+     */
+    private final class Writer {
+
+        private final Buffer _out;
+        private final Map<Class<?>, Integer> _classes = new IdentityHashMap<Class<?>, Integer>();
+        private final Map<Object, Integer> _objects = new IdentityHashMap<Object, Integer>();
+
+        private Writer(Buffer out) {
+            _out = out;
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                _out.write(NULL);
+                return;
+            }
+            Class<?> type = value.getClass();
+            Codec codec = getCodec(type);
+            switch (codec._tag) {
+                case STRING:
+                    _out.write(STRING);
+                    _out.writeString((String)value);
+                    break;
+                case TRUE:
+                    _out.write(((Boolean)value) ? TRUE : FALSE);
+                    break;
+                case INT:
+                    _out.write(INT);
+                    _out.writeVarLong((Integer)value);
+                    break;
+                case LONG:
+                    _out.write(LONG);
+                    _out.writeVarLong((Long)value);
+                    break;
+                case DOUBLE:
+                    _out.write(DOUBLE);
+                    _out.writeLong(Double.doubleToLongBits((Double)value));
+                    break;
+                case FLOAT:
+                    _out.write(FLOAT);
+                    _out.writeInt(Float.floatToIntBits((Float)value));
+                    break;
+                case SHORT:
+                    _out.write(SHORT);
+                    _out.writeVarLong((Short)value);
+                    break;
+                case BYTE:
+                    _out.write(BYTE);
+                    _out.write((Byte)value);
+                    break;
+                case CHAR:
+                    _out.write(CHAR);
+                    _out.writeVarLong((Character)value);
+                    break;
+                case BYTES:
+                    byte[] bytes = (byte[])value;
+                    _out.write(BYTES);
+                    _out.writeVarInt(bytes.length);
+                    _out.write(bytes, 0, bytes.length);
+                    break;
+                case DATE:
+                    _out.write(DATE);
+                    _out.writeLong(((Date)value).getTime());
+                    break;
+                case BIG_DECIMAL:
+                case BIG_INTEGER:
+                    _out.write(codec._tag);
+                    _out.writeString(value.toString());
+                    break;
+                case ENUM:
+                    _out.write(ENUM);
+                    writeClass(((Enum<?>)value).getDeclaringClass());
+                    _out.writeString(((Enum<?>)value).name());
+                    break;
+                case SERIALIZED:
+                    writeSerialized(value);
+                    break;
+                case GRAPH:
+                    writeGraph(value, type);
+                    break;
+                default:
+                    writeReferenceable(value, type, codec);
+                    break;
+            }
+        }
+
+        private void writeReferenceable(Object value, Class<?> type, Codec codec) throws IOException {
+            Integer index = _objects.get(value);
+            if (index != null) {
+                _out.write(REF);
+                _out.writeVarInt(index);
+                return;
+            }
+            _objects.put(value, _objects.size());
+            _out.write(codec._tag);
+            switch (codec._tag) {
+                case COLLECTION:
+                    writeClass(type);
+                    Collection<?> collection = (Collection<?>)value;
+                    _out.writeVarInt(collection.size());
+                    for (Object element : collection) {
+                        writeValue(element);
+                    }
+                    break;
+                case MAP:
+                    writeClass(type);
+                    Map<?, ?> map = (Map<?, ?>)value;
+                    _out.writeVarInt(map.size());
+                    for (Map.Entry<?, ?> entry : map.entrySet()) {
+                        writeValue(entry.getKey());
+                        writeValue(entry.getValue());
+                    }
+                    break;
+                case ARRAY:
+                    writeClass(type.getComponentType());
+                    int length = Array.getLength(value);
+                    _out.writeVarInt(length);
+                    for (int i = 0; i < length; i++) {
+                        writeValue(Array.get(value, i));
+                    }
+                    break;
+                default:
+                    writeClass(type);
+                    try {
+                        for (Field field : codec._fields) {
+                            writeValue(field.get(value));
+                        }
+                    } catch (IllegalAccessException iae) {
+                        throw new IOException(iae);
+                    }
+                    break;
+            }
+        }
+
+        private void writeClass(Class<?> type) {
+            Integer index = _classes.get(type);
+            if (index != null) {
+                _out.writeVarInt(index + 1);
+                return;
+            }
+            _classes.put(type, _classes.size());
+            _out.writeVarInt(0);
+            _out.writeString(type.getName());
+            // the field names go with the class, whichever use of it comes first
+            String[] fieldNames = getCodec(type)._fieldNames;
+            if (fieldNames == null) {
+                _out.writeVarInt(0);
+            } else {
+                _out.writeVarInt(fieldNames.length);
+                for (String fieldName : fieldNames) {
+                    _out.writeString(fieldName);
+                }
+            }
+        }
+
+        private void writeSerialized(Object value) throws IOException {
+            _out.write(SERIALIZED);
+            Buffer nested = new Buffer();
+            ObjectOutputStream oos = new ObjectOutputStream(nested);
+            oos.writeObject(value);
+            oos.close();
+            _out.writeVarInt(nested.size());
+            nested.writeTo(_out);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> void writeGraph(Object value, Class<T> type) throws IOException {
+            _out.write(GRAPH);
+            _out.writeString(type.getName());
+            byte[] bytes = _graphSerializer.serialize((T)value, type);
+            _out.writeVarInt(bytes.length);
+            _out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Reads the values of one marshalled object, resolving classes against the specified class loader.
+     */
+    private final class Reader {
+
+        private final byte[] _in;
+        private final ClassLoader _classLoader;
+        private final List<ClassEntry> _classes = new ArrayList<ClassEntry>();
+        private final List<Object> _objects = new ArrayList<Object>();
+        private int _position;
+
+        private Reader(byte[] in, ClassLoader classLoader) {
+            _in = in;
+            _classLoader = classLoader;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object readValue() throws IOException {
+            byte tag = (byte)read();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case INT:
+                    return Integer.valueOf((int)readVarLong());
+                case LONG:
+                    return Long.valueOf(readVarLong());
+                case DOUBLE:
+                    return Double.valueOf(Double.longBitsToDouble(readLong()));
+                case FLOAT:
+                    return Float.valueOf(Float.intBitsToFloat(readInt()));
+                case SHORT:
+                    return Short.valueOf((short)readVarLong());
+                case BYTE:
+                    return Byte.valueOf((byte)read());
+                case CHAR:
+                    return Character.valueOf((char)readVarLong());
+                case BYTES:
+                    return readBytes(readVarInt());
+                case DATE:
+                    return new Date(readLong());
+                case BIG_DECIMAL:
+                    return new BigDecimal(readString());
+                case BIG_INTEGER:
+                    return new BigInteger(readString());
+                case ENUM:
+                    Class enumType = readClass().getType();
+                    return Enum.valueOf(enumType, readString());
+                case COLLECTION:
+                    Collection<Object> collection = (Collection<Object>)readClass().getCodec().newInstance();
+                    _objects.add(collection);
+                    int size = readVarInt();
+                    for (int i = 0; i < size; i++) {
+                        collection.add(readValue());
+                    }
+                    return collection;
+                case MAP:
+                    Map<Object, Object> map = (Map<Object, Object>)readClass().getCodec().newInstance();
+                    _objects.add(map);
+                    int entries = readVarInt();
+                    for (int i = 0; i < entries; i++) {
+                        Object key = readValue();
+                        map.put(key, readValue());
+                    }
+                    return map;
+                case ARRAY:
+                    Class<?> componentType = readClass().getType();
+                    Object array = Array.newInstance(componentType, readVarInt());
+                    _objects.add(array);
+                    int length = Array.getLength(array);
+                    for (int i = 0; i < length; i++) {
+                        Array.set(array, i, readValue());
+                    }
+                    return array;
+                case BEAN:
+                    return readBean(readClass());
+                case SERIALIZED:
+                    return readSerialized(readBytes(readVarInt()));
+                case GRAPH:
+                    Class<?> type = loadClass(readString(), _classLoader);
+                    return _graphSerializer.deserialize(readBytes(readVarInt()), type);
+                case REF:
+                    int index = readVarInt();
+                    if (index >= _objects.size()) {
+                        throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+                    }
+                    return _objects.get(index);
+                default:
+                    throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+            }
+        }
+
+        private Object readBean(ClassEntry entry) throws IOException {
+            Codec codec = entry.getCodec();
+            if (codec._tag != BEAN) {
+                throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+            }
+            Object bean = codec.newInstance();
+            _objects.add(bean);
+            Field[] fields = entry.getFields();
+            try {
+                for (Field field : fields) {
+                    Object value = readValue();
+                    // a field removed since the object was written is skipped
+                    if (field != null && (value != null || !field.getType().isPrimitive())) {
+                        field.set(bean, value);
+                    }
+                }
+            } catch (IllegalAccessException iae) {
+                throw new IOException(iae);
+            } catch (IllegalArgumentException iae) {
+                throw new IOException(iae);
+            }
+            return bean;
+        }
+
+        private ClassEntry readClass() throws IOException {
+            int index = readVarInt();
+            if (index > 0) {
+                if (index > _classes.size()) {
+                    throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+                }
+                return _classes.get(index - 1);
+            }
+            String name = readString();
+            if (name == null) {
+                throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+            }
+            String[] fieldNames = new String[readVarInt()];
+            for (int i = 0; i < fieldNames.length; i++) {
+                fieldNames[i] = readString();
+            }
+            ClassEntry entry = new ClassEntry(loadClass(name, _classLoader), fieldNames);
+            _classes.add(entry);
+            return entry;
+        }
+
+        private Object readSerialized(byte[] bytes) throws IOException {
+            ObjectInputStream ois = new ClassLoaderObjectInputStream(new ByteArrayInputStream(bytes), _classLoader);
+            try {
+                return ois.readObject();
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            } finally {
+                ois.close();
+            }
+        }
+
+        private int read() throws IOException {
+            if (_position >= _in.length) {
+                throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+            }
+            return _in[_position++] & 0xFF;
+        }
+
+        private int readInt() throws IOException {
+            return (read() << 24) | (read() << 16) | (read() << 8) | read();
+        }
+
+        private long readLong() throws IOException {
+            return ((long)readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = read();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+        }
+
+        private long readVarLong() throws IOException {
+            long zigzag = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = read();
+                zigzag |= (long)(b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+        }
+
+        private byte[] readBytes(int length) throws IOException {
+            if (length < 0 || length > _in.length - _position) {
+                throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(_in, _position, bytes, 0, length);
+            _position += length;
+            return bytes;
+        }
+
+        private String readString() throws IOException {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+            if (length - 1 > _in.length - _position) {
+                throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+            }
+            String value = new String(_in, _position, length - 1, UTF8);
+            _position += length - 1;
+            return value;
+        }
+    }
+
+    /**
+     * A class named in a marshalled object, with its written fields matched to the fields of the class.
+     */
+    private final class ClassEntry {
+
+        private final Class<?> _type;
+        private final String[] _fieldNames;
+        private Codec _codec;
+        private Field[] _fields;
+
+        private ClassEntry(Class<?> type, String[] fieldNames) {
+            _type = type;
+            _fieldNames = fieldNames;
+        }
+
+        private Class<?> getType() {
+            return _type;
+        }
+
+        private Codec getCodec() throws IOException {
+            if (_codec == null) {
+                _codec = BinaryObjectMarshallingStrategy.this.getCodec(_type);
+                if (_codec._constructor == null) {
+                    throw CommonKnowledgeMessages.MESSAGES.invalidBinaryMarshalledObject();
+                }
+            }
+            return _codec;
+        }
+
+        private Field[] getFields() throws IOException {
+            if (_fields == null) {
+                Codec codec = getCodec();
+                _fields = new Field[_fieldNames.length];
+                for (int i = 0; i < _fieldNames.length; i++) {
+                    _fields[i] = codec.getField(_fieldNames[i]);
+                }
+            }
+            return _fields;
+        }
+    }
+
+    /**
+     * A growable byte buffer, kept per thread and trimmed back when a large object was written.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(1024);
+        }
+
+        private void release() {
+            if (buf.length > MAX_RETAINED_BUFFER) {
+                buf = new byte[1024];
+            }
+            reset();
+        }
+
+        private void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        private void writeLong(long value) {
+            writeInt((int)(value >>> 32));
+            writeInt((int)value);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        private void writeVarLong(long value) {
+            // zig-zag so that small negative numbers stay small
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                write((int)((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            write((int)zigzag);
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+            } else {
+                byte[] bytes = value.getBytes(UTF8);
+                writeVarInt(bytes.length + 1);
+                write(bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    /**
+     * Resolves serialized classes against the class loader of the session.
+     */
+    private static final class ClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader _classLoader;
+
+        private ClassLoaderObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+            super(in);
+            _classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            Class<?> type = Classes.forName(desc.getName(), _classLoader, Classes.getTCCL(), BinaryObjectMarshallingStrategy.class.getClassLoader());
+            return type != null ? type : super.resolveClass(desc);
+        }
+    }
+
+}
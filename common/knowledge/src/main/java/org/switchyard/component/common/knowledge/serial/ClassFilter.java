@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.common.knowledge.serial;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decides which objects the SwitchYard marshalling strategies take: objects of JDK, DOM, jBPM,
+ * Drools and KIE classes are left to the strategies jBPM configures. The decision is made once
+ * per class.
+ */
+final class ClassFilter {
+
+    private static final String[] IGNORE_PKGS = new String[] {
+        "java.", "javax.", "org.w3c.dom.", "org.jbpm.", "org.drools.", "org.kie."
+    };
+
+    private final ConcurrentMap<Class<?>, Boolean> _accepted = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    /**
+     * If a marshalling strategy takes the object.
+     * @param object the object
+     * @return true if the object isn't null and its class isn't ignored
+     */
+    boolean accept(Object object) {
+        if (object == null) {
+            return false;
+        }
+        Class<?> type = object.getClass();
+        Boolean accepted = _accepted.get(type);
+        if (accepted == null) {
+            accepted = Boolean.valueOf(!isIgnored(type));
+            _accepted.put(type, accepted);
+        }
+        return accepted.booleanValue();
+    }
+
+    /**
+     * If a class belongs to one of the ignored packages.
+     * @param type the class
+     * @return true if it is ignored
+     */
+    static boolean isIgnored(Class<?> type) {
+        String cn = type.getName();
+        for (String ip : IGNORE_PKGS) {
+            // TODO: Replace with something more elegant? Perhaps check the classloader?
+            if (cn.startsWith(ip)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -27,10 +27,7 @@ import org.switchyard.serial.Serializer;
  */
 public class SerializerObjectMarshallingStrategy implements ObjectMarshallingStrategy {
 
-    private static final String[] IGNORE_PKGS = new String[] {
-        "java.", "javax.", "org.w3c.dom.", "org.jbpm.", "org.drools.", "org.kie."
-    };
-
+    private final ClassFilter _classFilter = new ClassFilter();
     private final Serializer _serializer;
 
     /**
@@ -46,17 +43,7 @@ public class SerializerObjectMarshallingStrategy implements ObjectMarshallingStr
      */
     @Override
     public boolean accept(Object object) {
-        if (object != null) {
-            String cn = object.getClass().getName();
-            for (String ip : IGNORE_PKGS) {
-                // TODO: Replace with something more elegant? Perhaps check the classloader?
-                if (cn.startsWith(ip)) {
-                    return false;
-                }
-            }
-            return true;
-        }
-        return false;
+        return _classFilter.accept(object);
     }
 
     /**
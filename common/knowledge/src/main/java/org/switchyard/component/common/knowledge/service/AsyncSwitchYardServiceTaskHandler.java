@@ -0,0 +1,206 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.common.knowledge.service;
+
+import java.util.concurrent.Executor;
+
+import org.drools.core.command.impl.GenericCommand;
+import org.drools.core.command.impl.KnowledgeCommandContext;
+import org.drools.persistence.TransactionManager;
+import org.drools.persistence.TransactionSynchronization;
+import org.jbpm.runtime.manager.impl.PerProcessInstanceRuntimeManager;
+import org.kie.api.runtime.EnvironmentName;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.manager.RuntimeEngine;
+import org.kie.api.runtime.manager.RuntimeManager;
+import org.kie.api.runtime.process.ProcessRuntime;
+import org.kie.api.runtime.process.WorkItem;
+import org.kie.api.runtime.process.WorkItemManager;
+import org.kie.internal.command.Context;
+import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
+import org.switchyard.common.type.Classes;
+import org.switchyard.component.common.knowledge.CommonKnowledgeLogger;
+
+/**
+ * AsyncSwitchYardServiceTaskHandler.
+ * <p/>
+ * Invokes the service of a work item on an executor and returns right away, so that the process
+ * instance doesn't hold its session while the service runs, and the branches of a parallel gateway
+ * invoke their services at the same time. Once the service has replied, the work item is completed,
+ * aborted or skipped according to its FaultAction, in a single command on the session. A service
+ * which fails is handled like one which replied with a fault. A THROW fault can't reach the caller
+ * which started or signalled the process any more; it is logged and the work item is aborted.
+ * <p/>
+ * The service is not invoked in the transaction of the process. When the work item is started in a
+ * transaction, the service is only invoked once that transaction has committed, and not at all if it
+ * rolls back. With a per process instance runtime manager, the work item is completed through the
+ * session of its process instance.
+ * <p/>
+ * Services are invoked on the {@link ServiceTaskExecutor} of the RuntimeManager, unless another executor
+ * is set. A handler used without a RuntimeManager, and without an executor, invokes its services like
+ * {@link SwitchYardServiceTaskHandler} does.
+ */
+public class AsyncSwitchYardServiceTaskHandler extends SwitchYardServiceTaskHandler {
+
+    private Executor _executor;
+    private RuntimeManager _runtimeManager;
+
+    /**
+     * Constructs a new AsyncSwitchYardServiceTaskHandler.
+     */
+    public AsyncSwitchYardServiceTaskHandler() {}
+
+    /**
+     * Gets the executor.
+     * @return the executor, or null if there is none
+     */
+    public Executor getExecutor() {
+        if (_executor == null) {
+            ProcessRuntime processRuntime = getProcessRuntime();
+            if (processRuntime instanceof KieSession) {
+                return ServiceTaskExecutor.getFromEnvironment(((KieSession)processRuntime).getEnvironment());
+            }
+        }
+        return _executor;
+    }
+
+    /**
+     * Sets the executor, for example a managed one; the executor of the RuntimeManager is used by default.
+     * @param executor the executor
+     */
+    public void setExecutor(Executor executor) {
+        _executor = executor;
+    }
+
+    /**
+     * Gets the RuntimeManager.
+     * @return the RuntimeManager
+     */
+    public RuntimeManager getRuntimeManager() {
+        return _runtimeManager;
+    }
+
+    /**
+     * Sets the RuntimeManager.
+     * @param runtimeManager the RuntimeManager
+     */
+    public void setRuntimeManager(RuntimeManager runtimeManager) {
+        _runtimeManager = runtimeManager;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void executeWorkItem(final WorkItem workItem, WorkItemManager manager) {
+        Executor executor = getExecutor();
+        if (executor == null) {
+            super.executeWorkItem(workItem, manager);
+            return;
+        }
+        final SwitchYardServiceRequest request = createRequest(workItem);
+        final ClassLoader loader = Classes.getTCCL();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                ClassLoader originalLoader = Classes.setTCCL(loader);
+                try {
+                    SwitchYardServiceResponse response;
+                    try {
+                        response = getInvoker().invoke(request);
+                    } catch (RuntimeException re) {
+                        response = new SwitchYardServiceResponse(null, null, re);
+                    }
+                    completeWorkItem(workItem, request, response);
+                } catch (RuntimeException re) {
+                    CommonKnowledgeLogger.ROOT_LOGGER.problemCompletingWorkItem(workItem.getId(), re.getMessage());
+                } finally {
+                    Classes.setTCCL(originalLoader);
+                }
+            }
+        };
+        if (!dispatchAfterCommit(task, executor)) {
+            executor.execute(task);
+        }
+    }
+
+    private boolean dispatchAfterCommit(final Runnable task, final Executor executor) {
+        ProcessRuntime processRuntime = getProcessRuntime();
+        if (processRuntime instanceof KieSession) {
+            // a persistent session replaces the JTA TransactionManager in its environment with its own
+            Object tm = ((KieSession)processRuntime).getEnvironment().get(EnvironmentName.TRANSACTION_MANAGER);
+            if (tm instanceof TransactionManager && ((TransactionManager)tm).getStatus() == TransactionManager.STATUS_ACTIVE) {
+                ((TransactionManager)tm).registerTransactionSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void beforeCompletion() {}
+                    @Override
+                    public void afterCompletion(int status) {
+                        // a rolled back work item doesn't exist, so its service is not invoked
+                        if (status == TransactionManager.STATUS_COMMITTED) {
+                            executor.execute(task);
+                        }
+                    }
+                });
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void completeWorkItem(WorkItem workItem, SwitchYardServiceRequest request, SwitchYardServiceResponse response) {
+        RuntimeManager runtimeManager = getRuntimeManager();
+        if (runtimeManager instanceof PerProcessInstanceRuntimeManager) {
+            // the session the work item was started from is disposed by now
+            RuntimeEngine runtimeEngine = runtimeManager.getRuntimeEngine(ProcessInstanceIdContext.get(workItem.getProcessInstanceId()));
+            try {
+                completeWorkItem(runtimeEngine.getKieSession(), workItem, request, response);
+            } finally {
+                runtimeManager.disposeRuntimeEngine(runtimeEngine);
+            }
+        } else {
+            ProcessRuntime processRuntime = getProcessRuntime();
+            if (processRuntime instanceof KieSession) {
+                completeWorkItem((KieSession)processRuntime, workItem, request, response);
+            } else {
+                handleResponseOrAbort(workItem, request, response, processRuntime.getWorkItemManager(), processRuntime);
+            }
+        }
+    }
+
+    private void completeWorkItem(KieSession session, final WorkItem workItem,
+            final SwitchYardServiceRequest request, final SwitchYardServiceResponse response) {
+        // a single command, so that a persistent session signals the fault event and completes
+        // the work item in one transaction, while it holds the lock of the session
+        session.execute(new GenericCommand<Void>() {
+            @Override
+            public Void execute(Context context) {
+                KieSession ksession = ((KnowledgeCommandContext)context).getKieSession();
+                handleResponseOrAbort(workItem, request, response, ksession.getWorkItemManager(), ksession);
+                return null;
+            }
+        });
+    }
+
+    private void handleResponseOrAbort(WorkItem workItem, SwitchYardServiceRequest request, SwitchYardServiceResponse response,
+            WorkItemManager manager, ProcessRuntime processRuntime) {
+        try {
+            handleResponse(workItem, request, response, manager, processRuntime);
+        } catch (RuntimeException re) {
+            // nobody can catch a THROW fault any more, so the work item doesn't stay active
+            CommonKnowledgeLogger.ROOT_LOGGER.abortingWorkItem(workItem.getId(), re.getMessage());
+            manager.abortWorkItem(workItem.getId());
+        }
+    }
+
+}
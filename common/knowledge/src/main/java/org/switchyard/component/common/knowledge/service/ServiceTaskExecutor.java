@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.common.knowledge.service;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.manager.RuntimeEnvironmentBuilder;
+
+/**
+ * ServiceTaskExecutor.
+ * <p/>
+ * The executor an {@link AsyncSwitchYardServiceTaskHandler} invokes services on, shared by the sessions
+ * of one RuntimeManager. It runs at most {@link #MAX_THREADS} services at a time, idle threads time out,
+ * and it is shut down when the RuntimeManager is closed, so no thread outlives the deployment.
+ */
+public final class ServiceTaskExecutor implements Executor {
+
+    /** The maximum number of services invoked at the same time. */
+    public static final int MAX_THREADS = 16;
+
+    private static final String SERVICE_TASK_EXECUTOR = ServiceTaskExecutor.class.getName();
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ThreadPoolExecutor _executor;
+
+    /**
+     * Constructs a new ServiceTaskExecutor; its threads are only started once services are invoked.
+     */
+    public ServiceTaskExecutor() {
+        _executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable);
+                        thread.setName(AsyncSwitchYardServiceTaskHandler.class.getSimpleName() + ':' + THREAD_COUNT.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        _executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(Runnable task) {
+        _executor.execute(task);
+    }
+
+    /**
+     * Shuts the executor down; services already handed to it are still invoked, further ones are rejected.
+     */
+    public void shutdown() {
+        _executor.shutdown();
+    }
+
+    /**
+     * If the executor has been shut down.
+     * @return if shut down
+     */
+    public boolean isShutdown() {
+        return _executor.isShutdown();
+    }
+
+    /**
+     * Adds the ServiceTaskExecutor to the RuntimeEnvironmentBuilder's Environment.
+     * @param reb the RuntimeEnvironmentBuilder
+     */
+    public void addToEnvironment(RuntimeEnvironmentBuilder reb) {
+        reb.addEnvironmentEntry(SERVICE_TASK_EXECUTOR, this);
+    }
+
+    /**
+     * Gets the ServiceTaskExecutor from the Environment.
+     * @param e the Environment
+     * @return the ServiceTaskExecutor, or null if there is none
+     */
+    public static ServiceTaskExecutor getFromEnvironment(Environment e) {
+        return ServiceTaskExecutor.class.cast(e.get(SERVICE_TASK_EXECUTOR));
+    }
+
+    /**
+     * Removes and returns the ServiceTaskExecutor from the Environment.
+     * @param e the Environment
+     * @return the ServiceTaskExecutor
+     */
+    public static ServiceTaskExecutor removeFromEnvironment(Environment e) {
+        Object executor = e.get(SERVICE_TASK_EXECUTOR);
+        if (executor != null) {
+            e.set(SERVICE_TASK_EXECUTOR, null);
+        }
+        return ServiceTaskExecutor.class.cast(executor);
+    }
+
+}
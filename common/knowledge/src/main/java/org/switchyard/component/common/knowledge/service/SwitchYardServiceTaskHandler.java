@@ -121,6 +121,17 @@ public class SwitchYardServiceTaskHandler implements WorkItemHandler {
      */
     @Override
     public void executeWorkItem(WorkItem workItem, WorkItemManager manager) {
+        SwitchYardServiceRequest request = createRequest(workItem);
+        SwitchYardServiceResponse response = getInvoker().invoke(request);
+        handleResponse(workItem, request, response, manager, getProcessRuntime());
+    }
+
+    /**
+     * Creates the service request of a work item.
+     * @param workItem the work item
+     * @return the request
+     */
+    protected SwitchYardServiceRequest createRequest(WorkItem workItem) {
         // parameters (input)
         Map<String, Object> parameters = workItem.getParameters();
         Object content = null;
@@ -134,8 +145,23 @@ public class SwitchYardServiceTaskHandler implements WorkItemHandler {
             serviceName = ComponentNames.qualify(_componentName, ComponentNames.unqualify(serviceName));
         }
         String operationName = getOperationName(parameters);
-        SwitchYardServiceRequest request = new SwitchYardServiceRequest(serviceName, operationName, content);
-        SwitchYardServiceResponse response = getInvoker().invoke(request);
+        return new SwitchYardServiceRequest(serviceName, operationName, content);
+    }
+
+    /**
+     * Completes, aborts or skips a work item for its service response, according to its FaultAction.
+     * @param workItem the work item
+     * @param request the request
+     * @param response the response
+     * @param manager the work item manager
+     * @param processRuntime the process runtime to signal the fault event to
+     */
+    protected void handleResponse(WorkItem workItem, SwitchYardServiceRequest request, SwitchYardServiceResponse response,
+            WorkItemManager manager, ProcessRuntime processRuntime) {
+        Map<String, Object> parameters = workItem.getParameters();
+        String parameterName = getParameterName(parameters);
+        QName serviceName = request.getServiceName();
+        String operationName = request.getOperationName();
         // results (output)
         Map<String, Object> results = workItem.getResults();
         String resultName = getResultName(parameters);
@@ -157,7 +183,7 @@ public class SwitchYardServiceTaskHandler implements WorkItemHandler {
             }
             String faultEventId = getFaultEventId(parameters);
             if (faultEventId != null) {
-                getProcessRuntime().signalEvent(faultEventId, fault, workItem.getProcessInstanceId());
+                processRuntime.signalEvent(faultEventId, fault, workItem.getProcessInstanceId());
             }
             FaultAction faultAction = getFaultAction(parameters);
             switch (faultAction) {
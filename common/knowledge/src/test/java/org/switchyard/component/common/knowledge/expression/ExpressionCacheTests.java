@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.common.knowledge.expression;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.common.property.PropertyResolver;
+
+/**
+ * Tests the {@link ExpressionCache}.
+ */
+public class ExpressionCacheTests {
+
+    @Test
+    public void testExpressionIsCompiledOnce() throws Exception {
+        ExpressionCache cache = new ExpressionCache();
+        PropertyResolver properties = new TestPropertyResolver("value");
+        Expression expression = cache.get("message", properties);
+        Assert.assertSame(expression, cache.get("message", properties));
+        Assert.assertNotSame(expression, cache.get("context", properties));
+    }
+
+    @Test
+    public void testExpressionIsCachedPerPropertyResolver() throws Exception {
+        ExpressionCache cache = new ExpressionCache();
+        PropertyResolver first = new TestPropertyResolver("first");
+        PropertyResolver second = new TestPropertyResolver("second");
+        Expression expression = cache.get("property", first);
+        Assert.assertNotSame(expression, cache.get("property", second));
+        Map<String, Object> variables = new HashMap<String, Object>();
+        Assert.assertEquals("first", expression.run(variables));
+        Assert.assertEquals("second", cache.get("property", second).run(variables));
+    }
+
+    @Test
+    public void testCachedExpressionRunsDoNotShareVariables() throws Exception {
+        ExpressionCache cache = new ExpressionCache();
+        PropertyResolver properties = new TestPropertyResolver("value");
+        Map<String, Object> variables = new HashMap<String, Object>();
+        Assert.assertEquals(1, cache.get("counter = 1; counter", properties).run(variables));
+        Assert.assertEquals(Boolean.FALSE, cache.get("isdef counter", properties).run(variables));
+    }
+
+    private static final class TestPropertyResolver implements PropertyResolver {
+        private final String _value;
+
+        private TestPropertyResolver(String value) {
+            _value = value;
+        }
+
+        @Override
+        public Object resolveProperty(String key) {
+            return "property".equals(key) ? _value : null;
+        }
+    }
+
+}
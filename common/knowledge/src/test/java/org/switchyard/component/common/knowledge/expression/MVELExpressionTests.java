@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.common.knowledge.expression;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.common.property.PropertyResolver;
+
+/**
+ * Tests the variables of a {@link MVELExpression} run.
+ */
+public class MVELExpressionTests {
+
+    private static final PropertyResolver PROPERTIES = new PropertyResolver() {
+        @Override
+        public Object resolveProperty(String key) {
+            return "property".equals(key) ? "resolved" : null;
+        }
+    };
+
+    @Test
+    public void testAssignedVariableDoesNotLeak() throws Exception {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        Assert.assertEquals(2, new MVELExpression("assigned = 2; assigned", PROPERTIES).run(variables));
+        Assert.assertFalse(variables.containsKey("assigned"));
+        // a later expression run with the same variables doesn't see it
+        Assert.assertEquals(Boolean.FALSE, new MVELExpression("isdef assigned", PROPERTIES).run(variables));
+    }
+
+    @Test
+    public void testCallerVariableIsShadowed() throws Exception {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put("shared", 1);
+        Assert.assertEquals(2, new MVELExpression("shared = 2; shared", PROPERTIES).run(variables));
+        Assert.assertEquals(1, variables.get("shared"));
+        Assert.assertEquals(1, new MVELExpression("shared", PROPERTIES).run(variables));
+    }
+
+    @Test
+    public void testTypedVariableDoesNotLeak() throws Exception {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        Assert.assertEquals("typed", new MVELExpression("String declared = 'typed'; declared", PROPERTIES).run(variables));
+        Assert.assertFalse(variables.containsKey("declared"));
+        Assert.assertEquals(Boolean.FALSE, new MVELExpression("isdef declared", PROPERTIES).run(variables));
+    }
+
+    @Test
+    public void testVariablePrecedesProperty() throws Exception {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        MVELExpression expression = new MVELExpression("property", PROPERTIES);
+        Assert.assertEquals("resolved", expression.run(variables));
+        variables.put("property", "variable");
+        Assert.assertEquals("variable", expression.run(variables));
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.common.knowledge.runtime;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link KieBaseCache} lets go of a deployment once its references are released.
+ */
+public class KieBaseCacheTests {
+
+    @Test
+    public void testLastReleaseDropsClassLoader() throws Exception {
+        ClassLoader loader = new URLClassLoader(new URL[0]);
+        KieBaseCache.Reference<Object> first = KieBaseCache.acquire(loader, "key", new ObjectFactory());
+        KieBaseCache.Reference<Object> second = KieBaseCache.acquire(loader, "key", new ObjectFactory());
+        Assert.assertSame(first.get(), second.get());
+        first.release();
+        // a reference only counts once
+        first.release();
+        Assert.assertTrue(KieBaseCache.isCached(loader));
+        second.release();
+        Assert.assertFalse(KieBaseCache.isCached(loader));
+    }
+
+    @Test
+    public void testFailedCreationDropsClassLoader() throws Exception {
+        ClassLoader loader = new URLClassLoader(new URL[0]);
+        try {
+            KieBaseCache.acquire(loader, "key", new KieBaseCache.Factory<Object>() {
+                @Override
+                public Object create() {
+                    throw new IllegalStateException("not built");
+                }
+            });
+            Assert.fail("Expected the creation to fail");
+        } catch (IllegalStateException ise) {
+            Assert.assertEquals("not built", ise.getMessage());
+        }
+        Assert.assertFalse(KieBaseCache.isCached(loader));
+    }
+
+    @Test
+    public void testReleasedClassLoaderIsCollected() throws Exception {
+        ClassLoader loader = new URLClassLoader(new URL[0]);
+        WeakReference<ClassLoader> collected = new WeakReference<ClassLoader>(loader);
+        // the value holds the class loader, as a KieBase built from the deployment does
+        KieBaseCache.Reference<ClassLoader> reference = KieBaseCache.acquire(loader, "key", new LoaderFactory(loader));
+        reference.release();
+        reference = null;
+        loader = null;
+        for (int i = 0; i < 50 && collected.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assert.assertNull(collected.get());
+    }
+
+    private static final class ObjectFactory implements KieBaseCache.Factory<Object> {
+        @Override
+        public Object create() {
+            return new Object();
+        }
+    }
+
+    private static final class LoaderFactory implements KieBaseCache.Factory<ClassLoader> {
+        private final ClassLoader _loader;
+
+        private LoaderFactory(ClassLoader loader) {
+            _loader = loader;
+        }
+
+        @Override
+        public ClassLoader create() {
+            return _loader;
+        }
+    }
+
+}
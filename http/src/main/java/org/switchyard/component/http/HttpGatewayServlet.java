@@ -136,7 +136,11 @@ public class HttpGatewayServlet extends HttpServlet {
             HttpRequestBindingData httpRequest = new HttpRequestBindingData();
             try {
                 httpRequest.setContentType(new ContentType(request.getContentType()));
-                httpRequest.setBodyFromStream(request.getInputStream());
+                if (_handler.isStreaming()) {
+                    httpRequest.setBodyStream(request.getInputStream(), request.getContentLength());
+                } else {
+                    httpRequest.setBodyFromStream(request.getInputStream());
+                }
                 for (Enumeration<String> headerNames = request.getHeaderNames(); headerNames.hasMoreElements();) {
                     String name = headerNames.nextElement();
                     for (Enumeration<String> values = request.getHeaders(name); values.hasMoreElements();) {
@@ -167,8 +171,12 @@ public class HttpGatewayServlet extends HttpServlet {
                             response.addHeader(name, value);
                         }
                     }
-                    if (httpResponse.getBodyBytes() != null) {
+                    if (httpResponse.hasBody()) {
                         response.setStatus(httpResponse.getStatus());
+                        long length = httpResponse.getBodyLength();
+                        if ((length >= 0) && (length <= Integer.MAX_VALUE)) {
+                            response.setContentLength((int) length);
+                        }
                         httpResponse.writeBodyToStream(response.getOutputStream());
                     } else {
                         if (httpResponse.getStatus() != null) {
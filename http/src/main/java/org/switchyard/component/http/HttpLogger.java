@@ -61,5 +61,12 @@ public interface HttpLogger {
     @Message(id = 36004, value = "Unexpected Exception invoking SwitchYard service")
     void unexpectedExceptionInvokingSwitchyardServcie(@Cause Exception e);
 
-}
+    /**
+     * unableToLaunchNettyHttpServer method definition.
+     * @param e the e
+     */
+    @LogMessage(level = Level.ERROR)
+    @Message(id = 36005, value = "Unable to launch standalone Netty http server")
+    void unableToLaunchNettyHttpServer(@Cause Exception e);
 
+}
@@ -1,7 +1,9 @@
 package org.switchyard.component.http;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.Set;
+import java.util.concurrent.TimeoutException;
 
 import org.jboss.logging.Cause;
 import org.jboss.logging.Messages;
@@ -86,5 +88,47 @@ public interface HttpMessages {
     @Message(id = 36407, value = "Unexpected exception handling HTTP Message")
     HandlerException unexpectedExceptionHandlingHTTPMessage(@Cause Exception e);
 
-}
+    /**
+     * unableToReadBody method definition.
+     * @param ioe the ioe
+     * @return  IllegalStateException
+     */
+    @Message(id = 36408, value = "Unable to read the HTTP body stream")
+    IllegalStateException unableToReadBody(@Cause IOException ioe);
+
+    /**
+     * tooManyRequestsInFlight method definition.
+     * @param _referenceName the _referenceName
+     * @param _bindingName the _bindingName
+     * @param maxInFlight the maxInFlight
+     * @return  HandlerException
+     */
+    @Message(id = 36409, value = "Reference binding '%s/%s' already has %d requests in flight.")
+    HandlerException tooManyRequestsInFlight(String _referenceName, String _bindingName, int maxInFlight);
 
+    /**
+     * requestTimedOut method definition.
+     * @param timeout the timeout
+     * @return  TimeoutException
+     */
+    @Message(id = 36410, value = "HTTP request did not complete within %d ms")
+    TimeoutException requestTimedOut(Integer timeout);
+
+    /**
+     * contextAlreadyPublished method definition.
+     * @param context the context
+     * @return  IllegalArgumentException
+     */
+    @Message(id = 36411, value = "An endpoint is already published at context '%s'")
+    IllegalArgumentException contextAlreadyPublished(String context);
+
+    /**
+     * bindingStopped method definition.
+     * @param _referenceName the _referenceName
+     * @param _bindingName the _bindingName
+     * @return  HandlerException
+     */
+    @Message(id = 36412, value = "Reference binding '%s/%s' was stopped before the HTTP request completed.")
+    HandlerException bindingStopped(String _referenceName, String _bindingName);
+
+}
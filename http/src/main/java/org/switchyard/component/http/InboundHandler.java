@@ -48,6 +48,8 @@ import org.switchyard.selector.OperationSelector;
  */
 public class InboundHandler extends BaseServiceHandler {
 
+    private static final int DEFAULT_SPILL_THRESHOLD = 1048576;
+
     private final HttpBindingModel _config;
     private final String _gatewayName;
     private SecurityContextManager _securityContextManager;
@@ -56,6 +58,7 @@ public class InboundHandler extends BaseServiceHandler {
     private MessageComposer<HttpBindingData> _messageComposer;
     private final OperationSelector<HttpBindingData> _operationSelector;
     private Endpoint _endpoint;
+    private int _spillThreshold = DEFAULT_SPILL_THRESHOLD;
 
     /**
      * Constructor.
@@ -89,6 +92,9 @@ public class InboundHandler extends BaseServiceHandler {
             _endpoint = EndpointPublisherFactory.getPublisher().publish(_domain, contextPath, this);
             // Create and configure the HTTP message composer
             _messageComposer = HttpComposition.getMessageComposer(_config);
+            if (_config.getSpillThreshold() != null) {
+                _spillThreshold = _config.getSpillThreshold();
+            }
         } catch (Exception e) {
             throw HttpMessages.MESSAGES.unableToPublish(e);
         }
@@ -111,9 +117,15 @@ public class InboundHandler extends BaseServiceHandler {
             exchange.getContext().setProperty(ExchangeCompletionEvent.GATEWAY_NAME, _gatewayName, Scope.EXCHANGE)
                     .addLabels(BehaviorLabel.TRANSIENT.label());
 
+            boolean inOnly = exchange.getContract().getConsumerOperation().getExchangePattern() == ExchangePattern.IN_ONLY;
+            if (inOnly && input.isBodyStreamed()) {
+                // the request completes as soon as an in-only exchange is sent, and the container
+                // may recycle its stream before the service gets to read it
+                input.setBodyFromStream(input.getBodyStream(), _spillThreshold);
+            }
             Message message = _messageComposer.compose(input, exchange);
             _securityContextManager.addCredentials(exchange, input.extractCredentials());
-            if (exchange.getContract().getConsumerOperation().getExchangePattern() == ExchangePattern.IN_ONLY) {
+            if (inOnly) {
                 exchange.send(message);
                 if (exchange.getState().equals(ExchangeState.FAULT)) {
                     response = (HttpResponseBindingData) _messageComposer.decompose(exchange, new HttpResponseBindingData());
@@ -131,6 +143,15 @@ public class InboundHandler extends BaseServiceHandler {
         return response;
     }
 
+    /**
+     * Check if request bodies should be handed to the service as streams.
+     *
+     * @return true if streaming, false otherwise
+     */
+    public boolean isStreaming() {
+        return _config.isStreaming();
+    }
+
     /**
      * Stop lifecycle.
      */
@@ -14,18 +14,34 @@
  
 package org.switchyard.component.http;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.logging.Logger;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.ChallengeState;
 import org.apache.http.auth.Credentials;
@@ -49,14 +65,17 @@ import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.switchyard.Exchange;
 import org.switchyard.HandlerException;
 import org.switchyard.Message;
 import org.switchyard.Scope;
 import org.switchyard.ServiceDomain;
+import org.switchyard.common.type.Classes;
 import org.switchyard.component.common.composer.MessageComposer;
 import org.switchyard.component.http.composer.HttpComposition;
 import org.switchyard.component.http.composer.HttpBindingData;
@@ -69,6 +88,13 @@ import org.switchyard.runtime.event.ExchangeCompletionEvent;
 
 /**
  * Handles invoking external HTTP services.
+ * <p>
+ * When configured as async the calling thread is released as soon as the request
+ * is dispatched, and the exchange is completed from one of the binding's worker threads.
+ * This is not non-blocking I/O: the requests themselves are still blocking ones, each
+ * holding a worker until its response has been read, so at most asyncThreads of them are sent
+ * at a time and the others wait for a worker; the timeout only starts once a request is sent.
+ * </p>
  *
  * @author Magesh Kumar B <mageshbk@jboss.com> (C) 2012 Red Hat Inc.
  */
@@ -83,6 +109,15 @@ public class OutboundHandler extends BaseServiceHandler {
     private static final String HTTP_PUT = "PUT";
     private static final String HTTP_OPTIONS = "OPTIONS";
 
+    private static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 20;
+    private static final int DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+    private static final int DEFAULT_SPILL_THRESHOLD = 1048576;
+    private static final int DEFAULT_ASYNC_THREADS = 10;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+    private static final long DEFAULT_DRAIN_TIMEOUT = 30000;
+    private static final long ABORT_TIMEOUT = 5000;
+    private static final AtomicInteger ASYNC_THREAD_COUNT = new AtomicInteger();
+
     private final HttpBindingModel _config;
     private final String _bindingName;
     private final String _referenceName;
@@ -95,6 +130,22 @@ public class OutboundHandler extends BaseServiceHandler {
     private Credentials _credentials;
     private HttpHost _proxyHost;
     private Integer _timeout;
+    private boolean _streaming;
+    private int _spillThreshold = DEFAULT_SPILL_THRESHOLD;
+    private PoolingClientConnectionManager _connectionManager;
+    private DefaultHttpClient _httpClient;
+    private long _idleTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+    private final AtomicLong _lastEviction = new AtomicLong();
+    // NTLM authenticates a connection rather than a request, so each thread keeps its own
+    // context in order to lease back the connection it already negotiated on
+    private ThreadLocal<HttpContext> _ntlmContext;
+    private ThreadPoolExecutor _asyncExecutor;
+    private ScheduledExecutorService _deadlineTimer;
+    private Semaphore _inFlight;
+    private int _maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    // the requests being sent, which stopping waits for before closing their connections
+    private final Set<Invocation> _invocations = new HashSet<Invocation>();
+    private boolean _stopping;
 
     /**
      * Constructor.
@@ -162,6 +213,172 @@ public class OutboundHandler extends BaseServiceHandler {
             }
         }
         _timeout = _config.getTimeout();
+        _streaming = _config.isStreaming();
+        if (_config.getSpillThreshold() != null) {
+            _spillThreshold = _config.getSpillThreshold();
+        }
+        createHttpClient();
+        if (_config.isAsync()) {
+            createAsyncExecutor();
+        }
+        synchronized (_invocations) {
+            _stopping = false;
+        }
+    }
+
+    /**
+     * Stop lifecycle.
+     */
+    @Override
+    protected void doStop() {
+        synchronized (_invocations) {
+            _stopping = true;
+        }
+        if (_asyncExecutor != null) {
+            _asyncExecutor.shutdown();
+            // Requests still waiting for a worker are failed rather than sent
+            List<Runnable> queued = new ArrayList<Runnable>();
+            _asyncExecutor.getQueue().drainTo(queued);
+            for (Runnable invocation : queued) {
+                ((Invocation) invocation).reject();
+            }
+        }
+        // Let the requests being sent complete before their connections are closed,
+        // aborting the ones which don't within the drain timeout
+        long drainTimeout = _timeout != null ? _timeout.longValue() : DEFAULT_DRAIN_TIMEOUT;
+        if (!awaitInvocations(drainTimeout)) {
+            HandlerException cause = HttpMessages.MESSAGES.bindingStopped(_referenceName, _bindingName);
+            synchronized (_invocations) {
+                for (Invocation invocation : _invocations) {
+                    invocation.abort(cause);
+                }
+            }
+            awaitInvocations(ABORT_TIMEOUT);
+        }
+        if (_asyncExecutor != null) {
+            _deadlineTimer.shutdownNow();
+            _asyncExecutor = null;
+            _deadlineTimer = null;
+        }
+        if (_connectionManager != null) {
+            // Shut down the connection manager to ensure
+            // immediate deallocation of all system resources
+            _connectionManager.shutdown();
+            _connectionManager = null;
+            _httpClient = null;
+        }
+    }
+
+    private void createHttpClient() {
+        int maxTotal = DEFAULT_MAX_TOTAL_CONNECTIONS;
+        if (_config.getMaxTotalConnections() != null) {
+            maxTotal = _config.getMaxTotalConnections();
+        }
+        int maxPerRoute = maxTotal;
+        if (_config.getMaxConnectionsPerRoute() != null) {
+            maxPerRoute = _config.getMaxConnectionsPerRoute();
+        }
+        if (_config.getIdleConnectionTimeout() != null) {
+            _idleTimeout = _config.getIdleConnectionTimeout();
+        }
+        _connectionManager = new PoolingClientConnectionManager();
+        _connectionManager.setMaxTotal(maxTotal);
+        _connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        _lastEviction.set(System.currentTimeMillis());
+        _ntlmContext = new ThreadLocal<HttpContext>();
+
+        _httpClient = new DefaultHttpClient(_connectionManager);
+        HttpParams httpParams = _httpClient.getParams();
+        if (_timeout != null) {
+            HttpConnectionParams.setConnectionTimeout(httpParams, _timeout);
+            HttpConnectionParams.setSoTimeout(httpParams, _timeout);
+        }
+        if (_credentials != null) {
+            _httpClient.getCredentialsProvider().setCredentials(_authScope, _credentials);
+            List<String> authpref = new ArrayList<String>();
+            authpref.add(AuthPolicy.NTLM);
+            authpref.add(AuthPolicy.BASIC);
+            httpParams.setParameter(AuthPNames.TARGET_AUTH_PREF, authpref);
+        }
+        if (_proxyHost != null) {
+            httpParams.setParameter(ConnRoutePNames.DEFAULT_PROXY, _proxyHost);
+        }
+    }
+
+    private void createAsyncExecutor() {
+        int threads = DEFAULT_ASYNC_THREADS;
+        if (_config.getAsyncThreads() != null) {
+            threads = _config.getAsyncThreads();
+        }
+        if (_config.getMaxInFlight() != null) {
+            _maxInFlight = _config.getMaxInFlight();
+        }
+        _inFlight = new Semaphore(_maxInFlight);
+        ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable);
+                String name = new StringBuilder()
+                    .append(OutboundHandler.class.getSimpleName())
+                    .append(':')
+                    .append(_bindingName)
+                    .append(':')
+                    .append(ASYNC_THREAD_COUNT.incrementAndGet())
+                    .toString();
+                thread.setName(name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        // the in-flight permits bound the queue, so it can be unbounded here
+        _asyncExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), threadFactory);
+        _asyncExecutor.allowCoreThreadTimeOut(true);
+        _deadlineTimer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    private boolean awaitInvocations(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (_invocations) {
+            long remaining = timeout;
+            while (!_invocations.isEmpty() && remaining > 0) {
+                try {
+                    _invocations.wait(remaining);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return _invocations.isEmpty();
+        }
+    }
+
+    private void evictConnections() {
+        long now = System.currentTimeMillis();
+        long last = _lastEviction.get();
+        // Only one caller per half idle period sweeps the pool
+        if ((now - last) >= (_idleTimeout / 2) && _lastEviction.compareAndSet(last, now)) {
+            _connectionManager.closeExpiredConnections();
+            _connectionManager.closeIdleConnections(_idleTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private HttpContext createContext() {
+        HttpContext context = null;
+        if (_credentials instanceof NTCredentials) {
+            context = _ntlmContext.get();
+            if (context == null) {
+                context = new BasicHttpContext();
+                _ntlmContext.set(context);
+            }
+        } else {
+            context = new BasicHttpContext();
+        }
+        if (_authCache != null) {
+            context.setAttribute(ClientContext.AUTH_CACHE, _authCache);
+        }
+        return context;
     }
 
     private AuthScope createAuthScope(String host, String portStr, String realm) throws HttpConsumeException {
@@ -184,6 +401,59 @@ public class OutboundHandler extends BaseServiceHandler {
         return new AuthScope(host, port, realm);
     }
 
+    private void negotiate(HttpClient httpclient, HttpContext context) throws IOException {
+        // Send a request for the Negotiation, once per thread as the
+        // authenticated connection is leased back with the user token
+        HttpResponse response = httpclient.execute(new HttpGet(_baseAddress), context);
+        HttpClientUtils.closeQuietly(response);
+    }
+
+    private HttpRequestBase createRequest(HttpBindingData httpRequest) throws IOException {
+        HttpRequestBase request = null;
+        if (_httpMethod.equals(HTTP_GET)) {
+            request = new HttpGet(_baseAddress);
+        } else if (_httpMethod.equals(HTTP_POST)) {
+            request = new HttpPost(_baseAddress);
+            ((HttpPost) request).setEntity(createEntity(httpRequest));
+        } else if (_httpMethod.equals(HTTP_DELETE)) {
+            request = new HttpDelete(_baseAddress);
+        } else if (_httpMethod.equals(HTTP_HEAD)) {
+            request = new HttpHead(_baseAddress);
+        } else if (_httpMethod.equals(HTTP_PUT)) {
+            request = new HttpPut(_baseAddress);
+            ((HttpPut) request).setEntity(createEntity(httpRequest));
+        } else if (_httpMethod.equals(HTTP_OPTIONS)) {
+            request = new HttpOptions(_baseAddress);
+        }
+        Iterator<Map.Entry<String, List<String>>> entries = httpRequest.getHeaders().entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, List<String>> entry = entries.next();
+            String name = entry.getKey();
+            List<String> values = entry.getValue();
+            for (String value : values) {
+                request.addHeader(name, value);
+            }
+        }
+        if (_contentType != null) {
+            request.addHeader("Content-Type", _contentType);
+        }
+        return request;
+    }
+
+    private HttpEntity createEntity(HttpBindingData httpRequest) throws IOException {
+        if (!httpRequest.hasBody()) {
+            return null;
+        }
+        InputStream body = null;
+        if (_credentials instanceof NTCredentials) {
+            // NTLM may have to resend the request, so the body must be re-readable
+            body = httpRequest.getBodyBytes();
+        } else {
+            body = httpRequest.getBodyStream();
+        }
+        return new InputStreamEntity(body, httpRequest.getBodyLength());
+    }
+
     /**
      * The handler method that invokes the actual HTTP service when the
      * component is used as a HTTP consumer.
@@ -199,65 +469,57 @@ public class OutboundHandler extends BaseServiceHandler {
             throw HttpMessages.MESSAGES.bindingNotStarted(_referenceName, _bindingName);
         }
 
-        HttpClient httpclient = new DefaultHttpClient();
-        if (_timeout != null) {
-            HttpParams httpParams = httpclient.getParams();
-            HttpConnectionParams.setConnectionTimeout(httpParams, _timeout);
-            HttpConnectionParams.setSoTimeout(httpParams, _timeout);
-        }
+        HttpBindingData httpRequest = null;
         try {
-            if (_credentials != null) {
-                ((DefaultHttpClient)httpclient).getCredentialsProvider().setCredentials(_authScope, _credentials);
-                List<String> authpref = new ArrayList<String>();
-                authpref.add(AuthPolicy.NTLM);
-                authpref.add(AuthPolicy.BASIC);
-                httpclient.getParams().setParameter(AuthPNames.TARGET_AUTH_PREF, authpref);
-            }
-            if (_proxyHost != null) {
-                httpclient.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, _proxyHost);
-            }
-            HttpBindingData httpRequest = _messageComposer.decompose(exchange, new HttpRequestBindingData());
-            HttpRequestBase request = null;
-            if (_httpMethod.equals(HTTP_GET)) {
-                request = new HttpGet(_baseAddress);
-            } else if (_httpMethod.equals(HTTP_POST)) {
-                request = new HttpPost(_baseAddress);
-                ((HttpPost) request).setEntity(new InputStreamEntity(httpRequest.getBodyBytes(), httpRequest.getBodyBytes().available()));
-            } else if (_httpMethod.equals(HTTP_DELETE)) {
-                request = new HttpDelete(_baseAddress);
-            } else if (_httpMethod.equals(HTTP_HEAD)) {
-                request = new HttpHead(_baseAddress);
-            } else if (_httpMethod.equals(HTTP_PUT)) {
-                request = new HttpPut(_baseAddress);
-                ((HttpPut) request).setEntity(new InputStreamEntity(httpRequest.getBodyBytes(), httpRequest.getBodyBytes().available()));
-            } else if (_httpMethod.equals(HTTP_OPTIONS)) {
-                request = new HttpOptions(_baseAddress);
-            }
-            Iterator<Map.Entry<String, List<String>>> entries = httpRequest.getHeaders().entrySet().iterator();
-            while (entries.hasNext()) {
-                Map.Entry<String, List<String>> entry = entries.next();
-                String name = entry.getKey();
-                List<String> values = entry.getValue();
-                for (String value : values) {
-                    request.addHeader(name, value);
-                }
-            }
-            if (_contentType != null) {
-                request.addHeader("Content-Type", _contentType);
+            httpRequest = _messageComposer.decompose(exchange, new HttpRequestBindingData());
+        } catch (Exception e) {
+            throw HttpMessages.MESSAGES.unexpectedExceptionHandlingHTTPMessage(e);
+        }
+        Invocation invocation = new Invocation(exchange, httpRequest, Classes.getTCCL());
+        ThreadPoolExecutor asyncExecutor = _asyncExecutor;
+        if (asyncExecutor != null) {
+            dispatch(asyncExecutor, invocation);
+        } else {
+            try {
+                invocation.send(null);
+            } catch (Exception e) {
+                throw HttpMessages.MESSAGES.unexpectedExceptionHandlingHTTPMessage(invocation.cause(e));
             }
+        }
+    }
 
-            HttpResponse response = null;
-            if ((_credentials != null) && (_credentials instanceof NTCredentials)) {
-                // Send a request for the Negotiation
-                response = httpclient.execute(new HttpGet(_baseAddress));
-                HttpClientUtils.closeQuietly(response);
+    private void dispatch(ThreadPoolExecutor asyncExecutor, Invocation invocation) throws HandlerException {
+        if (!_inFlight.tryAcquire()) {
+            throw HttpMessages.MESSAGES.tooManyRequestsInFlight(_referenceName, _bindingName, _maxInFlight);
+        }
+        try {
+            asyncExecutor.execute(invocation);
+        } catch (RejectedExecutionException ree) {
+            _inFlight.release();
+            throw HttpMessages.MESSAGES.unexpectedExceptionHandlingHTTPMessage(ree);
+        }
+    }
+
+    private void execute(Exchange exchange, HttpBindingData httpRequest, Invocation invocation) throws Exception {
+        HttpClient httpclient = _httpClient;
+        evictConnections();
+        HttpResponse response = null;
+        try {
+            HttpContext context = createContext();
+            boolean negotiated = false;
+            if ((_credentials instanceof NTCredentials) && (context.getAttribute(ClientContext.USER_TOKEN) == null)) {
+                negotiate(httpclient, context);
+                negotiated = true;
             }
-            if (_authCache != null) {
-                BasicHttpContext context = new BasicHttpContext();
-                context.setAttribute(ClientContext.AUTH_CACHE, _authCache);
-                response = httpclient.execute(request, context);
-            } else {
-                response = httpclient.execute(request);
+            response = httpclient.execute(invocation.attach(createRequest(httpRequest)), context);
+            if ((_credentials instanceof NTCredentials) && !negotiated
+                    && (response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED)) {
+                // The negotiated connection has been evicted or closed by the server
+                HttpClientUtils.closeQuietly(response);
+                _ntlmContext.remove();
+                context = createContext();
+                negotiate(httpclient, context);
+                response = httpclient.execute(invocation.attach(createRequest(httpRequest)), context);
             }
             int status = response.getStatusLine().getStatusCode();
 
@@ -273,7 +535,11 @@ public class OutboundHandler extends BaseServiceHandler {
                 } else {
                     httpResponse.setContentType(new ContentType());
                 }
-                httpResponse.setBodyFromStream(entity.getContent());
+                if (_streaming) {
+                    httpResponse.setBodyFromStream(entity.getContent(), _spillThreshold);
+                } else {
+                    httpResponse.setBodyFromStream(entity.getContent());
+                }
             }
             httpResponse.setStatus(status);
             Message out = _messageComposer.compose(httpResponse, exchange);
@@ -282,13 +548,116 @@ public class OutboundHandler extends BaseServiceHandler {
             } else {
                 exchange.sendFault(out);
             }
-        } catch (Exception e) {
-            throw HttpMessages.MESSAGES.unexpectedExceptionHandlingHTTPMessage(e);
         } finally {
-            // When HttpClient instance is no longer needed,
-            // shut down the connection manager to ensure
-            // immediate deallocation of all system resources
-            httpclient.getConnectionManager().shutdown();
+            // Consume whatever is left of the response so the
+            // connection is released back to the pool
+            HttpClientUtils.closeQuietly(response);
+        }
+    }
+
+    private void track(Invocation invocation) throws HandlerException {
+        synchronized (_invocations) {
+            if (_stopping) {
+                throw HttpMessages.MESSAGES.bindingStopped(_referenceName, _bindingName);
+            }
+            _invocations.add(invocation);
+        }
+    }
+
+    private void untrack(Invocation invocation) {
+        synchronized (_invocations) {
+            _invocations.remove(invocation);
+            _invocations.notifyAll();
+        }
+    }
+
+    /**
+     * Sends a single exchange's request, either from the calling thread or,
+     * when async, from the async executor, completing the exchange from there.
+     */
+    private final class Invocation implements Runnable {
+
+        private final Exchange _exchange;
+        private final HttpBindingData _httpRequest;
+        private final ClassLoader _loader;
+        private volatile HttpRequestBase _request;
+        private volatile Exception _abortCause;
+
+        private Invocation(Exchange exchange, HttpBindingData httpRequest, ClassLoader loader) {
+            _exchange = exchange;
+            _httpRequest = httpRequest;
+            _loader = loader;
+        }
+
+        @Override
+        public void run() {
+            ClassLoader originalLoader = Classes.setTCCL(_loader);
+            try {
+                send(_deadlineTimer);
+            } catch (Exception e) {
+                fail(cause(e));
+            } finally {
+                _inFlight.release();
+                Classes.setTCCL(originalLoader);
+            }
+        }
+
+        private void send(ScheduledExecutorService deadlineTimer) throws Exception {
+            track(this);
+            ScheduledFuture<?> deadline = null;
+            try {
+                if (deadlineTimer != null && _timeout != null) {
+                    // the deadline starts once the request is sent, so time spent waiting for a worker doesn't count
+                    deadline = deadlineTimer.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            abort(HttpMessages.MESSAGES.requestTimedOut(_timeout));
+                        }
+                    }, _timeout, TimeUnit.MILLISECONDS);
+                }
+                execute(_exchange, _httpRequest, this);
+            } finally {
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+                untrack(this);
+            }
+        }
+
+        private void reject() {
+            try {
+                fail(HttpMessages.MESSAGES.bindingStopped(_referenceName, _bindingName));
+            } finally {
+                _inFlight.release();
+            }
+        }
+
+        private void fail(Exception cause) {
+            _exchange.sendFault(_exchange.createMessage()
+                    .setContent(HttpMessages.MESSAGES.unexpectedExceptionHandlingHTTPMessage(cause)));
+        }
+
+        private Exception cause(Exception e) {
+            Exception abortCause = _abortCause;
+            return abortCause != null ? abortCause : e;
+        }
+
+        private HttpRequestBase attach(HttpRequestBase request) {
+            _request = request;
+            if (_abortCause != null) {
+                request.abort();
+            }
+            return request;
+        }
+
+        private void abort(Exception cause) {
+            if (_abortCause == null) {
+                _abortCause = cause;
+            }
+            HttpRequestBase request = _request;
+            if (request != null) {
+                request.abort();
+            }
         }
     }
 }
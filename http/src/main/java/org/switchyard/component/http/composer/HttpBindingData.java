@@ -16,6 +16,9 @@ package org.switchyard.component.http.composer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -31,6 +34,7 @@ import java.util.Map;
 
 import org.switchyard.component.common.composer.BindingData;
 import org.switchyard.component.http.ContentType;
+import org.switchyard.component.http.HttpMessages;
 
 /**
  * HTTP binding data that wraps the headers and body.
@@ -39,8 +43,13 @@ import org.switchyard.component.http.ContentType;
  */
 public abstract class HttpBindingData implements BindingData {
 
+    private static final int BUFFER_SIZE = 8192;
+    private static final String SPILL_FILE_PREFIX = "switchyard-http";
+
     private Map<String, List<String>> _headers;
     private byte[] _body;
+    private InputStream _bodyStream;
+    private long _bodyLength = -1;
     private ContentType _contentType;
 
     /**
@@ -97,6 +106,7 @@ public abstract class HttpBindingData implements BindingData {
      * @throws UnsupportedEncodingException if content encoding is not supported
      */
     public StringReader getBody() throws UnsupportedEncodingException {
+        bufferBody();
         String body = null;
         if ((_contentType != null) && (_contentType.getCharset() != null)) {
             body = new String(_body, _contentType.getCharset());
@@ -112,6 +122,7 @@ public abstract class HttpBindingData implements BindingData {
      * @throws UnsupportedEncodingException if content encoding is not supported
      */
     public String getBodyAsString() throws UnsupportedEncodingException {
+        bufferBody();
         String body = null;
         if ((_contentType != null) && (_contentType.getCharset() != null)) {
             body = new String(_body, _contentType.getCharset());
@@ -126,6 +137,7 @@ public abstract class HttpBindingData implements BindingData {
      * @return the body
      */
     public ByteArrayInputStream getBodyBytes() {
+        bufferBody();
         if (_body != null) {
             return new ByteArrayInputStream(_body);
         } else {
@@ -133,15 +145,68 @@ public abstract class HttpBindingData implements BindingData {
         }
     }
 
+    /**
+     * Get the HTTP body as a stream. If the body was set with {@link #setBodyStream(InputStream, long)}
+     * the original stream is returned and can only be consumed once.
+     * @return the body as InputStream, or null if there is no body
+     */
+    public InputStream getBodyStream() {
+        if (_bodyStream != null) {
+            return _bodyStream;
+        }
+        return getBodyBytes();
+    }
+
+    /**
+     * Check if this binding data carries a body.
+     * @return true if a body is set, false otherwise
+     */
+    public boolean hasBody() {
+        return (_body != null) || (_bodyStream != null);
+    }
+
+    /**
+     * Check if the body is carried as a stream that has not been read into memory.
+     * @return true if the body is streamed, false otherwise
+     */
+    public boolean isBodyStreamed() {
+        return _bodyStream != null;
+    }
+
+    /**
+     * Get the HTTP body's length in bytes.
+     * @return the length, or -1 if it is not known
+     */
+    public long getBodyLength() {
+        if (_body != null) {
+            return _body.length;
+        }
+        return _bodyLength;
+    }
+
+    /**
+     * Set the HTTP body as a stream without reading it. The stream is consumed lazily
+     * when the body is written or accessed in any other form.
+     * @param is the body as InputStream
+     * @param length the content length, or -1 if not known
+     */
+    public void setBodyStream(InputStream is, long length) {
+        _body = null;
+        _bodyStream = is;
+        _bodyLength = (is != null) ? length : -1;
+    }
+
     /**
      * Set the HTTP body using a stream.
      * @param is the body as InputStream
      * @throws IOException if content could not be read
      */
     public void setBodyFromStream(InputStream is) throws IOException {
+        _bodyStream = null;
+        _bodyLength = -1;
         if (is != null) {
             ByteArrayOutputStream tmp = new ByteArrayOutputStream();
-            byte[] buff = new byte[512];
+            byte[] buff = new byte[BUFFER_SIZE];
             int buffSize = 0;
             while ((buffSize = is.read(buff)) >= 0) {
                 tmp.write(buff, 0, buffSize);
@@ -153,6 +218,60 @@ public abstract class HttpBindingData implements BindingData {
         }
     }
 
+    /**
+     * Set the HTTP body using a stream, keeping at most threshold bytes in memory.
+     * Larger bodies are spilled to a temporary file. The file is unlinked as soon as
+     * the body stream has opened it, so it can't outlive the stream even if the stream
+     * is never closed; where open files can't be deleted, it is deleted when the stream
+     * is closed, or else on exit.
+     * @param is the body as InputStream
+     * @param threshold the maximum number of bytes kept in memory
+     * @throws IOException if content could not be read or spilled
+     */
+    public void setBodyFromStream(InputStream is, int threshold) throws IOException {
+        if (is == null) {
+            setBodyFromStream(null);
+            return;
+        }
+        ByteArrayOutputStream tmp = new ByteArrayOutputStream();
+        byte[] buff = new byte[BUFFER_SIZE];
+        int buffSize = 0;
+        while ((buffSize = is.read(buff)) >= 0) {
+            tmp.write(buff, 0, buffSize);
+            if (tmp.size() > threshold) {
+                File spill = File.createTempFile(SPILL_FILE_PREFIX, null);
+                FileOutputStream fos = null;
+                try {
+                    fos = new FileOutputStream(spill);
+                    tmp.writeTo(fos);
+                    tmp = null;
+                    while ((buffSize = is.read(buff)) >= 0) {
+                        fos.write(buff, 0, buffSize);
+                    }
+                } catch (IOException ioe) {
+                    if (fos != null) {
+                        fos.close();
+                        fos = null;
+                    }
+                    spill.delete();
+                    throw ioe;
+                } finally {
+                    if (fos != null) {
+                        fos.close();
+                    }
+                    is.close();
+                }
+                long length = spill.length();
+                setBodyStream(new SpillFileInputStream(spill), length);
+                return;
+            }
+        }
+        _bodyStream = null;
+        _bodyLength = -1;
+        _body = tmp.toByteArray();
+        is.close();
+    }
+
     /**
      * Set the HTTP body using a reader.
      * @param reader the body as Reader
@@ -171,6 +290,8 @@ public abstract class HttpBindingData implements BindingData {
         } else {
             _body = null;
         }
+        _bodyStream = null;
+        _bodyLength = -1;
     }
 
     /**
@@ -180,7 +301,22 @@ public abstract class HttpBindingData implements BindingData {
      */
     public void writeBodyToStream(OutputStream os) throws IOException {
         if (os != null) {
-            os.write(_body);
+            if (_bodyStream != null) {
+                InputStream is = _bodyStream;
+                _bodyStream = null;
+                _bodyLength = -1;
+                try {
+                    byte[] buff = new byte[BUFFER_SIZE];
+                    int buffSize = 0;
+                    while ((buffSize = is.read(buff)) >= 0) {
+                        os.write(buff, 0, buffSize);
+                    }
+                } finally {
+                    is.close();
+                }
+            } else if (_body != null) {
+                os.write(_body);
+            }
             os.close();
         }
     }
@@ -190,6 +326,8 @@ public abstract class HttpBindingData implements BindingData {
      * @param body the body as String
      */
     public void setBody(String body) {
+        _bodyStream = null;
+        _bodyLength = -1;
         if (_contentType != null) {
             _body = body.getBytes(Charset.forName(_contentType.getCharset()));
         } else {
@@ -202,6 +340,8 @@ public abstract class HttpBindingData implements BindingData {
      * @param body the body as byte array
      */
     public void setBodyBytes(byte[] body) {
+        _bodyStream = null;
+        _bodyLength = -1;
         if (body != null) {
             _body = body.clone();
         } else {
@@ -224,4 +364,47 @@ public abstract class HttpBindingData implements BindingData {
     public void setContentType(ContentType contentType) {
         _contentType = contentType;
     }
+
+    private void bufferBody() {
+        if (_bodyStream != null) {
+            try {
+                setBodyFromStream(_bodyStream);
+            } catch (IOException ioe) {
+                throw HttpMessages.MESSAGES.unableToReadBody(ioe);
+            }
+        }
+    }
+
+    /**
+     * A FileInputStream that removes its file. Services and transformers often read a body
+     * without closing it, so the file is unlinked right after it is opened: the open
+     * descriptor keeps the content readable, and the space is reclaimed once the stream is
+     * closed or collected.
+     */
+    private static final class SpillFileInputStream extends FileInputStream {
+
+        private final File _file;
+        private final boolean _deleted;
+
+        private SpillFileInputStream(File file) throws IOException {
+            super(file);
+            _file = file;
+            _deleted = file.delete();
+            if (!_deleted) {
+                // the platform doesn't delete open files
+                file.deleteOnExit();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!_deleted) {
+                    _file.delete();
+                }
+            }
+        }
+    }
 }
@@ -48,9 +48,14 @@ public final class HttpComposition {
         ContextMapperModel cmm = hbm != null ? hbm.getContextMapper() : null;
         MessageComposerModel mcm = hbm != null ? hbm.getMessageComposer() : null;
         MessageComposer<HttpBindingData> mc = Composition.getMessageComposer(HttpBindingData.class, cmm, mcm);
-        if (mc instanceof HttpMessageComposer && mcm != null) {
+        if (mc instanceof HttpMessageComposer) {
             HttpMessageComposer smc = (HttpMessageComposer)mc;
-            smc.setComposerConfig(mcm);
+            if (mcm != null) {
+                smc.setComposerConfig(mcm);
+            }
+            if (hbm != null) {
+                smc.setStreaming(hbm.isStreaming());
+            }
         }
         return mc;
     }
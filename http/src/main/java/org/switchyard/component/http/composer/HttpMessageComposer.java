@@ -39,6 +39,7 @@ import org.switchyard.config.model.composer.MessageComposerModel;
 public class HttpMessageComposer extends BaseMessageComposer<HttpBindingData> {
 
     private MessageComposerModel _config;
+    private boolean _streaming;
 
     /**
      * {@inheritDoc}
@@ -50,8 +51,11 @@ public class HttpMessageComposer extends BaseMessageComposer<HttpBindingData> {
         getContextMapper().mapFrom(source, exchange.getContext(message));
 
         QName msgType = getMessageType(exchange);
-        message.setContent(source.getBody());
-        Object content;
+        if (_streaming && source.isBodyStreamed()) {
+            message.setContent(source.getBodyStream());
+        } else {
+            message.setContent(source.getBody());
+        }
         if ((msgType != null) && (QNameUtil.isJavaMessageType(msgType))) {
             // Hack - the getContent() call triggers a conversion from native content type and the result is set as the new body
             message.setContent(message.getContent(QNameUtil.toJavaMessageType(msgType)));
@@ -104,7 +108,11 @@ public class HttpMessageComposer extends BaseMessageComposer<HttpBindingData> {
         } else if (content instanceof byte[]) {
             message.setBodyBytes((byte[]) content);
         } else if (content instanceof InputStream) {
-            message.setBodyFromStream((InputStream) content);
+            if (_streaming) {
+                message.setBodyStream((InputStream) content, -1);
+            } else {
+                message.setBodyFromStream((InputStream) content);
+            }
         } else if (content instanceof Reader) {
             message.setBodyFromReader((Reader) content);
         } else {
@@ -128,4 +136,20 @@ public class HttpMessageComposer extends BaseMessageComposer<HttpBindingData> {
         _config = composerConfig;
     }
 
+    /**
+     * Check if message bodies are passed through as streams.
+     * @return true if streaming, false otherwise
+     */
+    public boolean isStreaming() {
+        return _streaming;
+    }
+
+    /**
+     * Sets whether message bodies are passed through as streams.
+     * @param streaming true to stream bodies
+     */
+    public void setStreaming(boolean streaming) {
+        _streaming = streaming;
+    }
+
 }
@@ -121,6 +121,132 @@ public interface HttpBindingModel extends BindingModel {
      */
     public HttpBindingModel setTimeout(Integer timeout);
 
+    /**
+     * Gets the maximum number of pooled connections for this reference.
+     * 
+     * @return the maximum total connections
+     */
+    public Integer getMaxTotalConnections();
+
+    /**
+     * Sets the maximum number of pooled connections for this reference.
+     * 
+     * @param maxTotal the maximum total connections
+     * @return this HttpBindingModel
+     */
+    public HttpBindingModel setMaxTotalConnections(Integer maxTotal);
+
+    /**
+     * Gets the maximum number of pooled connections per route.
+     * 
+     * @return the maximum connections per route
+     */
+    public Integer getMaxConnectionsPerRoute();
+
+    /**
+     * Sets the maximum number of pooled connections per route.
+     * 
+     * @param maxPerRoute the maximum connections per route
+     * @return this HttpBindingModel
+     */
+    public HttpBindingModel setMaxConnectionsPerRoute(Integer maxPerRoute);
+
+    /**
+     * Gets the time in milliseconds after which idle pooled connections are evicted.
+     * 
+     * @return the idle connection time-out value
+     */
+    public Integer getIdleConnectionTimeout();
+
+    /**
+     * Sets the time in milliseconds after which idle pooled connections are evicted.
+     * 
+     * @param idleTimeout the idle connection time-out value
+     * @return this HttpBindingModel
+     */
+    public HttpBindingModel setIdleConnectionTimeout(Integer idleTimeout);
+
+    /**
+     * Check if the reference completes exchanges asynchronously. This releases the
+     * calling thread only; the requests are still blocking ones, each holding one of
+     * the async threads until its response has been read.
+     * 
+     * @return true if asynchronous, false otherwise
+     */
+    public Boolean isAsync();
+
+    /**
+     * Sets whether the reference completes exchanges asynchronously.
+     * 
+     * @param async true for asynchronous invocation
+     * @return this HttpBindingModel
+     */
+    public HttpBindingModel setAsync(Boolean async);
+
+    /**
+     * Gets the number of threads performing asynchronous requests, which bounds
+     * the number of requests sent at the same time.
+     * 
+     * @return the number of threads
+     */
+    public Integer getAsyncThreads();
+
+    /**
+     * Sets the number of threads performing asynchronous requests.
+     * 
+     * @param threads the number of threads
+     * @return this HttpBindingModel
+     */
+    public HttpBindingModel setAsyncThreads(Integer threads);
+
+    /**
+     * Gets the maximum number of asynchronous requests in flight, including
+     * those waiting for an async thread.
+     * 
+     * @return the maximum requests in flight
+     */
+    public Integer getMaxInFlight();
+
+    /**
+     * Sets the maximum number of asynchronous requests in flight.
+     * 
+     * @param maxInFlight the maximum requests in flight
+     * @return this HttpBindingModel
+     */
+    public HttpBindingModel setMaxInFlight(Integer maxInFlight);
+
+    /**
+     * Check if message bodies are streamed instead of buffered in memory. A streamed
+     * body can be read only once. Request bodies of in-only service operations are
+     * always buffered, as the HTTP request completes before the service reads them.
+     * 
+     * @return true if streaming, false otherwise
+     */
+    public Boolean isStreaming();
+
+    /**
+     * Sets whether message bodies are streamed instead of buffered in memory.
+     * 
+     * @param streaming true to stream bodies
+     * @return this HttpBindingModel
+     */
+    public HttpBindingModel setStreaming(Boolean streaming);
+
+    /**
+     * Gets the size in bytes above which a buffered streaming body is spilled to a temporary file.
+     * 
+     * @return the spill threshold
+     */
+    public Integer getSpillThreshold();
+
+    /**
+     * Sets the size in bytes above which a buffered streaming body is spilled to a temporary file.
+     * 
+     * @param threshold the spill threshold
+     * @return this HttpBindingModel
+     */
+    public HttpBindingModel setSpillThreshold(Integer threshold);
+
     /**
      * Sets the global configuration.
      * 
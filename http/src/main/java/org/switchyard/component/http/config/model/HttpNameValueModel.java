@@ -26,7 +26,9 @@ public interface HttpNameValueModel extends Model {
     /** Known XML element names. */
     public enum HttpName {
         /** Known XML element names. */
-        address, contextPath, method, contentType, basic, ntlm, user, password, realm, domain, host, port, proxy, timeout;
+        address, contextPath, method, contentType, basic, ntlm, user, password, realm, domain, host, port, proxy, timeout,
+        maxTotalConnections, maxConnectionsPerRoute, idleConnectionTimeout, streaming, spillThreshold,
+        async, asyncThreads, maxInFlight;
     }
 
     /**
@@ -39,9 +39,17 @@ public class V1HttpBindingModel extends V1BindingModel implements HttpBindingMod
         HttpName.method.name(),
         HttpName.contentType.name(),
         HttpName.timeout.name(),
+        HttpName.maxTotalConnections.name(),
+        HttpName.maxConnectionsPerRoute.name(),
+        HttpName.idleConnectionTimeout.name(),
+        HttpName.async.name(),
+        HttpName.asyncThreads.name(),
+        HttpName.maxInFlight.name(),
         HttpName.basic.name(),
         HttpName.ntlm.name(),
-        HttpName.proxy.name()
+        HttpName.proxy.name(),
+        HttpName.streaming.name(),
+        HttpName.spillThreshold.name()
     };
 
     private Configuration _environment;
@@ -53,6 +61,14 @@ public class V1HttpBindingModel extends V1BindingModel implements HttpBindingMod
     private HttpNameValueModel _method;
     private HttpNameValueModel _contentType;
     private HttpNameValueModel _timeout;
+    private HttpNameValueModel _maxTotalConnections;
+    private HttpNameValueModel _maxConnectionsPerRoute;
+    private HttpNameValueModel _idleConnectionTimeout;
+    private HttpNameValueModel _async;
+    private HttpNameValueModel _asyncThreads;
+    private HttpNameValueModel _maxInFlight;
+    private HttpNameValueModel _streaming;
+    private HttpNameValueModel _spillThreshold;
     private BasicAuthModel _basicAuth;
     private NtlmAuthModel _ntlmAuth;
     private ProxyModel _proxyConfig;
@@ -185,6 +201,150 @@ public class V1HttpBindingModel extends V1BindingModel implements HttpBindingMod
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxTotalConnections() {
+        if (_maxTotalConnections == null) {
+            _maxTotalConnections = getNameValue(HttpName.maxTotalConnections);
+        }
+        return _maxTotalConnections != null ? Integer.valueOf(_maxTotalConnections.getValue()) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpBindingModel setMaxTotalConnections(Integer maxTotal) {
+        _maxTotalConnections = setNameValue(_maxTotalConnections, HttpName.maxTotalConnections, maxTotal != null ? String.valueOf(maxTotal) : null);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxConnectionsPerRoute() {
+        if (_maxConnectionsPerRoute == null) {
+            _maxConnectionsPerRoute = getNameValue(HttpName.maxConnectionsPerRoute);
+        }
+        return _maxConnectionsPerRoute != null ? Integer.valueOf(_maxConnectionsPerRoute.getValue()) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpBindingModel setMaxConnectionsPerRoute(Integer maxPerRoute) {
+        _maxConnectionsPerRoute = setNameValue(_maxConnectionsPerRoute, HttpName.maxConnectionsPerRoute, maxPerRoute != null ? String.valueOf(maxPerRoute) : null);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getIdleConnectionTimeout() {
+        if (_idleConnectionTimeout == null) {
+            _idleConnectionTimeout = getNameValue(HttpName.idleConnectionTimeout);
+        }
+        return _idleConnectionTimeout != null ? Integer.valueOf(_idleConnectionTimeout.getValue()) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpBindingModel setIdleConnectionTimeout(Integer idleTimeout) {
+        _idleConnectionTimeout = setNameValue(_idleConnectionTimeout, HttpName.idleConnectionTimeout, idleTimeout != null ? String.valueOf(idleTimeout) : null);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Boolean isAsync() {
+        if (_async == null) {
+            _async = getNameValue(HttpName.async);
+        }
+        return _async != null ? Boolean.valueOf(_async.getValue()) : false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpBindingModel setAsync(Boolean async) {
+        _async = setNameValue(_async, HttpName.async, async != null ? String.valueOf(async) : null);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getAsyncThreads() {
+        if (_asyncThreads == null) {
+            _asyncThreads = getNameValue(HttpName.asyncThreads);
+        }
+        return _asyncThreads != null ? Integer.valueOf(_asyncThreads.getValue()) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpBindingModel setAsyncThreads(Integer threads) {
+        _asyncThreads = setNameValue(_asyncThreads, HttpName.asyncThreads, threads != null ? String.valueOf(threads) : null);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxInFlight() {
+        if (_maxInFlight == null) {
+            _maxInFlight = getNameValue(HttpName.maxInFlight);
+        }
+        return _maxInFlight != null ? Integer.valueOf(_maxInFlight.getValue()) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpBindingModel setMaxInFlight(Integer maxInFlight) {
+        _maxInFlight = setNameValue(_maxInFlight, HttpName.maxInFlight, maxInFlight != null ? String.valueOf(maxInFlight) : null);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Boolean isStreaming() {
+        if (_streaming == null) {
+            _streaming = getNameValue(HttpName.streaming);
+        }
+        return _streaming != null ? Boolean.valueOf(_streaming.getValue()) : false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpBindingModel setStreaming(Boolean streaming) {
+        _streaming = setNameValue(_streaming, HttpName.streaming, streaming != null ? String.valueOf(streaming) : null);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getSpillThreshold() {
+        if (_spillThreshold == null) {
+            _spillThreshold = getNameValue(HttpName.spillThreshold);
+        }
+        return _spillThreshold != null ? Integer.valueOf(_spillThreshold.getValue()) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpBindingModel setSpillThreshold(Integer threshold) {
+        _spillThreshold = setNameValue(_spillThreshold, HttpName.spillThreshold, threshold != null ? String.valueOf(threshold) : null);
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -42,7 +42,11 @@ public final class EndpointPublisherFactory {
         try {
             PUBLISHER = ProviderRegistry.getProvider(EndpointPublisher.class);
             if (PUBLISHER == null) {
-                PUBLISHER = new StandaloneEndpointPublisher();
+                if (StandaloneServerConfig.ENGINE_NETTY.equals(StandaloneServerConfig.getEngine())) {
+                    PUBLISHER = new NettyEndpointPublisher();
+                } else {
+                    PUBLISHER = new StandaloneEndpointPublisher();
+                }
             }
         } catch (Exception e) {
             throw HttpMessages.MESSAGES.unableToFindPublisher(e);
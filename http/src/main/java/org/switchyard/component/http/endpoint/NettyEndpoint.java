@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.http.endpoint;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+import org.switchyard.component.common.Endpoint;
+import org.switchyard.component.http.InboundHandler;
+
+/**
+ * A standalone HTTP endpoint published on the Netty engine.
+ */
+public class NettyEndpoint implements Endpoint {
+
+    private final ConcurrentMap<String, NettyEndpoint> _contexts;
+    private final String _context;
+    private final InboundHandler _handler;
+    private final ExecutorService _executor;
+
+    /**
+     * Construct a NettyEndpoint.
+     * @param contexts the published contexts this endpoint is registered in
+     * @param context the context path
+     * @param handler the InboundHandler invoked for requests
+     * @param executor the ExecutorService dedicated to the context
+     */
+    public NettyEndpoint(final ConcurrentMap<String, NettyEndpoint> contexts, final String context,
+            final InboundHandler handler, final ExecutorService executor) {
+        _contexts = contexts;
+        _context = context;
+        _handler = handler;
+        _executor = executor;
+    }
+
+    /**
+     * Gets the context path.
+     * @return the context path
+     */
+    public String getContext() {
+        return _context;
+    }
+
+    /**
+     * Gets the InboundHandler invoked for requests.
+     * @return the handler
+     */
+    public InboundHandler getHandler() {
+        return _handler;
+    }
+
+    /**
+     * Gets the ExecutorService dedicated to the context.
+     * @return the executor
+     */
+    public ExecutorService getExecutor() {
+        return _executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void start() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void stop() {
+        _contexts.remove(_context, this);
+        _executor.shutdown();
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.http.endpoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.jboss.logging.Logger;
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.frame.TooLongFrameException;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.jboss.netty.handler.codec.http.QueryStringDecoder;
+import org.jboss.netty.handler.stream.ChunkedInput;
+import org.jboss.netty.handler.stream.ChunkedStream;
+import org.jboss.netty.handler.stream.ChunkedWriteHandler;
+import org.switchyard.ServiceDomain;
+import org.switchyard.component.common.Endpoint;
+import org.switchyard.component.http.ContentType;
+import org.switchyard.component.http.HttpLogger;
+import org.switchyard.component.http.HttpMessages;
+import org.switchyard.component.http.InboundHandler;
+import org.switchyard.component.http.composer.HttpRequestBindingData;
+import org.switchyard.component.http.composer.HttpRequestInfo;
+import org.switchyard.component.http.composer.HttpResponseBindingData;
+import org.switchyard.security.credential.extractor.AuthorizationHeaderCredentialExtractor;
+
+/**
+ * Publishes standalone HTTP endpoints on a Netty NIO server.
+ * <p>
+ *     Selected with the <i>{@value StandaloneServerConfig#ENGINE_PROPERTY}</i> system property. Connections
+ *     are served by a fixed number of I/O threads and every published context is invoked on its own bounded
+ *     pool, see {@link StandaloneServerConfig}. The server listens on the same port as the
+ *     {@link StandaloneEndpointPublisher}.
+ * </p>
+ * <p>
+ *     Pipelined requests may complete in any order on the worker pools, but their responses are
+ *     written in the order the requests arrived. Streamed response bodies are sent chunked to
+ *     HTTP/1.1 clients instead of being buffered.
+ * </p>
+ */
+public class NettyEndpointPublisher implements EndpointPublisher {
+
+    private static final Logger LOGGER = Logger.getLogger(NettyEndpointPublisher.class);
+
+    private static final String SCHEME = "http";
+
+    // The published contexts by path
+    private static final ConcurrentMap<String, NettyEndpoint> CONTEXTS = new ConcurrentHashMap<String, NettyEndpoint>();
+
+    // The global standalone Netty channel
+    private static Channel _channel;
+
+    static {
+        try {
+            ServerBootstrap bootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(
+                    Executors.newCachedThreadPool(StandaloneServerConfig.createThreadFactory("http-boss")),
+                    Executors.newCachedThreadPool(StandaloneServerConfig.createThreadFactory("http-io")),
+                    StandaloneServerConfig.getIoThreads()));
+            bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+                public ChannelPipeline getPipeline() {
+                    ChannelPipeline pipeline = Channels.pipeline();
+                    pipeline.addLast("decoder", new HttpRequestDecoder());
+                    pipeline.addLast("aggregator", new HttpChunkAggregator(StandaloneServerConfig.getMaxRequestSize()));
+                    pipeline.addLast("encoder", new HttpResponseEncoder());
+                    pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
+                    pipeline.addLast("handler", new NettyHandler());
+                    return pipeline;
+                }
+            });
+            bootstrap.setOption("backlog", StandaloneServerConfig.getBacklog());
+            bootstrap.setOption("reuseAddress", true);
+            bootstrap.setOption("child.tcpNoDelay", true);
+            bootstrap.setOption("child.keepAlive", StandaloneServerConfig.isKeepAlive());
+            _channel = bootstrap.bind(new InetSocketAddress(StandaloneServerConfig.getPort()));
+        } catch (Exception e) {
+            HttpLogger.ROOT_LOGGER.unableToLaunchNettyHttpServer(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Endpoint publish(ServiceDomain domain, String context, InboundHandler handler) throws Exception {
+        if (!context.startsWith("/")) {
+            context = "/" + context;
+        }
+        NettyEndpoint endpoint = new NettyEndpoint(CONTEXTS, context, handler, StandaloneServerConfig.createWorkerPool(context));
+        if (_channel != null) {
+            if (CONTEXTS.putIfAbsent(context, endpoint) != null) {
+                endpoint.stop();
+                throw HttpMessages.MESSAGES.contextAlreadyPublished(context);
+            }
+        }
+        return endpoint;
+    }
+
+    private static NettyEndpoint findEndpoint(String path) {
+        NettyEndpoint match = null;
+        for (Map.Entry<String, NettyEndpoint> entry : CONTEXTS.entrySet()) {
+            String context = entry.getKey();
+            if (path.startsWith(context) && ((match == null) || (context.length() > match.getContext().length()))) {
+                match = entry.getValue();
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Handles the requests of a single connection; a new instance is created for every pipeline.
+     */
+    private static class NettyHandler extends SimpleChannelUpstreamHandler {
+
+        // Only used from the I/O thread delivering the requests of this connection
+        private int _received;
+        // Responses completed ahead of their turn by request sequence number; also guards the fields below
+        private final Map<Integer, PendingResponse> _completed = new HashMap<Integer, PendingResponse>();
+        private int _written;
+        private boolean _closed;
+
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
+            final HttpRequest request = (HttpRequest) e.getMessage();
+            final Channel channel = e.getChannel();
+            final int sequence = _received++;
+            final NettyEndpoint endpoint = findEndpoint(new QueryStringDecoder(request.getUri()).getPath());
+            if (endpoint == null) {
+                sendStatus(channel, sequence, request, HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            try {
+                endpoint.getExecutor().execute(new Runnable() {
+                    public void run() {
+                        process(channel, sequence, request, endpoint);
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                sendStatus(channel, sequence, request, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+            if (e.getCause() instanceof TooLongFrameException) {
+                HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+                e.getChannel().write(response).addListener(ChannelFutureListener.CLOSE);
+            } else {
+                LOGGER.debug(e.getCause());
+                e.getChannel().close();
+            }
+        }
+
+        private void process(Channel channel, int sequence, HttpRequest request, NettyEndpoint endpoint) {
+            InboundHandler handler = endpoint.getHandler();
+            HttpResponse response = null;
+            InputStream responseBody = null;
+            try {
+                HttpRequestBindingData httpRequest = new HttpRequestBindingData();
+                ContentType contentType = new ContentType(request.getHeader(HttpHeaders.Names.CONTENT_TYPE));
+                httpRequest.setContentType(contentType);
+                httpRequest.setRequestInfo(getRequestInfo(channel, request, endpoint.getContext(), contentType));
+                ChannelBufferInputStream body = new ChannelBufferInputStream(request.getContent());
+                if (handler.isStreaming()) {
+                    httpRequest.setBodyStream(body, request.getContent().readableBytes());
+                } else {
+                    httpRequest.setBodyFromStream(body);
+                }
+                for (Map.Entry<String, String> header : request.getHeaders()) {
+                    httpRequest.addHeader(header.getKey(), header.getValue());
+                }
+
+                HttpResponseBindingData httpResponse = handler.invoke(httpRequest);
+                if (httpResponse != null) {
+                    int status = httpResponse.getStatus() != null ? httpResponse.getStatus() : HttpServletResponse.SC_ACCEPTED;
+                    response = new DefaultHttpResponse(request.getProtocolVersion(), HttpResponseStatus.valueOf(status));
+                    for (Map.Entry<String, List<String>> header : httpResponse.getHeaders().entrySet()) {
+                        response.setHeader(header.getKey(), header.getValue());
+                    }
+                    if (httpResponse.isBodyStreamed() && request.getProtocolVersion().equals(HttpVersion.HTTP_1_1)) {
+                        responseBody = httpResponse.getBodyStream();
+                    } else if (httpResponse.hasBody()) {
+                        ChannelBufferOutputStream out = new ChannelBufferOutputStream(ChannelBuffers.dynamicBuffer());
+                        httpResponse.writeBodyToStream(out);
+                        response.setContent(out.buffer());
+                    }
+                } else {
+                    response = new DefaultHttpResponse(request.getProtocolVersion(), HttpResponseStatus.INTERNAL_SERVER_ERROR);
+                }
+            } catch (Exception e) {
+                HttpLogger.ROOT_LOGGER.unexpectedExceptionWhileHandlingHttpRequest(e);
+                response = new DefaultHttpResponse(request.getProtocolVersion(), HttpResponseStatus.INTERNAL_SERVER_ERROR);
+                closeQuietly(responseBody);
+                responseBody = null;
+            }
+            complete(channel, sequence, new PendingResponse(request, response, responseBody));
+        }
+
+        private void sendStatus(Channel channel, int sequence, HttpRequest request, int status) {
+            HttpResponse response = new DefaultHttpResponse(request.getProtocolVersion(), HttpResponseStatus.valueOf(status));
+            complete(channel, sequence, new PendingResponse(request, response, null));
+        }
+
+        /**
+         * Queues a completed response and writes every response whose turn has come.
+         */
+        private void complete(Channel channel, int sequence, PendingResponse pending) {
+            synchronized (_completed) {
+                _completed.put(sequence, pending);
+                PendingResponse next;
+                while ((next = _completed.remove(_written)) != null) {
+                    _written++;
+                    if (_closed) {
+                        // an earlier response closed the connection
+                        closeQuietly(next._body);
+                    } else {
+                        write(channel, next);
+                    }
+                }
+            }
+        }
+
+        private void write(Channel channel, PendingResponse pending) {
+            HttpResponse response = pending._response;
+            boolean keepAlive = StandaloneServerConfig.isKeepAlive() && HttpHeaders.isKeepAlive(pending._request);
+            if (pending._body != null) {
+                response.setChunked(true);
+                response.setHeader(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+            } else {
+                HttpHeaders.setContentLength(response, response.getContent().readableBytes());
+            }
+            if (keepAlive) {
+                response.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+            } else {
+                response.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
+            }
+            ChannelFuture future = channel.write(response);
+            if (pending._body != null) {
+                future = channel.write(new HttpChunkedInput(pending._body));
+            }
+            if (!keepAlive) {
+                _closed = true;
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+
+        private static void closeQuietly(InputStream stream) {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ioe) {
+                    LOGGER.debug(ioe);
+                }
+            }
+        }
+    }
+
+    /**
+     * A response waiting for the responses of earlier requests to be written.
+     */
+    private static final class PendingResponse {
+        private final HttpRequest _request;
+        private final HttpResponse _response;
+        private final InputStream _body;
+
+        private PendingResponse(HttpRequest request, HttpResponse response, InputStream body) {
+            _request = request;
+            _response = response;
+            _body = body;
+        }
+    }
+
+    /**
+     * Writes a streamed body as HTTP chunks, ending with the last chunk.
+     */
+    private static final class HttpChunkedInput implements ChunkedInput {
+        private final ChunkedStream _stream;
+        private boolean _ended;
+
+        private HttpChunkedInput(InputStream body) {
+            _stream = new ChunkedStream(body);
+        }
+
+        public boolean hasNextChunk() throws Exception {
+            return !_ended;
+        }
+
+        public Object nextChunk() throws Exception {
+            if (_ended) {
+                return null;
+            }
+            ChannelBuffer buffer = (ChannelBuffer) _stream.nextChunk();
+            if (buffer == null) {
+                _ended = true;
+                _stream.close();
+                return HttpChunk.LAST_CHUNK;
+            }
+            return new DefaultHttpChunk(buffer);
+        }
+
+        public boolean isEndOfInput() throws Exception {
+            return _ended;
+        }
+
+        public void close() throws Exception {
+            _stream.close();
+        }
+    }
+
+    /**
+     * Method for get request information from a Netty request.
+     *
+     * @param channel the Channel the request arrived on
+     * @param request the HttpRequest
+     * @param context the published context path
+     * @param type ContentType
+     * @return Request information from a Netty request
+     * @throws IOException when the request information could not be read
+     */
+    static HttpRequestInfo getRequestInfo(Channel channel, HttpRequest request, String context, ContentType type) throws IOException {
+        HttpRequestInfo requestInfo = new HttpRequestInfo();
+        QueryStringDecoder decoder = new QueryStringDecoder(request.getUri());
+        InetSocketAddress localAddress = (InetSocketAddress) channel.getLocalAddress();
+        InetSocketAddress remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+
+        requestInfo.setCharacterEncoding(type.getCharset());
+        requestInfo.setContentType(type.toString());
+        requestInfo.setContextPath(context);
+        requestInfo.setLocalAddr(localAddress.getAddress().getHostAddress());
+        requestInfo.setLocalName(localAddress.getAddress().getHostName());
+        requestInfo.setMethod(request.getMethod().getName());
+        requestInfo.setProtocol(request.getProtocolVersion().getText());
+        int query = request.getUri().indexOf('?');
+        if (query > -1) {
+            requestInfo.setQueryString(request.getUri().substring(query + 1));
+        }
+        requestInfo.setRemoteAddr(remoteAddress.getAddress().getHostAddress());
+        requestInfo.setRemoteHost(remoteAddress.getAddress().getHostName());
+        requestInfo.setContentLength(request.getContent().readableBytes());
+        requestInfo.setRequestURI(decoder.getPath());
+        requestInfo.setScheme(SCHEME);
+        requestInfo.setServerName(localAddress.getHostName());
+        requestInfo.setRequestPath(decoder.getPath());
+
+        // Http Query params...
+        for (Map.Entry<String, List<String>> param : decoder.getParameters().entrySet()) {
+            for (String value : param.getValue()) {
+                requestInfo.addQueryParam(param.getKey(), value);
+            }
+        }
+
+        // Credentials...
+        String authorization = request.getHeader(HttpHeaders.Names.AUTHORIZATION);
+        if (authorization != null) {
+            AuthorizationHeaderCredentialExtractor ahce;
+            if (type.getCharset() != null) {
+                ahce = new AuthorizationHeaderCredentialExtractor(type.getCharset());
+            } else {
+                ahce = new AuthorizationHeaderCredentialExtractor();
+            }
+            requestInfo.getCredentials().addAll(ahce.extract(authorization));
+        }
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(requestInfo);
+        }
+
+        return requestInfo;
+    }
+}
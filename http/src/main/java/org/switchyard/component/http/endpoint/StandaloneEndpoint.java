@@ -14,6 +14,8 @@
  
 package org.switchyard.component.http.endpoint;
 
+import java.util.concurrent.ExecutorService;
+
 import org.jboss.com.sun.net.httpserver.HttpContext;
 import org.switchyard.component.common.Endpoint;
 
@@ -25,6 +27,7 @@ import org.switchyard.component.common.Endpoint;
 public class StandaloneEndpoint implements Endpoint {
 
     private HttpContext _httpContext;
+    private ExecutorService _executor;
     private static Long _contextCount = 0L;
 
     /**
@@ -32,7 +35,17 @@ public class StandaloneEndpoint implements Endpoint {
      * @param context The HttpContext
      */
     public StandaloneEndpoint(final HttpContext context) {
+        this(context, null);
+    }
+
+    /**
+     * Construct a StandaloneEndpoint with the given context and the executor invoking it.
+     * @param context The HttpContext
+     * @param executor The ExecutorService dedicated to the context
+     */
+    public StandaloneEndpoint(final HttpContext context, final ExecutorService executor) {
         _httpContext = context;
+        _executor = executor;
         incrementContextCount();
     }
 
@@ -58,5 +71,8 @@ public class StandaloneEndpoint implements Endpoint {
             _httpContext.getServer().removeContext(_httpContext);
             decrementContextCount();
         }
+        if (_executor != null) {
+            _executor.shutdown();
+        }
     }
 }
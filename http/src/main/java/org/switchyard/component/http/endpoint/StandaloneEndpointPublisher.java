@@ -14,11 +14,19 @@
  
 package org.switchyard.component.http.endpoint;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -45,7 +53,8 @@ import org.switchyard.security.jboss.credential.extractor.HttpExchangeCredential
  * Publishes standalone HTTP endpoint.
  * <p>
  *     By default it will be published in port {@value #DEFAULT_PORT}. This can be configured making use of
- *     <i>{@value #DEFAULT_PORT_PROPERTY}</i> system property.
+ *     <i>{@value #DEFAULT_PORT_PROPERTY}</i> system property. Every published context is invoked on its own
+ *     bounded pool, see {@link StandaloneServerConfig} for the other settings.
  * </p>
  *
  * @author Magesh Kumar B <mageshbk@jboss.com> (C) 2012 Red Hat Inc.
@@ -65,14 +74,19 @@ public class StandaloneEndpointPublisher implements EndpointPublisher {
     private static final Logger LOGGER = Logger.getLogger(StandaloneEndpointPublisher.class);
 
     private static final String CONTENT_TYPE = "Content-Type";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String CONNECTION = "Connection";
 
     // The global standalone HttpServer
     private static HttpServer _httpServer;
 
     static {
         try {
-            _httpServer = HttpServer.create(new InetSocketAddress(getPort()), 10);
-            _httpServer.setExecutor(null); // creates a default executor
+            _httpServer = HttpServer.create(new InetSocketAddress(getPort()), StandaloneServerConfig.getBacklog());
+            // requests are parsed on this pool and then handed to the pool of their context
+            int ioThreads = StandaloneServerConfig.getIoThreads();
+            _httpServer.setExecutor(new ThreadPoolExecutor(ioThreads, ioThreads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), StandaloneServerConfig.createThreadFactory("http-io")));
             _httpServer.start();
         } catch (IOException ioe) {
             HttpLogger.ROOT_LOGGER.unableToLaunchStandaloneHttpServer(ioe);
@@ -84,43 +98,101 @@ public class StandaloneEndpointPublisher implements EndpointPublisher {
      */
     public Endpoint publish(ServiceDomain domain, String context, InboundHandler handler) throws Exception {
         HttpContext httpContext = null;
+        ExecutorService executor = null;
         if (!context.startsWith("/")) {
             context = "/" + context;
         }
         if (_httpServer != null) {
-            httpContext = _httpServer.createContext(context, new StandaloneHandler(handler));
+            executor = StandaloneServerConfig.createWorkerPool(context);
+            try {
+                httpContext = _httpServer.createContext(context, new StandaloneHandler(handler, executor));
+            } catch (RuntimeException re) {
+                executor.shutdown();
+                throw re;
+            }
         }
-        return new StandaloneEndpoint(httpContext);
+        return new StandaloneEndpoint(httpContext, executor);
     }
 
     private static class StandaloneHandler implements HttpHandler {
 
         private InboundHandler _handler;
+        private Executor _executor;
+        private int _maxRequestSize;
 
-        public StandaloneHandler(InboundHandler handler) {
+        public StandaloneHandler(InboundHandler handler, Executor executor) {
             _handler = handler;
+            _executor = executor;
+            _maxRequestSize = StandaloneServerConfig.getMaxRequestSize();
         }
 
-        public void handle(HttpExchange exchange) {
+        public void handle(final HttpExchange exchange) throws IOException {
+            if (getContentLength(exchange) > _maxRequestSize) {
+                exchange.sendResponseHeaders(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, -1);
+                exchange.close();
+                return;
+            }
+            if (!StandaloneServerConfig.isKeepAlive()) {
+                exchange.getResponseHeaders().set(CONNECTION, "close");
+            }
+            try {
+                _executor.execute(new Runnable() {
+                    public void run() {
+                        process(exchange);
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                exchange.sendResponseHeaders(HttpServletResponse.SC_SERVICE_UNAVAILABLE, -1);
+                exchange.close();
+            }
+        }
+
+        private long getContentLength(HttpExchange exchange) {
+            String contentLength = exchange.getRequestHeaders().getFirst(CONTENT_LENGTH);
+            if (contentLength != null) {
+                try {
+                    return Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException nfe) {
+                    LOGGER.debug(nfe);
+                }
+            }
+            return -1;
+        }
+
+        private void process(HttpExchange exchange) {
             try {
                 HttpRequestBindingData httpRequest = new HttpRequestBindingData();
-                byte[] responseBody = null;
+                // chunked requests carry no Content-Length, so the limit is applied to what is read
+                BoundedInputStream body = new BoundedInputStream(exchange.getRequestBody(), _maxRequestSize);
                 try {
                     String contentTypeStr = exchange.getRequestHeaders().getFirst(CONTENT_TYPE);
                     ContentType contentType = new ContentType(contentTypeStr);
                     httpRequest.setContentType(contentType);
-                    httpRequest.setBodyFromStream(exchange.getRequestBody());
+                    if (_handler.isStreaming()) {
+                        httpRequest.setBodyStream(body, -1);
+                    } else {
+                        httpRequest.setBodyFromStream(body);
+                    }
                     httpRequest.setHeaders(exchange.getRequestHeaders());
                     httpRequest.setRequestInfo(getRequestInfo(exchange, contentType));
                 } catch (IOException e) {
+                    if (body.isExceeded()) {
+                        exchange.sendResponseHeaders(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, -1);
+                        return;
+                    }
                     HttpLogger.ROOT_LOGGER.unexpectedExceptionWhileReadingRequest(e);
                 }
                 HttpResponseBindingData httpResponse = _handler.invoke(httpRequest);
                 try {
-                    if (httpResponse != null) {
+                    if (body.isExceeded()) {
+                        // a streaming service only hit the limit while reading the body
+                        exchange.sendResponseHeaders(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, -1);
+                    } else if (httpResponse != null) {
                         exchange.getResponseHeaders().putAll(httpResponse.getHeaders());
-                        if (httpResponse.getBodyBytes() != null) {
-                            exchange.sendResponseHeaders(httpResponse.getStatus(), httpResponse.getBodyBytes().available());
+                        if (httpResponse.hasBody()) {
+                            // a length of 0 makes the server use chunked encoding
+                            long length = httpResponse.getBodyLength();
+                            exchange.sendResponseHeaders(httpResponse.getStatus(), length > 0 ? length : 0);
                             httpResponse.writeBodyToStream(exchange.getResponseBody());
                         } else {
                             if (httpResponse.getStatus() != null) {
@@ -137,6 +209,66 @@ public class StandaloneEndpointPublisher implements EndpointPublisher {
                 }
             } catch (Exception e) {
                 HttpLogger.ROOT_LOGGER.unexpectedExceptionWhileHandlingHttpRequest(e);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Fails reads once more than the maximum request size has been read.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private long _remaining;
+        private boolean _exceeded;
+
+        private BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            _remaining = limit;
+        }
+
+        private boolean isExceeded() {
+            return _exceeded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                count(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                count(skipped);
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long read) throws IOException {
+            _remaining -= read;
+            if (_remaining < 0) {
+                _exceeded = true;
+                throw new IOException("Request body exceeds the maximum request size");
             }
         }
     }
@@ -215,11 +347,6 @@ public class StandaloneEndpointPublisher implements EndpointPublisher {
      * @return the port
      */
     static int getPort() {
-        int port = DEFAULT_PORT;
-        final String portAsStr = System.getProperty(DEFAULT_PORT_PROPERTY);
-        if (portAsStr != null) {
-            port = Integer.parseInt(portAsStr);
-        }
-        return port;
+        return StandaloneServerConfig.getPort();
     }
 }
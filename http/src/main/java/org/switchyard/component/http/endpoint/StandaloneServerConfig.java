@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.http.endpoint;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Settings shared by the standalone HTTP engines, read from system properties.
+ */
+public final class StandaloneServerConfig {
+
+    /**
+     * System property to select the standalone engine, either {@value #ENGINE_JDK} or {@value #ENGINE_NETTY}.
+     */
+    public static final String ENGINE_PROPERTY = "org.switchyard.component.http.standalone.engine";
+
+    /**
+     * The JDK HttpServer based engine, used by default.
+     */
+    public static final String ENGINE_JDK = "jdk";
+
+    /**
+     * The Netty NIO based engine, which needs io.netty:netty on the classpath.
+     */
+    public static final String ENGINE_NETTY = "netty";
+
+    /**
+     * System property for the listen socket backlog.
+     */
+    public static final String BACKLOG_PROPERTY = "org.switchyard.component.http.standalone.backlog";
+
+    /**
+     * System property for the number of threads reading and parsing requests.
+     */
+    public static final String IO_THREADS_PROPERTY = "org.switchyard.component.http.standalone.ioThreads";
+
+    /**
+     * System property for the number of threads invoking each published context.
+     */
+    public static final String WORKER_THREADS_PROPERTY = "org.switchyard.component.http.standalone.workerThreads";
+
+    /**
+     * System property for the number of requests each published context may queue.
+     */
+    public static final String WORKER_QUEUE_PROPERTY = "org.switchyard.component.http.standalone.workerQueue";
+
+    /**
+     * System property to enable or disable HTTP keep-alive.
+     */
+    public static final String KEEP_ALIVE_PROPERTY = "org.switchyard.component.http.standalone.keepAlive";
+
+    /**
+     * System property for the maximum accepted request size in bytes.
+     */
+    public static final String MAX_REQUEST_SIZE_PROPERTY = "org.switchyard.component.http.standalone.maxRequestSize";
+
+    static final int DEFAULT_BACKLOG = 128;
+    static final int DEFAULT_IO_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+    static final int DEFAULT_WORKER_THREADS = 16;
+    static final int DEFAULT_WORKER_QUEUE = 1000;
+    static final int DEFAULT_MAX_REQUEST_SIZE = 1024 * 1024 * 10;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private StandaloneServerConfig() {
+    }
+
+    /**
+     * Returns the port where the standalone engine will be started.
+     * @return the port
+     */
+    public static int getPort() {
+        return Integer.getInteger(StandaloneEndpointPublisher.DEFAULT_PORT_PROPERTY, StandaloneEndpointPublisher.DEFAULT_PORT);
+    }
+
+    /**
+     * Returns the selected standalone engine.
+     * @return the engine name
+     */
+    public static String getEngine() {
+        return System.getProperty(ENGINE_PROPERTY, ENGINE_JDK);
+    }
+
+    /**
+     * Returns the listen socket backlog.
+     * @return the backlog
+     */
+    public static int getBacklog() {
+        return Integer.getInteger(BACKLOG_PROPERTY, DEFAULT_BACKLOG);
+    }
+
+    /**
+     * Returns the number of threads reading and parsing requests.
+     * @return the number of I/O threads
+     */
+    public static int getIoThreads() {
+        return Integer.getInteger(IO_THREADS_PROPERTY, DEFAULT_IO_THREADS);
+    }
+
+    /**
+     * Returns the number of threads invoking each published context.
+     * @return the number of worker threads
+     */
+    public static int getWorkerThreads() {
+        return Integer.getInteger(WORKER_THREADS_PROPERTY, DEFAULT_WORKER_THREADS);
+    }
+
+    /**
+     * Returns the number of requests each published context may queue.
+     * @return the queue size
+     */
+    public static int getWorkerQueue() {
+        return Integer.getInteger(WORKER_QUEUE_PROPERTY, DEFAULT_WORKER_QUEUE);
+    }
+
+    /**
+     * Returns whether HTTP keep-alive is enabled.
+     * @return true if enabled, false otherwise
+     */
+    public static boolean isKeepAlive() {
+        return Boolean.valueOf(System.getProperty(KEEP_ALIVE_PROPERTY, Boolean.TRUE.toString()));
+    }
+
+    /**
+     * Returns the maximum accepted request size in bytes.
+     * @return the maximum request size
+     */
+    public static int getMaxRequestSize() {
+        return Integer.getInteger(MAX_REQUEST_SIZE_PROPERTY, DEFAULT_MAX_REQUEST_SIZE);
+    }
+
+    /**
+     * Creates the bounded pool invoking a single published context, so that a
+     * slow service cannot starve the others.
+     * @param context the context path
+     * @return the executor
+     */
+    static ThreadPoolExecutor createWorkerPool(String context) {
+        int threads = getWorkerThreads();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(getWorkerQueue()), createThreadFactory("http" + context));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates a factory for named daemon threads.
+     * @param prefix the thread name prefix
+     * @return the thread factory
+     */
+    static ThreadFactory createThreadFactory(final String prefix) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable);
+                thread.setName(prefix + ':' + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
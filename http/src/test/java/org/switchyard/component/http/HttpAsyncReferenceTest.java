@@ -0,0 +1,259 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.jboss.com.sun.net.httpserver.HttpExchange;
+import org.jboss.com.sun.net.httpserver.HttpHandler;
+import org.jboss.com.sun.net.httpserver.HttpServer;
+import org.switchyard.Exchange;
+import org.switchyard.ServiceDomain;
+import org.switchyard.component.http.config.model.HttpBindingModel;
+import org.switchyard.config.model.ModelPuller;
+import org.switchyard.config.model.composite.CompositeModel;
+import org.switchyard.config.model.composite.CompositeReferenceModel;
+import org.switchyard.deploy.ServiceHandler.State;
+import org.switchyard.metadata.BaseService;
+import org.switchyard.metadata.InOutOperation;
+import org.switchyard.metadata.ServiceOperation;
+import org.switchyard.test.Invoker;
+import org.switchyard.test.MockHandler;
+import org.switchyard.test.SwitchYardRunner;
+
+/**
+ * Contains tests for asynchronous HTTP references.
+ */
+@RunWith(SwitchYardRunner.class)
+public class HttpAsyncReferenceTest {
+
+    private static final String METHOD_NAME = "sayHello";
+    private static final String INPUT = "magesh";
+    private static final QName STRING_QNAME = new QName("java:java.lang.String");
+    private static final long WAIT_TIMEOUT = 5000;
+
+    private ServiceDomain _domain;
+
+    @org.switchyard.test.ServiceOperation("{urn:http:test:2.0}AsyncHttpConsumerService")
+    private Invoker _asyncService;
+
+    @org.switchyard.test.ServiceOperation("{urn:http:test:2.0}TimeoutHttpConsumerService")
+    private Invoker _timeoutService;
+
+    @org.switchyard.test.ServiceOperation("{urn:http:test:2.0}QueuedHttpConsumerService")
+    private Invoker _queuedService;
+
+    @org.switchyard.test.ServiceOperation("{urn:http:test:2.0}RejectingHttpConsumerService")
+    private Invoker _rejectingService;
+
+    @org.switchyard.test.ServiceOperation("{urn:http:test:2.0}StoppingHttpConsumerService")
+    private Invoker _stoppingService;
+
+    private final List<OutboundHandler> _httpOutbounds = new ArrayList<OutboundHandler>();
+    private OutboundHandler _stoppingOutbound;
+    private HttpServer _httpServer;
+    private ExecutorService _serverExecutor;
+    private CountDownLatch _release;
+    private CountDownLatch _arrived;
+
+    @Before
+    public void setUp() throws Exception {
+        _release = new CountDownLatch(1);
+        _arrived = new CountDownLatch(1);
+        _serverExecutor = Executors.newCachedThreadPool();
+        _httpServer = HttpServer.create(new InetSocketAddress(8110), 10);
+        _httpServer.setExecutor(_serverExecutor);
+        _httpServer.createContext("/blocked", new EchoHandler(0, true));
+        _httpServer.createContext("/forever", new EchoHandler(10000, false));
+        _httpServer.createContext("/slow", new EchoHandler(400, false));
+        _httpServer.start();
+
+        ModelPuller<CompositeModel> puller = new ModelPuller<CompositeModel>();
+        CompositeModel composite = puller.pull("/HttpAsyncReference.xml", getClass());
+        composite.assertModelValid();
+        for (CompositeReferenceModel compositeReference : composite.getReferences()) {
+            HttpBindingModel configRef = (HttpBindingModel)compositeReference.getBindings().get(0);
+            OutboundHandler httpOutbound = new OutboundHandler(configRef, null);
+            _domain.registerService(configRef.getServiceName(), new HelloInterface(), httpOutbound);
+            httpOutbound.start();
+            _httpOutbounds.add(httpOutbound);
+            if ("StoppingHttpConsumerService".equals(compositeReference.getName())) {
+                _stoppingOutbound = httpOutbound;
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _release.countDown();
+        for (OutboundHandler httpOutbound : _httpOutbounds) {
+            if (httpOutbound.getState() == State.STARTED) {
+                httpOutbound.stop();
+            }
+        }
+        _httpServer.stop(0);
+        _serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void asyncReferenceReleasesCaller() throws Exception {
+        MockHandler handler = send(_asyncService);
+        // the server holds the response, so the exchange can only complete later
+        Assert.assertTrue(handler.getMessages().isEmpty());
+        Assert.assertTrue(handler.getFaults().isEmpty());
+        _release.countDown();
+        handler.waitForOKMessage();
+        Assert.assertEquals(INPUT, handler.getMessages().peek().getMessage().getContent(String.class));
+    }
+
+    @Test
+    public void asyncReferenceTimesOut() throws Exception {
+        MockHandler handler = send(_timeoutService);
+        handler.waitForFaultMessage();
+        Exception fault = handler.getFaults().iterator().next().getMessage().getContent(Exception.class);
+        Assert.assertTrue(stackTrace(fault).contains("TimeoutException"));
+    }
+
+    @Test
+    public void queuedRequestsDoNotTimeOutBeforeSent() throws Exception {
+        // one worker and 400 ms per request: the last request is only sent
+        // after the 1000 ms timeout has passed since it was dispatched
+        List<MockHandler> handlers = new ArrayList<MockHandler>();
+        for (int i = 0; i < 4; i++) {
+            handlers.add(send(_queuedService));
+        }
+        for (MockHandler handler : handlers) {
+            handler.waitForOKMessage();
+            Assert.assertTrue(handler.getFaults().isEmpty());
+            Assert.assertEquals(INPUT, handler.getMessages().peek().getMessage().getContent(String.class));
+        }
+    }
+
+    @Test
+    public void requestsBeyondMaxInFlightAreRejected() throws Exception {
+        MockHandler first = send(_rejectingService);
+        MockHandler second = send(_rejectingService);
+        second.waitForFaultMessage();
+        Exception fault = second.getFaults().iterator().next().getMessage().getContent(Exception.class);
+        Assert.assertTrue(fault.getMessage().contains("already has 1 requests in flight"));
+        _release.countDown();
+        first.waitForOKMessage();
+        Assert.assertEquals(INPUT, first.getMessages().peek().getMessage().getContent(String.class));
+    }
+
+    @Test
+    public void stopFailsQueuedRequestsAndDrainsSentOnes() throws Exception {
+        MockHandler sent = send(_stoppingService);
+        Assert.assertTrue(_arrived.await(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+        MockHandler queued = send(_stoppingService);
+        Thread stopper = new Thread(new Runnable() {
+            public void run() {
+                _stoppingOutbound.stop();
+            }
+        });
+        stopper.start();
+        queued.waitForFaultMessage();
+        Exception fault = queued.getFaults().iterator().next().getMessage().getContent(Exception.class);
+        Assert.assertTrue(stackTrace(fault).contains("was stopped before the HTTP request completed"));
+        // the request already sent is left to complete before the connections are closed
+        Assert.assertTrue(sent.getMessages().isEmpty());
+        Assert.assertTrue(stopper.isAlive());
+        _release.countDown();
+        sent.waitForOKMessage();
+        Assert.assertEquals(INPUT, sent.getMessages().peek().getMessage().getContent(String.class));
+        stopper.join(WAIT_TIMEOUT);
+        Assert.assertFalse(stopper.isAlive());
+    }
+
+    private MockHandler send(Invoker invoker) {
+        MockHandler handler = new MockHandler();
+        handler.setWaitTimeout(WAIT_TIMEOUT);
+        Exchange ex = invoker.operation(METHOD_NAME).createExchange(handler);
+        ex.send(ex.createMessage().setContent(INPUT));
+        return handler;
+    }
+
+    private static String stackTrace(Exception e) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        e.printStackTrace(new PrintStream(baos));
+        return baos.toString();
+    }
+
+    private static class HelloInterface extends BaseService {
+        private static Set<ServiceOperation> _operations = new HashSet<ServiceOperation>(1);
+        static {
+            _operations.add(new InOutOperation(METHOD_NAME, STRING_QNAME, STRING_QNAME));
+        }
+        public HelloInterface() {
+            super(_operations);
+        }
+    }
+
+    private class EchoHandler implements HttpHandler {
+
+        private final long _delay;
+        private final boolean _blocked;
+
+        private EchoHandler(long delay, boolean blocked) {
+            _delay = delay;
+            _blocked = blocked;
+        }
+
+        public void handle(HttpExchange exchange) {
+            try {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                InputStream in = exchange.getRequestBody();
+                byte[] buffer = new byte[1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+                if (_blocked) {
+                    _arrived.countDown();
+                    _release.await(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+                } else {
+                    Thread.sleep(_delay);
+                }
+                exchange.sendResponseHeaders(200, body.size());
+                OutputStream out = exchange.getResponseBody();
+                body.writeTo(out);
+                out.close();
+            } catch (Exception e) {
+                // the client may have given up on the request
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
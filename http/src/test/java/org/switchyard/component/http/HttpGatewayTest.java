@@ -15,8 +15,11 @@
 package org.switchyard.component.http;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
+import java.net.URL;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -39,6 +42,7 @@ import org.switchyard.component.http.composer.HttpRequestBindingData;
 import org.switchyard.component.http.composer.HttpComposition;
 import org.switchyard.component.http.composer.HttpContextMapper;
 import org.switchyard.component.http.config.model.HttpBindingModel;
+import org.switchyard.component.http.endpoint.StandaloneServerConfig;
 import org.switchyard.component.test.mixins.http.HTTPMixIn;
 import org.switchyard.config.model.ModelPuller;
 import org.switchyard.config.model.composite.CompositeModel;
@@ -174,6 +178,28 @@ public class HttpGatewayTest {
         Assert.assertEquals(INPUT, response);
     }
 
+    @Test
+    public void chunkedRequestOverMaxRequestSize() throws Exception {
+        // the limit is read when the context is published
+        _httpInbound.stop();
+        System.setProperty(StandaloneServerConfig.MAX_REQUEST_SIZE_PROPERTY, "1024");
+        try {
+            _httpInbound.start();
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:8080/http").openConnection();
+            connection.setRequestMethod(HTTPMixIn.HTTP_POST);
+            connection.setDoOutput(true);
+            // no Content-Length, so only the bytes read count against the limit
+            connection.setChunkedStreamingMode(256);
+            OutputStream out = connection.getOutputStream();
+            out.write(new byte[4096]);
+            out.close();
+            Assert.assertEquals(413, connection.getResponseCode());
+            Assert.assertEquals(0, mockService.getMessages().size());
+        } finally {
+            System.clearProperty(StandaloneServerConfig.MAX_REQUEST_SIZE_PROPERTY);
+        }
+    }
+
     @Test
     public void httpOneWayStatusTest() throws Exception {
         int status = httpMixIn.sendStringAndGetStatus("http://localhost:8080/oneway", INPUT, HTTPMixIn.HTTP_POST);
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.http.composer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class HttpBindingDataTest {
+
+    @Test
+    public void streamedBodyIsNotBuffered() throws Exception {
+        InputStream is = new ByteArrayInputStream("Hello".getBytes());
+        HttpRequestBindingData bindingData = new HttpRequestBindingData();
+        bindingData.setBodyStream(is, 5);
+        assertTrue(bindingData.hasBody());
+        assertTrue(bindingData.isBodyStreamed());
+        assertSame(is, bindingData.getBodyStream());
+        assertEquals(5, bindingData.getBodyLength());
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        bindingData.writeBodyToStream(os);
+        assertEquals("Hello", os.toString());
+    }
+
+    @Test
+    public void streamedBodyIsBufferedOnDemand() throws Exception {
+        HttpRequestBindingData bindingData = new HttpRequestBindingData();
+        bindingData.setBodyStream(new ByteArrayInputStream("Hello".getBytes()), -1);
+        assertEquals("Hello", bindingData.getBodyAsString());
+        assertFalse(bindingData.isBodyStreamed());
+        assertEquals(5, bindingData.getBodyLength());
+    }
+
+    @Test
+    public void bodyBelowThresholdStaysInMemory() throws Exception {
+        HttpResponseBindingData bindingData = new HttpResponseBindingData();
+        bindingData.setBodyFromStream(new ByteArrayInputStream(new byte[100]), 1024);
+        assertFalse(bindingData.isBodyStreamed());
+        assertEquals(100, bindingData.getBodyLength());
+    }
+
+    @Test
+    public void bodyAboveThresholdIsSpilled() throws Exception {
+        byte[] content = new byte[20000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        HttpResponseBindingData bindingData = new HttpResponseBindingData();
+        bindingData.setBodyFromStream(new ByteArrayInputStream(content), 1024);
+        assertTrue(bindingData.isBodyStreamed());
+        assertEquals(content.length, bindingData.getBodyLength());
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        bindingData.writeBodyToStream(os);
+        assertArrayEquals(content, os.toByteArray());
+    }
+
+    @Test
+    public void spilledBodyLeavesNoFileWhenNotClosed() throws Exception {
+        // Windows can't delete open files, those are deleted on close or exit instead
+        Assume.assumeTrue(File.separatorChar == '/');
+        File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        Set<String> before = new HashSet<String>(Arrays.asList(tmpDir.list()));
+        HttpResponseBindingData bindingData = new HttpResponseBindingData();
+        bindingData.setBodyFromStream(new ByteArrayInputStream(new byte[20000]), 1024);
+        assertTrue(bindingData.isBodyStreamed());
+        assertEquals(20000, bindingData.getBodyLength());
+        for (String name : tmpDir.list()) {
+            if (!before.contains(name)) {
+                assertFalse(name, name.startsWith("switchyard-http"));
+            }
+        }
+        // still readable although its file is gone
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        bindingData.writeBodyToStream(os);
+        assertEquals(20000, os.size());
+    }
+}
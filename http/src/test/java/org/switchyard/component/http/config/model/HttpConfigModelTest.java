@@ -32,6 +32,8 @@ public class HttpConfigModelTest {
     private static final String HTTP_BINDING2 = "http-binding2.xml";
     private static final String HTTP_BINDING_AUTH = "http-binding-auth.xml";
     private static final String HTTP_BINDING_PROXY = "http-binding-proxy.xml";
+    private static final String HTTP_BINDING_POOL = "http-binding-pool.xml";
+    private static final String HTTP_BINDING_ASYNC = "http-binding-async.xml";
 
     @Test
     public void testReadConfigBinding() throws Exception {
@@ -68,4 +70,25 @@ public class HttpConfigModelTest {
         Assert.assertEquals("Beal", proxyConfig.getUser());
         Assert.assertEquals("conjecture", proxyConfig.getPassword());
     }
+
+    @Test
+    public void testPoolConfigBinding() throws Exception {
+        ModelPuller<HttpBindingModel> puller = new ModelPuller<HttpBindingModel>();
+        HttpBindingModel model = puller.pull(HTTP_BINDING_POOL, getClass());
+        Assert.assertTrue(model.isModelValid());
+        Assert.assertEquals(new Integer(50), model.getMaxTotalConnections());
+        Assert.assertEquals(new Integer(25), model.getMaxConnectionsPerRoute());
+        Assert.assertEquals(new Integer(10000), model.getIdleConnectionTimeout());
+    }
+
+    @Test
+    public void asyncConfigBinding() throws Exception {
+        ModelPuller<HttpBindingModel> puller = new ModelPuller<HttpBindingModel>();
+        HttpBindingModel model = puller.pull(HTTP_BINDING_ASYNC, getClass());
+        Assert.assertTrue(model.isModelValid());
+        Assert.assertTrue(model.isAsync());
+        Assert.assertEquals(new Integer(4), model.getAsyncThreads());
+        Assert.assertEquals(new Integer(500), model.getMaxInFlight());
+        Assert.assertTrue(model.isStreaming());
+    }
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.http.endpoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.switchyard.ServiceDomain;
+import org.switchyard.component.common.Endpoint;
+import org.switchyard.component.http.InboundHandler;
+import org.switchyard.component.http.composer.HttpRequestBindingData;
+import org.switchyard.component.http.composer.HttpResponseBindingData;
+import org.switchyard.component.http.config.model.HttpBindingModel;
+import org.switchyard.config.model.ModelPuller;
+import org.switchyard.config.model.composite.CompositeModel;
+import org.switchyard.test.SwitchYardRunner;
+
+/**
+ * Test for {@link NettyEndpointPublisher}.
+ */
+@RunWith(SwitchYardRunner.class)
+public class NettyEndpointPublisherTest {
+
+    private static final int TEST_PORT = 18180;
+    private static final String CONTEXT = "/netty";
+    private static final String BASE_URL = "http://localhost:" + TEST_PORT + CONTEXT;
+
+    private ServiceDomain _domain;
+    private TestInboundHandler _handler;
+    private Endpoint _endpoint;
+    private DefaultHttpClient _client;
+
+    @BeforeClass
+    public static void setUpServer() {
+        // read when the publisher class binds its server
+        System.setProperty(StandaloneEndpointPublisher.DEFAULT_PORT_PROPERTY, Integer.toString(TEST_PORT));
+    }
+
+    @AfterClass
+    public static void tearDownServer() {
+        System.clearProperty(StandaloneEndpointPublisher.DEFAULT_PORT_PROPERTY);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        CompositeModel composite = new ModelPuller<CompositeModel>().pull("/HelloSwitchYard.xml", getClass());
+        HttpBindingModel config = (HttpBindingModel) composite.getServices().get(0).getBindings().get(0);
+        _handler = new TestInboundHandler(config, _domain);
+        _endpoint = new NettyEndpointPublisher().publish(_domain, CONTEXT, _handler);
+        _endpoint.start();
+        _client = new DefaultHttpClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _client.getConnectionManager().shutdown();
+        _endpoint.stop();
+    }
+
+    @Test
+    public void echoesRequestBody() throws Exception {
+        HttpPost post = new HttpPost(BASE_URL + "/echo");
+        post.setEntity(new StringEntity("Beal Conjecture"));
+        HttpResponse response = _client.execute(post);
+        Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("Beal Conjecture", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test
+    public void streamsResponseBodyInChunks() throws Exception {
+        HttpResponse response = _client.execute(new HttpGet(BASE_URL + "/stream"));
+        Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("chunked", response.getFirstHeader("Transfer-Encoding").getValue());
+        Assert.assertEquals("streamed body", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test
+    public void unknownContextIsNotFound() throws Exception {
+        HttpResponse response = _client.execute(new HttpGet("http://localhost:" + TEST_PORT + "/unknown"));
+        Assert.assertEquals(404, response.getStatusLine().getStatusCode());
+        EntityUtils.consume(response.getEntity());
+    }
+
+    @Test
+    public void pipelinedResponsesKeepRequestOrder() throws Exception {
+        Socket socket = new Socket("localhost", TEST_PORT);
+        try {
+            socket.setSoTimeout(10000);
+            OutputStream out = socket.getOutputStream();
+            // the first request only completes once the second one has been invoked
+            out.write(("GET " + CONTEXT + "/slow HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET " + CONTEXT + "/fast HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes("US-ASCII"));
+            out.flush();
+            String responses = readFully(socket.getInputStream());
+            int slow = responses.indexOf("slow");
+            int fast = responses.indexOf("fast");
+            Assert.assertTrue(responses, slow > 0);
+            Assert.assertTrue(responses, fast > slow);
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static String readFully(InputStream in) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toString("US-ASCII");
+    }
+
+    private static class TestInboundHandler extends InboundHandler {
+        private final CountDownLatch _fastInvoked = new CountDownLatch(1);
+
+        TestInboundHandler(HttpBindingModel config, ServiceDomain domain) {
+            super(config, domain);
+        }
+
+        @Override
+        public HttpResponseBindingData invoke(HttpRequestBindingData input) {
+            String path = input.getRequestInfo().getRequestPath();
+            HttpResponseBindingData response = new HttpResponseBindingData();
+            response.setStatus(200);
+            try {
+                if (path.endsWith("/slow")) {
+                    _fastInvoked.await(5, TimeUnit.SECONDS);
+                    response.setBody("slow");
+                } else if (path.endsWith("/fast")) {
+                    _fastInvoked.countDown();
+                    response.setBody("fast");
+                } else if (path.endsWith("/stream")) {
+                    response.setBodyStream(new ByteArrayInputStream("streamed body".getBytes("UTF-8")), -1);
+                } else {
+                    response.setBody(input.getBodyAsString());
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return response;
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.http.endpoint;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test for StandaloneServerConfig
+ */
+public class StandaloneServerConfigTest {
+
+    @After
+    public void tearDown() {
+        System.clearProperty(StandaloneServerConfig.ENGINE_PROPERTY);
+        System.clearProperty(StandaloneServerConfig.BACKLOG_PROPERTY);
+        System.clearProperty(StandaloneServerConfig.WORKER_THREADS_PROPERTY);
+        System.clearProperty(StandaloneServerConfig.KEEP_ALIVE_PROPERTY);
+        System.clearProperty(StandaloneServerConfig.MAX_REQUEST_SIZE_PROPERTY);
+    }
+
+    @Test
+    public void useDefaults() {
+        assertThat(StandaloneServerConfig.getEngine(), is(equalTo(StandaloneServerConfig.ENGINE_JDK)));
+        assertThat(StandaloneServerConfig.getBacklog(), is(equalTo(StandaloneServerConfig.DEFAULT_BACKLOG)));
+        assertThat(StandaloneServerConfig.getWorkerThreads(), is(equalTo(StandaloneServerConfig.DEFAULT_WORKER_THREADS)));
+        assertThat(StandaloneServerConfig.isKeepAlive(), is(true));
+        assertThat(StandaloneServerConfig.getMaxRequestSize(), is(equalTo(StandaloneServerConfig.DEFAULT_MAX_REQUEST_SIZE)));
+    }
+
+    @Test
+    public void useConfiguredValues() {
+        System.setProperty(StandaloneServerConfig.ENGINE_PROPERTY, StandaloneServerConfig.ENGINE_NETTY);
+        System.setProperty(StandaloneServerConfig.BACKLOG_PROPERTY, "512");
+        System.setProperty(StandaloneServerConfig.WORKER_THREADS_PROPERTY, "4");
+        System.setProperty(StandaloneServerConfig.KEEP_ALIVE_PROPERTY, "false");
+        System.setProperty(StandaloneServerConfig.MAX_REQUEST_SIZE_PROPERTY, "1024");
+        assertThat(StandaloneServerConfig.getEngine(), is(equalTo(StandaloneServerConfig.ENGINE_NETTY)));
+        assertThat(StandaloneServerConfig.getBacklog(), is(equalTo(512)));
+        assertThat(StandaloneServerConfig.getWorkerThreads(), is(equalTo(4)));
+        assertThat(StandaloneServerConfig.isKeepAlive(), is(false));
+        assertThat(StandaloneServerConfig.getMaxRequestSize(), is(equalTo(1024)));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the batch size of a JCA inbound endpoint from the observed load.
+ * <p/>
+ * After every commit, the time it took to fill the batch gives the interval between
+ * two messages on a delivery thread. The batch size is then steered towards the number
+ * of messages which arrive before the first message of the batch would wait longer than
+ * the latency target, counting the time the commit itself takes. Under a burst the batch
+ * grows and saves commits; when the traffic slows down it shrinks, so that messages are
+ * not held in an open transaction until the batch timeout expires.
+ */
+public class AdaptiveBatchSize implements AdaptiveBatchSizeMXBean {
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int _minBatchSize;
+    private final int _maxBatchSize;
+    private final long _latencyTarget;
+    private volatile int _batchSize;
+    private double _interval;
+    private double _commitNanos;
+
+    /**
+     * Constructor.
+     * @param initialBatchSize batch size until the first commit
+     * @param minBatchSize lower bound of the batch size
+     * @param maxBatchSize upper bound of the batch size
+     * @param latencyTarget latency target in milliseconds
+     */
+    public AdaptiveBatchSize(int initialBatchSize, int minBatchSize, int maxBatchSize, long latencyTarget) {
+        _minBatchSize = Math.max(1, minBatchSize);
+        _maxBatchSize = Math.max(_minBatchSize, maxBatchSize);
+        _latencyTarget = latencyTarget;
+        _batchSize = clamp(initialBatchSize);
+    }
+
+    /**
+     * Records a committed batch and adjusts the batch size.
+     * @param batchSize number of messages in the batch
+     * @param fillNanos time between the start of the batch transaction and its commit, in nanoseconds
+     * @param commitNanos time spent committing, in nanoseconds
+     */
+    public synchronized void batchCommitted(int batchSize, long fillNanos, long commitNanos) {
+        if (batchSize <= 0) {
+            return;
+        }
+        _interval = average(_interval, (double)fillNanos / batchSize);
+        _commitNanos = average(_commitNanos, commitNanos);
+
+        double budget = TimeUnit.MILLISECONDS.toNanos(_latencyTarget) - _commitNanos;
+        int target = budget <= 0 || _interval <= 0 ? _minBatchSize : clamp((long)(budget / _interval));
+        // move half way, so that a single burst or pause doesn't swing the size from one bound to the other
+        _batchSize = target > _batchSize ? (_batchSize + target + 1) / 2 : (_batchSize + target) / 2;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return _batchSize;
+    }
+
+    @Override
+    public int getMinBatchSize() {
+        return _minBatchSize;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return _maxBatchSize;
+    }
+
+    @Override
+    public long getLatencyTarget() {
+        return _latencyTarget;
+    }
+
+    @Override
+    public synchronized double getArrivalRate() {
+        return _interval == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / _interval;
+    }
+
+    @Override
+    public synchronized double getCommitLatency() {
+        return _commitNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private int clamp(long size) {
+        return (int)Math.max(_minBatchSize, Math.min(_maxBatchSize, size));
+    }
+
+    private static double average(double average, double sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+/**
+ * Management interface for the adaptive batch size of a JCA inbound endpoint.
+ */
+public interface AdaptiveBatchSizeMXBean {
+
+    /**
+     * Batch size currently chosen.
+     * @return batch size
+     */
+    int getBatchSize();
+
+    /**
+     * Lower bound of the batch size.
+     * @return minimum batch size
+     */
+    int getMinBatchSize();
+
+    /**
+     * Upper bound of the batch size.
+     * @return maximum batch size
+     */
+    int getMaxBatchSize();
+
+    /**
+     * Time the first message of a batch should wait for its commit at most, in milliseconds.
+     * @return latency target
+     */
+    long getLatencyTarget();
+
+    /**
+     * Observed rate at which a delivery thread receives messages, per second.
+     * @return arrival rate
+     */
+    double getArrivalRate();
+
+    /**
+     * Observed time spent committing a batch, in milliseconds.
+     * @return commit latency
+     */
+    double getCommitLatency();
+}
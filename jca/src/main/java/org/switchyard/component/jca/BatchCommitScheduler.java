@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Drives the batch commit timeouts of every {@link EndpointProxy} created for one
+ * JCA inbound endpoint from a single timer thread, and collects their batch commit
+ * statistics. When the batch size is adaptive, it also holds the {@link AdaptiveBatchSize}
+ * shared by the proxies. The statistics and the adaptive batch size are registered as
+ * MBeans while the scheduler is running.
+ */
+public class BatchCommitScheduler {
+
+    /** JMX domain of the batch commit MBeans. */
+    public static final String JMX_DOMAIN = "org.switchyard.component.jca";
+
+    private Logger _logger = Logger.getLogger(BatchCommitScheduler.class);
+    private final ScheduledThreadPoolExecutor _timer;
+    private final BatchCommitStatistics _statistics = new BatchCommitStatistics();
+    private final AdaptiveBatchSize _adaptiveBatchSize;
+    private final String _name;
+
+    /**
+     * Constructor.
+     * @param name name of the endpoint, used for the timer thread and the MBeans
+     */
+    public BatchCommitScheduler(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Constructor.
+     * @param name name of the endpoint, used for the timer thread and the MBeans
+     * @param adaptiveBatchSize adaptive batch size, or null if the batch size is fixed
+     */
+    public BatchCommitScheduler(final String name, AdaptiveBatchSize adaptiveBatchSize) {
+        _name = name;
+        _adaptiveBatchSize = adaptiveBatchSize;
+        _timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "jca-batch-commit:" + name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // most batches fill up before their timeout, so cancelled timeouts are dropped right away
+        _timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Schedules a batch commit timeout.
+     * @param task the task committing the batch
+     * @param delay delay
+     * @param unit time unit of the delay
+     * @return the future to cancel the timeout
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return _timer.schedule(task, delay, unit);
+    }
+
+    /**
+     * Gets the batch size for the next batch.
+     * @param batchSize the configured batch size
+     * @return the adaptive batch size, or the configured one if the batch size is fixed
+     */
+    public int getBatchSize(int batchSize) {
+        return _adaptiveBatchSize != null ? _adaptiveBatchSize.getBatchSize() : batchSize;
+    }
+
+    /**
+     * Records a committed batch.
+     * @param batchSize number of messages in the batch
+     * @param fillNanos time between the start of the batch transaction and its commit, in nanoseconds
+     * @param commitNanos time spent committing, in nanoseconds
+     * @param timeout true if the commit was triggered by the batch timeout
+     */
+    public void commitCompleted(int batchSize, long fillNanos, long commitNanos, boolean timeout) {
+        _statistics.commitCompleted(batchSize, commitNanos, timeout);
+        if (_adaptiveBatchSize != null) {
+            _adaptiveBatchSize.batchCommitted(batchSize, fillNanos, commitNanos);
+        }
+    }
+
+    /**
+     * Gets the batch commit statistics.
+     * @return statistics
+     */
+    public BatchCommitStatistics getStatistics() {
+        return _statistics;
+    }
+
+    /**
+     * Gets the adaptive batch size.
+     * @return adaptive batch size, or null if the batch size is fixed
+     */
+    public AdaptiveBatchSize getAdaptiveBatchSize() {
+        return _adaptiveBatchSize;
+    }
+
+    /**
+     * Registers the MBeans.
+     */
+    public void start() {
+        register("BatchCommit", _statistics);
+        if (_adaptiveBatchSize != null) {
+            register("AdaptiveBatchSize", _adaptiveBatchSize);
+        }
+    }
+
+    /**
+     * Unregisters the MBeans and stops the timer once the pending timeouts have run.
+     */
+    public void stop() {
+        // pending timeouts still fire, so that open batch transactions get committed
+        _timer.shutdown();
+        unregister("BatchCommit");
+        if (_adaptiveBatchSize != null) {
+            unregister("AdaptiveBatchSize");
+        }
+    }
+
+    private void register(String type, Object mbean) {
+        String name = JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(_name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (Exception e) {
+            JCALogger.ROOT_LOGGER.failedToRegisterMBean(name, e);
+        }
+    }
+
+    private void unregister(String type) {
+        String name = JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(_name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("Failed to unregister MBean " + name, e);
+            }
+        }
+    }
+}
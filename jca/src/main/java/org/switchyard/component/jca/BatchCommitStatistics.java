@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch commit statistics collected by {@link EndpointProxy} for one JCA inbound endpoint.
+ */
+public class BatchCommitStatistics implements BatchCommitStatisticsMXBean {
+
+    private long _commitCount;
+    private long _timeoutCommitCount;
+    private long _committedMessageCount;
+    private int _maxBatchSize;
+    private long _totalCommitNanos;
+    private long _maxCommitNanos;
+
+    /**
+     * Records a committed batch.
+     * @param batchSize number of messages in the batch
+     * @param commitNanos time spent committing, in nanoseconds
+     * @param timeout true if the commit was triggered by the batch timeout
+     */
+    public synchronized void commitCompleted(int batchSize, long commitNanos, boolean timeout) {
+        _commitCount++;
+        if (timeout) {
+            _timeoutCommitCount++;
+        }
+        _committedMessageCount += batchSize;
+        _maxBatchSize = Math.max(_maxBatchSize, batchSize);
+        _totalCommitNanos += commitNanos;
+        _maxCommitNanos = Math.max(_maxCommitNanos, commitNanos);
+    }
+
+    @Override
+    public synchronized long getCommitCount() {
+        return _commitCount;
+    }
+
+    @Override
+    public synchronized long getTimeoutCommitCount() {
+        return _timeoutCommitCount;
+    }
+
+    @Override
+    public synchronized long getCommittedMessageCount() {
+        return _committedMessageCount;
+    }
+
+    @Override
+    public synchronized double getAverageBatchSize() {
+        return _commitCount == 0 ? 0 : (double)_committedMessageCount / _commitCount;
+    }
+
+    @Override
+    public synchronized int getMaxBatchSize() {
+        return _maxBatchSize;
+    }
+
+    @Override
+    public synchronized double getAverageCommitLatency() {
+        return _commitCount == 0 ? 0 : toMillis(_totalCommitNanos) / _commitCount;
+    }
+
+    @Override
+    public synchronized double getMaxCommitLatency() {
+        return toMillis(_maxCommitNanos);
+    }
+
+    @Override
+    public synchronized void reset() {
+        _commitCount = 0;
+        _timeoutCommitCount = 0;
+        _committedMessageCount = 0;
+        _maxBatchSize = 0;
+        _totalCommitNanos = 0;
+        _maxCommitNanos = 0;
+    }
+
+    private static double toMillis(long nanos) {
+        return (double)nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
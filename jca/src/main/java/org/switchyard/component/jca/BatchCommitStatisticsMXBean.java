@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+/**
+ * Management interface for the batch commit statistics of a JCA inbound endpoint.
+ */
+public interface BatchCommitStatisticsMXBean {
+
+    /**
+     * Number of batch transactions committed.
+     * @return commit count
+     */
+    long getCommitCount();
+
+    /**
+     * Number of batch transactions committed by the timer because the batch timeout expired.
+     * @return timeout commit count
+     */
+    long getTimeoutCommitCount();
+
+    /**
+     * Number of messages delivered in committed batch transactions.
+     * @return committed message count
+     */
+    long getCommittedMessageCount();
+
+    /**
+     * Average number of messages per committed batch.
+     * @return average batch size
+     */
+    double getAverageBatchSize();
+
+    /**
+     * Largest number of messages committed in one batch.
+     * @return maximum batch size
+     */
+    int getMaxBatchSize();
+
+    /**
+     * Average time spent committing a batch, in milliseconds.
+     * @return average commit latency
+     */
+    double getAverageCommitLatency();
+
+    /**
+     * Longest time spent committing a batch, in milliseconds.
+     * @return maximum commit latency
+     */
+    double getMaxCommitLatency();
+
+    /**
+     * Clears the statistics.
+     */
+    void reset();
+}
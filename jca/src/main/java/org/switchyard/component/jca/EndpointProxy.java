@@ -15,8 +15,7 @@ package org.switchyard.component.jca;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationHandler;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
@@ -63,10 +62,11 @@ public class EndpointProxy implements InvocationHandler, MessageEndpoint {
     private boolean _useBatchCommit;
     private int _batchSize;
     private long _batchTimeout;
+    private BatchCommitScheduler _batchScheduler;
+    private static final long REAPER_RETRY_DELAY = 10;
     private static ThreadLocal<BatchTransactionHelper> _batchHelper = new ThreadLocal<BatchTransactionHelper>();
         
     private ReentrantLock _deliveryThreadLock = new ReentrantLock();
-    private ScheduledExecutorService _scheduler = Executors.newScheduledThreadPool(1);
 
     /**
      * Constructor.
@@ -84,6 +84,7 @@ public class EndpointProxy implements InvocationHandler, MessageEndpoint {
         _useBatchCommit = metadata.useBatchCommit();
         _batchSize = metadata.getBatchSize();
         _batchTimeout = metadata.getBatchTimeout();
+        _batchScheduler = metadata.getBatchCommitScheduler();
     }
     
     @Override
@@ -286,7 +287,7 @@ public class EndpointProxy implements InvocationHandler, MessageEndpoint {
             _startedTx.enlistResource(_xaResource);
             if (_useBatchCommit) {
                 BatchTransactionHelper helper = new BatchTransactionHelper(_startedTx);
-                helper.scheduleReaperThread(_scheduler, _batchTimeout, TimeUnit.MILLISECONDS);
+                helper.scheduleReaperThread(_batchScheduler, _batchTimeout, TimeUnit.MILLISECONDS);
                 _batchHelper.set(helper);
             }
         } else if (!endpointRequiresTx && hasSourceManagedTx) {
@@ -323,12 +324,12 @@ public class EndpointProxy implements InvocationHandler, MessageEndpoint {
                     }
                 } else {
                     if (_useBatchCommit) {
-                        if (helper.getCounter() + 1 < _batchSize) {
+                        if (helper.getCounter() + 1 < _batchScheduler.getBatchSize(_batchSize)) {
                             // keep the transaction active for next message
                             helper.setCounter(helper.getCounter()+1);
                         } else {
-                            _transactionManager.commit();
                             helper.cancelScheduledReaperThread();
+                            helper.commit(helper.getCounter() + 1, false);
                         }
                         _startedTx = null;
                         return;
@@ -359,10 +360,11 @@ public class EndpointProxy implements InvocationHandler, MessageEndpoint {
         }
     }
         
-    private class BatchTransactionHelper extends Thread {
+    private class BatchTransactionHelper implements Runnable {
         private Transaction _transaction;
         private int _counter = 0;
-        private ScheduledFuture<?> _future;
+        private volatile ScheduledFuture<?> _future;
+        private long _started = System.nanoTime();
         
         public BatchTransactionHelper(Transaction tx) {
             _transaction = tx;
@@ -389,30 +391,62 @@ public class EndpointProxy implements InvocationHandler, MessageEndpoint {
             return _transaction;
         }
         
-        public void scheduleReaperThread(ScheduledExecutorService service, long delay, TimeUnit unit) {
-            _future = service.schedule(this, delay, unit);
+        public void scheduleReaperThread(BatchCommitScheduler scheduler, long delay, TimeUnit unit) {
+            _future = scheduler.schedule(this, delay, unit);
         }
         
         public void cancelScheduledReaperThread() {
             if (_future != null) {
-                _future.cancel(true);
+                // never interrupt the timer thread, which is shared by all the endpoint proxies
+                _future.cancel(false);
             }
         }
         
          public void run() {
-             _deliveryThreadLock.lock();
+             // don't hold up the shared timer while a delivery is in progress; try again shortly
+             if (!_deliveryThreadLock.tryLock()) {
+                 if (_future.isCancelled()) {
+                     return;
+                 }
+                 try {
+                     scheduleReaperThread(_batchScheduler, REAPER_RETRY_DELAY, TimeUnit.MILLISECONDS);
+                     return;
+                 } catch (RejectedExecutionException e) {
+                     // the scheduler has been stopped; wait for the delivery and complete the transaction here
+                     _deliveryThreadLock.lock();
+                 }
+             }
              try {
                  if (_transaction.getStatus() == Status.STATUS_ACTIVE) {
                      _transactionManager.resume(_transaction);
-                     _transactionManager.commit();
+                     commit(_counter, true);
                      JCALogger.ROOT_LOGGER.transactionHasBeenCommittedByReaperThread(_counter);
                      _counter = 0;
                  }
              } catch (Exception e) {
                      JCALogger.ROOT_LOGGER.failedToCommitExpiringTransaction(e);
              } finally {
+                 disassociateTransaction();
                  _deliveryThreadLock.unlock();
              }
          }
+         
+         private void commit(int batchSize, boolean timeout) throws Exception {
+             long start = System.nanoTime();
+             _transactionManager.commit();
+             long end = System.nanoTime();
+             _batchScheduler.commitCompleted(batchSize, start - _started, end - start, timeout);
+         }
+         
+         private void disassociateTransaction() {
+             // a failed commit must not leave the transaction associated with the shared timer thread
+             try {
+                 if (_transactionManager.getTransaction() != null) {
+                     _transactionManager.suspend();
+                 }
+             } catch (Exception e) {
+                 JCALogger.ROOT_LOGGER.failedToRetrieveTransactionStatus(e);
+             }
+         }
     }
 }
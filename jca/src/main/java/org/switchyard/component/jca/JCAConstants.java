@@ -67,6 +67,14 @@ public final class JCAConstants {
     public static final String BATCH_TIMEOUT = "batchTimeout";
     /** batch size. */
     public static final String BATCH_SIZE = "batchSize";
+    /** adaptive batch size. */
+    public static final String ADAPTIVE = "adaptive";
+    /** minimum batch size. */
+    public static final String MIN_BATCH_SIZE = "minBatchSize";
+    /** maximum batch size. */
+    public static final String MAX_BATCH_SIZE = "maxBatchSize";
+    /** commit latency target. */
+    public static final String LATENCY_TARGET = "latencyTarget";
     
     /** property. */
     public static final String PROPERTY = "property";
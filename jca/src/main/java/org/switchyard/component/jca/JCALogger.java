@@ -140,5 +140,21 @@ public interface JCALogger {
     @Message(id = 36813, value = "Invalid destination type '%s' - using '%s' instead")
     void invalidDestinationType(String type, String alternative);
 
-}
+    /**
+     * failedToRegisterMBean method definition.
+     * @param name object name of the MBean
+     * @param e the e
+     */
+    @LogMessage(level = Level.WARN)
+    @Message(id = 36814, value = "Failed to register MBean '%s'")
+    void failedToRegisterMBean(String name, @Cause Exception e);
 
+    /**
+     * recordTemplateNotCloneable method definition.
+     * @param name record name
+     */
+    @LogMessage(level = Level.WARN)
+    @Message(id = 36815, value = "Record '%s' shares its content with its clones - creating input records through the RecordFactory instead")
+    void recordTemplateNotCloneable(String name);
+
+}
@@ -1,6 +1,7 @@
 package org.switchyard.component.jca;
 
 import javax.naming.NamingException;
+import javax.resource.ResourceException;
 
 import org.jboss.logging.Cause;
 import org.jboss.logging.Messages;
@@ -305,5 +306,14 @@ public interface JCAMessages {
     @Message(id = 37246, value = "No outboundConnection was configured for the JCA Component")
     IllegalArgumentException noOutboundConnectionConfigured();
 
+    /**
+     * noCCIConnectionAvailable method definition.
+     * @param maxConnections the maximum number of connections
+     * @param wait the time waited in milliseconds
+     * @return ResourceException
+     */
+    @Message(id = 37247, value = "All %d CCI connections are in use, none was released within %d ms")
+    ResourceException noCCIConnectionAvailable(int maxConnections, long wait);
+
 }
 
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Keeps idle JMS sessions, each with the started connection it was created from and its
+ * producers cached per destination, so that deliveries don't pay for the connection setup.
+ * Every session has a connection of its own, as managed connection factories such as
+ * java:/JmsXA allow only one session per connection.
+ * Sessions are pooled separately for each transacted/acknowledge mode combination.
+ * A session that fails is discarded with its connection; a connection failure reported
+ * by an IllegalStateException also discards the idle sessions created before it.
+ */
+public class JMSSessionPool {
+
+    private Logger _logger = Logger.getLogger(JMSSessionPool.class);
+    private final ConnectionFactory _connectionFactory;
+    private final String _userName;
+    private final String _password;
+    private final int _maxIdle;
+    private final ConcurrentMap<String, BlockingQueue<PooledSession>> _idle = new ConcurrentHashMap<String, BlockingQueue<PooledSession>>();
+    private volatile int _generation;
+    private volatile boolean _closed;
+
+    /**
+     * Constructor.
+     * @param connectionFactory connection factory
+     * @param userName user name, or null to use the default identity
+     * @param password password
+     * @param maxIdle maximum number of idle sessions kept per session mode
+     */
+    public JMSSessionPool(ConnectionFactory connectionFactory, String userName, String password, int maxIdle) {
+        _connectionFactory = connectionFactory;
+        _userName = userName;
+        _password = password;
+        _maxIdle = maxIdle;
+    }
+
+    /**
+     * Borrows an idle session, or creates a new one on a connection of its own.
+     * @param transacted whether the session is transacted
+     * @param ackMode acknowledge mode
+     * @return the session
+     * @throws JMSException failed to create a session
+     */
+    public PooledSession borrow(boolean transacted, int ackMode) throws JMSException {
+        String key = transacted + ":" + ackMode;
+        BlockingQueue<PooledSession> idle = _idle.get(key);
+        if (idle != null) {
+            for (PooledSession session = idle.poll(); session != null; session = idle.poll()) {
+                if (session._generation == _generation && !session._broken) {
+                    return session;
+                }
+                session.close();
+            }
+        }
+        int generation = _generation;
+        Connection connection = _userName != null
+                ? _connectionFactory.createConnection(_userName, _password)
+                : _connectionFactory.createConnection();
+        try {
+            PooledSession session = new PooledSession(key, generation, connection);
+            try {
+                connection.setExceptionListener(session);
+            } catch (JMSException e) {
+                // not permitted for managed connections; failures are detected on use instead
+                if (_logger.isDebugEnabled()) {
+                    _logger.debug("Unable to register ExceptionListener: " + e.getMessage());
+                }
+            }
+            connection.start();
+            session._session = connection.createSession(transacted, ackMode);
+            return session;
+        } catch (JMSException e) {
+            closeConnection(connection);
+            if (isConnectionFailure(e)) {
+                invalidate(generation);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a borrowed session to the pool.
+     * @param session the session
+     * @param reusable false if the session failed and has to be discarded
+     */
+    public void release(PooledSession session, boolean reusable) {
+        if (reusable && !_closed && !session._broken && session._generation == _generation) {
+            BlockingQueue<PooledSession> idle = idleQueue(session._key);
+            if (idle.offer(session)) {
+                return;
+            }
+        }
+        session.close();
+    }
+
+    /**
+     * Discards a borrowed session which failed, and the idle sessions as well if the
+     * failure shows that the connections created so far can no longer be used.
+     * @param session the session
+     * @param failure the failure
+     */
+    public void discard(PooledSession session, JMSException failure) {
+        if (isConnectionFailure(failure)) {
+            // a session from before the last invalidate must not discard the newer ones
+            invalidate(session._generation);
+        }
+        release(session, false);
+    }
+
+    /**
+     * Checks whether a failure shows that the connection can no longer be used.
+     * @param failure the failure
+     * @return true for a connection failure
+     */
+    public static boolean isConnectionFailure(JMSException failure) {
+        // thrown when the connection or session behind a call has been closed
+        return failure instanceof javax.jms.IllegalStateException;
+    }
+
+    /**
+     * Discards all idle sessions and their connections; the next borrow reconnects.
+     */
+    public synchronized void invalidate() {
+        invalidate(_generation);
+    }
+
+    /**
+     * Closes the pool.
+     */
+    public void close() {
+        _closed = true;
+        invalidate();
+    }
+
+    private synchronized void invalidate(int generation) {
+        if (generation != _generation) {
+            return;
+        }
+        _generation++;
+        for (BlockingQueue<PooledSession> idle : _idle.values()) {
+            for (PooledSession session = idle.poll(); session != null; session = idle.poll()) {
+                session.close();
+            }
+        }
+    }
+
+    private BlockingQueue<PooledSession> idleQueue(String key) {
+        BlockingQueue<PooledSession> idle = _idle.get(key);
+        if (idle == null) {
+            BlockingQueue<PooledSession> created = new ArrayBlockingQueue<PooledSession>(_maxIdle);
+            idle = _idle.putIfAbsent(key, created);
+            if (idle == null) {
+                idle = created;
+            }
+        }
+        return idle;
+    }
+
+    private void connectionFailed(PooledSession session, JMSException e) {
+        if (_logger.isDebugEnabled()) {
+            _logger.debug("Discarding pooled JMS connection: " + e.getMessage());
+        }
+        session._broken = true;
+        // an idle session is closed right away, a borrowed one when it is released
+        BlockingQueue<PooledSession> idle = _idle.get(session._key);
+        if (idle != null && idle.remove(session)) {
+            session.close();
+        }
+    }
+
+    private static void closeConnection(Connection connection) {
+        try {
+            // closing the connection closes its session and producers as well
+            connection.close();
+        } catch (JMSException e) {
+            JCALogger.ROOT_LOGGER.failedToCloseJMSSessionconnection(e.getMessage());
+        }
+    }
+
+    /**
+     * A pooled session, the connection it was created from and its cached producers.
+     */
+    public final class PooledSession implements ExceptionListener {
+        private final String _key;
+        private final int _generation;
+        private final Connection _connection;
+        private final Map<Destination, MessageProducer> _producers = new HashMap<Destination, MessageProducer>();
+        private Session _session;
+        private volatile boolean _broken;
+
+        private PooledSession(String key, int generation, Connection connection) {
+            _key = key;
+            _generation = generation;
+            _connection = connection;
+        }
+
+        /**
+         * Gets the session.
+         * @return the session
+         */
+        public Session getSession() {
+            return _session;
+        }
+
+        /**
+         * Gets the cached producer for a destination, creating it on first use.
+         * @param destination destination, or null for an anonymous producer
+         * @return the producer
+         * @throws JMSException failed to create the producer
+         */
+        public MessageProducer getProducer(Destination destination) throws JMSException {
+            MessageProducer producer = _producers.get(destination);
+            if (producer == null) {
+                producer = _session.createProducer(destination);
+                _producers.put(destination, producer);
+            }
+            return producer;
+        }
+
+        @Override
+        public void onException(JMSException e) {
+            connectionFailed(this, e);
+        }
+
+        private void close() {
+            closeConnection(_connection);
+        }
+    }
+}
@@ -13,8 +13,6 @@
  */
 package org.switchyard.component.jca.composer;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 
 import org.switchyard.Exchange;
@@ -38,9 +36,7 @@ public class StreamableRecordMessageComposer extends BaseMessageComposer<Streama
         final org.switchyard.Message message = exchange.createMessage();
         getContextMapper().mapFrom(source, exchange.getContext(message));
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(); 
-        source.getRecord().write(baos);
-        message.setContent(new ByteArrayInputStream(baos.toByteArray()));
+        message.setContent(source.getRecord().getInputStream());
         return message;
     }
 
@@ -46,4 +46,56 @@ public interface BatchCommitModel extends Model {
      */
     BatchCommitModel setBatchSize(int size);
     
+    /**
+     * get if the batch size adapts to the load.
+     * @return true if the batch size is adaptive
+     */
+    boolean isAdaptive();
+    
+    /**
+     * set if the batch size adapts to the load.
+     * @param adaptive true if the batch size should be adaptive
+     * @return {@link BatchCommitModel} to support method chaining
+     */
+    BatchCommitModel setAdaptive(boolean adaptive);
+    
+    /**
+     * get minimum adaptive batch size.
+     * @return minimum batch size, 1 if not specified
+     */
+    int getMinBatchSize();
+    
+    /**
+     * set minimum adaptive batch size.
+     * @param size minimum batch size
+     * @return {@link BatchCommitModel} to support method chaining
+     */
+    BatchCommitModel setMinBatchSize(int size);
+    
+    /**
+     * get maximum adaptive batch size.
+     * @return maximum batch size, the batch size if not specified
+     */
+    int getMaxBatchSize();
+    
+    /**
+     * set maximum adaptive batch size.
+     * @param size maximum batch size
+     * @return {@link BatchCommitModel} to support method chaining
+     */
+    BatchCommitModel setMaxBatchSize(int size);
+    
+    /**
+     * get the time the first message of a batch should wait for its commit at most.
+     * @return latency target in milliseconds, the batch timeout if not specified
+     */
+    long getLatencyTarget();
+    
+    /**
+     * set the time the first message of a batch should wait for its commit at most.
+     * @param target latency target in milliseconds
+     * @return {@link BatchCommitModel} to support method chaining
+     */
+    BatchCommitModel setLatencyTarget(long target);
+    
 }
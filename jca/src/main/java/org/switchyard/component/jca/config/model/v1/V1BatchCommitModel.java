@@ -63,4 +63,51 @@ public class V1BatchCommitModel extends BaseModel implements BatchCommitModel {
         return this;
     }
 
+    @Override
+    public boolean isAdaptive() {
+        return Boolean.parseBoolean(getModelAttribute(JCAConstants.ADAPTIVE));
+    }
+
+    @Override
+    public BatchCommitModel setAdaptive(boolean adaptive) {
+        setModelAttribute(JCAConstants.ADAPTIVE, Boolean.toString(adaptive));
+        return this;
+    }
+
+    @Override
+    public int getMinBatchSize() {
+        String size = getModelAttribute(JCAConstants.MIN_BATCH_SIZE);
+        return size != null ? Integer.parseInt(size) : 1;
+    }
+
+    @Override
+    public BatchCommitModel setMinBatchSize(int size) {
+        setModelAttribute(JCAConstants.MIN_BATCH_SIZE, Integer.toString(size));
+        return this;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        String size = getModelAttribute(JCAConstants.MAX_BATCH_SIZE);
+        return size != null ? Integer.parseInt(size) : getBatchSize();
+    }
+
+    @Override
+    public BatchCommitModel setMaxBatchSize(int size) {
+        setModelAttribute(JCAConstants.MAX_BATCH_SIZE, Integer.toString(size));
+        return this;
+    }
+
+    @Override
+    public long getLatencyTarget() {
+        String target = getModelAttribute(JCAConstants.LATENCY_TARGET);
+        return target != null ? Long.parseLong(target) : getBatchTimeout();
+    }
+
+    @Override
+    public BatchCommitModel setLatencyTarget(long target) {
+        setModelAttribute(JCAConstants.LATENCY_TARGET, Long.toString(target));
+        return this;
+    }
+
 }
@@ -23,6 +23,7 @@ import javax.resource.spi.endpoint.MessageEndpointFactory;
 import javax.transaction.xa.XAResource;
 
 import org.switchyard.ServiceDomain;
+import org.switchyard.component.jca.BatchCommitScheduler;
 import org.switchyard.component.jca.EndpointProxy;
 import org.switchyard.deploy.BaseServiceHandler;
 import org.switchyard.SwitchYardException;
@@ -54,6 +55,13 @@ public class InboundHandler extends BaseServiceHandler implements MessageEndpoin
     @Override
     protected void doStart() {
         _metadata.getMessageEndpoint().initialize();
+        if (_metadata.useBatchCommit()) {
+            // one timer drives the batch commit timeouts of all the endpoint proxies
+            BatchCommitScheduler scheduler = new BatchCommitScheduler(String.valueOf(_metadata.getMessageEndpoint().getServiceQName()),
+                                                                           _metadata.getAdaptiveBatchSize());
+            scheduler.start();
+            _metadata.setBatchCommitScheduler(scheduler);
+        }
         try {
             _metadata.getResourceAdapter().endpointActivation(this, _metadata.getActivationSpec());
         } catch (ResourceException e) {
@@ -64,6 +72,10 @@ public class InboundHandler extends BaseServiceHandler implements MessageEndpoin
     @Override
     protected void doStop() {
         _metadata.getResourceAdapter().endpointDeactivation(this, _metadata.getActivationSpec());
+        if (_metadata.getBatchCommitScheduler() != null) {
+            _metadata.getBatchCommitScheduler().stop();
+            _metadata.setBatchCommitScheduler(null);
+        }
         _metadata.getMessageEndpoint().uninitialize();
     }
 
@@ -23,6 +23,7 @@ import javax.resource.spi.ActivationSpec;
 import javax.resource.spi.ResourceAdapter;
 import javax.transaction.TransactionManager;
 
+import org.switchyard.component.jca.AdaptiveBatchSize;
 import org.switchyard.component.jca.JCAMessages;
 import org.switchyard.component.jca.JCAConstants;
 import org.switchyard.component.jca.config.model.ActivationSpecModel;
@@ -227,6 +228,10 @@ public class JCAActivator extends BaseActivator {
             inflowMetaData.setUseBatchCommit(true);
             inflowMetaData.setBatchTimeout(batchCommit.getBatchTimeout());
             inflowMetaData.setBatchSize(batchCommit.getBatchSize());
+            if (batchCommit.isAdaptive()) {
+                inflowMetaData.setAdaptiveBatchSize(new AdaptiveBatchSize(batchCommit.getBatchSize(),
+                        batchCommit.getMinBatchSize(), batchCommit.getMaxBatchSize(), batchCommit.getLatencyTarget()));
+            }
         }
 
         return new InboundHandler(inflowMetaData, getServiceDomain());
@@ -295,6 +300,7 @@ public class JCAActivator extends BaseActivator {
         processor.setApplicationClassLoader(_appClassLoader)
                     .setMCFProperties(connProps)
                     .setConnectionFactoryJNDIName(cfJndiName)
+                    .setTransactionManager(_transactionManager)
                     .setJCABindingModel(jcaconfig);
 
         ConnectionSpecModel connectionSpecModel = outboundInteractionModel.getConnectionSpec();
@@ -17,6 +17,8 @@ import javax.resource.spi.ActivationSpec;
 import javax.resource.spi.ResourceAdapter;
 import javax.transaction.TransactionManager;
 
+import org.switchyard.component.jca.AdaptiveBatchSize;
+import org.switchyard.component.jca.BatchCommitScheduler;
 import org.switchyard.component.jca.endpoint.AbstractInflowEndpoint;
 
 /**
@@ -46,6 +48,10 @@ public class JCAInflowDeploymentMetaData {
     
     private long _batchTimeout = 0;
     
+    private AdaptiveBatchSize _adaptiveBatchSize = null;
+    
+    private BatchCommitScheduler _batchCommitScheduler = null;
+    
     /**
      * get listener interface.
      * 
@@ -234,4 +240,36 @@ public class JCAInflowDeploymentMetaData {
         this._batchTimeout = batchTimeout;
     }
 
+    /**
+     * get adaptive batch size.
+     * @return adaptive batch size, or null if the batch size is fixed
+     */
+    public AdaptiveBatchSize getAdaptiveBatchSize() {
+        return _adaptiveBatchSize;
+    }
+
+    /**
+     * set adaptive batch size.
+     * @param adaptiveBatchSize adaptive batch size, or null if the batch size is fixed
+     */
+    public void setAdaptiveBatchSize(AdaptiveBatchSize adaptiveBatchSize) {
+        this._adaptiveBatchSize = adaptiveBatchSize;
+    }
+
+    /**
+     * get batch commit scheduler.
+     * @return batch commit scheduler shared by the endpoint proxies
+     */
+    public BatchCommitScheduler getBatchCommitScheduler() {
+        return _batchCommitScheduler;
+    }
+
+    /**
+     * set batch commit scheduler.
+     * @param scheduler batch commit scheduler shared by the endpoint proxies
+     */
+    public void setBatchCommitScheduler(BatchCommitScheduler scheduler) {
+        this._batchCommitScheduler = scheduler;
+    }
+
 }
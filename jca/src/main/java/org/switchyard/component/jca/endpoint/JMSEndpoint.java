@@ -15,10 +15,13 @@ package org.switchyard.component.jca.endpoint;
 
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.Destination;
+import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 import javax.jms.MessageProducer;
@@ -35,6 +38,7 @@ import org.switchyard.component.common.SynchronousInOutHandler;
 import org.switchyard.component.common.composer.MessageComposer;
 import org.switchyard.component.jca.JCALogger;
 import org.switchyard.component.jca.JCAMessages;
+import org.switchyard.component.jca.JMSSessionPool;
 import org.switchyard.component.jca.composer.JMSBindingData;
 import org.switchyard.SwitchYardException;
 import org.switchyard.selector.OperationSelector;
@@ -67,6 +71,8 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
     public static final String KEY_USERNAME = "userName";
     /** key for password. */
     public static final String KEY_PASSWORD = "password";
+    /** key for the maximum number of idle reply sessions kept for reuse. */
+    public static final String KEY_MAX_POOLED_SESSIONS = "maxPooledSessions";
 
     private Logger _logger = Logger.getLogger(JMSEndpoint.class);
     private MessageComposer<JMSBindingData> _composer;
@@ -86,6 +92,9 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
     private Destination _defaultFaultToJMSDestination;
     private Destination _defaultReplyToJMSDestination;
     private MessageType _defaultOutMessageType = MessageType.Object;
+    private String _maxPooledSessions;
+    private JMSSessionPool _sessionPool;
+    private ConcurrentMap<String, Destination> _destinations = new ConcurrentHashMap<String, Destination>();
 
     private enum DestinationType {
         Queue, Topic, JNDI
@@ -142,6 +151,13 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
             throw JCAMessages.MESSAGES.failedToInitialize(this.getClass().getName(), e);
         }
         
+        if (_connectionFactory != null && _maxPooledSessions != null && !_maxPooledSessions.equals("")) {
+            int maxIdle = Integer.parseInt(_maxPooledSessions);
+            if (maxIdle > 0) {
+                _sessionPool = new JMSSessionPool(_connectionFactory, _userName, _password, maxIdle);
+            }
+        }
+        
         if (_logger.isDebugEnabled()) {
             StringBuilder msg = new StringBuilder()
                 .append("Initialized with: {")
@@ -153,11 +169,22 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
                 .append(", Output Message Type:").append(_defaultOutMessageType)
                 .append(", JNDI Properties File:").append(_jndiPropertiesFileName)
                 .append(", Destination JNDI Properties File:").append(_destinationJndiPropertiesFileName)
+                .append(", Max Pooled Sessions:").append(_maxPooledSessions)
                 .append("}");
             _logger.debug(msg.toString());
         }
     }
 
+    @Override
+    public void uninitialize() {
+        if (_sessionPool != null) {
+            _sessionPool.close();
+            _sessionPool = null;
+        }
+        _destinations.clear();
+        super.uninitialize();
+    }
+
     @Override
     public void onMessage(Message message) {
 
@@ -174,6 +201,12 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
             
             // Process replyTo and faultTo if ConnectionFactory is available 
             Context context = exchange.getContext();
+            // a transacted delivery enlists the reply connection into the delivery transaction,
+            // so pooled sessions are only used for non-transacted deliveries
+            if (_sessionPool != null && !isDeliveryTransacted()) {
+                sendReplyFromPool(exchange, replyHandler, context);
+                return;
+            }
             Connection connection = null;
             
             try {
@@ -206,30 +239,58 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
         }
     }
 
+    private void sendReplyFromPool(Exchange exchange, SynchronousInOutHandler replyHandler, Context context) throws JMSException {
+        boolean fault = ExchangeState.FAULT.equals(exchange.getState());
+        boolean reply = ExchangePattern.IN_OUT.equals(exchange.getPattern()) && hasReplyTo(context);
+        if (!fault) {
+            if (!reply) {
+                return;
+            }
+            // wait for the reply before borrowing, so that no session is held while the service runs
+            exchange = replyHandler.waitForOut();
+        }
+        JMSSessionPool.PooledSession pooled = _sessionPool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        JMSException failure = null;
+        try {
+            Session session = pooled.getSession();
+            Destination destination = fault ? getFaultToDestinationFromContext(session, context) : null;
+            if (destination == null && reply) {
+                destination = getReplyToDestinationFromContext(session, context);
+            }
+            if (destination == null || exchange.getMessage() == null) {
+                return;
+            }
+            try {
+                // a single anonymous producer per session serves every replyTo/faultTo destination
+                Message msg = createMessage(session, getOutputMessageTypeFromContext(context));
+                pooled.getProducer(null).send(destination, _composer.decompose(exchange, new JMSBindingData(msg)).getMessage());
+            } catch (Exception e) {
+                JCALogger.ROOT_LOGGER.failedToSendMessage(destination.toString(), e.getMessage());
+                if (_logger.isDebugEnabled()) {
+                    _logger.debug(e);
+                }
+                if (e instanceof JMSException) {
+                    failure = (JMSException) e;
+                }
+            }
+        } finally {
+            if (failure != null) {
+                // the session is discarded with its connection, and the idle ones too if the connection failed
+                _sessionPool.discard(pooled, failure);
+            } else {
+                _sessionPool.release(pooled, true);
+            }
+        }
+    }
+
+    private boolean hasReplyTo(Context ctx) {
+        return ctx.getProperty(CONTEXT_PROPERTY_PREFIX + KEY_REPLY_TO) != null || _defaultReplyTo != null;
+    }
+
     protected void sendJMSMessage(Session session, Destination destination, Exchange exchange, MessageType type) {
         try {
             MessageProducer producer = session.createProducer(destination);
-
-            Message msg;
-            switch (type) {
-            case Stream:
-                msg = session.createStreamMessage();
-                break;
-            case Map:
-                msg = session.createMapMessage();
-                break;
-            case Text:
-                msg = session.createTextMessage();
-                break;
-            case Bytes:
-                msg = session.createBytesMessage();
-                break;
-            case Plain:
-                msg = session.createMessage();
-                break;
-            default:
-                msg = session.createObjectMessage();
-            }
+            Message msg = createMessage(session, type);
             producer.send(_composer.decompose(exchange, new JMSBindingData(msg)).getMessage());
         } catch (Exception e) {
             JCALogger.ROOT_LOGGER.failedToSendMessage(destination.toString(), e.getMessage());
@@ -239,6 +300,23 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
         }
     }
 
+    protected Message createMessage(Session session, MessageType type) throws JMSException {
+        switch (type) {
+        case Stream:
+            return session.createStreamMessage();
+        case Map:
+            return session.createMapMessage();
+        case Text:
+            return session.createTextMessage();
+        case Bytes:
+            return session.createBytesMessage();
+        case Plain:
+            return session.createMessage();
+        default:
+            return session.createObjectMessage();
+        }
+    }
+
     protected Destination getReplyToDestinationFromContext(Session session, Context ctx) {
         Destination replyToDestination = null;
         
@@ -248,17 +326,7 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
             DestinationType replyToType = getDestinationTypeFromContext(ctx);
             
             try {
-                switch (replyToType) {
-                case JNDI:
-                    replyToDestination = lookupDestinationFromJNDI(replyToName);
-                    break;
-                case Queue:
-                    replyToDestination = session.createQueue(replyToName);
-                    break;
-                case Topic:
-                    replyToDestination = session.createTopic(replyToName);
-                    break;
-                }
+                replyToDestination = lookupOrCreateDestination(session, replyToType, replyToName);
                 if (_logger.isDebugEnabled()) {
                     _logger.debug("replyTo is set to '" + replyToName + "'");
                 }
@@ -277,12 +345,10 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
                 case JNDI:
                     replyToDestination = _defaultReplyToJMSDestination;
                     break;
-                case Queue:
-                    replyToDestination = session.createQueue(_defaultReplyTo);
-                    break;
-                case Topic:
-                    replyToDestination = session.createTopic(_defaultReplyTo);
-                    break;
+                default:
+                    if (_defaultReplyTo != null) {
+                        replyToDestination = lookupOrCreateDestination(session, _defaultDestinationType, _defaultReplyTo);
+                    }
                 }
             } catch (Exception e) {
                 JCALogger.ROOT_LOGGER.destinationNotFound(_defaultReplyTo, "replyTo");
@@ -303,17 +369,7 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
             DestinationType faultToType = getDestinationTypeFromContext(ctx);
             
             try {
-                switch (faultToType) {
-                case JNDI:
-                    faultToDestination = lookupDestinationFromJNDI(faultToName);
-                    break;
-                case Queue:
-                    faultToDestination = session.createQueue(faultToName);
-                    break;
-                case Topic:
-                    faultToDestination = session.createTopic(faultToName);
-                    break;
-                }
+                faultToDestination = lookupOrCreateDestination(session, faultToType, faultToName);
                 if (_logger.isDebugEnabled()) {
                     _logger.debug("faultTo is set to '" + faultToName + "'");
                 }
@@ -332,12 +388,10 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
                 case JNDI:
                     faultToDestination = _defaultFaultToJMSDestination;
                     break;
-                case Queue:
-                    faultToDestination = session.createQueue(_defaultFaultTo);
-                    break;
-                case Topic:
-                    faultToDestination = session.createTopic(_defaultFaultTo);
-                    break;
+                default:
+                    if (_defaultFaultTo != null) {
+                        faultToDestination = lookupOrCreateDestination(session, _defaultDestinationType, _defaultFaultTo);
+                    }
                 }
             } catch (Exception e) {
                 JCALogger.ROOT_LOGGER.destinationNotFound(_defaultFaultTo, "faultTo");
@@ -366,16 +420,29 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
     }
 
     protected Destination lookupOrCreateDestination(Session session, DestinationType type, String destName) throws Exception {
+        // resolved destinations are cached, as they are looked up again for every reply
+        String key = type + ":" + destName;
+        Destination destination = _destinations.get(key);
+        if (destination != null) {
+            return destination;
+        }
         switch (type) {
         case JNDI:
-            return lookupDestinationFromJNDI(destName);
+            destination = lookupDestinationFromJNDI(destName);
+            break;
         case Queue:
-            return session.createQueue(destName);
+            destination = session.createQueue(destName);
+            break;
         case Topic:
-            return session.createTopic(destName);
+            destination = session.createTopic(destName);
+            break;
         default:
             return null;
         }
+        if (destination != null) {
+            _destinations.put(key, destination);
+        }
+        return destination;
     }
 
     protected Destination lookupDestinationFromJNDI(String destName) throws Exception {
@@ -484,6 +551,16 @@ public class JMSEndpoint extends AbstractInflowEndpoint implements MessageListen
         _password = passwd;
     }
 
+    /**
+     * set the maximum number of idle reply sessions kept for reuse.
+     * Pooling is disabled when this is not set or is 0.
+     * 
+     * @param max maximum number of idle sessions
+     */
+    public void setMaxPooledSessions(String max) {
+        _maxPooledSessions = max;
+    }
+
     /**
      * set message type.
      * @param type message type
@@ -16,6 +16,9 @@ package org.switchyard.component.jca.processor;
 import java.io.InputStream;
 import java.util.Properties;
 
+import javax.transaction.Status;
+import javax.transaction.TransactionManager;
+
 import org.switchyard.Exchange;
 import org.switchyard.HandlerException;
 import org.switchyard.Message;
@@ -42,6 +45,7 @@ public abstract class AbstractOutboundProcessor {
     private Properties _jndiProperties;
     private ClassLoader _appClassLoader;
     private JCABindingModel _jcaBindingModel;
+    private TransactionManager _transactionManager;
     
     /**
      * process outbound delivery.
@@ -158,6 +162,42 @@ public abstract class AbstractOutboundProcessor {
         return _jcaBindingModel;
     }
     
+    /**
+     * set transaction manager.
+     * @param tm transaction manager
+     * @return {@link AbstractOutboundProcessor} to support method chaining
+     */
+    public AbstractOutboundProcessor setTransactionManager(TransactionManager tm) {
+        _transactionManager = tm;
+        return this;
+    }
+    
+    /**
+     * get transaction manager.
+     * @return transaction manager, or null if it is not available
+     */
+    public TransactionManager getTransactionManager() {
+        return _transactionManager;
+    }
+    
+    /**
+     * whether a JTA transaction is associated with the current thread.
+     * Connections borrowed from a managed connection factory are enlisted into that
+     * transaction, so connections kept open across deliveries must not be used then.
+     * @return true if a transaction is active or its status is unknown
+     */
+    protected boolean isTransactionActive() {
+        if (_transactionManager == null) {
+            return false;
+        }
+        try {
+            return _transactionManager.getStatus() != Status.STATUS_NO_TRANSACTION;
+        } catch (Exception e) {
+            // be conservative and let the managed connection factory decide
+            return true;
+        }
+    }
+    
     protected <D extends JCABindingData> MessageComposer<D> getMessageComposer(Class<D> clazz) {
         return JCAComposition.getMessageComposer(_jcaBindingModel, clazz);
     }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca.processor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.ResourceException;
+import javax.resource.cci.Connection;
+import javax.resource.cci.ConnectionFactory;
+import javax.resource.cci.ConnectionSpec;
+import javax.resource.cci.Interaction;
+
+import org.jboss.logging.Logger;
+import org.switchyard.component.jca.JCALogger;
+import org.switchyard.component.jca.JCAMessages;
+import org.switchyard.component.jca.processor.cci.ConnectionValidator;
+
+/**
+ * Keeps open CCI connections, each with its Interaction, for reuse by {@link CCIProcessor}.
+ * Idle connections are checked by the optional {@link ConnectionValidator} when borrowed.
+ * When a maximum number of connections is set, connections borrowed and idle count
+ * towards it, and a borrow waits for one to be released once it is reached.
+ */
+class CCIConnectionPool {
+
+    private static final long RETRY_INTERVAL = 100;
+
+    private Logger _logger = Logger.getLogger(CCIConnectionPool.class);
+    private final ConnectionFactory _connectionFactory;
+    private final ConnectionSpec _connectionSpec;
+    private final ConnectionValidator _validator;
+    private final BlockingQueue<PooledConnection> _idle;
+    private final int _maxOpen;
+    private final Semaphore _open;
+    private final long _maxWait;
+    private volatile boolean _closed;
+
+    /**
+     * Constructor.
+     * @param connectionFactory connection factory
+     * @param connectionSpec connection spec, or null
+     * @param validator validator, or null to reuse idle connections unchecked
+     * @param maxIdle maximum number of idle connections
+     * @param maxOpen maximum number of open connections, or 0 for no limit
+     * @param maxWait milliseconds to wait for a connection once maxOpen is reached
+     */
+    CCIConnectionPool(ConnectionFactory connectionFactory, ConnectionSpec connectionSpec, ConnectionValidator validator,
+            int maxIdle, int maxOpen, long maxWait) {
+        _connectionFactory = connectionFactory;
+        _connectionSpec = connectionSpec;
+        _validator = validator;
+        _idle = new ArrayBlockingQueue<PooledConnection>(maxIdle);
+        _maxOpen = maxOpen;
+        _open = maxOpen > 0 ? new Semaphore(maxOpen) : null;
+        _maxWait = maxWait;
+    }
+
+    /**
+     * Borrows a valid idle connection, or opens a new one.
+     * @return the connection
+     * @throws ResourceException failed to open a connection, or none was released in time
+     */
+    PooledConnection borrow() throws ResourceException {
+        long deadline = System.currentTimeMillis() + _maxWait;
+        PooledConnection pooled = _idle.poll();
+        while (true) {
+            if (pooled != null) {
+                if (_validator == null || isValid(pooled)) {
+                    return pooled;
+                }
+                discard(pooled);
+                pooled = _idle.poll();
+                continue;
+            }
+            if (_open == null || _open.tryAcquire()) {
+                return open();
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw JCAMessages.MESSAGES.noCCIConnectionAvailable(_maxOpen, _maxWait);
+            }
+            // a released connection arrives in the idle queue; an evicted one frees a permit
+            try {
+                pooled = _idle.poll(Math.min(remaining, RETRY_INTERVAL), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResourceException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool.
+     * @param pooled the connection
+     * @param reusable false if the connection failed and has to be evicted
+     */
+    void release(PooledConnection pooled, boolean reusable) {
+        if (!reusable || _closed || !_idle.offer(pooled)) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Closes the idle connections; connections released afterwards are closed as well.
+     */
+    void close() {
+        _closed = true;
+        for (PooledConnection pooled = _idle.poll(); pooled != null; pooled = _idle.poll()) {
+            discard(pooled);
+        }
+    }
+
+    private PooledConnection open() throws ResourceException {
+        boolean opened = false;
+        try {
+            Connection connection = _connectionSpec != null
+                    ? _connectionFactory.getConnection(_connectionSpec)
+                    : _connectionFactory.getConnection();
+            try {
+                PooledConnection pooled = new PooledConnection(connection, connection.createInteraction());
+                opened = true;
+                return pooled;
+            } catch (ResourceException e) {
+                connection.close();
+                throw e;
+            }
+        } finally {
+            if (!opened && _open != null) {
+                _open.release();
+            }
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        pooled.close();
+        if (_open != null) {
+            _open.release();
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return _validator.isValid(pooled.getConnection(), pooled.getInteraction());
+        } catch (RuntimeException e) {
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("Discarding pooled CCI connection which failed validation", e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A pooled connection and its Interaction.
+     */
+    static final class PooledConnection {
+        private final Connection _connection;
+        private final Interaction _interaction;
+
+        private PooledConnection(Connection connection, Interaction interaction) {
+            _connection = connection;
+            _interaction = interaction;
+        }
+
+        Connection getConnection() {
+            return _connection;
+        }
+
+        Interaction getInteraction() {
+            return _interaction;
+        }
+
+        private void close() {
+            try {
+                _interaction.close();
+            } catch (ResourceException e) {
+                JCALogger.ROOT_LOGGER.failedToCloseInteractionConnection(e.getMessage());
+            }
+            try {
+                _connection.close();
+            } catch (ResourceException e) {
+                JCALogger.ROOT_LOGGER.failedToCloseInteractionConnection(e.getMessage());
+            }
+        }
+    }
+}
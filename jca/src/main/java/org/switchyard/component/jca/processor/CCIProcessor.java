@@ -31,6 +31,7 @@ import org.switchyard.HandlerException;
 import org.switchyard.Message;
 import org.switchyard.component.jca.JCALogger;
 import org.switchyard.component.jca.JCAMessages;
+import org.switchyard.component.jca.processor.cci.ConnectionValidator;
 import org.switchyard.component.jca.processor.cci.RecordHandler;
 import org.switchyard.component.jca.processor.cci.RecordHandlerFactory;
 
@@ -43,6 +44,18 @@ import org.switchyard.component.jca.processor.cci.RecordHandlerFactory;
 public class CCIProcessor extends AbstractOutboundProcessor {
     /** default record type. */
     public static final String DEFAULT_RECORD_TYPE = "javax.resource.cci.MappedRecord";
+    /** key for the maximum number of idle connections kept for reuse. */
+    public static final String KEY_MAX_POOLED_CONNECTIONS = "maxPooledConnections";
+    /** key for the {@link ConnectionValidator} class which checks pooled connections. */
+    public static final String KEY_CONNECTION_VALIDATOR = "connectionValidator";
+    /** key for the maximum number of connections open at once when pooling. */
+    public static final String KEY_MAX_CONNECTIONS = "maxConnections";
+    /** key for the milliseconds to wait for a pooled connection once maxConnections is reached. */
+    public static final String KEY_MAX_CONNECTION_WAIT = "maxConnectionWait";
+    /** key for whether input records are cloned from a template record. */
+    public static final String KEY_CLONE_RECORD_TEMPLATE = "cloneRecordTemplate";
+
+    private static final long DEFAULT_MAX_CONNECTION_WAIT = 30000;
 
     private Logger _logger = Logger.getLogger(CCIProcessor.class);
     private String _recordClassName;
@@ -50,6 +63,12 @@ public class CCIProcessor extends AbstractOutboundProcessor {
     private InteractionSpec _interactionSpec;
     private ConnectionFactory _connectionFactory;
     private RecordHandler<?> _recordHandler;
+    private String _maxPooledConnections;
+    private String _connectionValidatorClassName;
+    private String _maxConnections;
+    private String _maxConnectionWait;
+    private String _cloneRecordTemplate;
+    private CCIConnectionPool _connectionPool;
     
     @Override
     public AbstractOutboundProcessor setConnectionSpec(String name, Properties props) {
@@ -88,7 +107,8 @@ public class CCIProcessor extends AbstractOutboundProcessor {
             Class<?> clazz = getApplicationClassLoader().loadClass(_recordClassName);
             _recordHandler = RecordHandlerFactory.createRecordHandler(clazz, getApplicationClassLoader())
                     .setJCABindingModel(getJCABindingModel())
-                    .setInteractionSpec(_interactionSpec);
+                    .setInteractionSpec(_interactionSpec)
+                    .setCloneRecordTemplate(Boolean.parseBoolean(_cloneRecordTemplate));
 
             InitialContext ic = null;
             if (getJndiProperties() != null) {
@@ -106,15 +126,36 @@ public class CCIProcessor extends AbstractOutboundProcessor {
         } catch (ResourceException e) {
             JCALogger.ROOT_LOGGER.failedToGetRecordFactory(e.getMessage());
         }
+
+        if (_maxPooledConnections != null && !_maxPooledConnections.equals("")) {
+            int maxIdle = Integer.parseInt(_maxPooledConnections);
+            if (maxIdle > 0) {
+                int maxOpen = _maxConnections != null && !_maxConnections.equals("") ? Integer.parseInt(_maxConnections) : 0;
+                long maxWait = _maxConnectionWait != null && !_maxConnectionWait.equals("")
+                        ? Long.parseLong(_maxConnectionWait) : DEFAULT_MAX_CONNECTION_WAIT;
+                _connectionPool = new CCIConnectionPool(_connectionFactory, _connectionSpec, createConnectionValidator(),
+                        maxIdle, maxOpen, maxWait);
+            }
+        }
     }
 
     @Override
     public void uninitialize() {
+        if (_connectionPool != null) {
+            _connectionPool.close();
+            _connectionPool = null;
+        }
         _connectionFactory = null;
     }
 
     @Override
     public Message process(Exchange exchange) throws HandlerException {
+        // the managed connection factory enlists a new connection into the running JTA transaction,
+        // so pooled connections are only used outside of one
+        if (_connectionPool != null && !isTransactionActive()) {
+            return processPooled(exchange);
+        }
+
         Connection connection = null;
         Interaction interaction = null;
         try {
@@ -144,6 +185,95 @@ public class CCIProcessor extends AbstractOutboundProcessor {
         }
     }
     
+    private Message processPooled(Exchange exchange) throws HandlerException {
+        CCIConnectionPool.PooledConnection pooled = null;
+        boolean reusable = true;
+        try {
+            pooled = _connectionPool.borrow();
+            return _recordHandler.handle(exchange, pooled.getConnection(), pooled.getInteraction());
+        } catch (Exception e) {
+            // a ResourceException may come from a broken connection, don't hand it out again
+            reusable = !isResourceFailure(e);
+            throw JCAMessages.MESSAGES.failedToProcessCCIOutboundInteraction(e);
+        } finally {
+            if (pooled != null) {
+                _connectionPool.release(pooled, reusable);
+            }
+        }
+    }
+
+    private boolean isResourceFailure(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ResourceException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ConnectionValidator createConnectionValidator() {
+        if (_connectionValidatorClassName == null || _connectionValidatorClassName.equals("")) {
+            return null;
+        }
+        try {
+            Class<?> clazz = getApplicationClassLoader().loadClass(_connectionValidatorClassName);
+            return (ConnectionValidator) clazz.newInstance();
+        } catch (Exception e) {
+            throw JCAMessages.MESSAGES.failedToInitialize(_connectionValidatorClassName, e);
+        }
+    }
+
+    /**
+     * set the maximum number of idle connections kept for reuse.
+     * Pooling is disabled when this is not set or is 0.
+     * 
+     * @param max maximum number of idle connections
+     */
+    public void setMaxPooledConnections(String max) {
+        _maxPooledConnections = max;
+    }
+
+    /**
+     * set the maximum number of connections open at once when pooling, counting the
+     * borrowed and the idle ones. There is no limit when this is not set or is 0.
+     * 
+     * @param max maximum number of connections
+     */
+    public void setMaxConnections(String max) {
+        _maxConnections = max;
+    }
+
+    /**
+     * set the milliseconds to wait for a pooled connection once maxConnections is reached.
+     * Defaults to 30000.
+     * 
+     * @param wait milliseconds to wait
+     */
+    public void setMaxConnectionWait(String wait) {
+        _maxConnectionWait = wait;
+    }
+
+    /**
+     * set whether input records are cloned from a template record instead of being
+     * created through the RecordFactory each time. Only enable this when the resource
+     * adapter's Record.clone() is a deep copy. Defaults to false.
+     * 
+     * @param clone true to clone input records
+     */
+    public void setCloneRecordTemplate(String clone) {
+        _cloneRecordTemplate = clone;
+    }
+
+    /**
+     * set {@link ConnectionValidator} implementation class name, which checks pooled
+     * connections before they are reused.
+     * 
+     * @param name class name
+     */
+    public void setConnectionValidator(String name) {
+        _connectionValidatorClassName = name;
+    }
+
     /**
      * set {@link RecordFactory} implementation class name.
      * 
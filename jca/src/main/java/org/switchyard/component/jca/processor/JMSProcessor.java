@@ -15,6 +15,8 @@ package org.switchyard.component.jca.processor;
 
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
@@ -33,6 +35,7 @@ import org.switchyard.common.type.Classes;
 import org.switchyard.component.common.composer.MessageComposer;
 import org.switchyard.component.jca.JCALogger;
 import org.switchyard.component.jca.JCAMessages;
+import org.switchyard.component.jca.JMSSessionPool;
 import org.switchyard.component.jca.composer.JMSBindingData;
 
 /**
@@ -60,6 +63,8 @@ public class JMSProcessor extends AbstractOutboundProcessor {
     public static final String KEY_MESSAGE_TYPE  = "messageType";
     /** key for JNDI properties file to look up the JMS destination. */
     public static final String KEY_DESTINATION_JNDI_PROPERTIES_FILE = "destinationJndiPropertiesFileName";
+    /** key for the maximum number of idle JMS sessions kept for reuse. */
+    public static final String KEY_MAX_POOLED_SESSIONS = "maxPooledSessions";
 
     private Logger _logger = Logger.getLogger(JMSProcessor.class);
     private String _userName;
@@ -76,6 +81,9 @@ public class JMSProcessor extends AbstractOutboundProcessor {
     private MessageType _defaultOutMessageType = MessageType.Object;
     private String _destinationJndiPropertiesFileName;
     private Properties _destinationJndiProperties;
+    private String _maxPooledSessions;
+    private JMSSessionPool _sessionPool;
+    private ConcurrentMap<String, Destination> _jndiDestinations = new ConcurrentHashMap<String, Destination>();
     
     private enum DestinationType {
         Queue, Topic, JNDI
@@ -138,6 +146,13 @@ public class JMSProcessor extends AbstractOutboundProcessor {
             throw JCAMessages.MESSAGES.failedToInitialize(this.getClass().getName(), e);
         }
         
+        if (_maxPooledSessions != null && !_maxPooledSessions.equals("")) {
+            int maxIdle = Integer.parseInt(_maxPooledSessions);
+            if (maxIdle > 0) {
+                _sessionPool = new JMSSessionPool(_connectionFactory, _userName, _password, maxIdle);
+            }
+        }
+        
         if (_logger.isDebugEnabled()) {
             StringBuilder msg = new StringBuilder()
                 .append("Initialized with: {")
@@ -148,6 +163,7 @@ public class JMSProcessor extends AbstractOutboundProcessor {
                 .append(", Output Message Type:").append(_defaultOutMessageType)
                 .append(", JNDI Properties File:").append(getJndiPropertiesFileName())
                 .append(", Destination JNDI Properties File:").append(_destinationJndiPropertiesFileName)
+                .append(", Max Pooled Sessions:").append(_maxPooledSessions)
                 .append("}");
             _logger.debug(msg.toString());
         }
@@ -156,11 +172,22 @@ public class JMSProcessor extends AbstractOutboundProcessor {
 
     @Override
     public void uninitialize() {
+        if (_sessionPool != null) {
+            _sessionPool.close();
+            _sessionPool = null;
+        }
+        _jndiDestinations.clear();
         _connectionFactory = null;
     }
 
     @Override
     public org.switchyard.Message process(Exchange exchange) throws HandlerException {
+        // the managed connection factory enlists a new connection into the running JTA transaction,
+        // so pooled sessions are only used outside of one
+        if (_sessionPool != null && !isTransactionActive()) {
+            return processPooled(exchange);
+        }
+
         Connection connection = null;
         Session session = null;
         try {
@@ -175,27 +202,7 @@ public class JMSProcessor extends AbstractOutboundProcessor {
             session = connection.createSession(getTxEnabledFromContext(context), getAcknowledgeModeFromContext(context));
             MessageProducer producer = session.createProducer(getDestinationFromContext(session, context));
             
-            Message msg;
-            switch (getOutputMessageTypeFromContext(context)) {
-            case Stream:
-                msg = session.createStreamMessage();
-                break;
-            case Map:
-                msg = session.createMapMessage();
-                break;
-            case Text:
-                msg = session.createTextMessage();
-                break;
-            case Bytes:
-                msg = session.createBytesMessage();
-                break;
-            case Plain:
-                msg = session.createMessage();
-                break;
-            default:
-                    msg = session.createObjectMessage();
-            }
-            
+            Message msg = createMessage(session, context);
             producer.send(_composer.decompose(exchange, new JMSBindingData(msg)).getMessage());
             
             if (session.getTransacted()) {
@@ -238,6 +245,71 @@ public class JMSProcessor extends AbstractOutboundProcessor {
         }
     }
     
+    private org.switchyard.Message processPooled(Exchange exchange) throws HandlerException {
+        JMSSessionPool.PooledSession pooled = null;
+        JMSException failure = null;
+        boolean reusable = false;
+        try {
+            Context context = exchange.getContext();
+            pooled = _sessionPool.borrow(getTxEnabledFromContext(context), getAcknowledgeModeFromContext(context));
+            Session session = pooled.getSession();
+            MessageProducer producer = pooled.getProducer(getDestinationFromContext(session, context));
+            
+            Message msg = createMessage(session, context);
+            producer.send(_composer.decompose(exchange, new JMSBindingData(msg)).getMessage());
+            
+            if (session.getTransacted()) {
+                session.commit();
+            }
+            reusable = true;
+            return null;
+        } catch (Exception e) {
+            if (e instanceof JMSException) {
+                // closing the failed session rolls back its work
+                failure = (JMSException) e;
+            } else if (pooled != null) {
+                // the message could not be built; the session itself is still usable
+                try {
+                    if (pooled.getSession().getTransacted()) {
+                        pooled.getSession().rollback();
+                    }
+                    reusable = true;
+                } catch (JMSException e2) {
+                    failure = e2;
+                    if (_logger.isDebugEnabled()) {
+                        _logger.debug(e2);
+                    }
+                }
+            }
+            throw JCAMessages.MESSAGES.failedToProcessJMSOutboundInteraction(e);
+        } finally {
+            if (pooled != null) {
+                if (failure != null) {
+                    _sessionPool.discard(pooled, failure);
+                } else {
+                    _sessionPool.release(pooled, reusable);
+                }
+            }
+        }
+    }
+    
+    protected Message createMessage(Session session, Context ctx) throws JMSException {
+        switch (getOutputMessageTypeFromContext(ctx)) {
+        case Stream:
+            return session.createStreamMessage();
+        case Map:
+            return session.createMapMessage();
+        case Text:
+            return session.createTextMessage();
+        case Bytes:
+            return session.createBytesMessage();
+        case Plain:
+            return session.createMessage();
+        default:
+            return session.createObjectMessage();
+        }
+    }
+    
     protected boolean getTxEnabledFromContext(Context ctx) {
         String key = CONTEXT_PROPERTY_PREFIX + KEY_TRANSACTED;
         if (ctx.getProperty(key) != null) {
@@ -311,6 +383,10 @@ public class JMSProcessor extends AbstractOutboundProcessor {
     }
 
     protected Destination lookupDestinationFromJNDI(String destName) throws Exception {
+        Destination destination = _jndiDestinations.get(destName);
+        if (destination != null) {
+            return destination;
+        }
         InitialContext ic = null;
         try {
             if (getDestinationJndiProperties() != null) {
@@ -320,7 +396,9 @@ public class JMSProcessor extends AbstractOutboundProcessor {
             } else {
                 ic = new InitialContext();
             }
-            return (Destination) ic.lookup(destName);
+            destination = (Destination) ic.lookup(destName);
+            _jndiDestinations.put(destName, destination);
+            return destination;
         } finally {
             if (ic != null) {
                 try {
@@ -440,6 +518,16 @@ public class JMSProcessor extends AbstractOutboundProcessor {
         _defaultOutMessageType = MessageType.valueOf(type);
     }
     
+    /**
+     * set the maximum number of idle JMS sessions kept for reuse, per session mode.
+     * Pooling is disabled when this is not set or is 0.
+     * 
+     * @param max maximum number of idle sessions
+     */
+    public void setMaxPooledSessions(String max) {
+        _maxPooledSessions = max;
+    }
+    
     /**
      * set JNDI properties file name for destination lookup.
      * @param name filename
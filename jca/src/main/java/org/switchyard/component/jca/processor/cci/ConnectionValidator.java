@@ -0,0 +1,32 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca.processor.cci;
+
+import javax.resource.cci.Connection;
+import javax.resource.cci.Interaction;
+
+/**
+ * Checks a pooled CCI connection before the CCIProcessor reuses it.
+ */
+public interface ConnectionValidator {
+
+    /**
+     * validate a pooled connection.
+     *
+     * @param conn pooled Connection instance
+     * @param interaction Interaction instance kept with the connection
+     * @return false if the connection has to be discarded
+     */
+    boolean isValid(Connection conn, Interaction interaction);
+}
@@ -13,9 +13,11 @@
  */
 package org.switchyard.component.jca.processor.cci;
 
+import javax.resource.ResourceException;
 import javax.resource.cci.Connection;
 import javax.resource.cci.IndexedRecord;
 import javax.resource.cci.Interaction;
+import javax.resource.cci.Record;
 
 import org.switchyard.Exchange;
 import org.switchyard.Message;
@@ -41,8 +43,13 @@ public class IndexedRecordHandler extends RecordHandler<IndexedRecordBindingData
     
     @Override
     public Message handle(Exchange exchange, Connection conn, Interaction interact) throws Exception {
-        IndexedRecord record = getRecordFactory().createIndexedRecord(IndexedRecordHandler.class.getName());
+        IndexedRecord record = (IndexedRecord) createRecord();
         IndexedRecord outRecord = (IndexedRecord) interact.execute(getInteractionSpec(), getMessageComposer(IndexedRecordBindingData.class).decompose(exchange, new IndexedRecordBindingData(record)).getRecord());
         return _composer.compose(new IndexedRecordBindingData(outRecord), exchange);
     }
+
+    @Override
+    protected Record createRecordFromFactory() throws ResourceException {
+        return getRecordFactory().createIndexedRecord(IndexedRecordHandler.class.getName());
+    }
 }
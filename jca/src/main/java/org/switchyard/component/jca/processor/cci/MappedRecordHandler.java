@@ -13,9 +13,11 @@
  */
 package org.switchyard.component.jca.processor.cci;
 
+import javax.resource.ResourceException;
 import javax.resource.cci.Connection;
 import javax.resource.cci.Interaction;
 import javax.resource.cci.MappedRecord;
+import javax.resource.cci.Record;
 
 import org.switchyard.Exchange;
 import org.switchyard.Message;
@@ -41,8 +43,13 @@ public class MappedRecordHandler extends RecordHandler<MappedRecordBindingData>
     
     @Override
     public Message handle(Exchange exchange, Connection conn, Interaction interact) throws Exception {
-        MappedRecord record = getRecordFactory().createMappedRecord(MappedRecordHandler.class.getName());
+        MappedRecord record = (MappedRecord) createRecord();
         MappedRecord outRecord = (MappedRecord) interact.execute(getInteractionSpec(), getMessageComposer(MappedRecordBindingData.class).decompose(exchange, new MappedRecordBindingData(record)).getRecord());
         return _composer.compose(new MappedRecordBindingData(outRecord), exchange);
     }
+
+    @Override
+    protected Record createRecordFromFactory() throws ResourceException {
+        return getRecordFactory().createMappedRecord(MappedRecordHandler.class.getName());
+    }
 }
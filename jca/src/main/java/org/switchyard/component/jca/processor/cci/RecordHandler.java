@@ -13,14 +13,21 @@
  */
 package org.switchyard.component.jca.processor.cci;
 
+import java.util.Collection;
+import java.util.Map;
+
+import javax.resource.ResourceException;
 import javax.resource.cci.Connection;
 import javax.resource.cci.Interaction;
 import javax.resource.cci.InteractionSpec;
+import javax.resource.cci.Record;
 import javax.resource.cci.RecordFactory;
 
+import org.jboss.logging.Logger;
 import org.switchyard.Exchange;
 import org.switchyard.Message;
 import org.switchyard.component.common.composer.MessageComposer;
+import org.switchyard.component.jca.JCALogger;
 import org.switchyard.component.jca.composer.JCAComposition;
 import org.switchyard.component.jca.composer.RecordBindingData;
 import org.switchyard.component.jca.config.model.JCABindingModel;
@@ -34,10 +41,15 @@ import org.switchyard.component.jca.config.model.JCABindingModel;
  */
 public abstract class RecordHandler<D extends RecordBindingData<?>> {
 
+    private Logger _logger = Logger.getLogger(RecordHandler.class);
     private MessageComposer<D> _composer;
     private JCABindingModel _jcaBindingModel;
     private RecordFactory _recordFactory;
     private InteractionSpec _interactionSpec;
+    private boolean _cloneRecordTemplate;
+    private volatile Record _recordTemplate;
+    private volatile int _templateSize;
+    private volatile boolean _templateCloneable = true;
     
     /**
      * handle interaction.
@@ -104,6 +116,76 @@ public abstract class RecordHandler<D extends RecordBindingData<?>> {
         return _interactionSpec;
     }
 
+    /**
+     * set whether input records are cloned from a template record. Only enable this when
+     * the resource adapter's Record.clone() is a deep copy.
+     * @param clone true to clone input records
+     * @return this instance for method chaining
+     */
+    public RecordHandler<D> setCloneRecordTemplate(boolean clone) {
+        _cloneRecordTemplate = clone;
+        return this;
+    }
+
+    /**
+     * create an input record. When template cloning is enabled, the first record created
+     * through {@link #createRecordFromFactory()} is kept as a template, and the input records
+     * are cloned from it afterwards. Cloning stops as soon as the number of entries in the template
+     * changes, which means a clone shares its content with the template.
+     * @return input record
+     * @throws ResourceException failed to create a record
+     */
+    protected Record createRecord() throws ResourceException {
+        if (!_cloneRecordTemplate || !_templateCloneable) {
+            return createRecordFromFactory();
+        }
+        Record template = _recordTemplate;
+        if (template == null) {
+            template = createRecordFromFactory();
+            if (template == null) {
+                return null;
+            }
+            _templateSize = size(template);
+            _recordTemplate = template;
+        }
+        if (size(template) == _templateSize) {
+            try {
+                Record record = (Record) template.clone();
+                if (record != template) {
+                    return record;
+                }
+            } catch (CloneNotSupportedException e) {
+                // the resource adapter doesn't support cloning its records
+                if (_logger.isDebugEnabled()) {
+                    _logger.debug("Record " + template.getRecordName() + " can't be cloned, creating records through the RecordFactory");
+                }
+            }
+        } else {
+            JCALogger.ROOT_LOGGER.recordTemplateNotCloneable(template.getRecordName());
+        }
+        _templateCloneable = false;
+        _recordTemplate = null;
+        return createRecordFromFactory();
+    }
+
+    private int size(Record record) {
+        if (record instanceof Map) {
+            return ((Map<?, ?>) record).size();
+        } else if (record instanceof Collection) {
+            return ((Collection<?>) record).size();
+        }
+        return 0;
+    }
+
+    /**
+     * create an input record from scratch. Handlers which use {@link #createRecord()} override this.
+     * @return input record, or null if this handler doesn't create input records
+     * @throws ResourceException failed to create a record
+     */
+    protected Record createRecordFromFactory() throws ResourceException {
+        return null;
+    }
+
     protected MessageComposer<D> getMessageComposer(Class<D> clazz) {
         if (_composer == null) {
             _composer = JCAComposition.getMessageComposer(_jcaBindingModel, clazz);
@@ -13,6 +13,7 @@
  */
 package org.switchyard.component.jca.processor.cci;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -23,17 +24,23 @@ import javax.resource.cci.Streamable;
 
 /**
  * Record for raw byte content.
+ * <p/>
+ * The content is read into a buffer sized from {@link InputStream#available()}, which grows
+ * in chunks as needed and is trimmed to the content. It is handed on with
+ * {@link #getInputStream()} without being copied again.
  *
  * @author Antti Laisi
  */
 public class StreamableRecord implements Streamable, Record {
 
     private static final long serialVersionUID = 1L;
+    private static final int CHUNK_SIZE = 8192;
 
     private String _recordName;
     private String _recordShortDescription;
 
     private byte[] _bytes;
+    private int _length;
 
     @Override
     public String getRecordName() {
@@ -57,25 +64,68 @@ public class StreamableRecord implements Streamable, Record {
 
     @Override
     public void read(InputStream in) throws IOException {
-        _bytes = new byte[in.available()];
-        in.read(_bytes);
+        if (in == null) {
+            _bytes = null;
+            _length = 0;
+            return;
+        }
+        // available() is only a hint; keep reading until the end of the stream
+        int available = in.available();
+        byte[] buffer = new byte[available > 0 ? available : CHUNK_SIZE];
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                // the buffer is full, so check for the end of the stream before growing it
+                int next = in.read();
+                if (next == -1) {
+                    break;
+                }
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, CHUNK_SIZE));
+                buffer[length++] = (byte) next;
+            }
+            int count = in.read(buffer, length, buffer.length - length);
+            if (count == -1) {
+                break;
+            }
+            length += count;
+        }
+        // trim the buffer unless available() matched the content; a new buffer is allocated
+        // on every read, so the content is never modified in place
+        _bytes = length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+        _length = length;
     }
 
     @Override
     public void write(OutputStream out) throws IOException {
         if (_bytes != null) {
-            out.write(_bytes);
+            out.write(_bytes, 0, _length);
         }
     }
 
+    /**
+     * Gets the content as a stream, without copying it.
+     * @return the content stream, empty if nothing has been read
+     */
+    public InputStream getInputStream() {
+        return _bytes != null ? new ByteArrayInputStream(_bytes, 0, _length) : new ByteArrayInputStream(new byte[0]);
+    }
+
+    /**
+     * Gets the length of the content.
+     * @return the number of bytes read
+     */
+    public int getLength() {
+        return _length;
+    }
+
     @Override
     public Object clone() throws CloneNotSupportedException {
         StreamableRecord clone = (StreamableRecord) super.clone();
         clone._recordName = _recordName;
         clone._recordShortDescription = _recordShortDescription;
-        if (_bytes != null) {
-            clone._bytes = Arrays.copyOf(_bytes, _bytes.length);
-        }
+        // the content is immutable once read, so the clone can share it
+        clone._bytes = _bytes;
+        clone._length = _length;
         return clone;
     }
 
@@ -15,6 +15,7 @@ package org.switchyard.component.jca.processor.cci;
 
 import javax.resource.cci.Connection;
 import javax.resource.cci.Interaction;
+import javax.resource.cci.Record;
 
 import org.switchyard.Exchange;
 import org.switchyard.Message;
@@ -40,10 +41,15 @@ public class StreamableRecordHandler extends RecordHandler<StreamableRecordBindi
     
     @Override
     public Message handle(Exchange exchange, Connection conn, Interaction interact) throws Exception {
-        StreamableRecord record = new StreamableRecord();
+        StreamableRecord record = (StreamableRecord) createRecord();
         StreamableRecord outRecord = new StreamableRecord();
         interact.execute(getInteractionSpec(), getMessageComposer(StreamableRecordBindingData.class).decompose(exchange, new StreamableRecordBindingData(record)).getRecord(), outRecord);
         return _composer.compose(new StreamableRecordBindingData(outRecord), exchange);
     }
 
+    @Override
+    protected Record createRecordFromFactory() {
+        return new StreamableRecord();
+    }
+
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link AdaptiveBatchSize}.
+ */
+public class AdaptiveBatchSizeTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void growsUnderBurst() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(10, 1, 100, 100);
+        for (int i = 0; i < 20; i++) {
+            // 1ms between messages, 10ms commits: 90 messages fit in the latency target
+            int batch = size.getBatchSize();
+            size.batchCommitted(batch, batch * MILLIS, 10 * MILLIS);
+        }
+        Assert.assertTrue(size.getBatchSize() > 80);
+        Assert.assertTrue(size.getBatchSize() <= 90);
+        Assert.assertEquals(1000.0, size.getArrivalRate(), 1.0);
+        Assert.assertEquals(10.0, size.getCommitLatency(), 0.1);
+    }
+
+    @Test
+    public void shrinksWhenTrafficSlowsDown() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(50, 2, 100, 100);
+        for (int i = 0; i < 20; i++) {
+            // one message per batch timeout
+            size.batchCommitted(1, 1000 * MILLIS, 10 * MILLIS);
+        }
+        Assert.assertEquals(2, size.getBatchSize());
+    }
+
+    @Test
+    public void staysWithinBounds() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(500, 5, 20, 1000);
+        Assert.assertEquals(20, size.getBatchSize());
+        for (int i = 0; i < 20; i++) {
+            size.batchCommitted(size.getBatchSize(), 1000, MILLIS);
+        }
+        Assert.assertEquals(20, size.getBatchSize());
+        for (int i = 0; i < 20; i++) {
+            // the commit alone exceeds the latency target
+            size.batchCommitted(size.getBatchSize(), 1000, 2000 * MILLIS);
+        }
+        Assert.assertEquals(5, size.getBatchSize());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link BatchCommitScheduler}.
+ */
+public class BatchCommitSchedulerTest {
+
+    @Test
+    public void usesConfiguredBatchSizeUnlessAdaptive() {
+        Assert.assertEquals(5, new BatchCommitScheduler("fixed").getBatchSize(5));
+        AdaptiveBatchSize adaptive = new AdaptiveBatchSize(20, 1, 100, 100);
+        Assert.assertEquals(20, new BatchCommitScheduler("adaptive", adaptive).getBatchSize(5));
+    }
+
+    @Test
+    public void recordsCompletedCommits() {
+        AdaptiveBatchSize adaptive = new AdaptiveBatchSize(20, 1, 100, 100);
+        BatchCommitScheduler scheduler = new BatchCommitScheduler("recording", adaptive);
+        scheduler.commitCompleted(3, TimeUnit.MILLISECONDS.toNanos(3), TimeUnit.MILLISECONDS.toNanos(1), true);
+        Assert.assertEquals(1, scheduler.getStatistics().getCommitCount());
+        Assert.assertEquals(1, scheduler.getStatistics().getTimeoutCommitCount());
+        Assert.assertTrue(adaptive.getCommitLatency() > 0);
+    }
+
+    @Test
+    public void registersMBeansWhileRunning() throws Exception {
+        BatchCommitScheduler scheduler = new BatchCommitScheduler("mbeans", new AdaptiveBatchSize(20, 1, 100, 100));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName statistics = new ObjectName(BatchCommitScheduler.JMX_DOMAIN + ":type=BatchCommit,name=" + ObjectName.quote("mbeans"));
+        ObjectName adaptive = new ObjectName(BatchCommitScheduler.JMX_DOMAIN + ":type=AdaptiveBatchSize,name=" + ObjectName.quote("mbeans"));
+        scheduler.start();
+        try {
+            Assert.assertTrue(server.isRegistered(statistics));
+            Assert.assertTrue(server.isRegistered(adaptive));
+        } finally {
+            scheduler.stop();
+        }
+        Assert.assertFalse(server.isRegistered(statistics));
+        Assert.assertFalse(server.isRegistered(adaptive));
+    }
+
+    @Test
+    public void runsPendingTimeoutsAfterStop() throws Exception {
+        BatchCommitScheduler scheduler = new BatchCommitScheduler("pending");
+        final CountDownLatch fired = new CountDownLatch(1);
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                fired.countDown();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        scheduler.stop();
+        Assert.assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsTimeoutsAfterStop() {
+        BatchCommitScheduler scheduler = new BatchCommitScheduler("stopped");
+        scheduler.stop();
+        scheduler.schedule(new Runnable() {
+            public void run() {
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+    }
+}
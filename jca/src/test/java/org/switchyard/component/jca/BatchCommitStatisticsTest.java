@@ -0,0 +1,63 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link BatchCommitStatistics}.
+ */
+public class BatchCommitStatisticsTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void startsEmpty() {
+        BatchCommitStatistics statistics = new BatchCommitStatistics();
+        Assert.assertEquals(0, statistics.getCommitCount());
+        Assert.assertEquals(0.0, statistics.getAverageBatchSize(), 0.001);
+        Assert.assertEquals(0.0, statistics.getAverageCommitLatency(), 0.001);
+        Assert.assertEquals(0.0, statistics.getMaxCommitLatency(), 0.001);
+    }
+
+    @Test
+    public void aggregatesCommits() {
+        BatchCommitStatistics statistics = new BatchCommitStatistics();
+        statistics.commitCompleted(10, 2 * MILLIS, false);
+        statistics.commitCompleted(4, 6 * MILLIS, true);
+        Assert.assertEquals(2, statistics.getCommitCount());
+        Assert.assertEquals(1, statistics.getTimeoutCommitCount());
+        Assert.assertEquals(14, statistics.getCommittedMessageCount());
+        Assert.assertEquals(7.0, statistics.getAverageBatchSize(), 0.001);
+        Assert.assertEquals(10, statistics.getMaxBatchSize());
+        Assert.assertEquals(4.0, statistics.getAverageCommitLatency(), 0.001);
+        Assert.assertEquals(6.0, statistics.getMaxCommitLatency(), 0.001);
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        BatchCommitStatistics statistics = new BatchCommitStatistics();
+        statistics.commitCompleted(10, 2 * MILLIS, true);
+        statistics.reset();
+        Assert.assertEquals(0, statistics.getCommitCount());
+        Assert.assertEquals(0, statistics.getTimeoutCommitCount());
+        Assert.assertEquals(0, statistics.getCommittedMessageCount());
+        Assert.assertEquals(0, statistics.getMaxBatchSize());
+        Assert.assertEquals(0.0, statistics.getMaxCommitLatency(), 0.001);
+    }
+}
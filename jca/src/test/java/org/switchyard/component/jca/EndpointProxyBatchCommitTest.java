@@ -0,0 +1,198 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.resource.spi.endpoint.MessageEndpoint;
+import javax.resource.spi.endpoint.MessageEndpointFactory;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+import javax.transaction.xa.XAResource;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.component.jca.deploy.JCAInflowDeploymentMetaData;
+import org.switchyard.component.jca.endpoint.AbstractInflowEndpoint;
+
+/**
+ * Test for the batch commit timeout of {@link EndpointProxy}.
+ */
+public class EndpointProxyBatchCommitTest {
+
+    private static final long BATCH_TIMEOUT = 50;
+
+    private FakeTransactionManager _transactionManager;
+    private BatchCommitScheduler _scheduler;
+    private EndpointProxy _proxy;
+
+    @Before
+    public void setUp() {
+        _transactionManager = new FakeTransactionManager();
+        _scheduler = new BatchCommitScheduler("test");
+        JCAInflowDeploymentMetaData metadata = new JCAInflowDeploymentMetaData();
+        metadata.setMessageEndpoint(new AbstractInflowEndpoint() { });
+        metadata.setTransactionManager(_transactionManager);
+        metadata.setUseBatchCommit(true);
+        metadata.setBatchSize(10);
+        metadata.setBatchTimeout(BATCH_TIMEOUT);
+        metadata.setBatchCommitScheduler(_scheduler);
+        _proxy = new EndpointProxy(metadata, transactedFactory(), null);
+    }
+
+    @After
+    public void tearDown() {
+        _scheduler.stop();
+    }
+
+    @Test
+    public void timeoutCommitsOnceTheDeliveryIsDone() throws Throwable {
+        beforeDelivery();
+        // the timeout fires while the delivery holds the endpoint, and is retried
+        Thread.sleep(BATCH_TIMEOUT * 4);
+        FakeTransaction transaction = _transactionManager._last;
+        Assert.assertEquals(Status.STATUS_ACTIVE, transaction.getStatus());
+        afterDelivery();
+        awaitCommit();
+        Assert.assertEquals(Status.STATUS_COMMITTED, transaction.getStatus());
+        Assert.assertEquals(1, _scheduler.getStatistics().getTimeoutCommitCount());
+        Assert.assertEquals(1, _scheduler.getStatistics().getCommittedMessageCount());
+    }
+
+    @Test
+    public void retryRejectedAfterStopStillCommits() throws Throwable {
+        beforeDelivery();
+        Thread.sleep(BATCH_TIMEOUT * 4);
+        // the retry scheduled next is rejected, so the timer completes the transaction itself
+        _scheduler.stop();
+        Thread.sleep(BATCH_TIMEOUT);
+        FakeTransaction transaction = _transactionManager._last;
+        Assert.assertEquals(Status.STATUS_ACTIVE, transaction.getStatus());
+        afterDelivery();
+        awaitCommit();
+        Assert.assertEquals(Status.STATUS_COMMITTED, transaction.getStatus());
+    }
+
+    @Test
+    public void fullBatchCancelsTheTimeout() throws Throwable {
+        for (int i = 0; i < 10; i++) {
+            beforeDelivery();
+            afterDelivery();
+        }
+        Assert.assertEquals(Status.STATUS_COMMITTED, _transactionManager._last.getStatus());
+        Thread.sleep(BATCH_TIMEOUT * 2);
+        Assert.assertEquals(1, _scheduler.getStatistics().getCommitCount());
+        Assert.assertEquals(0, _scheduler.getStatistics().getTimeoutCommitCount());
+        Assert.assertEquals(10, _scheduler.getStatistics().getCommittedMessageCount());
+    }
+
+    private void beforeDelivery() throws Throwable {
+        Method beforeDelivery = MessageEndpoint.class.getMethod("beforeDelivery", Method.class);
+        _proxy.invoke(_proxy, beforeDelivery, new Object[] {Runnable.class.getMethod("run")});
+    }
+
+    private void afterDelivery() throws Throwable {
+        _proxy.invoke(_proxy, MessageEndpoint.class.getMethod("afterDelivery"), null);
+    }
+
+    private void awaitCommit() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (_scheduler.getStatistics().getCommitCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, _scheduler.getStatistics().getCommitCount());
+    }
+
+    private static MessageEndpointFactory transactedFactory() {
+        return (MessageEndpointFactory) Proxy.newProxyInstance(EndpointProxyBatchCommitTest.class.getClassLoader(),
+                new Class<?>[] {MessageEndpointFactory.class}, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return "isDeliveryTransacted".equals(method.getName()) ? Boolean.TRUE : null;
+                    }
+                });
+    }
+
+    /**
+     * Associates transactions with threads, and lets them be resumed on another thread.
+     */
+    private static final class FakeTransactionManager implements TransactionManager {
+        private final ThreadLocal<FakeTransaction> _current = new ThreadLocal<FakeTransaction>();
+        private volatile FakeTransaction _last;
+
+        public void begin() {
+            _last = new FakeTransaction();
+            _current.set(_last);
+        }
+        public void commit() {
+            _current.get()._status = Status.STATUS_COMMITTED;
+            _current.remove();
+        }
+        public void rollback() {
+            _current.get()._status = Status.STATUS_ROLLEDBACK;
+            _current.remove();
+        }
+        public int getStatus() {
+            FakeTransaction transaction = _current.get();
+            return transaction != null ? transaction.getStatus() : Status.STATUS_NO_TRANSACTION;
+        }
+        public Transaction getTransaction() {
+            return _current.get();
+        }
+        public void resume(Transaction transaction) {
+            _current.set((FakeTransaction) transaction);
+        }
+        public Transaction suspend() {
+            Transaction transaction = _current.get();
+            _current.remove();
+            return transaction;
+        }
+        public void setRollbackOnly() {
+            _current.get()._status = Status.STATUS_MARKED_ROLLBACK;
+        }
+        public void setTransactionTimeout(int seconds) {
+        }
+    }
+
+    private static final class FakeTransaction implements Transaction {
+        private volatile int _status = Status.STATUS_ACTIVE;
+
+        public int getStatus() {
+            return _status;
+        }
+        public boolean enlistResource(XAResource resource) {
+            return true;
+        }
+        public boolean delistResource(XAResource resource, int flag) {
+            return true;
+        }
+        public void registerSynchronization(Synchronization synchronization) {
+        }
+        public void commit() {
+            _status = Status.STATUS_COMMITTED;
+        }
+        public void rollback() {
+            _status = Status.STATUS_ROLLEDBACK;
+        }
+        public void setRollbackOnly() {
+            _status = Status.STATUS_MARKED_ROLLBACK;
+        }
+    }
+}
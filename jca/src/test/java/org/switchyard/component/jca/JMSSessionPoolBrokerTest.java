@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import junit.framework.Assert;
+
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.core.remoting.impl.invm.InVMConnectorFactory;
+import org.hornetq.jms.client.HornetQConnectionFactory;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.switchyard.component.jca.JMSSessionPool.PooledSession;
+import org.switchyard.component.test.mixins.hornetq.HornetQMixIn;
+import org.switchyard.component.test.mixins.naming.NamingMixIn;
+
+/**
+ * Test for {@link JMSSessionPool} against an embedded HornetQ broker, through a connection
+ * factory which allows one session per connection as the managed java:/JmsXA factory does.
+ */
+public class JMSSessionPoolBrokerTest {
+
+    private static final String QUEUE = "pooled";
+
+    private static NamingMixIn _namingMixIn;
+    private static HornetQMixIn _hornetQMixIn;
+    private static HornetQConnectionFactory _brokerFactory;
+
+    private JMSSessionPool _pool;
+
+    @BeforeClass
+    public static void startBroker() {
+        _namingMixIn = new NamingMixIn();
+        _namingMixIn.initialize();
+        _hornetQMixIn = new HornetQMixIn();
+        _hornetQMixIn.initialize();
+        _brokerFactory = new HornetQConnectionFactory(false, new TransportConfiguration(InVMConnectorFactory.class.getName()));
+    }
+
+    @AfterClass
+    public static void stopBroker() {
+        HornetQMixIn.closeJMSConnectionFactory(_brokerFactory);
+        _hornetQMixIn.uninitialize();
+        _namingMixIn.uninitialize();
+    }
+
+    @Before
+    public void setUp() {
+        _pool = new JMSSessionPool(singleSessionFactory(_brokerFactory), null, null, 2);
+    }
+
+    @After
+    public void tearDown() {
+        _pool.close();
+    }
+
+    @Test
+    public void sendsThroughConcurrentlyBorrowedSessions() throws Exception {
+        PooledSession first = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        PooledSession second = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        send(first, "first");
+        send(second, "second");
+        _pool.release(first, true);
+        _pool.release(second, true);
+        // both sessions are reused, each on its own connection
+        PooledSession reused = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        Assert.assertTrue(reused == first || reused == second);
+        send(reused, "third");
+        _pool.release(reused, true);
+        Assert.assertEquals("first", receive());
+        Assert.assertEquals("second", receive());
+        Assert.assertEquals("third", receive());
+    }
+
+    @Test
+    public void closedSessionIsReplacedWithoutClosingOthers() throws Exception {
+        PooledSession healthy = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        PooledSession failed = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        failed.getSession().close();
+        try {
+            send(failed, "lost");
+            Assert.fail("Expected the send to fail on a closed session");
+        } catch (JMSException e) {
+            Assert.assertTrue(JMSSessionPool.isConnectionFailure(e));
+            _pool.discard(failed, e);
+        }
+        // the session borrowed before the failure keeps its connection
+        send(healthy, "healthy");
+        _pool.release(healthy, true);
+        PooledSession fresh = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        Assert.assertNotSame(failed, fresh);
+        send(fresh, "fresh");
+        _pool.release(fresh, true);
+        Assert.assertEquals("healthy", receive());
+        Assert.assertEquals("fresh", receive());
+    }
+
+    private static void send(PooledSession pooled, String body) throws JMSException {
+        Session session = pooled.getSession();
+        Queue queue = session.createQueue(QUEUE);
+        pooled.getProducer(queue).send(session.createTextMessage(body));
+    }
+
+    private static String receive() throws JMSException {
+        Session session = _hornetQMixIn.getJMSSession();
+        MessageConsumer consumer = session.createConsumer(session.createQueue(QUEUE));
+        try {
+            TextMessage message = (TextMessage) consumer.receive(5000);
+            Assert.assertNotNull("No message received", message);
+            return message.getText();
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private static ConnectionFactory singleSessionFactory(final ConnectionFactory factory) {
+        return proxy(ConnectionFactory.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object result = delegate(factory, method, args);
+                return result instanceof Connection ? singleSessionConnection((Connection) result) : result;
+            }
+        });
+    }
+
+    private static Connection singleSessionConnection(final Connection connection) {
+        return proxy(Connection.class, new InvocationHandler() {
+            private boolean _sessionCreated;
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("createSession".equals(method.getName())) {
+                    if (_sessionCreated) {
+                        throw new javax.jms.IllegalStateException("Only allowed one session per connection");
+                    }
+                    _sessionCreated = true;
+                }
+                return delegate(connection, method, args);
+            }
+        });
+    }
+
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(JMSSessionPoolBrokerTest.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.component.jca.JMSSessionPool.PooledSession;
+
+/**
+ * Test for {@link JMSSessionPool}, using proxies in place of a JMS provider.
+ */
+public class JMSSessionPoolTest {
+
+    private FakeProvider _provider;
+    private JMSSessionPool _pool;
+
+    @Before
+    public void setUp() {
+        _provider = new FakeProvider();
+        _pool = new JMSSessionPool(_provider.connectionFactory(), null, null, 1);
+    }
+
+    @Test
+    public void reusesReleasedSession() throws Exception {
+        PooledSession first = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = first.getProducer(null);
+        _pool.release(first, true);
+        PooledSession second = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        Assert.assertSame(first, second);
+        Assert.assertSame(producer, second.getProducer(null));
+        Assert.assertEquals(1, _provider._connectionsCreated);
+        Assert.assertEquals(1, _provider._sessionsCreated);
+        Assert.assertEquals(1, _provider._producersCreated);
+        Assert.assertEquals(1, _provider._connectionsStarted);
+    }
+
+    @Test
+    public void createsOneSessionPerConnection() throws Exception {
+        _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        Assert.assertEquals(2, _provider._connectionsCreated);
+        Assert.assertEquals(2, _provider._sessionsCreated);
+    }
+
+    @Test
+    public void poolsSessionsPerMode() throws Exception {
+        PooledSession autoAck = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _pool.release(autoAck, true);
+        PooledSession transacted = _pool.borrow(true, Session.SESSION_TRANSACTED);
+        Assert.assertNotSame(autoAck, transacted);
+        Assert.assertSame(autoAck, _pool.borrow(false, Session.AUTO_ACKNOWLEDGE));
+    }
+
+    @Test
+    public void closesSessionsBeyondMaxIdle() throws Exception {
+        PooledSession first = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        PooledSession second = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _pool.release(first, true);
+        _pool.release(second, true);
+        Assert.assertEquals(1, _provider._connectionsClosed);
+        Assert.assertSame(first, _pool.borrow(false, Session.AUTO_ACKNOWLEDGE));
+    }
+
+    @Test
+    public void closesSessionReleasedAsNotReusable() throws Exception {
+        PooledSession session = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _pool.release(session, false);
+        Assert.assertEquals(1, _provider._connectionsClosed);
+        Assert.assertNotSame(session, _pool.borrow(false, Session.AUTO_ACKNOWLEDGE));
+    }
+
+    @Test
+    public void sessionFailureDiscardsOnlyTheSession() throws Exception {
+        PooledSession failed = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        PooledSession idle = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _pool.release(idle, true);
+        _pool.discard(failed, new JMSException("send failed"));
+        Assert.assertEquals(1, _provider._connectionsClosed);
+        Assert.assertSame(idle, _pool.borrow(false, Session.AUTO_ACKNOWLEDGE));
+        Assert.assertEquals(2, _provider._connectionsCreated);
+    }
+
+    @Test
+    public void connectionFailureDiscardsIdleSessions() throws Exception {
+        PooledSession failed = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        PooledSession idle = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _pool.release(idle, true);
+        _pool.discard(failed, new javax.jms.IllegalStateException("connection closed"));
+        Assert.assertEquals(2, _provider._connectionsClosed);
+        PooledSession fresh = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        Assert.assertNotSame(idle, fresh);
+        Assert.assertEquals(3, _provider._connectionsCreated);
+    }
+
+    @Test
+    public void staleConnectionFailureKeepsNewerSessions() throws Exception {
+        PooledSession stale = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _pool.invalidate();
+        PooledSession fresh = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _pool.release(fresh, true);
+        _pool.discard(stale, new javax.jms.IllegalStateException("connection closed"));
+        Assert.assertEquals(1, _provider._connectionsClosed);
+        Assert.assertSame(fresh, _pool.borrow(false, Session.AUTO_ACKNOWLEDGE));
+    }
+
+    @Test
+    public void exceptionListenerDiscardsOnlyItsConnection() throws Exception {
+        PooledSession failed = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        ExceptionListener listener = _provider._listener;
+        PooledSession healthy = _pool.borrow(true, Session.SESSION_TRANSACTED);
+        _pool.release(failed, true);
+        _pool.release(healthy, true);
+        listener.onException(new JMSException("connection lost"));
+        Assert.assertEquals(1, _provider._connectionsClosed);
+        Assert.assertNotSame(failed, _pool.borrow(false, Session.AUTO_ACKNOWLEDGE));
+        Assert.assertSame(healthy, _pool.borrow(true, Session.SESSION_TRANSACTED));
+    }
+
+    @Test
+    public void exceptionListenerDiscardsBorrowedSessionOnRelease() throws Exception {
+        PooledSession session = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _provider._listener.onException(new JMSException("connection lost"));
+        Assert.assertEquals(0, _provider._connectionsClosed);
+        _pool.release(session, true);
+        Assert.assertEquals(1, _provider._connectionsClosed);
+    }
+
+    @Test
+    public void sessionBorrowedBeforeInvalidateIsNotPooled() throws Exception {
+        PooledSession session = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        _pool.invalidate();
+        _pool.release(session, true);
+        Assert.assertEquals(1, _provider._connectionsClosed);
+        Assert.assertNotSame(session, _pool.borrow(false, Session.AUTO_ACKNOWLEDGE));
+    }
+
+    @Test
+    public void failedBorrowClosesItsConnection() throws Exception {
+        _provider._createSessionFailure = new javax.jms.IllegalStateException("connection closed");
+        try {
+            _pool.borrow(true, Session.SESSION_TRANSACTED);
+            Assert.fail("Expected the borrow to fail");
+        } catch (javax.jms.IllegalStateException expected) {
+            Assert.assertEquals(1, _provider._connectionsClosed);
+        }
+        _provider._createSessionFailure = null;
+        _pool.borrow(true, Session.SESSION_TRANSACTED);
+        Assert.assertEquals(2, _provider._connectionsCreated);
+    }
+
+    @Test
+    public void closeDiscardsIdleSessionsAndRejectsReleases() throws Exception {
+        PooledSession idle = _pool.borrow(false, Session.AUTO_ACKNOWLEDGE);
+        PooledSession borrowed = _pool.borrow(true, Session.SESSION_TRANSACTED);
+        _pool.release(idle, true);
+        _pool.close();
+        Assert.assertEquals(1, _provider._connectionsClosed);
+        _pool.release(borrowed, true);
+        Assert.assertEquals(2, _provider._connectionsClosed);
+    }
+
+    /**
+     * Counts what the pool does with the connections and sessions it is handed.
+     */
+    private static final class FakeProvider {
+
+        private int _connectionsCreated;
+        private int _connectionsStarted;
+        private int _connectionsClosed;
+        private int _sessionsCreated;
+        private int _producersCreated;
+        private ExceptionListener _listener;
+        private JMSException _createSessionFailure;
+
+        private ConnectionFactory connectionFactory() {
+            return proxy(ConnectionFactory.class, new Handler() {
+                Object handle(String method, Object[] args) {
+                    _connectionsCreated++;
+                    return connection();
+                }
+            });
+        }
+
+        private Connection connection() {
+            return proxy(Connection.class, new Handler() {
+                Object handle(String method, Object[] args) throws JMSException {
+                    if ("setExceptionListener".equals(method)) {
+                        _listener = (ExceptionListener)args[0];
+                    } else if ("start".equals(method)) {
+                        _connectionsStarted++;
+                    } else if ("close".equals(method)) {
+                        _connectionsClosed++;
+                    } else if ("createSession".equals(method)) {
+                        if (_createSessionFailure != null) {
+                            throw _createSessionFailure;
+                        }
+                        _sessionsCreated++;
+                        return session();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private Session session() {
+            return proxy(Session.class, new Handler() {
+                Object handle(String method, Object[] args) {
+                    if ("createProducer".equals(method)) {
+                        _producersCreated++;
+                        return proxy(MessageProducer.class, new Handler());
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private static <T> T proxy(final Class<T> type, final Handler handler) {
+            return type.cast(Proxy.newProxyInstance(JMSSessionPoolTest.class.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    } else if ("hashCode".equals(method.getName())) {
+                        return System.identityHashCode(proxy);
+                    } else if ("toString".equals(method.getName())) {
+                        return type.getSimpleName();
+                    }
+                    return handler.handle(method.getName(), args);
+                }
+            }));
+        }
+    }
+
+    private static class Handler {
+        Object handle(String method, Object[] args) throws JMSException {
+            return null;
+        }
+    }
+}
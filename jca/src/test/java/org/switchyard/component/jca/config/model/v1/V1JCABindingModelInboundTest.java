@@ -67,6 +67,10 @@ public class V1JCABindingModelInboundTest {
         Assert.assertEquals(true, jbm.getInboundInteraction().isTransacted());
         Assert.assertEquals(5, jbm.getInboundInteraction().getBatchCommit().getBatchSize());
         Assert.assertEquals(5000, jbm.getInboundInteraction().getBatchCommit().getBatchTimeout());
+        Assert.assertEquals(false, jbm.getInboundInteraction().getBatchCommit().isAdaptive());
+        Assert.assertEquals(1, jbm.getInboundInteraction().getBatchCommit().getMinBatchSize());
+        Assert.assertEquals(5, jbm.getInboundInteraction().getBatchCommit().getMaxBatchSize());
+        Assert.assertEquals(5000, jbm.getInboundInteraction().getBatchCommit().getLatencyTarget());
     }
     
 }
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca.processor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.resource.ResourceException;
+import javax.resource.cci.Connection;
+import javax.resource.cci.ConnectionFactory;
+import javax.resource.cci.Interaction;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.component.jca.processor.CCIConnectionPool.PooledConnection;
+import org.switchyard.component.jca.processor.cci.ConnectionValidator;
+
+/**
+ * Test for {@link CCIConnectionPool} and its use of a {@link ConnectionValidator},
+ * using proxies in place of a resource adapter.
+ */
+public class CCIConnectionPoolTest {
+
+    private FakeAdapter _adapter;
+
+    @Before
+    public void setUp() {
+        _adapter = new FakeAdapter();
+    }
+
+    @Test
+    public void reusesReleasedConnection() throws Exception {
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, null, 2, 0, 0);
+        PooledConnection first = pool.borrow();
+        pool.release(first, true);
+        PooledConnection second = pool.borrow();
+        Assert.assertSame(first, second);
+        Assert.assertSame(first.getInteraction(), second.getInteraction());
+        Assert.assertEquals(1, _adapter._connectionsOpened);
+        Assert.assertEquals(1, _adapter._interactionsCreated);
+    }
+
+    @Test
+    public void closesConnectionsBeyondMaxIdle() throws Exception {
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, null, 1, 0, 0);
+        PooledConnection first = pool.borrow();
+        PooledConnection second = pool.borrow();
+        pool.release(first, true);
+        pool.release(second, true);
+        Assert.assertEquals(1, _adapter._connectionsClosed);
+        Assert.assertEquals(1, _adapter._interactionsClosed);
+    }
+
+    @Test
+    public void evictsFailedConnection() throws Exception {
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, null, 2, 0, 0);
+        PooledConnection failed = pool.borrow();
+        pool.release(failed, false);
+        Assert.assertEquals(1, _adapter._connectionsClosed);
+        Assert.assertNotSame(failed, pool.borrow());
+        Assert.assertEquals(2, _adapter._connectionsOpened);
+    }
+
+    @Test
+    public void validatorDiscardsInvalidIdleConnection() throws Exception {
+        RejectingValidator validator = new RejectingValidator();
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, validator, 2, 0, 0);
+        PooledConnection stale = pool.borrow();
+        PooledConnection valid = pool.borrow();
+        pool.release(stale, true);
+        pool.release(valid, true);
+        validator._invalid.add(stale.getConnection());
+        Assert.assertSame(valid, pool.borrow());
+        Assert.assertEquals(1, _adapter._connectionsClosed);
+        Assert.assertEquals(2, validator._checked);
+    }
+
+    @Test
+    public void validatorFailureDiscardsIdleConnection() throws Exception {
+        ConnectionValidator validator = new ConnectionValidator() {
+            public boolean isValid(Connection conn, Interaction interaction) {
+                throw new IllegalStateException("validation failed");
+            }
+        };
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, validator, 2, 0, 0);
+        PooledConnection idle = pool.borrow();
+        pool.release(idle, true);
+        Assert.assertNotSame(idle, pool.borrow());
+        Assert.assertEquals(1, _adapter._connectionsClosed);
+    }
+
+    @Test
+    public void newConnectionsAreNotValidated() throws Exception {
+        RejectingValidator validator = new RejectingValidator();
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, validator, 2, 0, 0);
+        pool.borrow();
+        Assert.assertEquals(0, validator._checked);
+    }
+
+    @Test
+    public void limitsOpenConnections() throws Exception {
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, null, 1, 1, 200);
+        PooledConnection borrowed = pool.borrow();
+        long start = System.currentTimeMillis();
+        try {
+            pool.borrow();
+            Assert.fail("Expected no connection to be available");
+        } catch (ResourceException expected) {
+            Assert.assertTrue(System.currentTimeMillis() - start >= 200);
+        }
+        Assert.assertEquals(1, _adapter._connectionsOpened);
+        pool.release(borrowed, true);
+        Assert.assertSame(borrowed, pool.borrow());
+    }
+
+    @Test
+    public void waitingBorrowGetsReleasedConnection() throws Exception {
+        final CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, null, 1, 1, 5000);
+        final PooledConnection borrowed = pool.borrow();
+        Thread releaser = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                pool.release(borrowed, true);
+            }
+        });
+        releaser.start();
+        Assert.assertSame(borrowed, pool.borrow());
+        releaser.join();
+    }
+
+    @Test
+    public void evictedConnectionFreesItsSlot() throws Exception {
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, null, 1, 1, 200);
+        pool.release(pool.borrow(), false);
+        pool.borrow();
+        Assert.assertEquals(2, _adapter._connectionsOpened);
+    }
+
+    @Test
+    public void failedOpenFreesItsSlot() throws Exception {
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, null, 1, 1, 200);
+        _adapter._openFailure = new ResourceException("adapter unavailable");
+        try {
+            pool.borrow();
+            Assert.fail("Expected the borrow to fail");
+        } catch (ResourceException expected) {
+            Assert.assertEquals("adapter unavailable", expected.getMessage());
+        }
+        _adapter._openFailure = null;
+        pool.borrow();
+        Assert.assertEquals(1, _adapter._connectionsOpened);
+    }
+
+    @Test
+    public void closeClosesIdleAndLaterReleasedConnections() throws Exception {
+        CCIConnectionPool pool = new CCIConnectionPool(_adapter.connectionFactory(), null, null, 2, 0, 0);
+        PooledConnection idle = pool.borrow();
+        PooledConnection borrowed = pool.borrow();
+        pool.release(idle, true);
+        pool.close();
+        Assert.assertEquals(1, _adapter._connectionsClosed);
+        pool.release(borrowed, true);
+        Assert.assertEquals(2, _adapter._connectionsClosed);
+    }
+
+    private static final class RejectingValidator implements ConnectionValidator {
+        private final Set<Connection> _invalid = new HashSet<Connection>();
+        private int _checked;
+
+        public boolean isValid(Connection conn, Interaction interaction) {
+            _checked++;
+            return !_invalid.contains(conn);
+        }
+    }
+
+    /**
+     * Counts what the pool does with the connections and interactions it is handed.
+     */
+    private static final class FakeAdapter {
+
+        private int _connectionsOpened;
+        private int _connectionsClosed;
+        private int _interactionsCreated;
+        private int _interactionsClosed;
+        private ResourceException _openFailure;
+
+        private ConnectionFactory connectionFactory() {
+            return proxy(ConnectionFactory.class, new Handler() {
+                Object handle(String method, Object[] args) throws ResourceException {
+                    if ("getConnection".equals(method)) {
+                        if (_openFailure != null) {
+                            throw _openFailure;
+                        }
+                        _connectionsOpened++;
+                        return connection();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private Connection connection() {
+            return proxy(Connection.class, new Handler() {
+                Object handle(String method, Object[] args) {
+                    if ("createInteraction".equals(method)) {
+                        _interactionsCreated++;
+                        return interaction();
+                    } else if ("close".equals(method)) {
+                        _connectionsClosed++;
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private Interaction interaction() {
+            return proxy(Interaction.class, new Handler() {
+                Object handle(String method, Object[] args) {
+                    if ("close".equals(method)) {
+                        _interactionsClosed++;
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private static <T> T proxy(final Class<T> type, final Handler handler) {
+            return type.cast(Proxy.newProxyInstance(CCIConnectionPoolTest.class.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    } else if ("hashCode".equals(method.getName())) {
+                        return System.identityHashCode(proxy);
+                    } else if ("toString".equals(method.getName())) {
+                        return type.getSimpleName();
+                    }
+                    return handler.handle(method.getName(), args);
+                }
+            }));
+        }
+    }
+
+    private static class Handler {
+        Object handle(String method, Object[] args) throws ResourceException {
+            return null;
+        }
+    }
+}
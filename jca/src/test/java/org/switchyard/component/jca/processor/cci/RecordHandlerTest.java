@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca.processor.cci;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.resource.cci.Connection;
+import javax.resource.cci.Interaction;
+import javax.resource.cci.MappedRecord;
+import javax.resource.cci.Record;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.switchyard.Exchange;
+import org.switchyard.Message;
+import org.switchyard.component.jca.composer.MappedRecordBindingData;
+
+/**
+ * Test for the input record template of {@link RecordHandler}.
+ */
+public class RecordHandlerTest {
+
+    @Test
+    public void createsRecordsThroughFactoryByDefault() throws Exception {
+        TestHandler handler = new TestHandler(false);
+        Record first = handler.createRecord();
+        Record second = handler.createRecord();
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(2, handler._created);
+    }
+
+    @Test
+    public void clonesTemplateWhenEnabled() throws Exception {
+        TestHandler handler = new TestHandler(false);
+        handler.setCloneRecordTemplate(true);
+        MappedRecord first = (MappedRecord) handler.createRecord();
+        first.put("key", "value");
+        MappedRecord second = (MappedRecord) handler.createRecord();
+        Assert.assertNotSame(first, second);
+        Assert.assertTrue(second.isEmpty());
+        handler.createRecord();
+        // the template is created once and cloned for every record
+        Assert.assertEquals(1, handler._created);
+    }
+
+    @Test
+    public void stopsCloningRecordsSharingContent() throws Exception {
+        TestHandler handler = new TestHandler(true);
+        handler.setCloneRecordTemplate(true);
+        MappedRecord first = (MappedRecord) handler.createRecord();
+        first.put("key", "value");
+        MappedRecord second = (MappedRecord) handler.createRecord();
+        Assert.assertFalse(second.containsKey("key"));
+        MappedRecord third = (MappedRecord) handler.createRecord();
+        Assert.assertTrue(third.isEmpty());
+        Assert.assertEquals(3, handler._created);
+    }
+
+    @Test
+    public void fallsBackToFactoryWhenCloneIsNotSupported() throws Exception {
+        TestHandler handler = new TestHandler(false) {
+            @Override
+            protected Record createRecordFromFactory() {
+                _created++;
+                return new UncloneableRecord();
+            }
+        };
+        handler.setCloneRecordTemplate(true);
+        Assert.assertNotNull(handler.createRecord());
+        Assert.assertNotNull(handler.createRecord());
+        Assert.assertEquals(3, handler._created);
+    }
+
+    private static class TestHandler extends RecordHandler<MappedRecordBindingData> {
+        private final boolean _shallow;
+        int _created;
+
+        TestHandler(boolean shallow) {
+            _shallow = shallow;
+        }
+
+        @Override
+        public Message handle(Exchange exchange, Connection conn, Interaction interaction) {
+            return null;
+        }
+
+        @Override
+        protected Record createRecordFromFactory() {
+            _created++;
+            return _shallow ? new ShallowRecord(new HashMap<Object, Object>()) : new DeepRecord();
+        }
+    }
+
+    /**
+     * A record whose clone copies its entries.
+     */
+    @SuppressWarnings({"rawtypes", "serial"})
+    private static class DeepRecord extends HashMap implements MappedRecord {
+        private String _name;
+        private String _description;
+
+        public String getRecordName() {
+            return _name;
+        }
+        public void setRecordName(String name) {
+            _name = name;
+        }
+        public String getRecordShortDescription() {
+            return _description;
+        }
+        public void setRecordShortDescription(String description) {
+            _description = description;
+        }
+    }
+
+    /**
+     * A record whose clone shares its entries with the original.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static class ShallowRecord extends AbstractMap implements MappedRecord {
+        private final Map<Object, Object> _entries;
+        private String _name;
+        private String _description;
+
+        ShallowRecord(Map<Object, Object> entries) {
+            _entries = entries;
+        }
+
+        @Override
+        public Set entrySet() {
+            return _entries.entrySet();
+        }
+        @Override
+        public Object put(Object key, Object value) {
+            return _entries.put(key, value);
+        }
+        @Override
+        public Object clone() {
+            return new ShallowRecord(_entries);
+        }
+        public String getRecordName() {
+            return _name;
+        }
+        public void setRecordName(String name) {
+            _name = name;
+        }
+        public String getRecordShortDescription() {
+            return _description;
+        }
+        public void setRecordShortDescription(String description) {
+            _description = description;
+        }
+    }
+
+    /**
+     * A record which can't be cloned.
+     */
+    @SuppressWarnings("serial")
+    private static class UncloneableRecord implements Record {
+        public String getRecordName() {
+            return null;
+        }
+        public void setRecordName(String name) {
+        }
+        public String getRecordShortDescription() {
+            return null;
+        }
+        public void setRecordShortDescription(String description) {
+        }
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            throw new CloneNotSupportedException();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.jca.processor.cci;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link StreamableRecord}.
+ */
+public class StreamableRecordTest {
+
+    @Test
+    public void readsChunkedStreamFully() throws Exception {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte)i;
+        }
+        StreamableRecord record = new StreamableRecord();
+        record.read(new ChunkedInputStream(content, 1000));
+        Assert.assertEquals(content.length, record.getLength());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        record.write(out);
+        Assert.assertTrue(Arrays.equals(content, out.toByteArray()));
+        Assert.assertTrue(Arrays.equals(content, readAll(record.getInputStream())));
+    }
+
+    @Test
+    public void readsPastAvailable() throws Exception {
+        byte[] content = "content beyond what is reported as available".getBytes("UTF-8");
+        StreamableRecord record = new StreamableRecord();
+        record.read(new ByteArrayInputStream(content) {
+            @Override
+            public synchronized int available() {
+                return Math.min(super.available(), 7);
+            }
+        });
+        Assert.assertEquals(content.length, record.getLength());
+        Assert.assertTrue(Arrays.equals(content, readAll(record.getInputStream())));
+
+        record.read(new ByteArrayInputStream(content));
+        Assert.assertEquals(content.length, record.getLength());
+        Assert.assertTrue(Arrays.equals(content, readAll(record.getInputStream())));
+    }
+
+    @Test
+    public void cloneKeepsContent() throws Exception {
+        StreamableRecord record = new StreamableRecord();
+        record.setRecordName("name");
+        record.read(new ByteArrayInputStream("content".getBytes("UTF-8")));
+        StreamableRecord clone = (StreamableRecord)record.clone();
+        record.read(new ByteArrayInputStream("other".getBytes("UTF-8")));
+        Assert.assertEquals("name", clone.getRecordName());
+        Assert.assertEquals("content", new String(readAll(clone.getInputStream()), "UTF-8"));
+    }
+
+    @Test
+    public void emptyRecord() throws Exception {
+        StreamableRecord record = new StreamableRecord();
+        Assert.assertEquals(0, readAll(record.getInputStream()).length);
+        record.read(new ByteArrayInputStream(new byte[0]));
+        Assert.assertEquals(0, record.getLength());
+    }
+
+    private byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Delivers the content in small chunks and reports nothing as available,
+     * like a network stream.
+     */
+    private static class ChunkedInputStream extends FilterInputStream {
+        private final int _chunk;
+
+        ChunkedInputStream(byte[] content, int chunk) {
+            super(new ByteArrayInputStream(content));
+            _chunk = chunk;
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, _chunk));
+        }
+    }
+}
@@ -48,6 +48,21 @@ public final class RulesConstants {
     /** {urn:switchyard-component-rules:rules:1.0}dispose . */
     public static final String DISPOSE_PROPERTY = new QName(RULES_NAMESPACE, DISPOSE).toString();
 
+    /** sessionPoolSize implementation property; the number of sessions created up front for EXECUTE operations (0 creates a session per request). */
+    public static final String SESSION_POOL_SIZE = "sessionPoolSize";
+
+    /** sessionPoolWait implementation property; how long in ms an EXECUTE operation waits for a pooled session when all are in use (default 30000). */
+    public static final String SESSION_POOL_WAIT = "sessionPoolWait";
+
+    /** insertBatchSize implementation property; the number of queued INSERT and FIRE_ALL_RULES requests applied before one fireAllRules (0 applies each one under a lock). */
+    public static final String INSERT_BATCH_SIZE = "insertBatchSize";
+
+    /** insertQueueSize implementation property; the number of INSERT and FIRE_ALL_RULES requests which can be queued (default 16 batches). */
+    public static final String INSERT_QUEUE_SIZE = "insertQueueSize";
+
+    /** insertQueueWait implementation property; how long in ms a request waits for room in the insert queue, and for its completion (default 30000). */
+    public static final String INSERT_QUEUE_WAIT = "insertQueueWait";
+
     private RulesConstants() {}
 
 }
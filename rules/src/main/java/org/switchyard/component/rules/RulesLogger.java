@@ -1,6 +1,9 @@
 package org.switchyard.component.rules;
 
 import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+import org.jboss.logging.annotations.LogMessage;
+import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageLogger;
 /**
  * <p/>
@@ -15,5 +18,23 @@ public interface RulesLogger {
      */
     RulesLogger ROOT_LOGGER = Logger.getMessageLogger(RulesLogger.class, RulesLogger.class.getPackage().getName());
 
+    /**
+     * queuedOperationFailed method definition.
+     * @param serviceName serviceName
+     * @param tMessage tMessage
+     */
+    @LogMessage(level = Level.WARN)
+    @Message(id = 38400, value = "queued rules operation on %s failed: %s")
+    void queuedOperationFailed(String serviceName, String tMessage);
+
+    /**
+     * problemReplacingPooledSession method definition.
+     * @param serviceName serviceName
+     * @param tMessage tMessage
+     */
+    @LogMessage(level = Level.WARN)
+    @Message(id = 38401, value = "could not replace a failed pooled rules session of %s: %s")
+    void problemReplacingPooledSession(String serviceName, String tMessage);
+
 }
 
@@ -2,6 +2,7 @@ package org.switchyard.component.rules;
 
 import java.io.IOException;
 import org.jboss.logging.Messages;
+import org.jboss.logging.annotations.Cause;
 import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageBundle;
 import org.switchyard.HandlerException;
@@ -42,5 +43,54 @@ public interface RulesMessages {
     @Message(id = 38802, value = "Unsupported operation type: %s")
     HandlerException unsupportedOperationType(String operationType);
 
-}
+    /**
+     * interruptedWaitingForQueuedOperation method definition.
+     * @param e the InterruptedException
+     * @return HandlerException
+     */
+    @Message(id = 38803, value = "Interrupted while waiting for a queued rules operation to complete.")
+    HandlerException interruptedWaitingForQueuedOperation(@Cause InterruptedException e);
+
+    /**
+     * insertQueueStopped method definition.
+     * @param serviceName the serviceName
+     * @return IllegalStateException
+     */
+    @Message(id = 38804, value = "The rules insert queue of %s is stopped.")
+    IllegalStateException insertQueueStopped(String serviceName);
+
+    /**
+     * noPooledSessionAvailable method definition.
+     * @param sessionPoolSize the sessionPoolSize
+     * @param wait the wait
+     * @return HandlerException
+     */
+    @Message(id = 38805, value = "All %d pooled rules sessions are in use, none was released within %d ms.")
+    HandlerException noPooledSessionAvailable(int sessionPoolSize, long wait);
+
+    /**
+     * interruptedWaitingForPooledSession method definition.
+     * @param e the InterruptedException
+     * @return HandlerException
+     */
+    @Message(id = 38806, value = "Interrupted while waiting for a pooled rules session.")
+    HandlerException interruptedWaitingForPooledSession(@Cause InterruptedException e);
+
+    /**
+     * insertQueueFull method definition.
+     * @param serviceName the serviceName
+     * @param wait the wait
+     * @return HandlerException
+     */
+    @Message(id = 38807, value = "The rules insert queue of %s is full, no room was made within %d ms.")
+    HandlerException insertQueueFull(String serviceName, long wait);
+
+    /**
+     * queuedOperationTimedOut method definition.
+     * @param wait the wait
+     * @return HandlerException
+     */
+    @Message(id = 38808, value = "A queued rules operation did not complete within %d ms.")
+    HandlerException queuedOperationTimedOut(long wait);
 
+}
@@ -27,7 +27,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.xml.namespace.QName;
 
@@ -55,9 +64,12 @@ import org.switchyard.component.common.knowledge.operation.KnowledgeOperations;
 import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeEngine;
 import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeManager;
 import org.switchyard.component.rules.RulesConstants;
+import org.switchyard.component.rules.RulesLogger;
 import org.switchyard.component.rules.RulesMessages;
 import org.switchyard.component.rules.config.model.RulesComponentImplementationModel;
+import org.switchyard.component.rules.exchange.RulesSessionPool.PooledSession;
 import org.switchyard.component.rules.operation.RulesOperationType;
+import org.switchyard.config.model.property.PropertiesModel;
 
 /**
  * A "rules" implementation of a KnowledgeExchangeHandler.
@@ -68,10 +80,22 @@ public class RulesExchangeHandler extends KnowledgeExchangeHandler {
 
     private static final AtomicInteger FIRE_UNTIL_HALT_COUNT = new AtomicInteger();
     private static final KnowledgeOperation DEFAULT_OPERATION = new KnowledgeOperation(RulesOperationType.EXECUTE);
+    private static final long DEFAULT_SESSION_POOL_WAIT = 30000;
+    private static final int DEFAULT_INSERT_QUEUE_BATCHES = 16;
+    private static final long DEFAULT_INSERT_QUEUE_WAIT = 30000;
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {}
+    };
 
+    private final RulesComponentImplementationModel _model;
     private KnowledgeRuntimeManager _perRequestRuntimeManager = null;
+    private RulesSessionPool _sessionPool = null;
+    // not the handler's monitor, which the InsertQueue thread would otherwise contend for with callers and stop()
+    private final Object _singletonLock = new Object();
     private KnowledgeRuntimeManager _singletonRuntimeManager = null;
     private Thread _fireUntilHaltThread = null;
+    private InsertQueue _insertQueue = null;
 
     /**
      * Constructs a new RulesExchangeHandler with the specified model, service domain, and service name.
@@ -81,6 +105,7 @@ public class RulesExchangeHandler extends KnowledgeExchangeHandler {
      */
     public RulesExchangeHandler(RulesComponentImplementationModel model, ServiceDomain serviceDomain, QName serviceName) {
         super(model, serviceDomain, serviceName);
+        _model = model;
     }
 
     /**
@@ -89,7 +114,31 @@ public class RulesExchangeHandler extends KnowledgeExchangeHandler {
     @Override
     protected void doStart() {
         super.doStart();
-        _perRequestRuntimeManager = newPerRequestRuntimeManager();
+        int sessionPoolSize = getIntProperty(RulesConstants.SESSION_POOL_SIZE);
+        // pooled sessions are reset in memory, which a persistent session would not survive
+        if (sessionPoolSize > 0 && !_model.isPersistent()) {
+            int sessionPoolWait = getIntProperty(RulesConstants.SESSION_POOL_WAIT);
+            _sessionPool = new RulesSessionPool(getServiceName().toString(), sessionPoolSize,
+                    sessionPoolWait > 0 ? sessionPoolWait : DEFAULT_SESSION_POOL_WAIT) {
+                @Override
+                protected KnowledgeRuntimeManager newRuntimeManager() {
+                    return newSingletonRuntimeManager();
+                }
+            };
+            _sessionPool.start();
+        } else {
+            _perRequestRuntimeManager = newPerRequestRuntimeManager();
+        }
+        int insertBatchSize = getIntProperty(RulesConstants.INSERT_BATCH_SIZE);
+        if (insertBatchSize > 0) {
+            int insertQueueSize = getIntProperty(RulesConstants.INSERT_QUEUE_SIZE);
+            int insertQueueWait = getIntProperty(RulesConstants.INSERT_QUEUE_WAIT);
+            _insertQueue = new InsertQueue(insertBatchSize,
+                    insertQueueSize > 0 ? insertQueueSize : insertBatchSize * DEFAULT_INSERT_QUEUE_BATCHES,
+                    insertQueueWait > 0 ? insertQueueWait : DEFAULT_INSERT_QUEUE_WAIT,
+                    getLoader());
+            _insertQueue.startThread();
+        }
     }
 
     /**
@@ -98,7 +147,17 @@ public class RulesExchangeHandler extends KnowledgeExchangeHandler {
     @Override
     protected void doStop() {
         try {
-            _perRequestRuntimeManager.close();
+            if (_insertQueue != null) {
+                // applies what is still queued before the singleton session is disposed
+                _insertQueue.stopThread();
+                _insertQueue = null;
+            }
+            if (_sessionPool != null) {
+                _sessionPool.close();
+                _sessionPool = null;
+            } else {
+                _perRequestRuntimeManager.close();
+            }
         } finally {
             try {
                 disposeSingletonRuntimeEngine();
@@ -128,10 +187,12 @@ public class RulesExchangeHandler extends KnowledgeExchangeHandler {
         RulesOperationType operationType = (RulesOperationType)operation.getType();
         switch (operationType) {
             case EXECUTE: {
-                KnowledgeRuntimeEngine runtime = getPerRequestRuntimeEngine();
+                PooledSession pooled = _sessionPool != null ? _sessionPool.borrow() : null;
+                KnowledgeRuntimeEngine runtime = pooled != null ? pooled.getRuntimeEngine() : getPerRequestRuntimeEngine();
                 //sessionIdentifier = runtime.getSessionIdentifier();
-                setGlobals(inputMessage, operation, runtime, false);
+                boolean executed = false;
                 try {
+                    setGlobals(inputMessage, operation, runtime, false);
                     KieSession session = runtime.getKieSession();
                     if (ExchangePattern.IN_ONLY.equals(exchangePattern)) {
                         List<Object> facts = getInputList(inputMessage, operation, runtime);
@@ -156,13 +217,26 @@ public class RulesExchangeHandler extends KnowledgeExchangeHandler {
                         }
                         expressionVariables.putAll(getGlobalVariables(runtime));
                     }
+                    executed = true;
                 } finally {
-                    disposePerRequestRuntimeEngine(runtime);
+                    if (pooled != null) {
+                        _sessionPool.release(pooled, executed);
+                    } else {
+                        disposePerRequestRuntimeEngine(runtime);
+                    }
                 }
                 break;
             }
             case INSERT:
             case FIRE_ALL_RULES: {
+                if (_insertQueue != null) {
+                    Future<Map<String, Object>> completion = _insertQueue.submit(
+                            inputMessage, operation, ExchangePattern.IN_OUT.equals(exchangePattern), isDispose(exchange, inputMessage));
+                    if (ExchangePattern.IN_OUT.equals(exchangePattern)) {
+                        expressionVariables.putAll(_insertQueue.await(completion));
+                    }
+                    break;
+                }
                 KnowledgeRuntimeEngine runtime = getSingletonRuntimeEngine();
                 if (ExchangePattern.IN_OUT.equals(exchangePattern)) {
                     synchronized (this) {
@@ -241,22 +315,37 @@ public class RulesExchangeHandler extends KnowledgeExchangeHandler {
         _perRequestRuntimeManager.disposeRuntimeEngine(perRequestRuntimeEngine);
     }
 
-    private synchronized KnowledgeRuntimeEngine getSingletonRuntimeEngine() {
-        if (_singletonRuntimeManager == null) {
-            _singletonRuntimeManager = newSingletonRuntimeManager();
+    private int getIntProperty(String name) {
+        PropertiesModel properties = _model.getProperties();
+        if (properties != null) {
+            String value = Strings.trimToNull(properties.toProperties().getProperty(name));
+            if (value != null) {
+                return Integer.parseInt(value);
+            }
         }
-        return (KnowledgeRuntimeEngine)_singletonRuntimeManager.getRuntimeEngine();
+        return 0;
     }
 
-    private synchronized void disposeSingletonRuntimeEngine() {
-        if (_singletonRuntimeManager != null) {
-            try {
-                _singletonRuntimeManager.disposeRuntimeEngine(_singletonRuntimeManager.getRuntimeEngine());
-            } finally {
+    private KnowledgeRuntimeEngine getSingletonRuntimeEngine() {
+        synchronized (_singletonLock) {
+            if (_singletonRuntimeManager == null) {
+                _singletonRuntimeManager = newSingletonRuntimeManager();
+            }
+            return (KnowledgeRuntimeEngine)_singletonRuntimeManager.getRuntimeEngine();
+        }
+    }
+
+    private void disposeSingletonRuntimeEngine() {
+        synchronized (_singletonLock) {
+            if (_singletonRuntimeManager != null) {
                 try {
-                    _singletonRuntimeManager.close();
+                    _singletonRuntimeManager.disposeRuntimeEngine(_singletonRuntimeManager.getRuntimeEngine());
                 } finally {
-                    _singletonRuntimeManager = null;
+                    try {
+                        _singletonRuntimeManager.close();
+                    } finally {
+                        _singletonRuntimeManager = null;
+                    }
                 }
             }
         }
@@ -387,16 +476,241 @@ public class RulesExchangeHandler extends KnowledgeExchangeHandler {
         RulesOperationType operationType = (RulesOperationType) operation
                 .getType();
         // sessionIdentifier = runtime.getSessionIdentifier();
+        insert(inputMessage, operation, runtime);
+        if (RulesOperationType.FIRE_ALL_RULES.equals(operationType)) {
+            return runtime.getKieSession().fireAllRules();
+        }
+        return 0;
+    }
+
+    private void insert(Message inputMessage, KnowledgeOperation operation, KnowledgeRuntimeEngine runtime) {
         setGlobals(inputMessage, operation, runtime, true);
         KieSession session = runtime.getKieSession();
         List<Object> facts = getInputList(inputMessage, operation, runtime);
         for (Object fact : facts) {
             session.insert(fact);
         }
-        if (RulesOperationType.FIRE_ALL_RULES.equals(operationType)) {
-            return session.fireAllRules();
+    }
+
+    /**
+     * Applies INSERT and FIRE_ALL_RULES requests to the singleton session from a single thread,
+     * so that producers only hand their request over instead of contending for the session.
+     * The thread drains up to a batch of requests, inserts their facts in order, and fires the
+     * rules once if any of them was a FIRE_ALL_RULES. IN_ONLY requests return once queued.
+     * <p/>
+     * The globals of a request are set when its facts are inserted, so a request which maps globals
+     * first fires the rules for the requests queued before it; the rules fired for a request
+     * never see the globals of a later one. A request waits for room when the queue is full,
+     * and fails if none is made in time.
+     */
+    private final class InsertQueue implements Runnable {
+
+        private final BlockingQueue<QueuedInsert> _queue;
+        private final QueuedInsert _stop = new QueuedInsert(null, null, false, false);
+        // submitters share the read lock; stopping takes the write lock, so nothing is queued behind the stop marker
+        private final ReadWriteLock _stopLock = new ReentrantReadWriteLock();
+        private final int _batchSize;
+        private final long _wait;
+        private final ClassLoader _loader;
+        private boolean _stopped = false;
+        private Thread _thread = null;
+
+        private InsertQueue(int batchSize, int queueSize, long wait, ClassLoader loader) {
+            _queue = new LinkedBlockingQueue<QueuedInsert>(queueSize);
+            _batchSize = batchSize;
+            _wait = wait;
+            _loader = loader;
         }
-        return 0;
+
+        private Future<Map<String, Object>> submit(Message inputMessage, KnowledgeOperation operation, boolean inOut, boolean dispose)
+                throws HandlerException {
+            QueuedInsert queued = new QueuedInsert(inputMessage, operation, inOut, dispose);
+            _stopLock.readLock().lock();
+            try {
+                if (_stopped) {
+                    queued.setException(RulesMessages.MESSAGES.insertQueueStopped(getServiceName().toString()));
+                } else if (!_queue.offer(queued, _wait, TimeUnit.MILLISECONDS)) {
+                    throw RulesMessages.MESSAGES.insertQueueFull(getServiceName().toString(), _wait);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw RulesMessages.MESSAGES.interruptedWaitingForQueuedOperation(e);
+            } finally {
+                _stopLock.readLock().unlock();
+            }
+            return queued;
+        }
+
+        private Map<String, Object> await(Future<Map<String, Object>> completion) throws HandlerException {
+            try {
+                return completion.get(_wait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw RulesMessages.MESSAGES.interruptedWaitingForQueuedOperation(e);
+            } catch (TimeoutException e) {
+                // not applied any more unless the queue thread has already taken it
+                completion.cancel(false);
+                throw RulesMessages.MESSAGES.queuedOperationTimedOut(_wait);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                // the queue only completes exceptionally with RuntimeExceptions or Errors
+                throw (RuntimeException)cause;
+            }
+        }
+
+        @Override
+        public void run() {
+            ClassLoader originalLoader = Classes.setTCCL(_loader);
+            try {
+                List<QueuedInsert> batch = new ArrayList<QueuedInsert>(_batchSize);
+                boolean stop = false;
+                while (!stop) {
+                    batch.add(_queue.take());
+                    _queue.drainTo(batch, _batchSize - 1);
+                    int stopIndex = batch.indexOf(_stop);
+                    if (stopIndex >= 0) {
+                        List<QueuedInsert> late = batch.subList(stopIndex, batch.size());
+                        for (QueuedInsert queued : late) {
+                            reject(queued);
+                        }
+                        late.clear();
+                        stop = true;
+                    }
+                    if (!batch.isEmpty()) {
+                        apply(batch);
+                        batch.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // requests queued while stopping are not applied any more
+                for (QueuedInsert queued = _queue.poll(); queued != null; queued = _queue.poll()) {
+                    reject(queued);
+                }
+                Classes.setTCCL(originalLoader);
+            }
+        }
+
+        private void reject(QueuedInsert queued) {
+            if (queued != _stop) {
+                queued.setException(RulesMessages.MESSAGES.insertQueueStopped(getServiceName().toString()));
+            }
+        }
+
+        private void apply(List<QueuedInsert> batch) {
+            List<QueuedInsert> inserted = new ArrayList<QueuedInsert>(batch.size());
+            boolean fire = false;
+            boolean dispose = false;
+            try {
+                KnowledgeRuntimeEngine runtime = getSingletonRuntimeEngine();
+                for (QueuedInsert queued : batch) {
+                    if (queued.isCancelled()) {
+                        continue;
+                    }
+                    if (!inserted.isEmpty() && !queued._operation.getGlobalExpressionMappings().isEmpty()) {
+                        complete(runtime, inserted, fire);
+                        inserted.clear();
+                        fire = false;
+                    }
+                    try {
+                        insert(queued._inputMessage, queued._operation, runtime);
+                        inserted.add(queued);
+                        fire = fire || RulesOperationType.FIRE_ALL_RULES.equals(queued._operation.getType());
+                        dispose = dispose || queued._dispose;
+                    } catch (RuntimeException e) {
+                        queued.setException(e);
+                    }
+                }
+                complete(runtime, inserted, fire);
+            } catch (Throwable t) {
+                for (QueuedInsert queued : batch) {
+                    queued.setException(t);
+                }
+            } finally {
+                if (dispose) {
+                    disposeSingletonRuntimeEngine();
+                }
+            }
+        }
+
+        private void complete(KnowledgeRuntimeEngine runtime, List<QueuedInsert> inserted, boolean fire) {
+            if (fire) {
+                runtime.getKieSession().fireAllRules();
+            }
+            Map<String, Object> globalVariables = getGlobalVariables(runtime);
+            for (QueuedInsert queued : inserted) {
+                queued.set(globalVariables);
+            }
+        }
+
+        private void startThread() {
+            _thread = new Thread(this);
+            String name = new StringBuilder()
+                .append(RulesExchangeHandler.this.getClass().getSimpleName())
+                .append(':')
+                .append(getClass().getSimpleName())
+                .append(':')
+                .append(getServiceName().getLocalPart())
+                .toString();
+            _thread.setName(name);
+            _thread.setDaemon(true);
+            _thread.start();
+        }
+
+        private void stopThread() {
+            _stopLock.writeLock().lock();
+            try {
+                _stopped = true;
+                // the queue thread keeps draining, so room is made for the stop marker
+                _queue.put(_stop);
+                _thread.join();
+            } catch (InterruptedException e) {
+                _thread.interrupt();
+                Thread.currentThread().interrupt();
+            } finally {
+                _stopLock.writeLock().unlock();
+            }
+        }
+
+    }
+
+    /**
+     * A queued INSERT or FIRE_ALL_RULES request, completed with the global variables of the session.
+     */
+    private final class QueuedInsert extends FutureTask<Map<String, Object>> {
+
+        private final Message _inputMessage;
+        private final KnowledgeOperation _operation;
+        private final boolean _inOut;
+        private final boolean _dispose;
+
+        private QueuedInsert(Message inputMessage, KnowledgeOperation operation, boolean inOut, boolean dispose) {
+            super(NOOP, null);
+            _inputMessage = inputMessage;
+            _operation = operation;
+            _inOut = inOut;
+            _dispose = dispose;
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            if (!_inOut && _operation != null && !isDone()) {
+                // nobody waits for an IN_ONLY request
+                RulesLogger.ROOT_LOGGER.queuedOperationFailed(getServiceName().toString(), t.getMessage());
+            }
+            super.setException(t);
+        }
+
+        // completed by the InsertQueue instead of by running
+        @Override
+        protected void set(Map<String, Object> globalVariables) {
+            super.set(globalVariables);
+        }
+
     }
 
 }
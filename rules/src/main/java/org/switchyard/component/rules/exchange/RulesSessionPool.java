@@ -0,0 +1,247 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.rules.exchange;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.kie.api.runtime.Globals;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.EntryPoint;
+import org.kie.api.runtime.rule.FactHandle;
+import org.switchyard.HandlerException;
+import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeEngine;
+import org.switchyard.component.common.knowledge.runtime.KnowledgeRuntimeManager;
+import org.switchyard.component.rules.RulesLogger;
+import org.switchyard.component.rules.RulesMessages;
+
+/**
+ * Keeps stateful sessions for EXECUTE operations, so that a session and the channels, listeners
+ * and loggers registered on it are built once instead of on every request. A session is reset
+ * when it is released: its facts are deleted, its agenda is cleared and its globals are restored.
+ * <p/>
+ * The sessions are created when the pool is started, so requests never build one, and a request
+ * waits for a session to be released when they are all in use. A session which failed is replaced
+ * before it is disposed, so the KieBase the sessions share stays cached and is not compiled again.
+ * <p/>
+ * Every pooled session comes from its own singleton runtime manager. A per-request runtime manager
+ * hands the same engine back to a thread until that engine is disposed, so it can't feed a pool.
+ */
+abstract class RulesSessionPool {
+
+    private Logger _logger = Logger.getLogger(RulesSessionPool.class);
+    private final String _serviceName;
+    private final int _size;
+    private final long _maxWait;
+    private final BlockingQueue<PooledSession> _idle;
+    // sessions which failed and could not be replaced yet
+    private final AtomicInteger _missing = new AtomicInteger();
+    private volatile boolean _closed;
+
+    /**
+     * Constructor.
+     * @param serviceName the name of the service, for logging
+     * @param size number of sessions
+     * @param maxWait how long in ms to wait for a session when they are all in use
+     */
+    RulesSessionPool(String serviceName, int size, long maxWait) {
+        _serviceName = serviceName;
+        _size = size;
+        _maxWait = maxWait;
+        _idle = new ArrayBlockingQueue<PooledSession>(size);
+    }
+
+    /**
+     * Creates the sessions of the pool.
+     */
+    void start() {
+        boolean started = false;
+        try {
+            for (int i = 0; i < _size; i++) {
+                _idle.offer(new PooledSession(newRuntimeManager()));
+            }
+            started = true;
+        } finally {
+            if (!started) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Borrows an idle session, waiting for one to be released if they are all in use.
+     * @return the session
+     * @throws HandlerException no session was released in time
+     */
+    PooledSession borrow() throws HandlerException {
+        PooledSession pooled = _idle.poll();
+        if (pooled == null) {
+            pooled = replaceMissing();
+        }
+        if (pooled == null) {
+            try {
+                pooled = _idle.poll(_maxWait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw RulesMessages.MESSAGES.interruptedWaitingForPooledSession(e);
+            }
+            if (pooled == null) {
+                throw RulesMessages.MESSAGES.noPooledSessionAvailable(_size, _maxWait);
+            }
+        }
+        return pooled;
+    }
+
+    /**
+     * Resets a borrowed session and returns it to the pool, or replaces it if it can't be reused.
+     * @param pooled the session
+     * @param reusable false if the execution failed and the session has to be disposed
+     */
+    void release(PooledSession pooled, boolean reusable) {
+        if (_closed) {
+            pooled.dispose();
+        } else if (reusable && reset(pooled)) {
+            offer(pooled);
+        } else {
+            PooledSession replacement = null;
+            try {
+                replacement = new PooledSession(newRuntimeManager());
+            } catch (RuntimeException e) {
+                // the next borrow which finds no idle session tries again
+                _missing.incrementAndGet();
+                RulesLogger.ROOT_LOGGER.problemReplacingPooledSession(_serviceName, e.getMessage());
+            } finally {
+                pooled.dispose();
+            }
+            if (replacement != null) {
+                offer(replacement);
+            }
+        }
+    }
+
+    /**
+     * Disposes the idle sessions; sessions released afterwards are disposed as well.
+     */
+    void close() {
+        _closed = true;
+        for (PooledSession pooled = _idle.poll(); pooled != null; pooled = _idle.poll()) {
+            pooled.dispose();
+        }
+    }
+
+    /**
+     * Creates the runtime manager of a new pooled session.
+     * @return a singleton runtime manager
+     */
+    protected abstract KnowledgeRuntimeManager newRuntimeManager();
+
+    private void offer(PooledSession pooled) {
+        if (!_idle.offer(pooled)) {
+            pooled.dispose();
+        } else if (_closed && _idle.remove(pooled)) {
+            // closed while the session was being released
+            pooled.dispose();
+        }
+    }
+
+    private PooledSession replaceMissing() {
+        int missing;
+        do {
+            missing = _missing.get();
+            if (missing == 0) {
+                return null;
+            }
+        } while (!_missing.compareAndSet(missing, missing - 1));
+        boolean created = false;
+        try {
+            PooledSession pooled = new PooledSession(newRuntimeManager());
+            created = true;
+            return pooled;
+        } finally {
+            if (!created) {
+                _missing.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean reset(PooledSession pooled) {
+        try {
+            pooled.reset();
+            return true;
+        } catch (RuntimeException e) {
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("Disposing pooled rules session which could not be reset", e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A pooled session and the runtime manager it belongs to.
+     */
+    static final class PooledSession {
+        private final KnowledgeRuntimeManager _runtimeManager;
+        private final KnowledgeRuntimeEngine _runtimeEngine;
+        private final Map<String, Object> _globals = new HashMap<String, Object>();
+
+        private PooledSession(KnowledgeRuntimeManager runtimeManager) {
+            _runtimeManager = runtimeManager;
+            _runtimeEngine = (KnowledgeRuntimeEngine)runtimeManager.getRuntimeEngine();
+            Globals globals = _runtimeEngine.getSessionGlobals();
+            if (globals != null) {
+                for (String key : globals.getGlobalKeys()) {
+                    _globals.put(key, globals.get(key));
+                }
+            }
+        }
+
+        KnowledgeRuntimeEngine getRuntimeEngine() {
+            return _runtimeEngine;
+        }
+
+        private void reset() {
+            KieSession session = _runtimeEngine.getKieSession();
+            for (EntryPoint entryPoint : session.getEntryPoints()) {
+                List<FactHandle> handles = new ArrayList<FactHandle>(entryPoint.getFactHandles());
+                for (FactHandle handle : handles) {
+                    entryPoint.delete(handle);
+                }
+            }
+            session.getAgenda().clear();
+            Globals globals = _runtimeEngine.getSessionGlobals();
+            if (globals != null) {
+                List<String> keys = new ArrayList<String>(globals.getGlobalKeys());
+                for (String key : keys) {
+                    globals.set(key, _globals.get(key));
+                }
+            }
+        }
+
+        private void dispose() {
+            try {
+                _runtimeManager.disposeRuntimeEngine(_runtimeEngine);
+            } finally {
+                _runtimeManager.close();
+            }
+        }
+    }
+
+}
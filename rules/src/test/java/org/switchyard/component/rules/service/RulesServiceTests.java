@@ -15,6 +15,8 @@ package org.switchyard.component.rules.service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.activation.DataSource;
 import javax.xml.namespace.QName;
@@ -23,12 +25,16 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.switchyard.Service;
+import org.switchyard.Message;
 import org.switchyard.ServiceDomain;
 import org.switchyard.component.common.knowledge.annotation.Global;
 import org.switchyard.component.common.knowledge.annotation.Input;
 import org.switchyard.component.common.knowledge.annotation.Manifest;
+import org.switchyard.component.common.knowledge.annotation.Output;
+import org.switchyard.component.common.knowledge.annotation.Property;
 import org.switchyard.component.common.knowledge.annotation.Resource;
 import org.switchyard.component.common.knowledge.annotation.ResourceDetail;
+import org.switchyard.component.rules.RulesConstants;
 import org.switchyard.component.rules.annotation.Execute;
 import org.switchyard.component.rules.annotation.FireAllRules;
 import org.switchyard.component.rules.annotation.Insert;
@@ -37,6 +43,7 @@ import org.switchyard.component.rules.config.model.RulesComponentImplementationM
 import org.switchyard.component.rules.config.model.RulesSwitchYardScanner;
 import org.switchyard.component.rules.exchange.RulesExchangeHandler;
 import org.switchyard.extensions.java.JavaService;
+import org.switchyard.test.InvocationFaultException;
 import org.switchyard.test.Invoker;
 import org.switchyard.test.SwitchYardRunner;
 import org.switchyard.test.TestDataSource;
@@ -52,6 +59,7 @@ public class RulesServiceTests {
     private static final String ACCESS_ATTACHMENT_DRL = "org/switchyard/component/rules/service/RulesServiceTests-AccessAttachment.drl";
     private static final String DECISION_TABLE_XLS = "org/switchyard/component/rules/service/RulesServiceTests-DecisionTable.xls";
     private static final String DECLARE_FACTS_DRL = "org/switchyard/component/rules/service/RulesServiceTests-DeclareFacts.drl";
+    private static final String POOLED_SESSION_DRL = "org/switchyard/component/rules/service/RulesServiceTests-PooledSession.drl";
 
     private ServiceDomain serviceDomain;
 
@@ -132,6 +140,110 @@ public class RulesServiceTests {
         handler.stop();
     }
 
+    @Rules(manifest=@Manifest(resources=@Resource(location=DECISION_TABLE_XLS, type="DTABLE")),
+            properties=@Property(name=RulesConstants.INSERT_BATCH_SIZE, value="10"))
+    public interface QueuedInsert {
+        @Insert(globals=@Global(from="context['list']", to="list"), inputs=@Input(from="message.content"))
+        public Object insert(Object content);
+        @FireAllRules
+        public Object fireAllRules();
+    }
+
+    @Test
+    public void testQueuedInsert() throws Exception {
+        RulesComponentImplementationModel rci_model = (RulesComponentImplementationModel)new RulesSwitchYardScanner().scan(QueuedInsert.class).getImplementation();
+        QName serviceName = new QName("QueuedInsert");
+        RulesExchangeHandler handler = new RulesExchangeHandler(rci_model, serviceDomain, serviceName);
+        Service service = serviceDomain.registerService(serviceName, JavaService.fromClass(QueuedInsert.class), handler);
+        serviceDomain.registerServiceReference(service.getName(), service.getInterface(), service.getProviderHandler());
+        handler.start();
+        List<Object> list = new ArrayList<Object>();
+        Invoker invoker = new Invoker(serviceDomain, serviceName);
+        invoker.operation("insert").property("list", list).sendInOnly(new Cheese("stilton", 42));
+        invoker.operation("insert").sendInOnly(new Person("michael", "stilton", 42));
+        invoker.operation("fireAllRules").sendInOnly(null);
+        // stopping applies the requests which are still queued
+        handler.stop();
+        Assert.assertEquals(1, list.size());
+        Assert.assertEquals("Old man stilton", list.get(0));
+    }
+
+    @Rules(manifest=@Manifest(resources=@Resource(location=DECISION_TABLE_XLS, type="DTABLE")),
+            properties=@Property(name=RulesConstants.INSERT_BATCH_SIZE, value="10"))
+    public interface QueuedInsertInOut {
+        @Insert(globals=@Global(from="context['list']", to="list"), inputs=@Input(from="message.content"))
+        public Object insert(Object content);
+        @FireAllRules(outputs=@Output(from="list", to="message.content"))
+        public Object fireAllRules();
+    }
+
+    @Test
+    public void testQueuedInsertInOut() throws Exception {
+        RulesComponentImplementationModel rci_model = (RulesComponentImplementationModel)new RulesSwitchYardScanner().scan(QueuedInsertInOut.class).getImplementation();
+        QName serviceName = new QName("QueuedInsertInOut");
+        RulesExchangeHandler handler = new RulesExchangeHandler(rci_model, serviceDomain, serviceName);
+        Service service = serviceDomain.registerService(serviceName, JavaService.fromClass(QueuedInsertInOut.class), handler);
+        serviceDomain.registerServiceReference(service.getName(), service.getInterface(), service.getProviderHandler());
+        handler.start();
+        try {
+            List<Object> list = new ArrayList<Object>();
+            Invoker invoker = new Invoker(serviceDomain, serviceName);
+            invoker.operation("insert").property("list", list).sendInOut(new Cheese("stilton", 42));
+            invoker.operation("insert").sendInOut(new Person("michael", "stilton", 42));
+            // an IN_OUT request is replied to once the queue has applied it
+            Message result = invoker.operation("fireAllRules").sendInOut(null);
+            Assert.assertEquals(1, list.size());
+            Assert.assertEquals("Old man stilton", list.get(0));
+            Assert.assertSame(list, result.getContent(List.class));
+        } finally {
+            handler.stop();
+        }
+    }
+
+    @Rules(manifest=@Manifest(resources=@Resource(location=DECISION_TABLE_XLS, type="DTABLE")),
+            properties={@Property(name=RulesConstants.INSERT_BATCH_SIZE, value="10"),
+                        @Property(name=RulesConstants.INSERT_QUEUE_WAIT, value="200")})
+    public interface QueuedInsertTimeout {
+        @Insert(globals=@Global(from="context['gate'].list", to="list"), inputs=@Input(from="message.content"))
+        public Object insertThroughGate(Object content);
+        @Insert(inputs=@Input(from="message.content"))
+        public Object insert(Object content);
+        @FireAllRules(outputs=@Output(from="list", to="message.content"))
+        public Object fireAllRules();
+    }
+
+    @Test
+    public void testQueuedInsertTimeout() throws Exception {
+        RulesComponentImplementationModel rci_model = (RulesComponentImplementationModel)new RulesSwitchYardScanner().scan(QueuedInsertTimeout.class).getImplementation();
+        QName serviceName = new QName("QueuedInsertTimeout");
+        RulesExchangeHandler handler = new RulesExchangeHandler(rci_model, serviceDomain, serviceName);
+        Service service = serviceDomain.registerService(serviceName, JavaService.fromClass(QueuedInsertTimeout.class), handler);
+        serviceDomain.registerServiceReference(service.getName(), service.getInterface(), service.getProviderHandler());
+        handler.start();
+        Gate gate = new Gate();
+        try {
+            Invoker invoker = new Invoker(serviceDomain, serviceName);
+            // the queue thread waits at the gate while it maps the global of this request
+            invoker.operation("insertThroughGate").property("gate", gate).sendInOnly(new Cheese("stilton", 42));
+            long start = System.currentTimeMillis();
+            try {
+                invoker.operation("fireAllRules").sendInOut(null);
+                Assert.fail("Expected the queued fireAllRules to time out");
+            } catch (InvocationFaultException expected) {
+                Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+            }
+            gate.open();
+            // the queue carries on once the gate opens, and the timed out request is not applied
+            invoker.operation("insert").sendInOut(new Person("michael", "stilton", 42));
+            Assert.assertTrue(gate._list.isEmpty());
+            Message result = invoker.operation("fireAllRules").sendInOut(null);
+            Assert.assertEquals("Old man stilton", result.getContent(List.class).get(0));
+        } finally {
+            gate.open();
+            handler.stop();
+        }
+    }
+
     @Rules(manifest=@Manifest(resources=@Resource(location=DECLARE_FACTS_DRL, type="DRL")))
     public interface DeclareFacts {
         @Execute(inputs={
@@ -154,6 +266,44 @@ public class RulesServiceTests {
         Assert.assertEquals("handled", holder.getValue());
     }
 
+    @Rules(manifest=@Manifest(resources=@Resource(location=POOLED_SESSION_DRL, type="DRL")),
+            properties=@Property(name=RulesConstants.SESSION_POOL_SIZE, value="1"))
+    public interface PooledSession {
+        @Execute(inputs={
+            @Input(from="message.content")
+        })
+        public Object process(Object content);
+    }
+
+    @Test
+    public void testPooledSession() throws Exception {
+        final Holder first = new Holder();
+        final Holder second = new Holder();
+        RulesComponentImplementationModel rci_model = (RulesComponentImplementationModel)new RulesSwitchYardScanner().scan(PooledSession.class).getImplementation();
+        QName serviceName = new QName("PooledSession");
+        RulesExchangeHandler handler = new RulesExchangeHandler(rci_model, serviceDomain, serviceName);
+        Service service = serviceDomain.registerService(serviceName, JavaService.fromClass(PooledSession.class), handler);
+        serviceDomain.registerServiceReference(service.getName(), service.getInterface(), service.getProviderHandler());
+        handler.start();
+        Invoker invoker = new Invoker(serviceDomain, serviceName);
+        invoker.operation("process").sendInOnly(first);
+        invoker.operation("process").sendInOnly(second);
+        handler.stop();
+        // the reused session no longer holds the fact of the first request
+        Assert.assertEquals("1", first.getValue());
+        Assert.assertEquals("1", second.getValue());
+    }
+
+    public static final class Gate {
+        private final CountDownLatch _open = new CountDownLatch(1);
+        private final List<Object> _list = new ArrayList<Object>();
+        public List<Object> getList() throws InterruptedException {
+            _open.await(10, TimeUnit.SECONDS);
+            return _list;
+        }
+        public void open() { _open.countDown(); }
+    }
+
     public static final class Holder {
         private String _value;
         public String getValue() { return _value; }
@@ -19,6 +19,7 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.kie.api.KieBase;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.manager.RuntimeEngine;
 import org.switchyard.ServiceDomain;
@@ -66,6 +67,28 @@ public class RulesSessionTests {
         Assert.assertNotNull(t);
     }
 
+    @Test
+    public void testSharedKieBase() throws Exception {
+        ClassLoader loader = getClass().getClassLoader();
+        SwitchYardModel switchyardModel = _puller.pull(GOOD_RESOURCES, loader);
+        RulesComponentImplementationModel implementationModel = (RulesComponentImplementationModel)switchyardModel.getComposite().getComponents().get(0).getImplementation();
+        ServiceDomain serviceDomain = new ServiceDomainManager().createDomain();
+        KnowledgeRuntimeManager first = new KnowledgeRuntimeManagerFactory(loader, serviceDomain, new QName("first"), implementationModel)
+            .newRuntimeManager(KnowledgeRuntimeManagerType.SINGLETON);
+        KnowledgeRuntimeManager second = new KnowledgeRuntimeManagerFactory(loader, serviceDomain, new QName("second"), implementationModel)
+            .newRuntimeManager(KnowledgeRuntimeManagerType.SINGLETON);
+        KieBase firstKieBase = first.getRuntimeEngine().getKieSession().getKieBase();
+        KieBase secondKieBase = second.getRuntimeEngine().getKieSession().getKieBase();
+        Assert.assertSame(firstKieBase, secondKieBase);
+        first.close();
+        second.close();
+        // released by both services, so built again
+        KnowledgeRuntimeManager third = new KnowledgeRuntimeManagerFactory(loader, serviceDomain, new QName("third"), implementationModel)
+            .newRuntimeManager(KnowledgeRuntimeManagerType.SINGLETON);
+        Assert.assertNotSame(firstKieBase, third.getRuntimeEngine().getKieSession().getKieBase());
+        third.close();
+    }
+
     private Throwable doTestResources(String xml) {
         try {
             ClassLoader loader = getClass().getClassLoader();
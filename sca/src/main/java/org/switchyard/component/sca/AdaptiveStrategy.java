@@ -0,0 +1,232 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.sca;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+
+import org.jboss.logging.Logger;
+import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.remote.RemoteRegistry;
+import org.switchyard.remote.cluster.LoadBalanceStrategy;
+
+/**
+ * Load balancing strategy which routes on how the remote endpoints are performing.
+ * Two available endpoints are picked at random and the request goes to the one with
+ * the lower cost, computed from its in-flight request count and an exponentially
+ * weighted average of its response time ("power of two choices"). Endpoints which
+ * fail several times in a row are ejected for a while; if every endpoint is ejected,
+ * all of them are considered again rather than failing the request outright.
+ * <p/>
+ * The statistics are fed by {@link SCAClusteredInvoker} through
+ * {@link #invocationStarted(RemoteEndpoint)} and
+ * {@link #invocationCompleted(RemoteEndpoint, long, boolean)}.
+ */
+public class AdaptiveStrategy implements LoadBalanceStrategy {
+
+    /**
+     * System property for the number of consecutive failures which eject an endpoint.
+     */
+    public static final String FAILURE_THRESHOLD_PROPERTY = "org.switchyard.component.sca.adaptive.failureThreshold";
+
+    /**
+     * System property for how long an endpoint stays ejected, in milliseconds.
+     */
+    public static final String EJECTION_TIME_PROPERTY = "org.switchyard.component.sca.adaptive.ejectionTime";
+
+    /**
+     * System property for the weight of the latest sample in the response time average, between 0 and 1.
+     */
+    public static final String SMOOTHING_PROPERTY = "org.switchyard.component.sca.adaptive.smoothing";
+
+    static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    static final long DEFAULT_EJECTION_TIME = 30000;
+    static final double DEFAULT_SMOOTHING = 0.2;
+
+    private static Logger _log = Logger.getLogger(AdaptiveStrategy.class);
+
+    private final ConcurrentMap<String, EndpointStats> _stats = new ConcurrentHashMap<String, EndpointStats>();
+    private final Random _random = new Random();
+    private final int _failureThreshold;
+    private final long _ejectionNanos;
+    private final double _smoothing;
+    private RemoteRegistry _registry;
+
+    /**
+     * Create a new AdaptiveStrategy configured from system properties.
+     */
+    public AdaptiveStrategy() {
+        this(Integer.getInteger(FAILURE_THRESHOLD_PROPERTY, DEFAULT_FAILURE_THRESHOLD),
+                Long.getLong(EJECTION_TIME_PROPERTY, DEFAULT_EJECTION_TIME),
+                Double.parseDouble(System.getProperty(SMOOTHING_PROPERTY, String.valueOf(DEFAULT_SMOOTHING))));
+    }
+
+    /**
+     * Create a new AdaptiveStrategy.
+     * @param failureThreshold consecutive failures which eject an endpoint
+     * @param ejectionTime how long an endpoint stays ejected, in milliseconds
+     * @param smoothing weight of the latest sample in the response time average
+     */
+    public AdaptiveStrategy(int failureThreshold, long ejectionTime, double smoothing) {
+        _failureThreshold = failureThreshold;
+        _ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+        _smoothing = smoothing;
+    }
+
+    @Override
+    public RemoteEndpoint selectEndpoint(QName serviceName) {
+        List<RemoteEndpoint> endpoints = _registry != null ? _registry.getEndpoints(serviceName) : null;
+        if (endpoints == null || endpoints.isEmpty()) {
+            return null;
+        }
+        if (endpoints.size() == 1) {
+            return endpoints.get(0);
+        }
+
+        long now = System.nanoTime();
+        List<RemoteEndpoint> available = new ArrayList<RemoteEndpoint>(endpoints.size());
+        for (RemoteEndpoint endpoint : endpoints) {
+            if (!getStats(endpoint).isEjected(now)) {
+                available.add(endpoint);
+            }
+        }
+        if (available.isEmpty()) {
+            available = endpoints;
+        } else if (available.size() == 1) {
+            return available.get(0);
+        }
+
+        int first = _random.nextInt(available.size());
+        int second = _random.nextInt(available.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        RemoteEndpoint a = available.get(first);
+        RemoteEndpoint b = available.get(second);
+        return compare(getStats(a), getStats(b)) <= 0 ? a : b;
+    }
+
+    /**
+     * Records the start of an invocation of the specified endpoint.
+     * @param endpoint the endpoint selected by this strategy
+     */
+    public void invocationStarted(RemoteEndpoint endpoint) {
+        getStats(endpoint)._inFlight.incrementAndGet();
+    }
+
+    /**
+     * Records the end of an invocation of the specified endpoint.
+     * @param endpoint the endpoint selected by this strategy
+     * @param elapsed the response time in nanoseconds
+     * @param failed true if the endpoint could not be reached or did not answer
+     */
+    public void invocationCompleted(RemoteEndpoint endpoint, long elapsed, boolean failed) {
+        EndpointStats stats = getStats(endpoint);
+        stats._inFlight.decrementAndGet();
+        if (failed) {
+            if (stats.failed(_failureThreshold, _ejectionNanos) && _log.isDebugEnabled()) {
+                _log.debug("Ejecting remote endpoint " + endpoint.getEndpoint() + " after "
+                        + _failureThreshold + " consecutive failures");
+            }
+        } else {
+            stats.succeeded(elapsed, _smoothing);
+        }
+    }
+
+    @Override
+    public RemoteRegistry getRegistry() {
+        return _registry;
+    }
+
+    @Override
+    public void setRegistry(RemoteRegistry registry) {
+        _registry = registry;
+    }
+
+    int getInFlight(RemoteEndpoint endpoint) {
+        return getStats(endpoint)._inFlight.get();
+    }
+
+    double getResponseTime(RemoteEndpoint endpoint) {
+        return getStats(endpoint)._responseTime;
+    }
+
+    boolean isEjected(RemoteEndpoint endpoint) {
+        return getStats(endpoint).isEjected(System.nanoTime());
+    }
+
+    private EndpointStats getStats(RemoteEndpoint endpoint) {
+        // statistics are kept per node, so every service hosted by a slow node is steered away from it
+        String key = endpoint.getEndpoint();
+        EndpointStats stats = _stats.get(key);
+        if (stats == null) {
+            EndpointStats created = new EndpointStats();
+            stats = _stats.putIfAbsent(key, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    private static int compare(EndpointStats a, EndpointStats b) {
+        double timeA = a._responseTime;
+        double timeB = b._responseTime;
+        // an endpoint without samples is assumed to be as fast as its peer
+        if (timeA == 0 || timeB == 0) {
+            timeA = timeB = Math.max(timeA, timeB);
+        }
+        if (timeA == 0) {
+            return a._inFlight.get() - b._inFlight.get();
+        }
+        return Double.compare((a._inFlight.get() + 1) * timeA, (b._inFlight.get() + 1) * timeB);
+    }
+
+    private static final class EndpointStats {
+
+        private final AtomicInteger _inFlight = new AtomicInteger();
+        private volatile double _responseTime;
+        private int _failures;
+        private volatile long _ejectedUntil;
+        private volatile boolean _ejected;
+
+        private boolean isEjected(long now) {
+            return _ejected && now - _ejectedUntil < 0;
+        }
+
+        private synchronized void succeeded(long elapsed, double smoothing) {
+            _failures = 0;
+            _ejected = false;
+            _responseTime = _responseTime == 0 ? elapsed : _responseTime + smoothing * (elapsed - _responseTime);
+        }
+
+        private synchronized boolean failed(int threshold, long ejectionNanos) {
+            if (++_failures < threshold) {
+                return false;
+            }
+            // once back, a single further failure ejects the endpoint again
+            _failures = threshold - 1;
+            _ejectedUntil = System.nanoTime() + ejectionNanos;
+            _ejected = true;
+            return true;
+        }
+    }
+}
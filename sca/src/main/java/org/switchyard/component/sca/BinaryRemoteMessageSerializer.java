@@ -0,0 +1,862 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.sca;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.Context;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+import org.switchyard.common.type.Classes;
+import org.switchyard.common.xml.QNameUtil;
+import org.switchyard.metadata.ServiceOperation;
+import org.switchyard.remote.RemoteMessage;
+import org.switchyard.serial.FormatType;
+import org.switchyard.serial.Serializer;
+import org.switchyard.serial.SerializerFactory;
+
+/**
+ * Compact, type-tagged binary encoding of a {@link RemoteMessage}. Well known
+ * JDK types are written directly and anything else is carried as a JSON graph,
+ * so every payload the JSON format accepts can also be sent in binary form.
+ * <p/>
+ * Java serialization is never used. A JSON graph is only decoded into a class
+ * declared by the contract of the service the message is sent to or returned
+ * from, as named by the {@link ContractTypes} passed in; fault messages may
+ * also carry exceptions.
+ * <p/>
+ * The format is negotiated per request: a client that understands it sends
+ * {@link #ACCEPT_FORMAT_HEADER}, and the server answers with {@link #FORMAT_HEADER}
+ * once it has replied in binary. Peers which do not know the headers keep using JSON.
+ * A message carrying a class the contract does not declare is sent as JSON instead,
+ * see {@link #canEncode(RemoteMessage, ContractTypes)}.
+ * <p/>
+ * Every length read from the wire is checked against the input left and the
+ * maximum set with {@link #MAX_MESSAGE_SIZE_PROPERTY} before anything is allocated.
+ */
+public final class BinaryRemoteMessageSerializer {
+
+    /**
+     * HTTP header naming the format of the request or response body.
+     */
+    public static final String FORMAT_HEADER = "switchyard-format";
+
+    /**
+     * HTTP header listing the formats a client can read.
+     */
+    public static final String ACCEPT_FORMAT_HEADER = "switchyard-accept-format";
+
+    /**
+     * The value of the format headers for this format.
+     */
+    public static final String BINARY_FORMAT = "binary";
+
+    /**
+     * The value of the format headers for a body carrying a sequence of correlated frames.
+     */
+    public static final String MULTIPLEXED_FORMAT = "multiplexed";
+
+    /**
+     * The content type of binary bodies.
+     */
+    public static final String CONTENT_TYPE = "application/x-switchyard-binary";
+
+    /**
+     * System property for the maximum size in bytes of a binary message or frame.
+     */
+    public static final String MAX_MESSAGE_SIZE_PROPERTY = "org.switchyard.component.sca.maxMessageSize";
+
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+    private static final int MAGIC = 0x53594231; // "SYB1"
+    private static final int JSON_START = '{';
+    private static final int READ_CHUNK = 8192;
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte SHORT = 8;
+    private static final byte BYTE = 9;
+    private static final byte CHAR = 10;
+    private static final byte BYTES = 11;
+    private static final byte QNAME = 12;
+    private static final byte LIST = 13;
+    private static final byte MAP = 14;
+    private static final byte SET = 15;
+    private static final byte DATE = 16;
+    private static final byte BIG_DECIMAL = 17;
+    private static final byte BIG_INTEGER = 18;
+    // 19 carried Java serialized values and is no longer accepted
+    private static final byte GRAPH = 20;
+
+    private static final ThreadLocal<Buffer> BUFFER = new ThreadLocal<Buffer>() {
+        @Override
+        protected Buffer initialValue() {
+            return new Buffer();
+        }
+    };
+
+    private static final Set<Class<?>> PLAIN_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            String.class, Boolean.class, Integer.class, Long.class, Double.class, Float.class, Short.class,
+            Byte.class, Character.class, byte[].class, QName.class, Date.class, BigDecimal.class, BigInteger.class));
+
+    private final Serializer _graphSerializer = SerializerFactory.create(FormatType.JSON, null, true);
+
+    /**
+     * Serializes a message to the specified stream.
+     * @param message the message
+     * @param out the output stream
+     * @return the number of bytes written
+     * @throws IOException if the message could not be written
+     */
+    public int serialize(RemoteMessage message, OutputStream out) throws IOException {
+        Buffer buffer = BUFFER.get();
+        buffer.reset();
+        try {
+            writeMessage(buffer, message);
+            int size = buffer.size();
+            buffer.writeTo(out);
+            return size;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Serializes a message to a byte array.
+     * @param message the message
+     * @return the serialized message
+     * @throws IOException if the message could not be written
+     */
+    public byte[] serialize(RemoteMessage message) throws IOException {
+        Buffer buffer = BUFFER.get();
+        buffer.reset();
+        try {
+            writeMessage(buffer, message);
+            return buffer.toByteArray();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Reads a message from the specified stream.
+     * @param in the input stream
+     * @param contract names the classes the message may carry as JSON graphs
+     * @return the message
+     * @throws IOException if the message could not be read or carries a class its contract does not declare
+     */
+    public RemoteMessage deserialize(InputStream in, ContractTypes contract) throws IOException {
+        return readMessage(new Reader(in, getMaxMessageSize()), contract);
+    }
+
+    private RemoteMessage readMessage(Reader reader, ContractTypes contract) throws IOException {
+        if (reader.readInt() != MAGIC) {
+            throw SCAMessages.MESSAGES.invalidBinaryRemoteMessage();
+        }
+        RemoteMessage message = new RemoteMessage();
+        message.setDomain((QName)readValue(reader));
+        message.setService((QName)readValue(reader));
+        message.setOperation((String)readValue(reader));
+        message.setFault(reader.read() == TRUE);
+        // the service and operation are plain values, so the contract is known before any graph is read
+        reader._service = message.getService();
+        reader._fault = message.isFault();
+        reader._declaredTypes = contract.getDeclaredTypes(message.getService(), message.getOperation());
+        int properties = reader.readCount();
+        if (properties > 0) {
+            Context context = message.getContext();
+            for (int i = 0; i < properties; i++) {
+                String name = reader.readString();
+                Scope scope = Scope.valueOf(reader.readString());
+                Object value = readValue(reader);
+                int labels = reader.readCount();
+                String[] labelNames = new String[labels];
+                for (int l = 0; l < labels; l++) {
+                    labelNames[l] = reader.readString();
+                }
+                Property property = context.setProperty(name, value, scope);
+                if (labels > 0 && property != null) {
+                    property.addLabels(labelNames);
+                }
+            }
+        }
+        message.setContent(readValue(reader));
+        return message;
+    }
+
+    /**
+     * Serializes a message as a frame tagged with a correlation id. The target service
+     * is written ahead of the message so that the receiver can select the deployment
+     * class loader before decoding the content.
+     * @param correlationId the correlation id
+     * @param message the message, or null for an empty reply
+     * @return the serialized frame
+     * @throws IOException if the message could not be written
+     */
+    public byte[] serializeFrame(int correlationId, RemoteMessage message) throws IOException {
+        return serializeFrame(correlationId, message, null);
+    }
+
+    /**
+     * Serializes a message as a frame tagged with a correlation id, carrying it as JSON
+     * when it holds a class the contract does not declare.
+     * @param correlationId the correlation id
+     * @param message the message, or null for an empty reply
+     * @param contract names the classes the receiver accepts in binary form, or null to always use binary
+     * @return the serialized frame
+     * @throws IOException if the message could not be written
+     */
+    public byte[] serializeFrame(int correlationId, RemoteMessage message, ContractTypes contract) throws IOException {
+        boolean json = message != null && contract != null && !canEncode(message, contract);
+        Buffer buffer = BUFFER.get();
+        buffer.reset();
+        try {
+            buffer.writeInt(correlationId);
+            if (message == null) {
+                buffer.writeString(null);
+                buffer.writeInt(-1);
+            } else {
+                buffer.writeString(message.getService() != null ? message.getService().toString() : null);
+                int lengthOffset = buffer.size();
+                buffer.writeInt(0);
+                if (json) {
+                    _graphSerializer.serialize(message, RemoteMessage.class, buffer);
+                } else {
+                    writeMessage(buffer, message);
+                }
+                buffer.setInt(lengthOffset, buffer.size() - lengthOffset - 4);
+            }
+            return buffer.toByteArray();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Reads the next frame from the specified stream.
+     * @param in the input stream
+     * @return the frame, or null if the stream ended on a frame boundary
+     * @throws IOException if the frame could not be read
+     */
+    public static Frame readFrame(InputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        // the service name and length come ahead of the payload
+        int maxMessageSize = getMaxMessageSize();
+        Reader reader = new Reader(in, maxMessageSize > Integer.MAX_VALUE - READ_CHUNK ? Integer.MAX_VALUE : maxMessageSize + READ_CHUNK);
+        int correlationId = (first << 24) | (reader.read() << 16) | (reader.read() << 8) | reader.read();
+        String service = reader.readString();
+        int length = reader.readInt();
+        if (length > maxMessageSize) {
+            throw SCAMessages.MESSAGES.remoteMessageTooLarge(maxMessageSize);
+        }
+        return new Frame(correlationId, service != null ? QName.valueOf(service) : null,
+                length < 0 ? null : reader.readBytes(length));
+    }
+
+    /**
+     * Decodes the message carried by a frame.
+     * @param frame the frame
+     * @param contract names the classes the message may carry as JSON graphs
+     * @return the message, or null for an empty reply
+     * @throws IOException if the message could not be read or carries a class its contract does not declare
+     */
+    public RemoteMessage deserialize(Frame frame, ContractTypes contract) throws IOException {
+        byte[] payload = frame.getPayload();
+        if (payload == null) {
+            return null;
+        }
+        if (payload.length > 0 && payload[0] == JSON_START) {
+            // sent as JSON as it carries a class the sender's contract does not declare
+            return _graphSerializer.deserialize(new ByteArrayInputStream(payload), RemoteMessage.class);
+        }
+        return readMessage(new Reader(new ByteArrayInputStream(payload), payload.length), contract);
+    }
+
+    /**
+     * Checks if a message can be sent in binary form, that is if every class it carries
+     * as a JSON graph is declared by the contract. Exceptions in faults are always accepted.
+     * @param message the message
+     * @param contract names the classes the receiver accepts
+     * @return true if the message can be sent in binary form, false if it has to be sent as JSON
+     * @throws IOException if the contract could not be determined
+     */
+    public boolean canEncode(RemoteMessage message, ContractTypes contract) throws IOException {
+        Set<String> declaredTypes = contract.getDeclaredTypes(message.getService(), message.getOperation());
+        Context context = message.getContext();
+        Set<Property> properties = context != null ? context.getProperties() : null;
+        if (properties != null) {
+            for (Property property : properties) {
+                if (!canEncode(property.getValue(), declaredTypes, message.isFault())) {
+                    return false;
+                }
+            }
+        }
+        return canEncode(message.getContent(), declaredTypes, message.isFault());
+    }
+
+    private boolean canEncode(Object value, Set<String> declaredTypes, boolean fault) {
+        if (value == null || PLAIN_TYPES.contains(value.getClass())) {
+            return true;
+        }
+        Class<?> type = value.getClass();
+        if (type == ArrayList.class || type == LinkedList.class || type == HashSet.class || type == LinkedHashSet.class) {
+            for (Object element : (Collection<?>)value) {
+                if (!canEncode(element, declaredTypes, fault)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (type == HashMap.class || type == LinkedHashMap.class) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                if (!canEncode(entry.getKey(), declaredTypes, fault) || !canEncode(entry.getValue(), declaredTypes, fault)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return declaredTypes.contains(type.getName()) || (fault && value instanceof Throwable);
+    }
+
+    /**
+     * Gets the maximum size in bytes of a binary message or frame.
+     * @return the maximum size
+     */
+    public static int getMaxMessageSize() {
+        return Integer.getInteger(MAX_MESSAGE_SIZE_PROPERTY, DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    /**
+     * Collects the Java classes declared as input, output and fault types of service operations.
+     * @param operations the operations
+     * @return the class names
+     */
+    public static Set<String> getDeclaredTypes(Collection<ServiceOperation> operations) {
+        Set<String> types = new HashSet<String>();
+        for (ServiceOperation operation : operations) {
+            addDeclaredType(types, operation.getInputType());
+            addDeclaredType(types, operation.getOutputType());
+            addDeclaredType(types, operation.getFaultType());
+        }
+        return types;
+    }
+
+    private static void addDeclaredType(Set<String> types, QName messageType) {
+        if (messageType != null && QNameUtil.isJavaMessageType(messageType)) {
+            Class<?> type = QNameUtil.toJavaMessageType(messageType);
+            if (type != null) {
+                types.add(type.getName());
+            }
+        }
+    }
+
+    /**
+     * Checks if a format header value names the multiplexed frame format.
+     * @param header the header value, may be null
+     * @return true if the multiplexed format is named
+     */
+    public static boolean isMultiplexed(String header) {
+        return header != null && header.toLowerCase().contains(MULTIPLEXED_FORMAT);
+    }
+
+    /**
+     * Checks if a format header value names the binary format.
+     * @param header the header value, may be null
+     * @return true if the binary format is named
+     */
+    public static boolean isBinary(String header) {
+        return header != null && header.toLowerCase().contains(BINARY_FORMAT);
+    }
+
+    private void writeMessage(Buffer out, RemoteMessage message) throws IOException {
+        out.writeInt(MAGIC);
+        writeValue(out, message.getDomain());
+        writeValue(out, message.getService());
+        writeValue(out, message.getOperation());
+        out.write(message.isFault() ? TRUE : FALSE);
+        Context context = message.getContext();
+        Set<Property> properties = context != null ? context.getProperties() : null;
+        if (properties == null || properties.isEmpty()) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(properties.size());
+            for (Property property : properties) {
+                out.writeString(property.getName());
+                out.writeString(property.getScope().name());
+                writeValue(out, property.getValue());
+                Set<String> labels = property.getLabels();
+                if (labels == null) {
+                    out.writeVarInt(0);
+                } else {
+                    out.writeVarInt(labels.size());
+                    for (String label : labels) {
+                        out.writeString(label);
+                    }
+                }
+            }
+        }
+        writeValue(out, message.getContent());
+    }
+
+    private void writeValue(Buffer out, Object value) throws IOException {
+        if (value == null) {
+            out.write(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.write(STRING);
+            out.writeString((String)value);
+        } else if (type == Boolean.class) {
+            out.write(((Boolean)value) ? TRUE : FALSE);
+        } else if (type == Integer.class) {
+            out.write(INT);
+            out.writeVarLong((Integer)value);
+        } else if (type == Long.class) {
+            out.write(LONG);
+            out.writeVarLong((Long)value);
+        } else if (type == Double.class) {
+            out.write(DOUBLE);
+            out.writeLong(Double.doubleToLongBits((Double)value));
+        } else if (type == Float.class) {
+            out.write(FLOAT);
+            out.writeInt(Float.floatToIntBits((Float)value));
+        } else if (type == Short.class) {
+            out.write(SHORT);
+            out.writeVarLong((Short)value);
+        } else if (type == Byte.class) {
+            out.write(BYTE);
+            out.write((Byte)value);
+        } else if (type == Character.class) {
+            out.write(CHAR);
+            out.writeVarLong((Character)value);
+        } else if (type == byte[].class) {
+            byte[] bytes = (byte[])value;
+            out.write(BYTES);
+            out.writeVarInt(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        } else if (type == QName.class) {
+            QName qname = (QName)value;
+            out.write(QNAME);
+            out.writeString(qname.getNamespaceURI());
+            out.writeString(qname.getLocalPart());
+            out.writeString(qname.getPrefix());
+        } else if (type == ArrayList.class || type == LinkedList.class) {
+            out.write(LIST);
+            writeCollection(out, (Collection<?>)value);
+        } else if (type == HashSet.class || type == LinkedHashSet.class) {
+            out.write(SET);
+            writeCollection(out, (Collection<?>)value);
+        } else if (type == HashMap.class || type == LinkedHashMap.class) {
+            Map<?, ?> map = (Map<?, ?>)value;
+            out.write(MAP);
+            out.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if (type == Date.class) {
+            out.write(DATE);
+            out.writeLong(((Date)value).getTime());
+        } else if (type == BigDecimal.class) {
+            out.write(BIG_DECIMAL);
+            out.writeString(value.toString());
+        } else if (type == BigInteger.class) {
+            out.write(BIG_INTEGER);
+            out.writeString(value.toString());
+        } else {
+            out.write(GRAPH);
+            out.writeString(type.getName());
+            writeGraph(out, value, type);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void writeGraph(Buffer out, Object value, Class<T> type) throws IOException {
+        Buffer nested = new Buffer();
+        _graphSerializer.serialize((T)value, type, nested);
+        out.writeVarInt(nested.size());
+        nested.writeTo(out);
+    }
+
+    private void writeCollection(Buffer out, Collection<?> collection) throws IOException {
+        out.writeVarInt(collection.size());
+        for (Object element : collection) {
+            writeValue(out, element);
+        }
+    }
+
+    private Object readValue(Reader in) throws IOException {
+        byte tag = (byte)in.read();
+        switch (tag) {
+        case NULL:
+            return null;
+        case STRING:
+            return in.readString();
+        case TRUE:
+            return Boolean.TRUE;
+        case FALSE:
+            return Boolean.FALSE;
+        case INT:
+            return Integer.valueOf((int)in.readVarLong());
+        case LONG:
+            return Long.valueOf(in.readVarLong());
+        case DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(in.readLong()));
+        case FLOAT:
+            return Float.valueOf(Float.intBitsToFloat(in.readInt()));
+        case SHORT:
+            return Short.valueOf((short)in.readVarLong());
+        case BYTE:
+            return Byte.valueOf((byte)in.read());
+        case CHAR:
+            return Character.valueOf((char)in.readVarLong());
+        case BYTES:
+            return in.readBytes(in.readVarInt());
+        case QNAME:
+            String namespace = in.readString();
+            String localPart = in.readString();
+            return new QName(namespace, localPart, in.readString());
+        case LIST:
+            int listSize = in.readCount();
+            List<Object> list = new ArrayList<Object>(Math.min(listSize, READ_CHUNK));
+            for (int i = 0; i < listSize; i++) {
+                list.add(readValue(in));
+            }
+            return list;
+        case SET:
+            int setSize = in.readCount();
+            Set<Object> set = new LinkedHashSet<Object>();
+            for (int i = 0; i < setSize; i++) {
+                set.add(readValue(in));
+            }
+            return set;
+        case MAP:
+            int mapSize = in.readCount();
+            Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+            for (int i = 0; i < mapSize; i++) {
+                Object key = readValue(in);
+                map.put(key, readValue(in));
+            }
+            return map;
+        case DATE:
+            return new Date(in.readLong());
+        case BIG_DECIMAL:
+            return new BigDecimal(in.readString());
+        case BIG_INTEGER:
+            return new BigInteger(in.readString());
+        case GRAPH:
+            Class<?> type = loadClass(in, in.readString());
+            return _graphSerializer.deserialize(new ByteArrayInputStream(in.readBytes(in.readVarInt())), type);
+        default:
+            throw SCAMessages.MESSAGES.invalidBinaryRemoteMessage();
+        }
+    }
+
+    private static Class<?> loadClass(Reader in, String name) throws IOException {
+        if (name != null && in._declaredTypes.contains(name)) {
+            Class<?> type = Classes.forName(name, Classes.getTCCL(), BinaryRemoteMessageSerializer.class.getClassLoader());
+            if (type == null) {
+                throw new IOException(new ClassNotFoundException(name));
+            }
+            return type;
+        }
+        if (name != null && in._fault) {
+            // faults carry the exception thrown by the service; check the class without initializing it
+            Class<?> type = loadUninitialized(name, Classes.getTCCL());
+            if (type == null) {
+                type = loadUninitialized(name, BinaryRemoteMessageSerializer.class.getClassLoader());
+            }
+            if (type != null && Throwable.class.isAssignableFrom(type)) {
+                return type;
+            }
+        }
+        throw SCAMessages.MESSAGES.undeclaredRemoteType(String.valueOf(in._service), name);
+    }
+
+    private static Class<?> loadUninitialized(String name, ClassLoader loader) {
+        if (loader == null) {
+            return null;
+        }
+        try {
+            return Class.forName(name, false, loader);
+        } catch (ClassNotFoundException cnfe) {
+            return null;
+        } catch (LinkageError le) {
+            return null;
+        }
+    }
+
+    /**
+     * Names the classes a message may carry as JSON graphs.
+     */
+    public interface ContractTypes {
+
+        /**
+         * Declares no classes, so that only well known JDK types, and exceptions in faults, are accepted.
+         */
+        ContractTypes NONE = new ContractTypes() {
+            @Override
+            public Set<String> getDeclaredTypes(QName service, String operation) {
+                return Collections.emptySet();
+            }
+        };
+
+        /**
+         * Gets the names of the classes declared by the contract of a service operation.
+         * @param service the service named by the message
+         * @param operation the operation named by the message, may be null
+         * @return the class names
+         * @throws IOException if the service is unknown
+         */
+        Set<String> getDeclaredTypes(QName service, String operation) throws IOException;
+    }
+
+    /**
+     * A growable byte buffer, kept per thread and trimmed back when a large message was written.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(1024);
+        }
+
+        private void release() {
+            if (buf.length > MAX_RETAINED_BUFFER) {
+                buf = new byte[1024];
+            }
+            reset();
+        }
+
+        private void setInt(int offset, int value) {
+            buf[offset] = (byte)(value >>> 24);
+            buf[offset + 1] = (byte)(value >>> 16);
+            buf[offset + 2] = (byte)(value >>> 8);
+            buf[offset + 3] = (byte)value;
+        }
+
+        private void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        private void writeLong(long value) {
+            writeInt((int)(value >>> 32));
+            writeInt((int)value);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        private void writeVarLong(long value) {
+            // zig-zag so that small negative numbers stay small
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                write((int)((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            write((int)zigzag);
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+            } else {
+                byte[] bytes = value.getBytes(UTF8);
+                writeVarInt(bytes.length + 1);
+                write(bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    /**
+     * A message frame tagged with a correlation id; the payload is decoded lazily.
+     */
+    public static final class Frame {
+
+        private final int _correlationId;
+        private final QName _service;
+        private final byte[] _payload;
+
+        Frame(int correlationId, QName service, byte[] payload) {
+            _correlationId = correlationId;
+            _service = service;
+            _payload = payload;
+        }
+
+        /**
+         * Get the correlation id.
+         * @return the correlation id
+         */
+        public int getCorrelationId() {
+            return _correlationId;
+        }
+
+        /**
+         * Get the target service of a request frame.
+         * @return the service name, or null for a reply frame
+         */
+        public QName getService() {
+            return _service;
+        }
+
+        byte[] getPayload() {
+            return _payload;
+        }
+    }
+
+    /**
+     * Reads the primitives written by {@link Buffer}, failing once more than a limit has been read.
+     */
+    private static final class Reader {
+
+        private final InputStream _in;
+        private final int _limit;
+        private int _count;
+        private QName _service;
+        private boolean _fault;
+        private Set<String> _declaredTypes = Collections.emptySet();
+
+        private Reader(InputStream in, int limit) {
+            _in = in;
+            _limit = limit;
+        }
+
+        private int read() throws IOException {
+            if (_count >= _limit) {
+                throw SCAMessages.MESSAGES.remoteMessageTooLarge(_limit);
+            }
+            int b = _in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            _count++;
+            return b;
+        }
+
+        // every element takes at least one byte, so a count can't exceed the input left
+        private int readCount() throws IOException {
+            int count = readVarInt();
+            if (count < 0 || count > _limit - _count) {
+                throw SCAMessages.MESSAGES.invalidBinaryRemoteMessage();
+            }
+            return count;
+        }
+
+        private int readInt() throws IOException {
+            return (read() << 24) | (read() << 16) | (read() << 8) | read();
+        }
+
+        private long readLong() throws IOException {
+            return ((long)readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = read();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw SCAMessages.MESSAGES.invalidBinaryRemoteMessage();
+        }
+
+        private long readVarLong() throws IOException {
+            long zigzag = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = read();
+                zigzag |= (long)(b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw SCAMessages.MESSAGES.invalidBinaryRemoteMessage();
+        }
+
+        private byte[] readBytes(int length) throws IOException {
+            if (length < 0) {
+                throw SCAMessages.MESSAGES.invalidBinaryRemoteMessage();
+            }
+            if (length > _limit - _count) {
+                throw SCAMessages.MESSAGES.remoteMessageTooLarge(_limit);
+            }
+            // grow with the data actually received, so a bogus length can't allocate ahead of the input
+            byte[] bytes = new byte[Math.min(length, READ_CHUNK)];
+            int offset = 0;
+            while (offset < length) {
+                if (offset == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, (int)Math.min(length, 2L * bytes.length));
+                }
+                int read = _in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                offset += read;
+                _count += read;
+            }
+            return bytes;
+        }
+
+        private String readString() throws IOException {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+            return new String(readBytes(length - 1), UTF8);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.sca;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+
+import org.jboss.logging.Logger;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.ContractTypes;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.Frame;
+import org.switchyard.remote.RemoteMessage;
+
+/**
+ * Carries concurrent invocations of one remote endpoint as correlated frames.
+ * This is not a persistent channel: every batch is an ordinary HTTP POST, reusing a
+ * keep-alive connection where possible. Requests queued while all batches are in
+ * flight are sent together in the next one, and the remote servlet streams each
+ * reply back in the response as soon as it completes.
+ * <p/>
+ * The number of frames in flight is bounded rather than the number of batches:
+ * every reply frame frees a slot as it arrives, so one slow invocation does not
+ * hold back the requests queued behind its batch.
+ */
+final class MultiplexedChannel {
+
+    /**
+     * System property for the number of connections used per remote endpoint.
+     */
+    static final String CONNECTIONS_PROPERTY = "org.switchyard.component.sca.multiplex.connections";
+
+    /**
+     * System property for the maximum number of frames sent in one batch.
+     */
+    static final String MAX_BATCH_PROPERTY = "org.switchyard.component.sca.multiplex.maxBatch";
+
+    /**
+     * System property for the number of milliseconds to wait for a reply.
+     */
+    static final String TIMEOUT_PROPERTY = "org.switchyard.component.sca.multiplex.timeout";
+
+    private static final int DEFAULT_CONNECTIONS = 4;
+    private static final int DEFAULT_MAX_BATCH = 64;
+    private static final int DEFAULT_TIMEOUT = 60000;
+
+    private static Logger _log = Logger.getLogger(MultiplexedChannel.class);
+
+    private final String _endpoint;
+    private final Executor _executor;
+    private final BinaryRemoteMessageSerializer _serializer;
+    private final BlockingQueue<PendingCall> _queue = new LinkedBlockingQueue<PendingCall>();
+    private final int _maxBatch = Integer.getInteger(MAX_BATCH_PROPERTY, DEFAULT_MAX_BATCH);
+    private final Semaphore _frames = new Semaphore(Integer.getInteger(CONNECTIONS_PROPERTY, DEFAULT_CONNECTIONS) * _maxBatch);
+    private final int _timeout = Integer.getInteger(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT);
+    private final AtomicInteger _correlationIds = new AtomicInteger();
+    private volatile QName _lastService;
+
+    MultiplexedChannel(String endpoint, Executor executor, BinaryRemoteMessageSerializer serializer) {
+        _endpoint = endpoint;
+        _executor = executor;
+        _serializer = serializer;
+    }
+
+    /**
+     * Sends a request and waits for its reply.
+     * @param request the request
+     * @param replyContract names the classes the request and reply may carry in binary form
+     * @return the reply, or null if the service did not return one
+     * @throws IOException if the request failed
+     */
+    RemoteMessage invoke(RemoteMessage request, ContractTypes replyContract) throws IOException {
+        // encode and decode on the calling thread, which carries the deployment class loader
+        PendingCall call = new PendingCall(_correlationIds.incrementAndGet());
+        call._frame = _serializer.serializeFrame(call._id, request, replyContract);
+        _lastService = request.getService();
+        _queue.add(call);
+        schedule();
+        Frame reply;
+        try {
+            reply = call.await(_timeout);
+        } catch (SocketTimeoutException stEx) {
+            // a request still queued is never sent; one in flight frees its slot when the batch ends
+            _queue.remove(call);
+            throw SCAMessages.MESSAGES.multiplexedReplyTimeout(_endpoint, _timeout);
+        }
+        return _serializer.deserialize(reply, replyContract);
+    }
+
+    /**
+     * Gets the service of the most recent request sent through this channel.
+     * @return the service name, or null if no request was sent yet
+     */
+    QName getLastService() {
+        return _lastService;
+    }
+
+    private void schedule() {
+        // each batch starts with one slot taken here and claims more for the frames it drains
+        while (!_queue.isEmpty() && _frames.tryAcquire()) {
+            try {
+                _executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        sendBatch();
+                    }
+                });
+            } catch (RuntimeException rejected) {
+                _frames.release();
+                failQueued(new IOException(rejected));
+                return;
+            }
+        }
+    }
+
+    private void sendBatch() {
+        Map<Integer, PendingCall> inFlight = new HashMap<Integer, PendingCall>();
+        List<PendingCall> batch = new ArrayList<PendingCall>();
+        PendingCall first = _queue.poll();
+        if (first == null) {
+            _frames.release();
+            schedule();
+            return;
+        }
+        batch.add(first);
+        while (batch.size() < _maxBatch && _frames.tryAcquire()) {
+            PendingCall call = _queue.poll();
+            if (call == null) {
+                _frames.release();
+                break;
+            }
+            batch.add(call);
+        }
+        int length = 0;
+        for (PendingCall call : batch) {
+            inFlight.put(call._id, call);
+            length += call._frame.length;
+        }
+        try {
+            HttpURLConnection conn = (HttpURLConnection)new URL(_endpoint).openConnection();
+            conn.setDoOutput(true);
+            conn.setRequestMethod("POST");
+            conn.setFixedLengthStreamingMode(length);
+            // a stalled endpoint must eventually give the slots of its batch back
+            conn.setReadTimeout(_timeout);
+            conn.setRequestProperty("Content-Type", BinaryRemoteMessageSerializer.CONTENT_TYPE);
+            conn.addRequestProperty(BinaryRemoteMessageSerializer.FORMAT_HEADER, BinaryRemoteMessageSerializer.MULTIPLEXED_FORMAT);
+            OutputStream os = conn.getOutputStream();
+            try {
+                for (PendingCall call : batch) {
+                    os.write(call._frame);
+                }
+                os.flush();
+            } finally {
+                os.close();
+            }
+
+            int status = conn.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw SCAMessages.MESSAGES.unexpectedRemoteResponseStatus(status, _endpoint);
+            }
+            // replies arrive in completion order; reading to the end lets the connection be reused
+            InputStream is = conn.getInputStream();
+            try {
+                Frame reply;
+                while ((reply = BinaryRemoteMessageSerializer.readFrame(is)) != null) {
+                    PendingCall call = inFlight.remove(reply.getCorrelationId());
+                    if (call != null) {
+                        finish(call, reply, null);
+                    }
+                }
+            } finally {
+                is.close();
+            }
+            if (!inFlight.isEmpty()) {
+                throw SCAMessages.MESSAGES.missingMultiplexedReplies(_endpoint, inFlight.size());
+            }
+        } catch (IOException ioEx) {
+            fail(inFlight.values(), ioEx);
+        } catch (RuntimeException rtEx) {
+            fail(inFlight.values(), new IOException(rtEx));
+        }
+    }
+
+    // completes a call that was sent, freeing its slot for the requests still queued
+    private void finish(PendingCall call, Frame reply, IOException failure) {
+        call.complete(reply, failure);
+        _frames.release();
+        schedule();
+    }
+
+    private void fail(Collection<PendingCall> calls, IOException failure) {
+        if (_log.isDebugEnabled()) {
+            _log.debug("Multiplexed request to " + _endpoint + " failed", failure);
+        }
+        for (PendingCall call : new ArrayList<PendingCall>(calls)) {
+            finish(call, null, failure);
+        }
+    }
+
+    private void failQueued(IOException failure) {
+        List<PendingCall> calls = new ArrayList<PendingCall>();
+        _queue.drainTo(calls);
+        for (PendingCall call : calls) {
+            call.complete(null, failure);
+        }
+    }
+
+    private static final class PendingCall {
+
+        private final int _id;
+        private final CountDownLatch _done = new CountDownLatch(1);
+        private byte[] _frame;
+        private volatile Frame _reply;
+        private volatile IOException _failure;
+
+        private PendingCall(int id) {
+            _id = id;
+        }
+
+        private void complete(Frame reply, IOException failure) {
+            _reply = reply;
+            _failure = failure;
+            _done.countDown();
+        }
+
+        private Frame await(long timeout) throws IOException {
+            try {
+                if (!_done.await(timeout, TimeUnit.MILLISECONDS)) {
+                    throw new SocketTimeoutException();
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (_failure != null) {
+                throw new IOException(_failure);
+            }
+            return _reply;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.sca;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.namespace.QName;
+
+import org.jboss.logging.Logger;
+import org.switchyard.Context;
+import org.switchyard.Property;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.ContractTypes;
+import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.remote.RemoteMessage;
+import org.switchyard.remote.RemoteRegistry;
+import org.switchyard.remote.cluster.ClusteredInvoker;
+import org.switchyard.remote.cluster.LoadBalanceStrategy;
+import org.switchyard.remote.cluster.RoundRobinStrategy;
+import org.switchyard.remote.http.HttpInvoker;
+import org.switchyard.remote.http.HttpInvokerLabel;
+import org.switchyard.serial.FormatType;
+import org.switchyard.serial.Serializer;
+import org.switchyard.serial.SerializerFactory;
+
+/**
+ * Clustered invoker which negotiates the wire format with each remote endpoint.
+ * The binary format is opt-in, see {@link #BINARY_PROPERTY}. When enabled, requests
+ * are sent as JSON, announcing that a binary reply can be read; once an endpoint
+ * answers in the binary format, later requests to it are sent in binary too.
+ * Endpoints which never answer in binary keep receiving JSON, and so do messages
+ * carrying classes the service contract does not declare, as well as invocations
+ * through {@link #invoke(RemoteMessage)}, which has no contract to check against.
+ * <p/>
+ * When multiplexing is enabled with {@link #MULTIPLEX_PROPERTY} and an endpoint also
+ * accepts the multiplexed format, requests which do not carry HTTP headers are sent
+ * through a {@link MultiplexedChannel}. It batches the requests queued at the same time
+ * into one HTTP POST, so a few keep-alive connections carry many invocations.
+ */
+public class SCAClusteredInvoker extends ClusteredInvoker {
+
+    /**
+     * System property to enable the binary format.
+     */
+    public static final String BINARY_PROPERTY = "org.switchyard.component.sca.binary";
+
+    /**
+     * System property to enable multiplexed invocations, which requires the binary format.
+     * Defaults to false.
+     */
+    public static final String MULTIPLEX_PROPERTY = "org.switchyard.component.sca.multiplex";
+
+    private static Logger _log = Logger.getLogger(SCAClusteredInvoker.class);
+
+    private static final long CHANNEL_SWEEP_INTERVAL = 30000;
+
+    private final RemoteRegistry _registry;
+    private final LoadBalanceStrategy _loadBalancer;
+    private final ConcurrentMap<String, Boolean> _binaryEndpoints = new ConcurrentHashMap<String, Boolean>();
+    private final ConcurrentMap<String, MultiplexedChannel> _channels = new ConcurrentHashMap<String, MultiplexedChannel>();
+    private final boolean _binary = Boolean.getBoolean(BINARY_PROPERTY);
+    private final boolean _multiplex = Boolean.getBoolean(MULTIPLEX_PROPERTY);
+    private Serializer _serializer = SerializerFactory.create(FormatType.JSON, null, true);
+    private BinaryRemoteMessageSerializer _binarySerializer = new BinaryRemoteMessageSerializer();
+    private final AtomicLong _nextChannelSweep = new AtomicLong();
+    private ExecutorService _channelExecutor;
+
+    /**
+     * Create a new SCAClusteredInvoker with the default load balancing strategy.
+     * @param registry registry of remote services
+     */
+    public SCAClusteredInvoker(RemoteRegistry registry) {
+        this(registry, new RoundRobinStrategy());
+    }
+
+    /**
+     * Create a new SCAClusteredInvoker with the specified load balancing strategy.
+     * @param registry registry of remote services
+     * @param loadBalancer load balancing strategy
+     */
+    public SCAClusteredInvoker(RemoteRegistry registry, LoadBalanceStrategy loadBalancer) {
+        super(registry, loadBalancer);
+        _registry = registry;
+        _loadBalancer = loadBalancer;
+        _loadBalancer.setRegistry(registry);
+    }
+
+    @Override
+    public RemoteMessage invoke(RemoteMessage request) throws IOException {
+        // without a contract a binary reply could only carry JDK types, so stick to JSON
+        return invoke(request, null);
+    }
+
+    /**
+     * Invokes a remote service, accepting only the classes declared by the caller's contract in
+     * a binary reply.
+     * @param request the request
+     * @param replyContract names the classes the request and reply may carry in binary form, or null to use JSON
+     * @return the reply, or null if the service did not return one
+     * @throws IOException if the invocation failed
+     */
+    public RemoteMessage invoke(RemoteMessage request, ContractTypes replyContract) throws IOException {
+        sweepChannels();
+        RemoteEndpoint endpoint = _loadBalancer.selectEndpoint(request.getService());
+        if (endpoint == null) {
+            throw SCAMessages.MESSAGES.noRemoteEndpointAvailable(String.valueOf(request.getService()));
+        }
+        if (!(_loadBalancer instanceof AdaptiveStrategy)) {
+            return invoke(endpoint.getEndpoint(), request, replyContract);
+        }
+
+        // feed the response time and outcome back to the strategy
+        AdaptiveStrategy adaptive = (AdaptiveStrategy)_loadBalancer;
+        adaptive.invocationStarted(endpoint);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            RemoteMessage reply = invoke(endpoint.getEndpoint(), request, replyContract);
+            failed = false;
+            return reply;
+        } finally {
+            adaptive.invocationCompleted(endpoint, System.nanoTime() - start, failed);
+        }
+    }
+
+    RemoteMessage invoke(String endpoint, RemoteMessage request, ContractTypes replyContract) throws IOException {
+        boolean negotiate = _binary && replyContract != null;
+        MultiplexedChannel channel = negotiate ? _channels.get(endpoint) : null;
+        if (channel != null && !hasHeaders(request.getContext())) {
+            try {
+                return channel.invoke(request, replyContract);
+            } catch (IOException ioEx) {
+                // negotiate again on the next invocation, in case the endpoint has gone away
+                evict(endpoint, channel);
+                throw ioEx;
+            }
+        }
+        boolean binary = negotiate && _binaryEndpoints.containsKey(endpoint) && _binarySerializer.canEncode(request, replyContract);
+        HttpURLConnection conn = (HttpURLConnection)new URL(endpoint).openConnection();
+        conn.setDoOutput(true);
+        conn.setRequestMethod("POST");
+        conn.addRequestProperty(HttpInvoker.SERVICE_HEADER, request.getService().toString());
+        if (negotiate) {
+            conn.addRequestProperty(BinaryRemoteMessageSerializer.ACCEPT_FORMAT_HEADER, BinaryRemoteMessageSerializer.BINARY_FORMAT);
+        }
+        if (binary) {
+            conn.addRequestProperty(BinaryRemoteMessageSerializer.FORMAT_HEADER, BinaryRemoteMessageSerializer.BINARY_FORMAT);
+            conn.setRequestProperty("Content-Type", BinaryRemoteMessageSerializer.CONTENT_TYPE);
+        }
+        addHeaders(conn, request.getContext());
+
+        OutputStream os = conn.getOutputStream();
+        try {
+            if (binary) {
+                _binarySerializer.serialize(request, os);
+            } else {
+                _serializer.serialize(request, RemoteMessage.class, os);
+            }
+            os.flush();
+        } finally {
+            os.close();
+        }
+
+        int status = conn.getResponseCode();
+        boolean binaryReply = negotiate && BinaryRemoteMessageSerializer.isBinary(conn.getHeaderField(BinaryRemoteMessageSerializer.FORMAT_HEADER));
+        if (binaryReply && !binary && _binaryEndpoints.putIfAbsent(endpoint, Boolean.TRUE) == null && _log.isDebugEnabled()) {
+            _log.debug("Switching to binary format for remote endpoint " + endpoint);
+        }
+        if (binaryReply && _multiplex && !_channels.containsKey(endpoint)
+                && BinaryRemoteMessageSerializer.isMultiplexed(conn.getHeaderField(BinaryRemoteMessageSerializer.ACCEPT_FORMAT_HEADER))
+                && _channels.putIfAbsent(endpoint, new MultiplexedChannel(endpoint, getChannelExecutor(), _binarySerializer)) == null
+                && _log.isDebugEnabled()) {
+            _log.debug("Switching to multiplexed invocations for remote endpoint " + endpoint);
+        }
+        if (status == HttpURLConnection.HTTP_NO_CONTENT) {
+            return null;
+        } else if (status != HttpURLConnection.HTTP_OK) {
+            discard(conn.getErrorStream());
+            throw SCAMessages.MESSAGES.unexpectedRemoteResponseStatus(status, endpoint);
+        }
+
+        InputStream is = conn.getInputStream();
+        try {
+            return binaryReply
+                    ? _binarySerializer.deserialize(is, replyContract)
+                    : _serializer.deserialize(is, RemoteMessage.class);
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Stops the multiplexed channels. Batches already sent are left to complete, and
+     * new channels are opened when the invoker is used again.
+     */
+    public void stop() {
+        _channels.clear();
+        ExecutorService executor;
+        synchronized (this) {
+            executor = _channelExecutor;
+            _channelExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private synchronized ExecutorService getChannelExecutor() {
+        if (_channelExecutor == null) {
+            _channelExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger _count = new AtomicInteger();
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "sca-multiplex:" + _count.incrementAndGet());
+                    thread.setDaemon(true);
+                    // frames are encoded and decoded by the callers, so workers keep no deployment loader
+                    thread.setContextClassLoader(SCAClusteredInvoker.class.getClassLoader());
+                    return thread;
+                }
+            });
+        }
+        return _channelExecutor;
+    }
+
+    // drops the channels of endpoints which are no longer registered for the service they last served
+    private void sweepChannels() {
+        long now = System.currentTimeMillis();
+        long next = _nextChannelSweep.get();
+        if (_channels.isEmpty() || now < next || !_nextChannelSweep.compareAndSet(next, now + CHANNEL_SWEEP_INTERVAL)) {
+            return;
+        }
+        for (Map.Entry<String, MultiplexedChannel> entry : _channels.entrySet()) {
+            QName service = entry.getValue().getLastService();
+            if (service != null && !isRegistered(entry.getKey(), service)) {
+                evict(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private boolean isRegistered(String endpoint, QName service) {
+        List<RemoteEndpoint> endpoints = _registry != null ? _registry.getEndpoints(service) : null;
+        if (endpoints != null) {
+            for (RemoteEndpoint registered : endpoints) {
+                if (endpoint.equals(registered.getEndpoint())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void evict(String endpoint, MultiplexedChannel channel) {
+        if (_channels.remove(endpoint, channel)) {
+            _binaryEndpoints.remove(endpoint);
+            if (_log.isDebugEnabled()) {
+                _log.debug("Dropped multiplexed channel to remote endpoint " + endpoint);
+            }
+        }
+    }
+
+    // consuming the error body keeps the connection eligible for keep-alive reuse
+    private void discard(InputStream is) {
+        if (is == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[1024];
+            while (is.read(buffer) >= 0) {
+                continue;
+            }
+            is.close();
+        } catch (IOException ioEx) {
+            if (_log.isDebugEnabled()) {
+                _log.debug("Failed to read error response", ioEx);
+            }
+        }
+    }
+
+    private boolean hasHeaders(Context context) {
+        return context != null && !context.getProperties(HttpInvokerLabel.HEADER.label()).isEmpty();
+    }
+
+    private void addHeaders(HttpURLConnection conn, Context context) {
+        if (context == null) {
+            return;
+        }
+        Set<Property> headers = context.getProperties(HttpInvokerLabel.HEADER.label());
+        for (Property header : headers) {
+            if (header.getValue() != null) {
+                conn.addRequestProperty(header.getName(), header.getValue().toString());
+            }
+        }
+    }
+}
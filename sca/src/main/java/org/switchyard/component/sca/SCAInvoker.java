@@ -13,6 +13,9 @@
  */
 package org.switchyard.component.sca;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import javax.transaction.Transaction;
 import javax.xml.namespace.QName;
 
@@ -20,21 +23,26 @@ import org.jboss.jbossts.txbridge.outbound.OutboundBridge;
 import org.jboss.jbossts.txbridge.outbound.OutboundBridgeManager;
 import org.jboss.logging.Logger;
 import org.oasis_open.docs.ws_tx.wscoor._2006._06.CoordinationContextType;
+import org.switchyard.BaseHandler;
 import org.switchyard.Context;
 import org.switchyard.Exchange;
+import org.switchyard.ExchangeHandler;
 import org.switchyard.ExchangePattern;
 import org.switchyard.ExchangeState;
 import org.switchyard.HandlerException;
 import org.switchyard.Message;
+import org.switchyard.Property;
 import org.switchyard.Scope;
 import org.switchyard.ServiceReference;
 import org.switchyard.SwitchYardException;
 import org.switchyard.common.type.Classes;
 import org.switchyard.component.common.SynchronousInOutHandler;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.ContractTypes;
 import org.switchyard.config.model.composite.SCABindingModel;
 import org.switchyard.deploy.BaseServiceHandler;
 import org.switchyard.deploy.internal.Deployment;
 import org.switchyard.label.BehaviorLabel;
+import org.switchyard.metadata.ServiceOperation;
 import org.switchyard.remote.RemoteMessage;
 import org.switchyard.remote.RemoteRegistry;
 import org.switchyard.remote.cluster.ClusteredInvoker;
@@ -54,6 +62,8 @@ public class SCAInvoker extends BaseServiceHandler {
     
     private static Logger _log = Logger.getLogger(SCAInvoker.class);
     
+    private static final ExchangeHandler IN_ONLY_HANDLER = new BaseHandler();
+    
     private final String _bindingName;
     private final String _referenceName;
     private final String _targetService;
@@ -62,6 +72,7 @@ public class SCAInvoker extends BaseServiceHandler {
     private ClusteredInvoker _invoker;
     private boolean _preferLocal;
     private boolean _disableRemoteTransaction = false;
+    private boolean _localPassThrough = false;
     private TransactionContextSerializer _txSerializer = new TransactionContextSerializer();
     
     /**
@@ -86,9 +97,9 @@ public class SCAInvoker extends BaseServiceHandler {
         this(config);
         if (config.isLoadBalanced()) {
             LoadBalanceStrategy loadBalancer = createLoadBalancer(config.getLoadBalance());
-            _invoker = new ClusteredInvoker(registry, loadBalancer);
+            _invoker = new SCAClusteredInvoker(registry, loadBalancer);
         } else {
-            _invoker = new ClusteredInvoker(registry);
+            _invoker = new SCAClusteredInvoker(registry);
         }
     }
     
@@ -135,6 +146,25 @@ public class SCAInvoker extends BaseServiceHandler {
         return this;
     }
     
+    /**
+     * Set if local invocations should hand the message content to the target service
+     * by reference instead of copying it.  Only properties carrying a label are propagated
+     * in this mode, so it should only be enabled for immutable payload types.
+     * @param passThrough true to pass the content through without copying
+     * @return this SCAInvoker instance (useful for method chaining)
+     */
+    public SCAInvoker setLocalPassThrough(boolean passThrough) {
+        _localPassThrough = passThrough;
+        return this;
+    }
+    
+    @Override
+    protected void doStop() {
+        if (_invoker instanceof SCAClusteredInvoker) {
+            ((SCAClusteredInvoker)_invoker).stop();
+        }
+    }
+    
     // This method exists for test purposes and should not be used at runtime.  Initialization
     // of the invoker instance occurs in the constructor for SCAInvoker.
     void setInvoker(ClusteredInvoker invoker) {
@@ -142,20 +172,34 @@ public class SCAInvoker extends BaseServiceHandler {
     }
     
     private void invokeLocal(Exchange exchange, ServiceReference targetRef) throws HandlerException {
-        SynchronousInOutHandler replyHandler = new SynchronousInOutHandler();
-        Exchange ex = targetRef.createExchange(exchange.getContract().getProviderOperation().getName(), replyHandler);
+        String operationName = exchange.getContract().getProviderOperation().getName();
+        // in-only invocations report faults through the exchange state, so they need no reply handler
+        SynchronousInOutHandler replyHandler = null;
+        if (!_localPassThrough || isInOut(targetRef, operationName)) {
+            replyHandler = new SynchronousInOutHandler();
+        }
+        Exchange ex = targetRef.createExchange(operationName, replyHandler != null ? replyHandler : IN_ONLY_HANDLER);
         
-        // Can't send same message twice, so make a copy
-        Message invokeMsg = exchange.getMessage().copy();
-        exchange.getContext().mergeInto(invokeMsg.getContext());
+        Message invokeMsg;
+        if (_localPassThrough) {
+            invokeMsg = ex.createMessage().setContent(exchange.getMessage().getContent());
+            copyLabelledProperties(exchange.getContext(), invokeMsg.getContext());
+        } else {
+            // Can't send same message twice, so make a copy
+            invokeMsg = exchange.getMessage().copy();
+            exchange.getContext().mergeInto(invokeMsg.getContext());
+        }
         
         // Since this invocation may cross application boundaries, we need to set the TCCL 
         // based on the target service's application class loader
         ClassLoader origCL = null;
+        ClassLoader targetCL = (ClassLoader) 
+                targetRef.getDomain().getProperty(Deployment.CLASSLOADER_PROPERTY);
+        boolean switchTCCL = targetCL != Classes.getTCCL();
         try {
-            ClassLoader targetCL = (ClassLoader) 
-                    targetRef.getDomain().getProperty(Deployment.CLASSLOADER_PROPERTY);
-            origCL = Classes.setTCCL(targetCL);
+            if (switchTCCL) {
+                origCL = Classes.setTCCL(targetCL);
+            }
             ex.send(invokeMsg);
         } finally {
             if (origCL != null) {
@@ -166,8 +210,14 @@ public class SCAInvoker extends BaseServiceHandler {
         if (ExchangePattern.IN_OUT.equals(ex.getPattern())) {
             replyHandler.waitForOut();
             if (ex.getMessage() != null) {
-                Message replyMsg = ex.getMessage().copy();
-                ex.getContext().mergeInto(replyMsg.getContext());
+                Message replyMsg;
+                if (_localPassThrough) {
+                    replyMsg = exchange.createMessage().setContent(ex.getMessage().getContent());
+                    copyLabelledProperties(ex.getContext(), replyMsg.getContext());
+                } else {
+                    replyMsg = ex.getMessage().copy();
+                    ex.getContext().mergeInto(replyMsg.getContext());
+                }
                 if (ExchangeState.FAULT.equals(ex.getState())) {
                     exchange.sendFault(replyMsg);
                 } else {
@@ -180,6 +230,39 @@ public class SCAInvoker extends BaseServiceHandler {
         }
     }
     
+    private static boolean isInOut(ServiceReference targetRef, String operationName) {
+        ServiceOperation operation = targetRef.getInterface().getOperation(operationName);
+        // let the exchange resolve unknown operations as it always does
+        return operation == null || ExchangePattern.IN_OUT.equals(operation.getExchangePattern());
+    }
+    
+    private static void copyLabelledProperties(Context from, Context to) {
+        for (Property property : from.getProperties()) {
+            Set<String> labels = property.getLabels();
+            if (labels != null && !labels.isEmpty() && !labels.contains(BehaviorLabel.TRANSIENT.label())) {
+                Property copy = to.setProperty(property.getName(), property.getValue(), property.getScope());
+                // null when the target context refuses the property (e.g. a null value)
+                if (copy != null) {
+                    copy.addLabels(labels.toArray(new String[labels.size()]));
+                }
+            }
+        }
+    }
+    
+    // a binary reply may only carry the classes declared by either side of the exchange contract
+    private ContractTypes replyContract(Exchange exchange) {
+        Set<ServiceOperation> operations = new HashSet<ServiceOperation>();
+        operations.add(exchange.getContract().getConsumerOperation());
+        operations.add(exchange.getContract().getProviderOperation());
+        final Set<String> declaredTypes = BinaryRemoteMessageSerializer.getDeclaredTypes(operations);
+        return new ContractTypes() {
+            @Override
+            public Set<String> getDeclaredTypes(QName service, String operation) {
+                return declaredTypes;
+            }
+        };
+    }
+
     private void invokeRemote(Exchange exchange, QName serviceName) throws HandlerException {
         
         RemoteMessage request = new RemoteMessage()
@@ -191,7 +274,9 @@ public class SCAInvoker extends BaseServiceHandler {
         boolean transactionPropagated = bridgeOutgoingTransaction(request);
 
         try {
-            RemoteMessage reply = _invoker.invoke(request);
+            RemoteMessage reply = _invoker instanceof SCAClusteredInvoker
+                    ? ((SCAClusteredInvoker)_invoker).invoke(request, replyContract(exchange))
+                    : _invoker.invoke(request);
             if (transactionPropagated) {
                 bridgeIncomingTransaction();
             }
@@ -317,6 +402,8 @@ public class SCAInvoker extends BaseServiceHandler {
             return new RoundRobinStrategy();
         } else if (RandomStrategy.class.getSimpleName().equals(strategy)) {
             return new RandomStrategy();
+        } else if (AdaptiveStrategy.class.getSimpleName().equals(strategy)) {
+            return new AdaptiveStrategy();
         } else {
             try {
                 Class<?> strategyClass = Class.forName(strategy);
@@ -73,5 +73,13 @@ public interface SCALogger {
     @Message(id = 39206, value = "Transaction context was received through remote SCA invocation, but remote transaction bridging is disabled on this node. Ignoring.")
     void ignoringReceivedTransactionContext();
 
+    /**
+     * remoteInvocationReplyTimedOut method definition.
+     * @param pending the number of invocations without reply
+     */
+    @LogMessage(level = Level.WARN)
+    @Message(id = 39207, value = "Timed out waiting for the reply to %d remote SCA invocation(s).")
+    void remoteInvocationReplyTimedOut(long pending);
+
 }
 
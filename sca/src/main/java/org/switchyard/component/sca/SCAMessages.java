@@ -1,5 +1,7 @@
 package org.switchyard.component.sca;
 
+import java.io.IOException;
+
 import org.jboss.logging.Cause;
 import org.jboss.logging.Messages;
 import org.jboss.logging.annotations.Message;
@@ -91,5 +93,63 @@ public interface SCAMessages {
      */
     @Message(id = 39609, value = "Runtime fault occurred without exception details!")
     HandlerException runtimeFaultOccurredWithoutExceptionDetails();
-}
 
+    /**
+     * invalidBinaryRemoteMessage method definition.
+     * @return IOException
+     */
+    @Message(id = 39610, value = "Invalid or unsupported binary remote message")
+    IOException invalidBinaryRemoteMessage();
+
+    /**
+     * noRemoteEndpointAvailable method definition.
+     * @param service the service
+     * @return IOException
+     */
+    @Message(id = 39611, value = "No remote endpoint available for service %s")
+    IOException noRemoteEndpointAvailable(String service);
+
+    /**
+     * unexpectedRemoteResponseStatus method definition.
+     * @param status the HTTP status
+     * @param endpoint the endpoint
+     * @return IOException
+     */
+    @Message(id = 39612, value = "Unexpected HTTP status %d returned by remote endpoint %s")
+    IOException unexpectedRemoteResponseStatus(int status, String endpoint);
+
+    /**
+     * missingMultiplexedReplies method definition.
+     * @param endpoint the endpoint
+     * @param missing the number of requests without reply
+     * @return IOException
+     */
+    @Message(id = 39613, value = "Remote endpoint %s ended the response without replying to %d requests")
+    IOException missingMultiplexedReplies(String endpoint, int missing);
+
+    /**
+     * undeclaredRemoteType method definition.
+     * @param service the service
+     * @param type the class name
+     * @return IOException
+     */
+    @Message(id = 39614, value = "Remote message for service %s carries type %s, which is not declared by the service contract")
+    IOException undeclaredRemoteType(String service, String type);
+
+    /**
+     * multiplexedReplyTimeout method definition.
+     * @param endpoint the endpoint
+     * @param timeout the timeout in milliseconds
+     * @return IOException
+     */
+    @Message(id = 39615, value = "Remote endpoint %s did not reply within %d ms")
+    IOException multiplexedReplyTimeout(String endpoint, int timeout);
+
+    /**
+     * remoteMessageTooLarge method definition.
+     * @param maxSize the maximum size in bytes
+     * @return IOException
+     */
+    @Message(id = 39616, value = "Binary remote message exceeds the maximum size of %d bytes")
+    IOException remoteMessageTooLarge(int maxSize);
+}
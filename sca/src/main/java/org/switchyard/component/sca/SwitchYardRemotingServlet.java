@@ -15,8 +15,15 @@
 package org.switchyard.component.sca;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -28,6 +35,7 @@ import org.jboss.jbossts.txbridge.inbound.InboundBridge;
 import org.jboss.jbossts.txbridge.inbound.InboundBridgeManager;
 import org.oasis_open.docs.ws_tx.wscoor._2006._06.CoordinationContextType;
 import org.switchyard.Exchange;
+import org.switchyard.ExchangeHandler;
 import org.switchyard.ExchangePattern;
 import org.switchyard.ExchangeState;
 import org.switchyard.Message;
@@ -35,8 +43,11 @@ import org.switchyard.ServiceDomain;
 import org.switchyard.ServiceReference;
 import org.switchyard.SwitchYardException;
 import org.switchyard.common.type.Classes;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.ContractTypes;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.Frame;
 import org.switchyard.component.common.SynchronousInOutHandler;
 import org.switchyard.deploy.internal.Deployment;
+import org.switchyard.metadata.ServiceOperation;
 import org.switchyard.remote.RemoteMessage;
 import org.switchyard.remote.http.HttpInvoker;
 import org.switchyard.serial.FormatType;
@@ -49,13 +60,22 @@ import com.arjuna.mwlabs.wst11.at.context.TxContextImple;
 
 /**
  * HTTP servlet which handles inbound remote communication for remote service endpoints.
+ * <p/>
+ * When the container supports it, replies are completed asynchronously so that no
+ * container thread is held while the target service runs.  The frames of a batch
+ * POSTed by a {@link MultiplexedChannel} are sent to their services one after the
+ * other as they are read; services which complete asynchronously run in parallel,
+ * and the replies are streamed back in completion order.
  */
 public class SwitchYardRemotingServlet extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
     private static Logger _log = Logger.getLogger(SwitchYardRemotingServlet.class);
+    private static final String ACCEPTED_FORMATS =
+            BinaryRemoteMessageSerializer.BINARY_FORMAT + ", " + BinaryRemoteMessageSerializer.MULTIPLEXED_FORMAT;
     
     private Serializer _serializer = SerializerFactory.create(FormatType.JSON, null, true);
+    private BinaryRemoteMessageSerializer _binarySerializer = new BinaryRemoteMessageSerializer();
     private TransactionContextSerializer _txSerializer = new TransactionContextSerializer();
     private RemoteEndpointPublisher _endpointPublisher;
 
@@ -63,8 +83,19 @@ public class SwitchYardRemotingServlet extends HttpServlet {
      * {@inheritDoc}
      */
     public void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        if (BinaryRemoteMessageSerializer.isMultiplexed(request.getHeader(BinaryRemoteMessageSerializer.FORMAT_HEADER))) {
+            doPostFrames(request, response);
+            return;
+        }
+
         ClassLoader setTCCL = null;
         boolean transactionPropagated = false;
+        // reply in the compact format when the client sent it or announced that it can read it
+        boolean binaryRequest = BinaryRemoteMessageSerializer.isBinary(request.getHeader(BinaryRemoteMessageSerializer.FORMAT_HEADER));
+        boolean binaryReply = binaryRequest
+                || BinaryRemoteMessageSerializer.isBinary(request.getHeader(BinaryRemoteMessageSerializer.ACCEPT_FORMAT_HEADER));
+        AsyncReplyHandler asyncReply = null;
+        ContractTypes contract = null;
         
         try {
             // Grab the right service domain based on the service header
@@ -72,29 +103,40 @@ public class SwitchYardRemotingServlet extends HttpServlet {
             // Set our TCCL to the domain's deployment loader
             ClassLoader loader = (ClassLoader) domain.getProperty(Deployment.CLASSLOADER_PROPERTY);
             setTCCL = Classes.setTCCL(loader);
+            contract = new ReferenceContractTypes(domain);
             
             transactionPropagated = bridgeIncomingTransaction(request);
 
-            RemoteMessage msg = _serializer.deserialize(request.getInputStream(), RemoteMessage.class);
+            RemoteMessage msg;
+            try {
+                msg = binaryRequest
+                        ? _binarySerializer.deserialize(request.getInputStream(), contract)
+                        : _serializer.deserialize(request.getInputStream(), RemoteMessage.class);
+            } catch (IOException ioEx) {
+                // a request which can't be decoded is answered with a fault like any other failure
+                throw new SwitchYardException(ioEx);
+            }
             if (_log.isDebugEnabled()) {
                 _log.debug("Remote servlet received request for service " + msg.getService());
             }
             
-            ServiceReference service = domain.getServiceReference(msg.getService());
-            SynchronousInOutHandler replyHandler = new SynchronousInOutHandler();
-            Exchange ex = msg.getOperation() == null
-                    ? service.createExchange(replyHandler)
-                    : service.createExchange(msg.getOperation(), replyHandler);
-            Message m = ex.createMessage();
-            if (msg.getContext() != null) {
-                m.getContext().setProperties(msg.getContext().getProperties());
-            }
-            m.setContent(msg.getContent());
+            // The bridged transaction is bound to this thread, so only requests without
+            // one release the container thread while the service is running.
+            SynchronousInOutHandler replyHandler = null;
+            if (!transactionPropagated && request.isAsyncSupported()) {
+                asyncReply = new AsyncReplyHandler(request, binaryReply, contract);
+            } else {
+                replyHandler = new SynchronousInOutHandler();
+            }
+            Exchange ex = send(domain, msg, asyncReply != null ? asyncReply : replyHandler);
             
-            if (_log.isDebugEnabled()) {
-                _log.debug("Invoking service " + msg.getService());
+            if (asyncReply != null) {
+                // IN_OUT replies are written by the handler once the service completes
+                if (!ExchangePattern.IN_OUT.equals(ex.getPattern())) {
+                    asyncReply.reply(ExchangeState.FAULT.equals(ex.getState()) ? createReplyMessage(ex) : null);
+                }
+                return;
             }
-            ex.send(m);
             
             // handle reply or fault
             RemoteMessage reply = null;
@@ -110,30 +152,23 @@ public class SwitchYardRemotingServlet extends HttpServlet {
                 transactionPropagated = false;
             }
 
-            // If there's a reply, send it back
-            if (reply != null) {
-                OutputStream out = response.getOutputStream();
-                if (_log.isDebugEnabled()) {
-                    _log.debug("Writing reply message to HTTP response stream " + msg.getService());
-                }
-                _serializer.serialize(reply, RemoteMessage.class, out);
-                out.flush();
-            } else {
-                response.setStatus(HttpServletResponse.SC_NO_CONTENT);
-                if (_log.isDebugEnabled()) {
-                    _log.debug("No content to return for invocation of " + msg.getService());
-                }
+            if (_log.isDebugEnabled()) {
+                _log.debug(reply != null
+                        ? "Writing reply message to HTTP response stream " + msg.getService()
+                        : "No content to return for invocation of " + msg.getService());
             }
+            writeReply(reply, response, binaryReply, contract);
         } catch (SwitchYardException syEx) {
             if (_log.isDebugEnabled()) {
                 _log.debug("Failed to process remote invocation", syEx);
             }
 
-            RemoteMessage reply = new RemoteMessage();
-            reply.setFault(true);
-            reply.setContent(syEx);
-            _serializer.serialize(reply, RemoteMessage.class, response.getOutputStream());
-            response.getOutputStream().flush();
+            RemoteMessage reply = createFaultMessage(syEx);
+            if (asyncReply != null) {
+                asyncReply.reply(reply);
+            } else {
+                writeReply(reply, response, binaryReply, contract);
+            }
         } finally {
             if (transactionPropagated) {
                 bridgeOutgoingTransaction();
@@ -145,6 +180,113 @@ public class SwitchYardRemotingServlet extends HttpServlet {
         }
     }
     
+    // Handles a batch of correlated request frames sent by a MultiplexedChannel.  Every
+    // frame is dispatched as soon as it has been read, so only one frame of the body is held
+    // in memory, and its reply frame is streamed back when it completes.  Frames larger than
+    // BinaryRemoteMessageSerializer.getMaxMessageSize() end the batch.
+    private void doPostFrames(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(BinaryRemoteMessageSerializer.FORMAT_HEADER, BinaryRemoteMessageSerializer.MULTIPLEXED_FORMAT);
+        response.setContentType(BinaryRemoteMessageSerializer.CONTENT_TYPE);
+        FrameReplyWriter writer = new FrameReplyWriter(request, response);
+        InputStream in = request.getInputStream();
+        int frames = 0;
+        try {
+            for (Frame frame = BinaryRemoteMessageSerializer.readFrame(in); frame != null; frame = BinaryRemoteMessageSerializer.readFrame(in)) {
+                frames++;
+                writer.dispatched();
+                dispatchFrame(frame, writer);
+            }
+        } catch (IOException ioEx) {
+            // the client fails the requests which did not get a reply frame
+            if (_log.isDebugEnabled()) {
+                _log.debug("Failed to read multiplexed request frame " + (frames + 1), ioEx);
+            }
+        } finally {
+            writer.allDispatched();
+        }
+        if (_log.isDebugEnabled()) {
+            _log.debug("Remote servlet received " + frames + " multiplexed requests");
+        }
+        writer.awaitIfSynchronous();
+    }
+    
+    private void dispatchFrame(Frame frame, FrameReplyWriter writer) {
+        FrameReplyHandler handler = new FrameReplyHandler(frame.getCorrelationId(), writer);
+        ClassLoader setTCCL = null;
+        try {
+            ServiceDomain domain = findDomain(frame.getService() != null ? frame.getService().toString() : null);
+            setTCCL = Classes.setTCCL((ClassLoader) domain.getProperty(Deployment.CLASSLOADER_PROPERTY));
+            handler._contract = new ReferenceContractTypes(domain);
+            RemoteMessage msg = _binarySerializer.deserialize(frame, handler._contract);
+            Exchange ex = send(domain, msg, handler);
+            if (!ExchangePattern.IN_OUT.equals(ex.getPattern())) {
+                handler.reply(ExchangeState.FAULT.equals(ex.getState()) ? createReplyMessage(ex) : null);
+            }
+        } catch (IOException ioEx) {
+            handler.reply(createFaultMessage(new SwitchYardException(ioEx)));
+        } catch (RuntimeException rtEx) {
+            // a failing frame must not hold up the replies to the rest of the batch
+            if (_log.isDebugEnabled()) {
+                _log.debug("Failed to process multiplexed remote invocation", rtEx);
+            }
+            handler.reply(createFaultMessage(rtEx));
+        } finally {
+            if (setTCCL != null) {
+                Classes.setTCCL(setTCCL);
+            }
+        }
+    }
+    
+    private Exchange send(ServiceDomain domain, RemoteMessage msg, ExchangeHandler replyHandler) {
+        ServiceReference service = domain.getServiceReference(msg.getService());
+        Exchange ex = msg.getOperation() == null
+                ? service.createExchange(replyHandler)
+                : service.createExchange(msg.getOperation(), replyHandler);
+        Message m = ex.createMessage();
+        if (msg.getContext() != null) {
+            m.getContext().setProperties(msg.getContext().getProperties());
+        }
+        m.setContent(msg.getContent());
+        
+        if (_log.isDebugEnabled()) {
+            _log.debug("Invoking service " + msg.getService());
+        }
+        ex.send(m);
+        return ex;
+    }
+    
+    private void writeReply(RemoteMessage reply, HttpServletResponse response, boolean binaryAccepted,
+            ContractTypes contract) throws IOException {
+        // a reply carrying a class the contract does not declare can't be read in binary by the client
+        boolean binary = binaryAccepted
+                && (reply == null || contract == null || _binarySerializer.canEncode(reply, contract));
+        if (binaryAccepted) {
+            response.setHeader(BinaryRemoteMessageSerializer.ACCEPT_FORMAT_HEADER, ACCEPTED_FORMATS);
+        }
+        if (binary) {
+            response.setHeader(BinaryRemoteMessageSerializer.FORMAT_HEADER, BinaryRemoteMessageSerializer.BINARY_FORMAT);
+        }
+        if (reply == null) {
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        if (binary) {
+            response.setContentType(BinaryRemoteMessageSerializer.CONTENT_TYPE);
+            _binarySerializer.serialize(reply, out);
+        } else {
+            _serializer.serialize(reply, RemoteMessage.class, out);
+        }
+        out.flush();
+    }
+    
+    private RemoteMessage createFaultMessage(Exception cause) {
+        RemoteMessage reply = new RemoteMessage();
+        reply.setFault(true);
+        reply.setContent(cause);
+        return reply;
+    }
+    
     private boolean bridgeIncomingTransaction(HttpServletRequest request) {
         try {
             // extract WS-AT transaction context from response header and resume it
@@ -199,8 +341,11 @@ public class SwitchYardRemotingServlet extends HttpServlet {
     }
     
     private ServiceDomain findDomain(HttpServletRequest request) throws SwitchYardException {
+        return findDomain(request.getHeader(HttpInvoker.SERVICE_HEADER));
+    }
+    
+    private ServiceDomain findDomain(String service) throws SwitchYardException {
         ServiceDomain domain = null;
-        String service = request.getHeader(HttpInvoker.SERVICE_HEADER);
         
         if (service == null || service.trim().length() == 0) {
             throw SCAMessages.MESSAGES.requiredHeaderIsMissingOrEmpty(HttpInvoker.SERVICE_HEADER);
@@ -236,5 +381,235 @@ public class SwitchYardRemotingServlet extends HttpServlet {
         }
         return reply;
     }
+    
+    /**
+     * Writes the reply of a remote invocation exactly once, whichever of the exchange
+     * handler callbacks, the in-only completion or an error path gets there first.
+     */
+    private abstract class RemoteReplyHandler implements ExchangeHandler {
+        
+        private final AtomicBoolean _replied = new AtomicBoolean();
+        
+        @Override
+        public void handleMessage(Exchange exchange) {
+            reply(createReplyMessage(exchange));
+        }
+        
+        @Override
+        public void handleFault(Exchange exchange) {
+            reply(createReplyMessage(exchange));
+        }
+        
+        void reply(RemoteMessage reply) {
+            if (claim()) {
+                doReply(reply);
+            }
+        }
+        
+        boolean claim() {
+            return _replied.compareAndSet(false, true);
+        }
+        
+        abstract void doReply(RemoteMessage reply);
+    }
+    
+    /**
+     * Completes a single remote invocation through the servlet async context.
+     */
+    private final class AsyncReplyHandler extends RemoteReplyHandler implements AsyncListener {
+        
+        private final AsyncContext _context;
+        private final boolean _binary;
+        private final ContractTypes _contract;
+        
+        private AsyncReplyHandler(HttpServletRequest request, boolean binary, ContractTypes contract) {
+            _binary = binary;
+            _contract = contract;
+            _context = request.startAsync();
+            _context.setTimeout(SynchronousInOutHandler.DEFAULT_TIMEOUT);
+            _context.addListener(this);
+        }
+        
+        @Override
+        void doReply(RemoteMessage reply) {
+            try {
+                writeReply(reply, (HttpServletResponse) _context.getResponse(), _binary, _contract);
+            } catch (IOException ioEx) {
+                if (_log.isDebugEnabled()) {
+                    _log.debug("Failed to write reply of remote invocation", ioEx);
+                }
+            } finally {
+                _context.complete();
+            }
+        }
+        
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            if (claim()) {
+                SCALogger.ROOT_LOGGER.remoteInvocationReplyTimedOut(1);
+                ((HttpServletResponse) event.getSuppliedResponse()).sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                _context.complete();
+            }
+        }
+        
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+        
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+        
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+    
+    /**
+     * Replies to one frame of a multiplexed batch.
+     */
+    private final class FrameReplyHandler extends RemoteReplyHandler {
+        
+        private final int _correlationId;
+        private final FrameReplyWriter _writer;
+        // set once the target domain is known; replies are sent in binary until then
+        private volatile ContractTypes _contract;
+        
+        private FrameReplyHandler(int correlationId, FrameReplyWriter writer) {
+            _correlationId = correlationId;
+            _writer = writer;
+        }
+        
+        @Override
+        void doReply(RemoteMessage reply) {
+            _writer.write(_correlationId, reply, _contract);
+        }
+    }
+    
+    /**
+     * Streams the reply frames of a multiplexed batch in completion order and ends the
+     * response once every frame read from the request has been answered.
+     */
+    private final class FrameReplyWriter implements AsyncListener {
+        
+        private final HttpServletResponse _response;
+        private final AsyncContext _context;
+        private int _pending;
+        private boolean _allDispatched;
+        private boolean _closed;
+        
+        private FrameReplyWriter(HttpServletRequest request, HttpServletResponse response) {
+            _response = response;
+            if (request.isAsyncSupported()) {
+                _context = request.startAsync();
+                _context.setTimeout(SynchronousInOutHandler.DEFAULT_TIMEOUT);
+                _context.addListener(this);
+            } else {
+                _context = null;
+            }
+        }
+        
+        synchronized void dispatched() {
+            _pending++;
+        }
+        
+        synchronized void allDispatched() {
+            _allDispatched = true;
+            completeIfDone();
+        }
+        
+        synchronized void write(int correlationId, RemoteMessage reply, ContractTypes contract) {
+            if (_closed) {
+                return;
+            }
+            try {
+                OutputStream out = _response.getOutputStream();
+                out.write(_binarySerializer.serializeFrame(correlationId, reply, contract));
+                // push each reply out as soon as it is ready instead of at the end of the batch
+                out.flush();
+            } catch (IOException ioEx) {
+                if (_log.isDebugEnabled()) {
+                    _log.debug("Failed to write reply frame " + correlationId, ioEx);
+                }
+            }
+            _pending--;
+            completeIfDone();
+        }
+        
+        private void completeIfDone() {
+            if (_allDispatched && _pending == 0 && !_closed) {
+                _closed = true;
+                if (_context != null) {
+                    _context.complete();
+                }
+                notifyAll();
+            }
+        }
+        
+        synchronized void awaitIfSynchronous() {
+            if (_context != null) {
+                return;
+            }
+            long deadline = System.currentTimeMillis() + SynchronousInOutHandler.DEFAULT_TIMEOUT;
+            try {
+                long remaining;
+                while (!_closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    wait(remaining);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            if (!_closed) {
+                SCALogger.ROOT_LOGGER.remoteInvocationReplyTimedOut(_pending);
+                _closed = true;
+            }
+        }
+        
+        @Override
+        public synchronized void onTimeout(AsyncEvent event) {
+            if (!_closed) {
+                // the client fails the requests which did not get a reply frame
+                SCALogger.ROOT_LOGGER.remoteInvocationReplyTimedOut(_pending);
+                _closed = true;
+                _context.complete();
+            }
+        }
+        
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+        
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+        
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * Limits the classes a request may carry to those declared by the service it targets.
+     */
+    private static final class ReferenceContractTypes implements ContractTypes {
+
+        private final ServiceDomain _domain;
+
+        private ReferenceContractTypes(ServiceDomain domain) {
+            _domain = domain;
+        }
+
+        @Override
+        public Set<String> getDeclaredTypes(QName service, String operation) {
+            ServiceReference reference = service != null ? _domain.getServiceReference(service) : null;
+            if (reference == null) {
+                return Collections.emptySet();
+            }
+            ServiceOperation declared = operation != null ? reference.getInterface().getOperation(operation) : null;
+            return BinaryRemoteMessageSerializer.getDeclaredTypes(declared != null
+                    ? Collections.singleton(declared)
+                    : reference.getInterface().getOperations());
+        }
+    }
 
 }
@@ -39,6 +39,7 @@ public class SCAActivator extends BaseActivator {
     private RemoteRegistry _registry;
     private RemoteEndpointPublisher _endpointPublisher;
     private boolean _disableRemoteTransaction = false;
+    private boolean _localPassThrough = false;
 
     /**
      * Create a new RemoteActivator.
@@ -72,7 +73,8 @@ public class SCAActivator extends BaseActivator {
                 throw SCAMessages.MESSAGES.invalidSCABindingForReferenceTargetServiceOrNamespaceMustBeSpecified();
             }
             return new SCAInvoker(scab, _registry)
-                        .setDisableRemoteTransaction(_disableRemoteTransaction);
+                        .setDisableRemoteTransaction(_disableRemoteTransaction)
+                        .setLocalPassThrough(_localPassThrough);
         }
     }
 
@@ -104,4 +106,12 @@ public class SCAActivator extends BaseActivator {
     public void setDisableRemoteTransaction(boolean disable) {
         _disableRemoteTransaction = disable;
     }
+    
+    /**
+     * Set if local invocations should pass the message content through without copying.
+     * @param passThrough if true, local invocations share the content with the target service
+     */
+    public void setLocalPassThrough(boolean passThrough) {
+        _localPassThrough = passThrough;
+    }
 }
@@ -45,12 +45,14 @@ public class SCAComponent extends BaseComponent {
     private static final String CACHE_CONFIG_PROPERTY = "cache-config";
     private static final String JGROUPS_CONFIG_PROPERTY = "jgroups-config";
     private static final String DISABLE_REMOTE_TRANSACTION_PROPERTY = "disable-remote-transaction";
+    private static final String LOCAL_PASS_THROUGH_PROPERTY = "local-pass-through";
 
     private Logger _log = Logger.getLogger(SCAComponent.class);
     private RemoteEndpointPublisher _endpointPublisher;
     private String _cacheName;
     private Cache<String, String> _cache;
     private boolean _disableRemoteTransaction = false;
+    private boolean _localPassThrough = false;
 
     /**
      * Default constructor.
@@ -89,6 +91,11 @@ public class SCAComponent extends BaseComponent {
         if (bridgeRemoteTxConfig != null) {
             _disableRemoteTransaction = Boolean.parseBoolean(bridgeRemoteTxConfig.getValue());
         }
+        
+        Configuration localPassThroughConfig = environment.getFirstChild(LOCAL_PASS_THROUGH_PROPERTY);
+        if (localPassThroughConfig != null) {
+            _localPassThrough = Boolean.parseBoolean(localPassThroughConfig.getValue());
+        }
     }
     
     @Override
@@ -104,6 +111,7 @@ public class SCAComponent extends BaseComponent {
         activator.setServiceDomain(domain);
         activator.setEndpointPublisher(_endpointPublisher);
         activator.setDisableRemoteTransaction(_disableRemoteTransaction);
+        activator.setLocalPassThrough(_localPassThrough);
         return activator;
     }
 
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.sca;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.remote.RemoteRegistry;
+
+public class AdaptiveStrategyTest {
+
+    private static final QName SERVICE = new QName("urn:test", "Service");
+
+    private RemoteEndpoint fast;
+    private RemoteEndpoint slow;
+    private AdaptiveStrategy strategy;
+
+    @Before
+    public void setUp() {
+        fast = createEndpoint("http://fast:8080/switchyard-remote");
+        slow = createEndpoint("http://slow:8080/switchyard-remote");
+        RemoteRegistry registry = mock(RemoteRegistry.class);
+        when(registry.getEndpoints(SERVICE)).thenReturn(Arrays.asList(fast, slow));
+        strategy = new AdaptiveStrategy(2, 60000, 0.5);
+        strategy.setRegistry(registry);
+    }
+
+    @Test
+    public void prefersFasterEndpoint() {
+        record(fast, 1000000L, false);
+        record(slow, 50000000L, false);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertSame(fast, strategy.selectEndpoint(SERVICE));
+        }
+    }
+
+    @Test
+    public void prefersLessLoadedEndpoint() {
+        record(fast, 1000000L, false);
+        record(slow, 1000000L, false);
+        strategy.invocationStarted(fast);
+        strategy.invocationStarted(fast);
+        Assert.assertEquals(2, strategy.getInFlight(fast));
+        Assert.assertSame(slow, strategy.selectEndpoint(SERVICE));
+    }
+
+    @Test
+    public void responseTimeIsSmoothed() {
+        record(fast, 1000L, false);
+        record(fast, 3000L, false);
+        Assert.assertEquals(2000.0, strategy.getResponseTime(fast), 0.001);
+        Assert.assertEquals(0, strategy.getInFlight(fast));
+    }
+
+    @Test
+    public void ejectsFailingEndpoint() {
+        record(fast, 1000L, true);
+        Assert.assertFalse(strategy.isEjected(fast));
+        record(fast, 1000L, true);
+        Assert.assertTrue(strategy.isEjected(fast));
+        for (int i = 0; i < 20; i++) {
+            Assert.assertSame(slow, strategy.selectEndpoint(SERVICE));
+        }
+        record(fast, 1000L, false);
+        Assert.assertFalse(strategy.isEjected(fast));
+    }
+
+    @Test
+    public void allEndpointsEjected() {
+        record(fast, 1000L, true);
+        record(fast, 1000L, true);
+        record(slow, 1000L, true);
+        record(slow, 1000L, true);
+        Assert.assertNotNull(strategy.selectEndpoint(SERVICE));
+    }
+
+    @Test
+    public void noEndpoints() {
+        Assert.assertNull(strategy.selectEndpoint(new QName("urn:test", "Unknown")));
+    }
+
+    private void record(RemoteEndpoint endpoint, long elapsed, boolean failed) {
+        strategy.invocationStarted(endpoint);
+        strategy.invocationCompleted(endpoint, elapsed, failed);
+    }
+
+    private RemoteEndpoint createEndpoint(String url) {
+        RemoteEndpoint endpoint = mock(RemoteEndpoint.class);
+        when(endpoint.getEndpoint()).thenReturn(url);
+        return endpoint;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.sca;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+import org.switchyard.SwitchYardException;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.ContractTypes;
+import org.switchyard.extensions.java.JavaService;
+import org.switchyard.remote.RemoteMessage;
+import org.switchyard.remote.http.HttpInvokerLabel;
+
+public class BinaryRemoteMessageSerializerTest {
+
+    private BinaryRemoteMessageSerializer serializer = new BinaryRemoteMessageSerializer();
+
+    @Test
+    public void roundTripMessage() throws Exception {
+        List<Object> items = new ArrayList<Object>();
+        items.add(Integer.valueOf(-42));
+        items.add(Long.valueOf(Long.MAX_VALUE));
+        items.add(Double.valueOf(3.5));
+        items.add(new BigDecimal("12.50"));
+        items.add(new Date(1234567890L));
+        items.add(new byte[] {1, 2, 3});
+        Map<String, Object> content = new HashMap<String, Object>();
+        content.put("items", items);
+        content.put("name", "\u00e9t\u00e9");
+        content.put("flag", Boolean.TRUE);
+        content.put("qname", new QName("urn:test", "local", "t"));
+
+        RemoteMessage msg = new RemoteMessage()
+            .setDomain(new QName("urn:test", "domain"))
+            .setService(new QName("urn:test", "service"))
+            .setOperation("op")
+            .setContent(content);
+        msg.getContext().setProperty("header", "value", Scope.MESSAGE).addLabels(HttpInvokerLabel.HEADER.label());
+        msg.getContext().setProperty("count", Integer.valueOf(7), Scope.EXCHANGE);
+
+        RemoteMessage copy = roundTrip(msg);
+        Assert.assertEquals(msg.getDomain(), copy.getDomain());
+        Assert.assertEquals(msg.getService(), copy.getService());
+        Assert.assertEquals("op", copy.getOperation());
+        Assert.assertFalse(copy.isFault());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> copyContent = (Map<String, Object>)copy.getContent();
+        Assert.assertEquals("\u00e9t\u00e9", copyContent.get("name"));
+        Assert.assertEquals(Boolean.TRUE, copyContent.get("flag"));
+        Assert.assertEquals("t", ((QName)copyContent.get("qname")).getPrefix());
+        List<?> copyItems = (List<?>)copyContent.get("items");
+        Assert.assertEquals(items.subList(0, 5), copyItems.subList(0, 5));
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, (byte[])copyItems.get(5));
+
+        Property header = copy.getContext().getProperty("header", Scope.MESSAGE);
+        Assert.assertEquals("value", header.getValue());
+        Assert.assertTrue(header.hasLabel(HttpInvokerLabel.HEADER.label()));
+        Assert.assertEquals(Integer.valueOf(7), copy.getContext().getPropertyValue("count"));
+    }
+
+    @Test
+    public void roundTripFault() throws Exception {
+        RemoteMessage msg = new RemoteMessage();
+        msg.setFault(true);
+        msg.setContent(new SwitchYardException("remote failure"));
+
+        RemoteMessage copy = roundTrip(msg);
+        Assert.assertTrue(copy.isFault());
+        Assert.assertNull(copy.getService());
+        Assert.assertEquals("remote failure", ((SwitchYardException)copy.getContent()).getMessage());
+    }
+
+    @Test
+    public void roundTripObjectGraph() throws Exception {
+        Person person = new Person();
+        person.setName("Fred");
+        person.setAge(42);
+        RemoteMessage copy = roundTrip(new RemoteMessage().setContent(person), Person.class.getName());
+        Person copyPerson = (Person)copy.getContent();
+        Assert.assertEquals("Fred", copyPerson.getName());
+        Assert.assertEquals(42, copyPerson.getAge());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectUndeclaredObjectGraph() throws Exception {
+        Person person = new Person();
+        person.setName("Fred");
+        roundTrip(new RemoteMessage().setService(new QName("urn:test", "service")).setContent(person));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectUndeclaredSerializable() throws Exception {
+        // Serializable values are carried as JSON graphs too, so they are held to the contract
+        Token token = new Token();
+        token.setValue("value");
+        roundTrip(new RemoteMessage().setContent(token));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectUndeclaredObjectGraphInFault() throws Exception {
+        Person person = new Person();
+        person.setName("Fred");
+        RemoteMessage msg = new RemoteMessage().setContent(person);
+        msg.setFault(true);
+        roundTrip(msg);
+    }
+
+    @Test
+    public void declaredTypes() throws Exception {
+        Set<String> types = BinaryRemoteMessageSerializer.getDeclaredTypes(JavaService.fromClass(PersonService.class).getOperations());
+        Assert.assertTrue(types.contains(Person.class.getName()));
+        Assert.assertTrue(types.contains(String.class.getName()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectNonBinaryInput() throws Exception {
+        serializer.deserialize(new ByteArrayInputStream("{\"service\":\"foo\"}".getBytes("UTF-8")), ContractTypes.NONE);
+    }
+
+    @Test
+    public void canEncodeDeclaredTypesOnly() throws Exception {
+        Person person = new Person();
+        List<Object> people = new ArrayList<Object>();
+        people.add(person);
+        RemoteMessage msg = new RemoteMessage().setContent(people);
+        Assert.assertFalse(serializer.canEncode(msg, ContractTypes.NONE));
+        Assert.assertTrue(serializer.canEncode(msg, contract(Person.class.getName())));
+
+        RemoteMessage plain = new RemoteMessage().setContent("text");
+        plain.getContext().setProperty("token", new Token(), Scope.EXCHANGE);
+        Assert.assertFalse(serializer.canEncode(plain, ContractTypes.NONE));
+    }
+
+    @Test
+    public void frameFallsBackToJsonForUndeclaredTypes() throws Exception {
+        Person person = new Person();
+        person.setName("Fred");
+        List<Object> people = new ArrayList<Object>();
+        people.add(person);
+        byte[] frame = serializer.serializeFrame(7, new RemoteMessage().setContent(people), ContractTypes.NONE);
+
+        BinaryRemoteMessageSerializer.Frame read = BinaryRemoteMessageSerializer.readFrame(new ByteArrayInputStream(frame));
+        Assert.assertEquals(7, read.getCorrelationId());
+        List<?> copy = (List<?>)serializer.deserialize(read, ContractTypes.NONE).getContent();
+        Assert.assertEquals(1, copy.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectOversizedLength() throws Exception {
+        ByteArrayOutputStream bytes = messageHeader();
+        bytes.write(11); // bytes
+        bytes.write(new byte[] {(byte)0xF0, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07});
+        serializer.deserialize(new ByteArrayInputStream(bytes.toByteArray()), ContractTypes.NONE);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectNegativeCount() throws Exception {
+        ByteArrayOutputStream bytes = messageHeader();
+        bytes.write(13); // list
+        bytes.write(new byte[] {(byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x0F});
+        serializer.deserialize(new ByteArrayInputStream(bytes.toByteArray()), ContractTypes.NONE);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectCountBeyondInput() throws Exception {
+        ByteArrayOutputStream bytes = messageHeader();
+        bytes.write(14); // map
+        bytes.write(new byte[] {(byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07});
+        byte[] message = bytes.toByteArray();
+        // a frame payload is limited to its own length
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write(new byte[] {0, 0, 0, 1, 0});
+        frame.write(new byte[] {0, 0, 0, (byte)message.length});
+        frame.write(message);
+        serializer.deserialize(BinaryRemoteMessageSerializer.readFrame(new ByteArrayInputStream(frame.toByteArray())), ContractTypes.NONE);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectOversizedFrame() throws Exception {
+        byte[] frame = new byte[] {0, 0, 0, 1, 0, 0x7F, (byte)0xFF, (byte)0xFF, (byte)0xFF};
+        BinaryRemoteMessageSerializer.readFrame(new ByteArrayInputStream(frame));
+    }
+
+    @Test
+    public void formatHeader() {
+        Assert.assertTrue(BinaryRemoteMessageSerializer.isBinary("json, binary"));
+        Assert.assertFalse(BinaryRemoteMessageSerializer.isBinary("json"));
+        Assert.assertFalse(BinaryRemoteMessageSerializer.isBinary(null));
+    }
+
+    private RemoteMessage roundTrip(RemoteMessage msg, String... declaredTypes) throws IOException {
+        return serializer.deserialize(new ByteArrayInputStream(serializer.serialize(msg)), contract(declaredTypes));
+    }
+
+    private ContractTypes contract(String... declaredTypes) {
+        final Set<String> types = new HashSet<String>(Arrays.asList(declaredTypes));
+        return new ContractTypes() {
+            @Override
+            public Set<String> getDeclaredTypes(QName service, String operation) {
+                return types;
+            }
+        };
+    }
+
+    // magic, no domain, service or operation, not a fault and no context properties
+    private ByteArrayOutputStream messageHeader() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(0x53);
+        bytes.write(0x59);
+        bytes.write(0x42);
+        bytes.write(0x31);
+        bytes.write(0);
+        bytes.write(0);
+        bytes.write(0);
+        bytes.write(3);
+        bytes.write(0);
+        return bytes;
+    }
+
+    public static class Token implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String _value;
+
+        public String getValue() {
+            return _value;
+        }
+        public void setValue(String value) {
+            _value = value;
+        }
+    }
+
+    public interface PersonService {
+        String greet(Person person);
+    }
+
+    public static class Person {
+        private String _name;
+        private int _age;
+
+        public String getName() {
+            return _name;
+        }
+        public void setName(String name) {
+            _name = name;
+        }
+        public int getAge() {
+            return _age;
+        }
+        public void setAge(int age) {
+            _age = age;
+        }
+    }
+}
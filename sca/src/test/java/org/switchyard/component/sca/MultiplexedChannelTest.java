@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.sca;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.ContractTypes;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.Frame;
+import org.switchyard.remote.RemoteMessage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class MultiplexedChannelTest {
+
+    private static final String ENDPOINT = "http://localhost:18082/frames";
+
+    private BinaryRemoteMessageSerializer _serializer = new BinaryRemoteMessageSerializer();
+    private HttpServer _server;
+    private ExecutorService _executor;
+    private CountDownLatch _release;
+
+    @Before
+    public void setUp() throws Exception {
+        _release = new CountDownLatch(1);
+        _executor = Executors.newCachedThreadPool();
+        _server = HttpServer.create(new InetSocketAddress(18082), 10);
+        _server.setExecutor(_executor);
+        _server.createContext("/frames", new EchoFramesHandler());
+        _server.start();
+        System.setProperty(MultiplexedChannel.CONNECTIONS_PROPERTY, "1");
+        System.setProperty(MultiplexedChannel.MAX_BATCH_PROPERTY, "2");
+        System.setProperty(MultiplexedChannel.TIMEOUT_PROPERTY, "1000");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _release.countDown();
+        System.clearProperty(MultiplexedChannel.CONNECTIONS_PROPERTY);
+        System.clearProperty(MultiplexedChannel.MAX_BATCH_PROPERTY);
+        System.clearProperty(MultiplexedChannel.TIMEOUT_PROPERTY);
+        _server.stop(0);
+        _executor.shutdownNow();
+    }
+
+    @Test
+    public void slowReplyDoesNotHoldBackLaterRequests() throws Exception {
+        final MultiplexedChannel channel = new MultiplexedChannel(ENDPOINT, _executor, _serializer);
+        Future<RemoteMessage> slow = invokeAsync(channel, "slow");
+        Thread.sleep(200);
+        // the slow frame holds one slot only, so the next request is sent in a batch of its own
+        Assert.assertEquals("fast", invokeAsync(channel, "fast").get(500, TimeUnit.MILLISECONDS).getContent());
+        Assert.assertFalse(slow.isDone());
+        _release.countDown();
+        Assert.assertEquals("slow", slow.get(500, TimeUnit.MILLISECONDS).getContent());
+    }
+
+    @Test
+    public void requestTimesOut() throws Exception {
+        MultiplexedChannel channel = new MultiplexedChannel(ENDPOINT, _executor, _serializer);
+        long start = System.currentTimeMillis();
+        try {
+            channel.invoke(new RemoteMessage().setContent("slow"), ContractTypes.NONE);
+            Assert.fail("Expected the request to time out");
+        } catch (IOException ioEx) {
+            Assert.assertTrue(ioEx.getMessage().contains("did not reply within 1000 ms"));
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 3000);
+    }
+
+    private Future<RemoteMessage> invokeAsync(final MultiplexedChannel channel, final String content) {
+        return _executor.submit(new Callable<RemoteMessage>() {
+            public RemoteMessage call() throws Exception {
+                return channel.invoke(new RemoteMessage().setContent(content), ContractTypes.NONE);
+            }
+        });
+    }
+
+    private class EchoFramesHandler implements HttpHandler {
+
+        public void handle(HttpExchange exchange) {
+            try {
+                List<Frame> frames = new ArrayList<Frame>();
+                InputStream in = exchange.getRequestBody();
+                for (Frame frame = BinaryRemoteMessageSerializer.readFrame(in); frame != null; frame = BinaryRemoteMessageSerializer.readFrame(in)) {
+                    frames.add(frame);
+                }
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                for (Frame frame : frames) {
+                    Object content = _serializer.deserialize(frame, ContractTypes.NONE).getContent();
+                    if ("slow".equals(content)) {
+                        _release.await(5, TimeUnit.SECONDS);
+                    }
+                    out.write(_serializer.serializeFrame(frame.getCorrelationId(), new RemoteMessage().setContent(content)));
+                    out.flush();
+                }
+                out.close();
+            } catch (Exception e) {
+                // the client may have given up on the request
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.component.sca;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.Scope;
+import org.switchyard.remote.RemoteMessage;
+import org.switchyard.remote.http.HttpInvokerLabel;
+import org.switchyard.serial.FormatType;
+import org.switchyard.serial.Serializer;
+import org.switchyard.serial.SerializerFactory;
+
+/**
+ * Compares the size and speed of the JSON and binary remote message formats.
+ * Not run as part of the test suite; execute the main method directly.
+ */
+public final class RemoteMessageSerializationBenchmark {
+
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 100000;
+
+    private RemoteMessageSerializationBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional number of content entries (default 20)
+     * @throws Exception on failure
+     */
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        RemoteMessage message = createMessage(entries);
+        Serializer json = SerializerFactory.create(FormatType.JSON, null, true);
+        BinaryRemoteMessageSerializer binary = new BinaryRemoteMessageSerializer();
+
+        for (int i = 0; i < 2; i++) {
+            boolean report = i == 1;
+            int iterations = report ? ITERATIONS : WARMUP;
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            long start = System.nanoTime();
+            for (int n = 0; n < iterations; n++) {
+                bos.reset();
+                json.serialize(message, RemoteMessage.class, bos);
+                json.deserialize(new ByteArrayInputStream(bos.toByteArray()), RemoteMessage.class);
+            }
+            long jsonTime = System.nanoTime() - start;
+            int jsonSize = bos.size();
+
+            start = System.nanoTime();
+            byte[] bytes = null;
+            for (int n = 0; n < iterations; n++) {
+                bytes = binary.serialize(message);
+                binary.deserialize(new ByteArrayInputStream(bytes), BinaryRemoteMessageSerializer.ContractTypes.NONE);
+            }
+            long binaryTime = System.nanoTime() - start;
+
+            if (report) {
+                print("json", jsonSize, jsonTime, iterations);
+                print("binary", bytes.length, binaryTime, iterations);
+            }
+        }
+    }
+
+    private static void print(String format, int size, long nanos, int iterations) {
+        System.out.println(String.format("%-8s %8d bytes %10.2f us/round-trip", format, size, nanos / 1000.0 / iterations));
+    }
+
+    private static RemoteMessage createMessage(int entries) {
+        Map<String, Object> content = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < entries; i++) {
+            List<Object> values = new ArrayList<Object>();
+            values.add("value-" + i);
+            values.add(Integer.valueOf(i));
+            values.add(Long.valueOf(i * 1000L));
+            values.add(Double.valueOf(i / 3.0));
+            content.put("key-" + i, values);
+        }
+        RemoteMessage message = new RemoteMessage()
+            .setDomain(new QName("urn:switchyard:benchmark", "domain"))
+            .setService(new QName("urn:switchyard:benchmark", "Service"))
+            .setOperation("process")
+            .setContent(content);
+        message.getContext().setProperty("correlationId", "abc-123", Scope.MESSAGE)
+            .addLabels(HttpInvokerLabel.HEADER.label());
+        message.getContext().setProperty("retries", Integer.valueOf(3), Scope.EXCHANGE);
+        return message;
+    }
+}
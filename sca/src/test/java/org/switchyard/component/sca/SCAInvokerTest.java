@@ -251,6 +251,8 @@ public class SCAInvokerTest {
         Assert.assertTrue(roundRobin instanceof RoundRobinStrategy);
         LoadBalanceStrategy random = invoker.createLoadBalancer("RandomStrategy");
         Assert.assertTrue(random instanceof RandomStrategy);
+        LoadBalanceStrategy adaptive = invoker.createLoadBalancer("AdaptiveStrategy");
+        Assert.assertTrue(adaptive instanceof AdaptiveStrategy);
     }
     
     @Test
@@ -282,6 +284,39 @@ public class SCAInvokerTest {
         Assert.assertEquals("abc", receivedEx.getMessage().getContext().getPropertyValue("message-prop"));
     }
     
+    @Test
+    public void localPassThrough() throws Exception {
+        V1SCABindingModel config = new V1SCABindingModel(SwitchYardNamespace.DEFAULT.uri()) {
+            @Override
+            public String getName() {
+                return "testBinding";
+            }
+            public CompositeReferenceModel getReference() {
+                return new V1CompositeReferenceModel();
+            };
+        };
+        SCAInvoker invoker = new SCAInvoker(config).setLocalPassThrough(true);
+        invoker.start();
+        
+        final QName TEST_SERVICE = new QName("urn:test", "SCAInvokerTest");
+        ServiceReference reference = _domain.createInOnlyService(TEST_SERVICE, _provider);
+        MockExchange ex = new MockExchange();
+        Object payload = new Object();
+        Message msg = ex.createMessage().setContent(payload);
+        ex.setMessage(msg);
+        ex.getMessage().getContext().setProperty("labelled-prop", "abc").addLabels("test");
+        ex.getMessage().getContext().setProperty("plain-prop", "def");
+        ex.consumer(reference, new InOnlyOperation("Test"));
+        ex.provider(_domain.getServices().get(0), new InOnlyOperation("Test"));
+        invoker.handleMessage(ex);
+        
+        Assert.assertTrue(_provider.getMessages().size() == 1);
+        Exchange receivedEx = _provider.getMessages().poll();
+        Assert.assertSame(payload, receivedEx.getMessage().getContent());
+        Assert.assertEquals("abc", receivedEx.getMessage().getContext().getPropertyValue("labelled-prop"));
+        Assert.assertNull(receivedEx.getMessage().getContext().getProperty("plain-prop"));
+    }
+    
     @Test
     public void createCustomLoadBalancers() throws Exception {
         V1SCABindingModel config = new V1SCABindingModel(SwitchYardNamespace.DEFAULT.uri()) {
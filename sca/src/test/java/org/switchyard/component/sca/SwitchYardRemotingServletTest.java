@@ -1,6 +1,8 @@
 package org.switchyard.component.sca;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
@@ -10,6 +12,7 @@ import java.io.InputStream;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.namespace.QName;
@@ -21,6 +24,7 @@ import org.junit.Test;
 import org.switchyard.Exchange;
 import org.switchyard.MockDomain;
 import org.switchyard.ServiceDomain;
+import org.switchyard.component.sca.BinaryRemoteMessageSerializer.Frame;
 import org.switchyard.deploy.internal.Deployment;
 import org.switchyard.extensions.java.JavaService;
 import org.switchyard.metadata.InOnlyService;
@@ -120,6 +124,88 @@ public class SwitchYardRemotingServletTest {
         Assert.assertEquals("bar", ex.getContract().getConsumerOperation().getName());
     }
     
+    @Test
+    public void binaryRequest() throws Exception {
+        MockHandler handler = new MockHandler();
+        domain.registerServiceReference(TEST_SERVICE, JavaService.fromClass(MyInterface.class));
+        domain.registerService(TEST_SERVICE, JavaService.fromClass(MyInterface.class), handler);
+        
+        RemoteMessage msg = new RemoteMessage()
+            .setService(TEST_SERVICE)
+            .setOperation("foo")
+            .setContent("binary-content");
+        input = new ByteArrayInputStream(new BinaryRemoteMessageSerializer().serialize(msg));
+        when(request.getHeader(BinaryRemoteMessageSerializer.FORMAT_HEADER)).thenReturn(BinaryRemoteMessageSerializer.BINARY_FORMAT);
+        servlet.doPost(request, response);
+        
+        Exchange ex = handler.getMessages().poll(300, TimeUnit.MILLISECONDS);
+        Assert.assertNotNull(ex);
+        Assert.assertEquals("foo", ex.getContract().getConsumerOperation().getName());
+        Assert.assertEquals("binary-content", ex.getMessage().getContent());
+        verify(response).setHeader(BinaryRemoteMessageSerializer.FORMAT_HEADER, BinaryRemoteMessageSerializer.BINARY_FORMAT);
+    }
+    
+    @Test
+    public void undecodableBinaryRequestGetsFault() throws Exception {
+        domain.registerServiceReference(TEST_SERVICE, JavaService.fromClass(MyInterface.class));
+        domain.registerService(TEST_SERVICE, JavaService.fromClass(MyInterface.class), new MockHandler());
+        
+        // the message ends right after the magic number
+        input = new ByteArrayInputStream(new byte[] {0x53, 0x59, 0x42, 0x31, 0});
+        when(request.getHeader(BinaryRemoteMessageSerializer.FORMAT_HEADER)).thenReturn(BinaryRemoteMessageSerializer.BINARY_FORMAT);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            public void write(int b) throws IOException {
+                output.write(b);
+            }
+        });
+        servlet.doPost(request, response);
+        
+        RemoteMessage reply = new BinaryRemoteMessageSerializer().deserialize(
+                new ByteArrayInputStream(output.toByteArray()), BinaryRemoteMessageSerializer.ContractTypes.NONE);
+        Assert.assertTrue(reply.isFault());
+    }
+    
+    @Test
+    public void jsonRequestWithoutAcceptHeader() throws Exception {
+        domain.registerServiceReference(TEST_SERVICE, new InOnlyService());
+        domain.registerService(TEST_SERVICE, new InOnlyService(), new MockHandler());
+        setRequestMessage(new RemoteMessage().setService(TEST_SERVICE));
+        servlet.doPost(request, response);
+        verify(response, never()).setHeader(BinaryRemoteMessageSerializer.FORMAT_HEADER, BinaryRemoteMessageSerializer.BINARY_FORMAT);
+    }
+    
+    @Test
+    public void multiplexedRequests() throws Exception {
+        MockHandler handler = new MockHandler();
+        domain.registerServiceReference(TEST_SERVICE, JavaService.fromClass(MyInterface.class));
+        domain.registerService(TEST_SERVICE, JavaService.fromClass(MyInterface.class), handler);
+        
+        BinaryRemoteMessageSerializer binary = new BinaryRemoteMessageSerializer();
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(binary.serializeFrame(1, new RemoteMessage().setService(TEST_SERVICE).setOperation("foo").setContent("one")));
+        frames.write(binary.serializeFrame(2, new RemoteMessage().setService(TEST_SERVICE).setOperation("bar").setContent("two")));
+        input = new ByteArrayInputStream(frames.toByteArray());
+        when(request.getHeader(BinaryRemoteMessageSerializer.FORMAT_HEADER)).thenReturn(BinaryRemoteMessageSerializer.MULTIPLEXED_FORMAT);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            public void write(int b) throws IOException {
+                output.write(b);
+            }
+        });
+        servlet.doPost(request, response);
+        
+        Assert.assertNotNull(handler.getMessages().poll(300, TimeUnit.MILLISECONDS));
+        Assert.assertNotNull(handler.getMessages().poll(300, TimeUnit.MILLISECONDS));
+        InputStream replies = new ByteArrayInputStream(output.toByteArray());
+        Frame first = BinaryRemoteMessageSerializer.readFrame(replies);
+        Frame second = BinaryRemoteMessageSerializer.readFrame(replies);
+        Assert.assertNull(BinaryRemoteMessageSerializer.readFrame(replies));
+        Assert.assertEquals(1, first.getCorrelationId());
+        Assert.assertEquals(2, second.getCorrelationId());
+        Assert.assertNull(binary.deserialize(first, BinaryRemoteMessageSerializer.ContractTypes.NONE));
+    }
+    
     private void setRequestMessage(RemoteMessage message) throws Exception {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         serializer.serialize(message, RemoteMessage.class, bos);
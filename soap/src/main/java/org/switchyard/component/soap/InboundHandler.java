@@ -53,6 +53,8 @@ import org.switchyard.component.soap.composer.SOAPComposition;
 import org.switchyard.component.soap.composer.SOAPMessageComposer;
 import org.switchyard.component.soap.config.model.SOAPBindingModel;
 import org.switchyard.component.soap.endpoint.EndpointPublisherFactory;
+import org.switchyard.component.soap.util.OperationIndex;
+import org.switchyard.component.soap.util.OperationIndex.OperationInfo;
 import org.switchyard.component.soap.util.SOAPUtil;
 import org.switchyard.component.soap.util.WSDLUtil;
 import org.switchyard.deploy.BaseServiceHandler;
@@ -88,7 +90,7 @@ public class InboundHandler extends BaseServiceHandler {
     private Boolean _unwrapped = false;
     private String _targetNamespace;
     private Feature _feature = new Feature();
-    private Map<String, Operation> _operationsMap = new HashMap<String, Operation>();
+    private OperationIndex _operationIndex;
     private Map<String, String> _faultsMap = new HashMap<String, String>();
 
     private static final ThreadLocal<Set<Credential>> CREDENTIALS = new ThreadLocal<Set<Credential>>();
@@ -156,13 +158,12 @@ public class InboundHandler extends BaseServiceHandler {
             _documentStyle = style.equals(WSDLUtil.DOCUMENT) ? true : false;
             _unwrapped = _config.isUnwrapped();
             _feature = WSDLUtil.getFeature(definition, _wsdlPort, _documentStyle);
+            _operationIndex = new OperationIndex(_wsdlPort, _documentStyle, _feature.isAddressingEnabled() ? _targetNamespace : null);
 
             if (_feature.isAddressingEnabled()) {
                 @SuppressWarnings("unchecked")
                 List<BindingOperation> bindingOperations = _wsdlPort.getBinding().getBindingOperations();
                 for (BindingOperation bindingOp : bindingOperations) {
-                    String inputAction = WSDLUtil.getInputAction(_wsdlPort, new QName(_targetNamespace, bindingOp.getOperation().getName()), _documentStyle);
-                    _operationsMap.put(inputAction, bindingOp.getOperation());
                     for (Fault fault : (Collection<Fault>)bindingOp.getOperation().getFaults().values()) {
                         String faultAction = WSDLUtil.getFaultAction(fault, _wsdlPort, new QName(_targetNamespace, bindingOp.getOperation().getName()));
                         _faultsMap.put(fault.getName(), faultAction);
@@ -173,6 +174,13 @@ public class InboundHandler extends BaseServiceHandler {
             // Config feature setting overrides WSDL
             MTOMFeature mtom = _feature.getMtom(_config);
             _bindingId = WSDLUtil.getBindingId(_wsdlPort, mtom.isEnabled());
+            // expanding XOP inlines every attachment, which is what streaming is meant to avoid
+            if (mtom.isEnabled() && _config.getMtomConfig() != null
+                    && Boolean.TRUE.equals(_config.getMtomConfig().isXopExpand())
+                    && _config.getSOAPMessageComposer() != null
+                    && Boolean.TRUE.equals(_config.getSOAPMessageComposer().isStreaming())) {
+                throw SOAPMessages.MESSAGES.xopExpandWithStreaming(_gatewayName);
+            }
 
             _endpoint = EndpointPublisherFactory.getEndpointPublisher().publish(_domain, _config,
                 _bindingId,
@@ -184,6 +192,7 @@ public class InboundHandler extends BaseServiceHandler {
             _messageComposer = SOAPComposition.getMessageComposer(_config);
             ((SOAPMessageComposer)_messageComposer).setDocumentStyle(_documentStyle);
             ((SOAPMessageComposer)_messageComposer).setWsdlPort(_wsdlPort);
+            ((SOAPMessageComposer)_messageComposer).setOperationIndex(_operationIndex);
             ((SOAPMessageComposer)_messageComposer).setMtomEnabled(mtom.isEnabled());
             ((SOAPMessageComposer)_messageComposer).setUnwrapped(_unwrapped);
             if (_config.getMtomConfig() != null) {
@@ -234,7 +243,8 @@ public class InboundHandler extends BaseServiceHandler {
      */
     public SOAPMessage invoke(final SOAPMessage soapMessage, final WebServiceContext wsContext) {
         String operationName = null;
-        Operation operation;
+        OperationInfo operationInfo;
+        Operation operation = null;
         Boolean oneWay = false;
         QName firstBodyElement = null;
         MessageContext msgContext = null;
@@ -258,19 +268,20 @@ public class InboundHandler extends BaseServiceHandler {
             String action = SOAPUtil.getAddressingAction(soapMessage);
             if (_feature.isAddressingEnabled() && (action != null)) {
                 // Get the operation using the action
-                operation = _operationsMap.get(action);
-                if (operation == null) {
+                operationInfo = _operationIndex.getOperationByAction(action);
+                if (operationInfo == null) {
                     return handleException(oneWay, 
                             SOAPMessages.MESSAGES.couldNotFindOperation(action)
                                 );
                 }
             } else {
                 firstBodyElement = SOAPUtil.getFirstBodyElement(soapMessage);
-                operation = WSDLUtil.getOperationByElement(_wsdlPort, firstBodyElement, _documentStyle);
+                operationInfo = _operationIndex.getOperationByElement(firstBodyElement);
             }
-            if (operation != null) {
+            if (operationInfo != null) {
+                operation = operationInfo.getOperation();
                 operationName = operation.getName();
-                oneWay = WSDLUtil.isOneWay(operation);
+                oneWay = operationInfo.isOneWay();
                 
                 if (LOGGER.isDebugEnabled()) {
                     LOGGER.debug("Received SOAP message targeted at Webservice operation '" + operationName + "' on port '" + _wsdlPort.getName() + "'.");
@@ -325,7 +336,7 @@ public class InboundHandler extends BaseServiceHandler {
             if (oneWay) {
                 exchange.send(message);
                 if (exchange.getState().equals(ExchangeState.FAULT)) {
-                    return composeResponse(exchange, msgContext, operation, true);
+                    return composeResponse(exchange, msgContext, operationInfo, true);
                 } else {
                     return null;
                 }
@@ -345,7 +356,7 @@ public class InboundHandler extends BaseServiceHandler {
                 if (msgContext != null) {
                     msgContext.put(SOAPUtil.SWITCHYARD_CONTEXT, exchange.getContext());
                 }
-                return composeResponse(exchange, msgContext, operation, false);
+                return composeResponse(exchange, msgContext, operationInfo, false);
             }
         } catch (SOAPException se) {
             if (msgContext != null) {
@@ -355,7 +366,7 @@ public class InboundHandler extends BaseServiceHandler {
         }
     }
 
-    private SOAPMessage composeResponse(Exchange exchange, MessageContext msgContext, Operation operation, Boolean oneWay) throws SOAPException {
+    private SOAPMessage composeResponse(Exchange exchange, MessageContext msgContext, OperationInfo operationInfo, Boolean oneWay) throws SOAPException {
         SOAPBindingData bindingData = new SOAPBindingData(SOAPUtil.createMessage(_bindingId));
         SOAPMessage soapResponse;
         try {
@@ -381,7 +392,7 @@ public class InboundHandler extends BaseServiceHandler {
             if ((faultAction != null) && (msgContext != null)) {
                 msgContext.put(SOAPUtil.WSA_ACTION_STR, faultAction);
             }
-            throw new SOAPFaultException(SOAPUtil.createFault(ex, _bindingId, WSDLUtil.getFaultQName(operation, ex.getClass().getSimpleName())));
+            throw new SOAPFaultException(SOAPUtil.createFault(ex, _bindingId, operationInfo.getFaultQName(ex.getClass().getSimpleName())));
         }
         if (exchange.getState() == ExchangeState.FAULT && soapResponse.getSOAPBody().getFault() == null) {
             return handleException(oneWay, 
@@ -19,6 +19,10 @@ import java.net.URL;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.wsdl.Definition;
 import javax.wsdl.Port;
@@ -55,6 +59,8 @@ import org.switchyard.component.soap.composer.SOAPFaultInfo;
 import org.switchyard.component.soap.composer.SOAPMessageComposer;
 import org.switchyard.component.soap.config.model.SOAPBindingModel;
 import org.switchyard.component.soap.endpoint.EndpointPublisherFactory;
+import org.switchyard.component.soap.util.OperationIndex;
+import org.switchyard.component.soap.util.OperationIndex.OperationInfo;
 import org.switchyard.component.soap.util.SOAPUtil;
 import org.switchyard.component.soap.util.WSDLUtil;
 import org.switchyard.deploy.BaseServiceHandler;
@@ -72,12 +78,22 @@ public class OutboundHandler extends BaseServiceHandler {
 
     private static final String NO_RESPONSE = "No response returned.";
 
+    private static final int DEFAULT_MAX_DISPATCHERS = 20;
+    // CXF's default receive timeout
+    private static final long DEFAULT_DISPATCHER_WAIT = 60000;
+
     private final SOAPBindingModel _config;
     private final String _bindingName;
     private final String _referenceName;
     private MessageComposer<SOAPBindingData> _messageComposer;
-    private Dispatch<SOAPMessage> _dispatcher;
+    private Service _service;
+    private PortName _portName;
+    private MTOMFeature _mtom;
+    private BlockingQueue<Dispatch<SOAPMessage>> _dispatchers;
+    private Semaphore _dispatcherPermits;
+    private long _dispatcherWait;
     private Port _wsdlPort;
+    private OperationIndex _operationIndex;
     private String _bindingId;
     private Boolean _documentStyle;
     private Feature _feature = new Feature();
@@ -98,28 +114,37 @@ public class OutboundHandler extends BaseServiceHandler {
      */
     @Override
     protected void doStart() throws WebServiceConsumeException {
-        if (_dispatcher == null) {
+        if (_service == null) {
             try {
                 Definition definition = WSDLUtil.readWSDL(_config.getWsdl());
-                PortName portName = _config.getPort();
-                javax.wsdl.Service wsdlService = WSDLUtil.getService(definition, portName);
-                _wsdlPort = WSDLUtil.getPort(wsdlService, portName);
+                _portName = _config.getPort();
+                javax.wsdl.Service wsdlService = WSDLUtil.getService(definition, _portName);
+                _wsdlPort = WSDLUtil.getPort(wsdlService, _portName);
                 // Update the portName
-                portName.setServiceQName(wsdlService.getQName());
-                portName.setName(_wsdlPort.getName());
+                _portName.setServiceQName(wsdlService.getQName());
+                _portName.setName(_wsdlPort.getName());
 
                 String style = WSDLUtil.getStyle(_wsdlPort);
                 _documentStyle = style.equals(WSDLUtil.DOCUMENT) ? true : false;
                 _feature = WSDLUtil.getFeature(definition, _wsdlPort, _documentStyle);
+                _operationIndex = new OperationIndex(_wsdlPort, _documentStyle, null);
 
                 // Config feature setting overrides WSDL
-                MTOMFeature mtom = _feature.getMtom(_config);
-                _bindingId = WSDLUtil.getBindingId(_wsdlPort, mtom.isEnabled());
+                _mtom = _feature.getMtom(_config);
+                _bindingId = WSDLUtil.getBindingId(_wsdlPort, _mtom.isEnabled());
+                // expanding XOP inlines every attachment, which is what streaming is meant to avoid
+                if (_mtom.isEnabled() && _config.getMtomConfig() != null
+                        && Boolean.TRUE.equals(_config.getMtomConfig().isXopExpand())
+                        && _config.getSOAPMessageComposer() != null
+                        && Boolean.TRUE.equals(_config.getSOAPMessageComposer().isStreaming())) {
+                    throw SOAPMessages.MESSAGES.referenceXopExpandWithStreaming(_referenceName, _bindingName);
+                }
 
                 _messageComposer = SOAPComposition.getMessageComposer(_config);
                 ((SOAPMessageComposer)_messageComposer).setDocumentStyle(_documentStyle);
                 ((SOAPMessageComposer)_messageComposer).setWsdlPort(_wsdlPort);
-                ((SOAPMessageComposer)_messageComposer).setMtomEnabled(mtom.isEnabled());
+                ((SOAPMessageComposer)_messageComposer).setOperationIndex(_operationIndex);
+                ((SOAPMessageComposer)_messageComposer).setMtomEnabled(_mtom.isEnabled());
                 if (_config.getMtomConfig() != null) {
                     ((SOAPMessageComposer)_messageComposer).setXopExpand(_config.getMtomConfig().isXopExpand());
                 }
@@ -127,95 +152,186 @@ public class OutboundHandler extends BaseServiceHandler {
                 URL wsdlUrl = WSDLUtil.getURL(_config.getWsdl());
                 SOAPLogger.ROOT_LOGGER.creatingDispatchWithWSDL(wsdlUrl.toString());
 
-                Service service = Service.create(wsdlUrl, portName.getServiceQName());
-
-                _dispatcher = service.createDispatch(portName.getPortQName(),
-                                    SOAPMessage.class,
-                                    Service.Mode.MESSAGE,
-                                    _feature.getAddressing(),
-                                    mtom);
+                _service = Service.create(wsdlUrl, _portName.getServiceQName());
+            } catch (MalformedURLException e) {
+                throw new WebServiceConsumeException(e);
+            } catch (WSDLException wsdle) {
+                throw new WebServiceConsumeException(wsdle);
+            }
+        }
+        Integer maxDispatchers = _config.getMaxDispatchers();
+        int max = maxDispatchers != null && maxDispatchers > 0 ? maxDispatchers : DEFAULT_MAX_DISPATCHERS;
+        _dispatchers = new ArrayBlockingQueue<Dispatch<SOAPMessage>>(max);
+        // every dispatcher in use holds a permit, so no more than max are ever created
+        _dispatcherPermits = new Semaphore(max);
+        _dispatcherWait = _config.getTimeout() != null ? _config.getTimeout().longValue() : DEFAULT_DISPATCHER_WAIT;
+        // create the first dispatcher eagerly so that configuration errors surface on start
+        _dispatchers.offer(createDispatch());
+    }
 
-                // this does not return a proper qualified Fault element and has no Detail so deferring for now
-                // _dispatcher.getRequestContext().put("jaxws.response.throwExceptionIfSOAPFault", Boolean.FALSE);
+    /**
+     * Stop lifecycle.
+     */
+    @Override
+    protected void doStop() {
+        BlockingQueue<Dispatch<SOAPMessage>> dispatchers = _dispatchers;
+        if (dispatchers != null) {
+            Dispatch<SOAPMessage> dispatcher;
+            while ((dispatcher = dispatchers.poll()) != null) {
+                destroyDispatch(dispatcher);
+            }
+        }
+    }
 
-                Client client = ((DispatchImpl)_dispatcher).getClient();
-                if (_feature.isAddressingEnabled()) {
-                    // Add handler to process WS-A headers
-                    Interceptor<? extends org.apache.cxf.message.Message> addressingInterceptor = EndpointPublisherFactory.getEndpointPublisher().createAddressingInterceptor();
-                    client.getOutInterceptors().add(addressingInterceptor);
-                    client.getOutFaultInterceptors().add(addressingInterceptor);
-                } else {
-                    // Defaulting to use soapAction property in request header
-                    _dispatcher.getRequestContext().put(BindingProvider.SOAPACTION_USE_PROPERTY, Boolean.TRUE);
-                }
+    /**
+     * Creates a Dispatch configured for this reference. Each dispatcher owns its own
+     * request context and conduit, so a dispatcher must only be used by one exchange at a time.
+     * @return the dispatcher
+     */
+    private Dispatch<SOAPMessage> createDispatch() {
+        Dispatch<SOAPMessage> dispatcher = _service.createDispatch(_portName.getPortQName(),
+                            SOAPMessage.class,
+                            Service.Mode.MESSAGE,
+                            _feature.getAddressing(),
+                            _mtom);
+
+        // this does not return a proper qualified Fault element and has no Detail so deferring for now
+        // dispatcher.getRequestContext().put("jaxws.response.throwExceptionIfSOAPFault", Boolean.FALSE);
+
+        Client client = ((DispatchImpl<SOAPMessage>)dispatcher).getClient();
+        if (_feature.isAddressingEnabled()) {
+            // Add handler to process WS-A headers
+            Interceptor<? extends org.apache.cxf.message.Message> addressingInterceptor = EndpointPublisherFactory.getEndpointPublisher().createAddressingInterceptor();
+            client.getOutInterceptors().add(addressingInterceptor);
+            client.getOutFaultInterceptors().add(addressingInterceptor);
+        } else {
+            // Defaulting to use soapAction property in request header
+            dispatcher.getRequestContext().put(BindingProvider.SOAPACTION_USE_PROPERTY, Boolean.TRUE);
+        }
 
-                if (_config.getEndpointAddress() != null) {
-                    _dispatcher.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, _config.getEndpointAddress());
-                }
+        if (_config.getEndpointAddress() != null) {
+            dispatcher.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, _config.getEndpointAddress());
+        }
 
-                Integer timeout = _config.getTimeout();
-                HTTPConduit conduit = (HTTPConduit)client.getConduit();
-                // Proxy authentication
-                if (_config.getProxyConfig() != null) {
-                    HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
-                    httpClientPolicy.setProxyServerType(ProxyServerType.fromValue(_config.getProxyConfig().getType()));
-                    httpClientPolicy.setProxyServer(_config.getProxyConfig().getHost());
-                    if (_config.getProxyConfig().getPort() != null) {
-                        httpClientPolicy.setProxyServerPort(Integer.valueOf(_config.getProxyConfig().getPort()).intValue());
-                    }
-                    conduit.setClient(httpClientPolicy);
-                    if (_config.getProxyConfig().getUser() != null) {
-                        ProxyAuthorizationPolicy policy = new ProxyAuthorizationPolicy();
-                        policy.setUserName(_config.getProxyConfig().getUser());
-                        policy.setPassword(_config.getProxyConfig().getPassword());
-                        conduit.setProxyAuthorization(policy);
-                    }
-                }
-                if (_config.hasAuthentication()) {
-                    AuthorizationPolicy policy = new AuthorizationPolicy();
-                    // Set authentication
-                    if (_config.isBasicAuth()) {
-                        policy.setUserName(_config.getBasicAuthConfig().getUser());
-                        policy.setPassword(_config.getBasicAuthConfig().getPassword());
-                        policy.setAuthorizationType("Basic");
-                    } else {
-                        policy.setUserName(_config.getNtlmAuthConfig().getDomain() + "\\" + _config.getNtlmAuthConfig().getUser());
-                        policy.setPassword(_config.getNtlmAuthConfig().getPassword());
-                        HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
-                        if (timeout != null) {
-                            httpClientPolicy.setConnectionTimeout(timeout);
-                        } else {
-                            httpClientPolicy.setConnectionTimeout(36000);
-                        }
-                        httpClientPolicy.setAllowChunking(false);
-                        conduit.setClient(httpClientPolicy);
-                    }
-                    conduit.setAuthorization(policy);
-                }
+        Integer timeout = _config.getTimeout();
+        HTTPConduit conduit = (HTTPConduit)client.getConduit();
+        // Proxy authentication
+        if (_config.getProxyConfig() != null) {
+            HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
+            httpClientPolicy.setProxyServerType(ProxyServerType.fromValue(_config.getProxyConfig().getType()));
+            httpClientPolicy.setProxyServer(_config.getProxyConfig().getHost());
+            if (_config.getProxyConfig().getPort() != null) {
+                httpClientPolicy.setProxyServerPort(Integer.valueOf(_config.getProxyConfig().getPort()).intValue());
+            }
+            conduit.setClient(httpClientPolicy);
+            if (_config.getProxyConfig().getUser() != null) {
+                ProxyAuthorizationPolicy policy = new ProxyAuthorizationPolicy();
+                policy.setUserName(_config.getProxyConfig().getUser());
+                policy.setPassword(_config.getProxyConfig().getPassword());
+                conduit.setProxyAuthorization(policy);
+            }
+        }
+        if (_config.hasAuthentication()) {
+            AuthorizationPolicy policy = new AuthorizationPolicy();
+            // Set authentication
+            if (_config.isBasicAuth()) {
+                policy.setUserName(_config.getBasicAuthConfig().getUser());
+                policy.setPassword(_config.getBasicAuthConfig().getPassword());
+                policy.setAuthorizationType("Basic");
+            } else {
+                policy.setUserName(_config.getNtlmAuthConfig().getDomain() + "\\" + _config.getNtlmAuthConfig().getUser());
+                policy.setPassword(_config.getNtlmAuthConfig().getPassword());
+                HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
                 if (timeout != null) {
-                    if (conduit.getClient() != null) {
-                        conduit.getClient().setConnectionTimeout(timeout);
-                        conduit.getClient().setReceiveTimeout(timeout);
-                    } else {
-                        HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
-                        httpClientPolicy.setConnectionTimeout(timeout);
-                        httpClientPolicy.setReceiveTimeout(timeout);
-                        conduit.setClient(httpClientPolicy);
-                    }
+                    httpClientPolicy.setConnectionTimeout(timeout);
+                } else {
+                    httpClientPolicy.setConnectionTimeout(36000);
                 }
+                httpClientPolicy.setAllowChunking(false);
+                conduit.setClient(httpClientPolicy);
+            }
+            conduit.setAuthorization(policy);
+        }
+        if (timeout != null) {
+            if (conduit.getClient() != null) {
+                conduit.getClient().setConnectionTimeout(timeout);
+                conduit.getClient().setReceiveTimeout(timeout);
+            } else {
+                HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
+                httpClientPolicy.setConnectionTimeout(timeout);
+                httpClientPolicy.setReceiveTimeout(timeout);
+                conduit.setClient(httpClientPolicy);
+            }
+        }
+        return dispatcher;
+    }
 
-            } catch (MalformedURLException e) {
-                throw new WebServiceConsumeException(e);
-            } catch (WSDLException wsdle) {
-                throw new WebServiceConsumeException(wsdle);
+    /**
+     * Takes an idle dispatcher from the pool, or creates a new one when none is idle.
+     * Once maxDispatchers are in use, waits for one to be released up to the timeout.
+     * @param permits the permits of the dispatchers in use
+     * @return the dispatcher
+     * @throws HandlerException if no dispatcher was released in time
+     */
+    private Dispatch<SOAPMessage> acquireDispatch(Semaphore permits) throws HandlerException {
+        try {
+            if (!permits.tryAcquire(_dispatcherWait, TimeUnit.MILLISECONDS)) {
+                throw SOAPMessages.MESSAGES.noDispatcherAvailable(_referenceName, _bindingName, _dispatcherWait);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw SOAPMessages.MESSAGES.noDispatcherAvailable(_referenceName, _bindingName, _dispatcherWait);
+        }
+        boolean acquired = false;
+        try {
+            Dispatch<SOAPMessage> dispatcher = _dispatchers.poll();
+            if (dispatcher == null) {
+                dispatcher = createDispatch();
+            }
+            acquired = true;
+            return dispatcher;
+        } finally {
+            if (!acquired) {
+                permits.release();
             }
         }
     }
 
     /**
-     * Stop lifecycle.
+     * Clears the per-request state of a dispatcher and returns it to the pool,
+     * or destroys it if the pool is already full.
+     * @param dispatcher the dispatcher
+     * @param permits the permits of the dispatchers in use
      */
-    public void stop() {
+    private void releaseDispatch(Dispatch<SOAPMessage> dispatcher, Semaphore permits) {
+        try {
+            clearDispatch(dispatcher);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void clearDispatch(Dispatch<SOAPMessage> dispatcher) {
+        Map<String, Object> requestContext = dispatcher.getRequestContext();
+        requestContext.remove(MessageContext.HTTP_REQUEST_HEADERS);
+        requestContext.remove(BindingProvider.SOAPACTION_URI_PROPERTY);
+        requestContext.remove(SOAPUtil.SWITCHYARD_CONTEXT);
+        if (_config.getEndpointAddress() != null) {
+            requestContext.put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, _config.getEndpointAddress());
+        } else {
+            requestContext.remove(BindingProvider.ENDPOINT_ADDRESS_PROPERTY);
+        }
+        if (getState() != State.STARTED || !_dispatchers.offer(dispatcher)) {
+            destroyDispatch(dispatcher);
+        }
+    }
+
+    private void destroyDispatch(Dispatch<SOAPMessage> dispatcher) {
+        try {
+            ((DispatchImpl<SOAPMessage>)dispatcher).getClient().destroy();
+        } catch (Exception e) {
+            LOGGER.debug("Unable to destroy dispatcher for reference " + _referenceName, e);
+        }
     }
 
     /**
@@ -241,66 +357,76 @@ public class OutboundHandler extends BaseServiceHandler {
             SOAPBindingData request;
             Boolean oneWay = false;
             String action = null;
+            Semaphore permits = _dispatcherPermits;
+            Dispatch<SOAPMessage> dispatcher = acquireDispatch(permits);
             try {
-                request = _messageComposer.decompose(exchange, new SOAPBindingData(SOAPUtil.createMessage(_bindingId)));
-
-                QName firstBodyElement = SOAPUtil.getFirstBodyElement(request.getSOAPMessage());
-                action = WSDLUtil.getSoapAction(_wsdlPort, firstBodyElement, _documentStyle);
-                oneWay = WSDLUtil.isOneWay(_wsdlPort, firstBodyElement, _documentStyle);
-
-                if (_feature.isAddressingEnabled()) {
-                    Context context = exchange.getContext();
-                    _dispatcher.getRequestContext().put(SOAPUtil.SWITCHYARD_CONTEXT, context);
-                    // It is a one way if a replyto address is set
-                    String toAddress = SOAPUtil.getToAddress(exchange.getContext());
-                    if (toAddress != null) {
-                        _dispatcher.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, toAddress);
-                    }
-                }
-            } catch (Exception e) {
-                throw e instanceof SOAPException ? (SOAPException)e : new SOAPException(e);
-            }
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.trace("Outbound ---> Request:[" + _referenceName + "][" + SOAPUtil.soapMessageToString(request.getSOAPMessage()) + "]" + (oneWay ? " oneWay " : ""));
-            }
-            SOAPMessage response = invokeService(request, oneWay, action);
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.trace("Outbound <--- Response:[" + _referenceName + "][" + SOAPUtil.soapMessageToString(response) + "]");
-            }
-            if (response != null) {
-                // This property vanishes once message composer processes this message
-                // so caching it here
-                Boolean hasFault = response.getSOAPBody().hasFault();
-                Message message;
                 try {
-                    SOAPBindingData bindingData = new SOAPBindingData(response);
-                    if (hasFault) {
-                        SOAPFaultInfo faultInfo = new SOAPFaultInfo();
-                        faultInfo.copyFaultInfo(response);
-                        bindingData.setSOAPFaultInfo(faultInfo);
-                    }
-                    Integer status = (Integer)_dispatcher.getResponseContext().get(MessageContext.HTTP_RESPONSE_CODE);
-                    if (status != null) {
-                        bindingData.setStatus(status);
+                    request = _messageComposer.decompose(exchange, new SOAPBindingData(SOAPUtil.createMessage(_bindingId)));
+
+                    QName firstBodyElement = SOAPUtil.getFirstBodyElement(request.getSOAPMessage());
+                    OperationInfo operationInfo = _operationIndex.getOperationByElement(firstBodyElement);
+                    if (operationInfo != null) {
+                        action = operationInfo.getSoapAction();
+                        oneWay = operationInfo.isOneWay();
+                    } else {
+                        action = "";
                     }
-                    @SuppressWarnings("unchecked")
-                    Map<String, List<String>> httpHeaders =
-                            (Map<String, List<String>>) _dispatcher.getResponseContext().get(MessageContext.HTTP_RESPONSE_HEADERS);
-                    if (httpHeaders != null) {
-                        bindingData.setHttpHeaders(httpHeaders);
+
+                    if (_feature.isAddressingEnabled()) {
+                        Context context = exchange.getContext();
+                        dispatcher.getRequestContext().put(SOAPUtil.SWITCHYARD_CONTEXT, context);
+                        // It is a one way if a replyto address is set
+                        String toAddress = SOAPUtil.getToAddress(exchange.getContext());
+                        if (toAddress != null) {
+                            dispatcher.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, toAddress);
+                        }
                     }
-                    
-                    message = _messageComposer.compose(bindingData, exchange);
                 } catch (Exception e) {
                     throw e instanceof SOAPException ? (SOAPException)e : new SOAPException(e);
                 }
-                if (hasFault) {
-                    exchange.sendFault(message);
-                } else {
-                    exchange.send(message);
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("Outbound ---> Request:[" + _referenceName + "][" + SOAPUtil.soapMessageToString(request.getSOAPMessage()) + "]" + (oneWay ? " oneWay " : ""));
                 }
+                SOAPMessage response = invokeService(dispatcher, request, oneWay, action);
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("Outbound <--- Response:[" + _referenceName + "][" + SOAPUtil.soapMessageToString(response) + "]");
+                }
+                if (response != null) {
+                    // This property vanishes once message composer processes this message
+                    // so caching it here
+                    Boolean hasFault = response.getSOAPBody().hasFault();
+                    Message message;
+                    try {
+                        SOAPBindingData bindingData = new SOAPBindingData(response);
+                        if (hasFault) {
+                            SOAPFaultInfo faultInfo = new SOAPFaultInfo();
+                            faultInfo.copyFaultInfo(response);
+                            bindingData.setSOAPFaultInfo(faultInfo);
+                        }
+                        Integer status = (Integer)dispatcher.getResponseContext().get(MessageContext.HTTP_RESPONSE_CODE);
+                        if (status != null) {
+                            bindingData.setStatus(status);
+                        }
+                        @SuppressWarnings("unchecked")
+                        Map<String, List<String>> httpHeaders =
+                                (Map<String, List<String>>) dispatcher.getResponseContext().get(MessageContext.HTTP_RESPONSE_HEADERS);
+                        if (httpHeaders != null) {
+                            bindingData.setHttpHeaders(httpHeaders);
+                        }
+                    
+                        message = _messageComposer.compose(bindingData, exchange);
+                    } catch (Exception e) {
+                        throw e instanceof SOAPException ? (SOAPException)e : new SOAPException(e);
+                    }
+                    if (hasFault) {
+                        exchange.sendFault(message);
+                    } else {
+                        exchange.send(message);
+                    }
+                }
+            } finally {
+                releaseDispatch(dispatcher, permits);
             }
-
         } catch (SOAPException se) {
             throw SOAPMessages.MESSAGES.unexpectedExceptionHandlingSOAPMessage(se);
         }
@@ -308,36 +434,31 @@ public class OutboundHandler extends BaseServiceHandler {
 
     /**
      * Invoke Webservice via Dispatch API
-     * @param soapMessage the SOAP request
+     * @param dispatcher the dispatcher to use
+     * @param bindingData the SOAP request
      * @param oneWay if it is request only operation
      * @param action the SOAP Action
      * @return the SOAP response
      * @throws SOAPException If a Dispatch could not be created based on the SOAP message.
      */
-    private SOAPMessage invokeService(final SOAPBindingData bindingData, final Boolean oneWay, final String action) throws SOAPException {
+    private SOAPMessage invokeService(final Dispatch<SOAPMessage> dispatcher, final SOAPBindingData bindingData, final Boolean oneWay, final String action) throws SOAPException {
 
         SOAPMessage soapMessage = bindingData.getSOAPMessage();
         SOAPMessage response = null;
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, List<String>> httpHeaders =
-                (Map<String, List<String>>) _dispatcher.getRequestContext().get(MessageContext.HTTP_REQUEST_HEADERS);
-           if (httpHeaders == null) {
-               httpHeaders = new HashMap<String, List<String>>();
-               _dispatcher.getRequestContext()
-                          .put(MessageContext.HTTP_REQUEST_HEADERS, httpHeaders);
-           }
+            Map<String, List<String>> httpHeaders = new HashMap<String, List<String>>();
+            dispatcher.getRequestContext().put(MessageContext.HTTP_REQUEST_HEADERS, httpHeaders);
             httpHeaders.putAll(bindingData.getHttpHeaders());
 
             if (!_feature.isAddressingEnabled() && (action != null)) {
-                _dispatcher.getRequestContext().put(BindingProvider.SOAPACTION_URI_PROPERTY, "\"" + action + "\"");
+                dispatcher.getRequestContext().put(BindingProvider.SOAPACTION_URI_PROPERTY, "\"" + action + "\"");
             }
 
             if (oneWay) {
-                _dispatcher.invokeOneWay(soapMessage);
+                dispatcher.invokeOneWay(soapMessage);
                 //return empty response
             }  else {
-                response = _dispatcher.invoke(soapMessage);
+                response = dispatcher.invoke(soapMessage);
             }
         } catch (SOAPFaultException sfex) {
             response = SOAPUtil.generateFault(sfex, _bindingId);
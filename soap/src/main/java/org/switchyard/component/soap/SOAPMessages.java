@@ -340,5 +340,32 @@ public interface SOAPMessages {
      */
     @Message(id = 35453, value = "Invalid response SOAPMessage construction.  The associated SwitchYard Exchange is in a FAULT state, but the SOAPMessage is not a Fault message.  The MessageComposer implementation in use (\"%s\") must generate the SOAPMessage instance properly as a Fault message.")
     SOAPException invalidResponseConstruction(String messageComposerName);
+
+    /**
+     * noDispatcherAvailable method definition.
+     * @param referenceName the referenceName
+     * @param bindingName the bindingName
+     * @param waitTimeout the waitTimeout
+     * @return HandlerException
+     */
+    @Message(id = 35454, value = "Reference binding \"%s/%s\" has no dispatcher available after waiting %d ms.")
+    HandlerException noDispatcherAvailable(String referenceName, String bindingName, long waitTimeout);
+
+    /**
+     * xopExpandWithStreaming method definition.
+     * @param bindingName the bindingName
+     * @return WebServicePublishException
+     */
+    @Message(id = 35455, value = "Binding \"%s\" cannot expand XOP attachments with a streaming message composer; set either xopExpand or streaming to false.")
+    WebServicePublishException xopExpandWithStreaming(String bindingName);
+
+    /**
+     * referenceXopExpandWithStreaming method definition.
+     * @param referenceName the referenceName
+     * @param bindingName the bindingName
+     * @return WebServiceConsumeException
+     */
+    @Message(id = 35456, value = "Reference \"%s\" binding \"%s\" cannot expand XOP attachments with a streaming message composer; set either xopExpand or streaming to false.")
+    WebServiceConsumeException referenceXopExpandWithStreaming(String referenceName, String bindingName);
 }
 
@@ -51,6 +51,9 @@ public final class SOAPComposition {
         if (cm instanceof SOAPContextMapper && scmm != null) {
             ((SOAPContextMapper)cm).setSOAPHeadersType(scmm.getSOAPHeadersType());
         }
+        if (mc instanceof SOAPMessageComposer && mcm != null) {
+            ((SOAPMessageComposer)mc).setStreaming(mcm.isStreaming());
+        }
         return mc;
     }
 
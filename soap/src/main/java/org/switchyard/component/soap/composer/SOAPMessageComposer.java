@@ -14,6 +14,9 @@
 
 package org.switchyard.component.soap.composer;
 
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -26,12 +29,21 @@ import javax.activation.DataSource;
 import javax.wsdl.Operation;
 import javax.wsdl.Part;
 import javax.wsdl.Port;
+import javax.xml.XMLConstants;
 import javax.xml.soap.AttachmentPart;
 import javax.xml.soap.SOAPBody;
 import javax.xml.soap.SOAPEnvelope;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPFault;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamSource;
 
 import org.jboss.logging.Logger;
 import org.switchyard.Exchange;
@@ -39,6 +51,8 @@ import org.switchyard.ExchangeState;
 import org.switchyard.Message;
 import org.switchyard.component.common.composer.BaseMessageComposer;
 import org.switchyard.component.soap.SOAPMessages;
+import org.switchyard.component.soap.util.OperationIndex;
+import org.switchyard.component.soap.util.OperationIndex.OperationInfo;
 import org.switchyard.component.soap.util.SOAPUtil;
 import org.switchyard.component.soap.util.WSDLUtil;
 import org.w3c.dom.Element;
@@ -64,12 +78,22 @@ public class SOAPMessageComposer extends BaseMessageComposer<SOAPBindingData> {
     private static final String CONTENT_DISPOSITION_QUOTE = "\"";
     private static final String TEMP_FILE_EXTENSION = ".tmp";
 
+    // JAXP 1.5 attributes, spelled out as XMLConstants only has them from Java 7
+    private static final String ACCESS_EXTERNAL_DTD = "http://javax.xml.XMLConstants/property/accessExternalDTD";
+    private static final String ACCESS_EXTERNAL_STYLESHEET = "http://javax.xml.XMLConstants/property/accessExternalStylesheet";
+
     private static Logger _log = Logger.getLogger(SOAPMessageComposer.class);
+
+    // created after the logger, which it uses
+    private static final TransformerFactory TRANSFORMER_FACTORY = createTransformerFactory();
+
     private Port _wsdlPort;
+    private OperationIndex _operationIndex;
     private Boolean _documentStyle = false;
     private Boolean _mtomEnabled = false;
     private Boolean _xopExpand = false;
     private Boolean _unwrapped = false;
+    private Boolean _streaming = false;
 
     /**
      * {@inheritDoc}
@@ -197,8 +221,16 @@ public class SOAPMessageComposer extends BaseMessageComposer<SOAPBindingData> {
             }
             
             try {
-                // convert the message content to a form we can work with
-                Node messageNode = message.getContent(Node.class);
+                Source source = getStreamableSource(message.getContent(), exchange);
+                Node messageNode = null;
+                if (source != null) {
+                    // transform the payload straight into the SOAP body instead of building and importing a DOM
+                    transform(source, soapMessage.getSOAPBody());
+                    addAttachments(message, soapMessage);
+                } else {
+                    // convert the message content to a form we can work with
+                    messageNode = message.getContent(Node.class);
+                }
                 if (messageNode != null) {
                     Node messageNodeImport = soapMessage.getSOAPBody().getOwnerDocument().importNode(messageNode, true);
                     if (exchange.getState() != ExchangeState.FAULT || isSOAPFaultPayload(messageNode)) {
@@ -216,13 +248,7 @@ public class SOAPMessageComposer extends BaseMessageComposer<SOAPBindingData> {
                             }
                         }
                         soapMessage.getSOAPBody().appendChild(messageNodeImport);
-                        // SOAP Attachments
-                        for (String name : message.getAttachmentMap().keySet()) {
-                            AttachmentPart apResponse = soapMessage.createAttachmentPart();
-                            apResponse.setDataHandler(new DataHandler(message.getAttachment(name)));
-                            apResponse.setContentId("<" + name + ">");
-                            soapMessage.addAttachmentPart(apResponse);
-                        }
+                        addAttachments(message, soapMessage);
                     } else {
                         // convert to SOAP Fault since ExchangeState is FAULT but the message is not SOAP Fault
                         SOAPUtil.addFault(soapMessage).addDetail().appendChild(messageNodeImport);
@@ -248,6 +274,64 @@ public class SOAPMessageComposer extends BaseMessageComposer<SOAPBindingData> {
         return target;
     }
 
+    // Returns the payload as a Source when it can be transformed directly into the SOAP body,
+    // or null when it has to go through the DOM import path
+    private Source getStreamableSource(Object content, Exchange exchange) {
+        if (!_streaming || exchange.getState() == ExchangeState.FAULT || (_documentStyle && _unwrapped)) {
+            // faults and wrapping need to inspect the payload root element
+            return null;
+        }
+        if (content instanceof DOMSource || !(content instanceof Source)) {
+            if (content instanceof String) {
+                return new StreamSource(new StringReader((String)content));
+            } else if (content instanceof Reader) {
+                return new StreamSource((Reader)content);
+            } else if (content instanceof InputStream) {
+                return new StreamSource((InputStream)content);
+            }
+            // a DOM has to be copied into the SAAJ tree anyway
+            return null;
+        }
+        return (Source)content;
+    }
+
+    private static TransformerFactory createTransformerFactory() {
+        // message content is untrusted, so it must not pull in external DTDs or stylesheets
+        TransformerFactory factory = TransformerFactory.newInstance();
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (TransformerConfigurationException tce) {
+            _log.debug(tce);
+        }
+        for (String attribute : new String[] {ACCESS_EXTERNAL_DTD, ACCESS_EXTERNAL_STYLESHEET}) {
+            try {
+                factory.setAttribute(attribute, "");
+            } catch (IllegalArgumentException iae) {
+                // not a JAXP 1.5 implementation
+                _log.debug(iae);
+            }
+        }
+        return factory;
+    }
+
+    private void transform(Source source, SOAPBody soapBody) throws TransformerException {
+        Transformer transformer;
+        synchronized (TRANSFORMER_FACTORY) {
+            transformer = TRANSFORMER_FACTORY.newTransformer();
+        }
+        transformer.transform(source, new DOMResult(soapBody));
+    }
+
+    private void addAttachments(Message message, SOAPMessage soapMessage) {
+        // SOAP Attachments
+        for (String name : message.getAttachmentMap().keySet()) {
+            AttachmentPart apResponse = soapMessage.createAttachmentPart();
+            apResponse.setDataHandler(new DataHandler(message.getAttachment(name)));
+            apResponse.setContentId("<" + name + ">");
+            soapMessage.addAttachmentPart(apResponse);
+        }
+    }
+
     private boolean isSOAPFaultPayload(org.w3c.dom.Node messageNode) {
         String rootName = messageNode.getLocalName().toLowerCase();
 
@@ -278,7 +362,12 @@ public class SOAPMessageComposer extends BaseMessageComposer<SOAPBindingData> {
     private String getWrapperNamespace(String operationName, boolean input) {
         String ns = null;
 
-        if (_wsdlPort != null) {
+        if (_operationIndex != null) {
+            OperationInfo operationInfo = _operationIndex.getOperationByName(operationName);
+            if (operationInfo != null) {
+                ns = operationInfo.getWrapperNamespace(input);
+            }
+        } else if (_wsdlPort != null) {
             Operation operation = WSDLUtil.getOperationByName(_wsdlPort, operationName);
             if (!_documentStyle) {
                 ns = input ? operation.getInput().getMessage().getQName().getNamespaceURI()
@@ -314,6 +403,22 @@ public class SOAPMessageComposer extends BaseMessageComposer<SOAPBindingData> {
         _wsdlPort = wsdlPort;
     }
 
+    /**
+     * Get the operation index of the WSDL Port used by this message composer.
+     * @return the operation index, or null if the WSDL Port is scanned on each lookup
+     */
+    public OperationIndex getOperationIndex() {
+        return _operationIndex;
+    }
+
+    /**
+     * Set the operation index of the WSDL Port used by this message composer.
+     * @param operationIndex the operation index
+     */
+    public void setOperationIndex(OperationIndex operationIndex) {
+        _operationIndex = operationIndex;
+    }
+
     /**
      * Check if the WSDL used is of 'document' style.
      * @return true if 'document' style, false otherwise
@@ -378,4 +483,22 @@ public class SOAPMessageComposer extends BaseMessageComposer<SOAPBindingData> {
         _unwrapped = unwrapped;
     }
 
+    /**
+     * Check if composer streams the payload into the SOAP body.
+     * @return true if streaming, false otherwise
+     */
+    public Boolean isStreaming() {
+        return _streaming;
+    }
+
+    /**
+     * Set the streaming flag. When streaming, String, Reader, InputStream and non DOM
+     * Source payloads are transformed directly into the SOAP body, and XOP packages
+     * are left as attachments instead of being expanded inline.
+     * @param streaming true or false
+     */
+    public void setStreaming(Boolean streaming) {
+        _streaming = streaming;
+    }
+
 }
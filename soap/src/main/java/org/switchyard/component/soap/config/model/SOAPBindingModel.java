@@ -152,6 +152,21 @@ public interface SOAPBindingModel extends BindingModel {
      */
     public SOAPBindingModel setTimeout(Integer timeout);
 
+    /**
+     * Gets the maximum number of dispatchers, and so of concurrent requests.
+     * 
+     * @return the maximum number of dispatchers
+     */
+    public Integer getMaxDispatchers();
+
+    /**
+     * Sets the maximum number of dispatchers, and so of concurrent requests.
+     * 
+     * @param maxDispatchers the maximum number of dispatchers
+     * @return this SOAPBindingModel
+     */
+    public SOAPBindingModel setMaxDispatchers(Integer maxDispatchers);
+
     /**
      * Gets the basic config.
      * @return the basic config
@@ -33,4 +33,17 @@ public interface SOAPMessageComposerModel extends MessageComposerModel {
      */
     SOAPMessageComposerModel setUnwrapped(boolean unwrapped);
 
+    /**
+     * Indicates whether the composer streams payloads into the SOAP body.
+     * @return true if the composer is in streaming mode, false otherwise
+     */
+    Boolean isStreaming();
+
+    /**
+     * Specifies that the composer should stream payloads into the SOAP body.
+     * @param streaming true to operate in streaming mode
+     * @return this instance (useful for chaining)
+     */
+    SOAPMessageComposerModel setStreaming(boolean streaming);
+
 }
@@ -53,6 +53,7 @@ public class V1SOAPBindingModel extends V1BindingModel implements SOAPBindingMod
         SOAPName.contextPath.name(),
         SOAPName.endpointAddress.name(),
         SOAPName.timeout.name(),
+        SOAPName.maxDispatchers.name(),
         SOAPName.basic.name(),
         SOAPName.ntlm.name(),
         SOAPName.proxy.name(),
@@ -71,6 +72,7 @@ public class V1SOAPBindingModel extends V1BindingModel implements SOAPBindingMod
     private SOAPNameValueModel _contextPath;
     private SOAPNameValueModel _endpointAddress;
     private SOAPNameValueModel _timeout;
+    private SOAPNameValueModel _maxDispatchers;
     private BasicAuthModel _basicAuth;
     private NtlmAuthModel _ntlmAuth;
     private ProxyModel _proxyConfig;
@@ -294,6 +296,24 @@ public class V1SOAPBindingModel extends V1BindingModel implements SOAPBindingMod
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxDispatchers() {
+        if (_maxDispatchers == null) {
+            _maxDispatchers = getNameValue(SOAPName.maxDispatchers);
+        }
+        return _maxDispatchers != null ? Integer.valueOf(_maxDispatchers.getValue()) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SOAPBindingModel setMaxDispatchers(Integer maxDispatchers) {
+        _maxDispatchers = setNameValue(_maxDispatchers, SOAPName.maxDispatchers, maxDispatchers != null ? String.valueOf(maxDispatchers) : null);
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -52,4 +52,16 @@ public class V1SOAPMessageComposerModel extends V1MessageComposerModel implement
         return this;
     }
 
+    @Override
+    public Boolean isStreaming() {
+        String streaming = getModelAttribute("streaming");
+        return streaming != null && Boolean.valueOf(streaming);
+    }
+
+    @Override
+    public SOAPMessageComposerModel setStreaming(boolean streaming) {
+        setModelAttribute("streaming", String.valueOf(streaming));
+        return this;
+    }
+
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.soap.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.wsdl.BindingOperation;
+import javax.wsdl.Fault;
+import javax.wsdl.Input;
+import javax.wsdl.Operation;
+import javax.wsdl.Output;
+import javax.wsdl.Part;
+import javax.wsdl.Port;
+import javax.xml.namespace.QName;
+
+/**
+ * An immutable index of the operations of a WSDL port, built once when a
+ * binding starts so that the per-message lookups done by {@link WSDLUtil}
+ * do not have to scan the port type every time.
+ */
+public final class OperationIndex {
+
+    private final Map<QName, OperationInfo> _byElement;
+    private final Map<String, OperationInfo> _byName;
+    private final Map<String, OperationInfo> _byAction;
+
+    /**
+     * Builds the index for a WSDL port.
+     *
+     * @param port The WSDL port.
+     * @param documentStyle true if it is 'document', false if 'rpc'.
+     * @param actionNamespace the namespace used to compute the WS-Addressing input actions,
+     * or null if the operations should not be indexed by action.
+     */
+    @SuppressWarnings("unchecked")
+    public OperationIndex(final Port port, final Boolean documentStyle, final String actionNamespace) {
+        Map<QName, OperationInfo> byElement = new HashMap<QName, OperationInfo>();
+        Map<String, OperationInfo> byName = new HashMap<String, OperationInfo>();
+        Map<String, OperationInfo> byAction = new HashMap<String, OperationInfo>();
+
+        Map<String, BindingOperation> bindingOperations = new HashMap<String, BindingOperation>();
+        for (BindingOperation bindingOperation : (List<BindingOperation>)port.getBinding().getBindingOperations()) {
+            if (!bindingOperations.containsKey(bindingOperation.getName())) {
+                bindingOperations.put(bindingOperation.getName(), bindingOperation);
+            }
+        }
+
+        Map<Operation, OperationInfo> byOperation = new IdentityHashMap<Operation, OperationInfo>();
+        int ordinal = 0;
+        for (Operation operation : (List<Operation>)port.getBinding().getPortType().getOperations()) {
+            OperationInfo info = new OperationInfo(ordinal++, operation,
+                    WSDLUtil.getSoapAction(bindingOperations.get(operation.getName())),
+                    getWrapperNamespace(operation.getInput(), documentStyle),
+                    getWrapperNamespace(operation.getOutput(), documentStyle));
+            // the first declared operation wins, as it does for the linear lookups
+            if (!byName.containsKey(operation.getName())) {
+                byName.put(operation.getName(), info);
+            }
+            byOperation.put(operation, info);
+            Part part = getFirstPart(operation.getInput());
+            if (part != null) {
+                if (part.getElementName() != null && !byElement.containsKey(part.getElementName())) {
+                    byElement.put(part.getElementName(), info);
+                }
+                if (part.getTypeName() != null && !byElement.containsKey(part.getTypeName())) {
+                    byElement.put(part.getTypeName(), info);
+                }
+            }
+        }
+        _byElement = byElement;
+        _byName = byName;
+
+        if (actionNamespace != null) {
+            for (BindingOperation bindingOperation : (List<BindingOperation>)port.getBinding().getBindingOperations()) {
+                QName operationName = new QName(actionNamespace, bindingOperation.getOperation().getName());
+                String inputAction = WSDLUtil.getInputAction(port, operationName, documentStyle);
+                byAction.put(inputAction, byOperation.get(bindingOperation.getOperation()));
+            }
+        }
+        _byAction = byAction;
+    }
+
+    /**
+     * Get the operation for the specified message element, with the same matching rules
+     * as {@link WSDLUtil#getOperationByElement(Port, QName, Boolean)}.
+     *
+     * @param elementName The SOAP Body element QName.
+     * @return The operation info, or null if the operation was not found on the port.
+     */
+    public OperationInfo getOperationByElement(final QName elementName) {
+        if (elementName == null) {
+            return null;
+        }
+        OperationInfo byElement = _byElement.get(elementName);
+        OperationInfo byName = _byName.get(elementName.getLocalPart());
+        if (byElement == null) {
+            return byName;
+        } else if (byName == null) {
+            return byElement;
+        }
+        return byElement._ordinal <= byName._ordinal ? byElement : byName;
+    }
+
+    /**
+     * Get the operation for the specified operation name.
+     *
+     * @param operationName The operation name.
+     * @return The operation info, or null if the operation was not found on the port.
+     */
+    public OperationInfo getOperationByName(final String operationName) {
+        return _byName.get(operationName);
+    }
+
+    /**
+     * Get the operation for the specified WS-Addressing input action.
+     *
+     * @param action The WS-Addressing action.
+     * @return The operation info, or null if the action is unknown or actions were not indexed.
+     */
+    public OperationInfo getOperationByAction(final String action) {
+        return _byAction.get(action);
+    }
+
+    private static Part getFirstPart(Input input) {
+        if (input == null || input.getMessage() == null) {
+            return null;
+        }
+        // Note: WS-I Profile allows only one child under SOAPBody.
+        Iterator<?> parts = input.getMessage().getParts().values().iterator();
+        return parts.hasNext() ? (Part)parts.next() : null;
+    }
+
+    private static String getWrapperNamespace(Object inputOrOutput, Boolean documentStyle) {
+        javax.wsdl.Message message = null;
+        if (inputOrOutput instanceof Input) {
+            message = ((Input)inputOrOutput).getMessage();
+        } else if (inputOrOutput instanceof Output) {
+            message = ((Output)inputOrOutput).getMessage();
+        }
+        if (message == null) {
+            return null;
+        }
+        if (!documentStyle) {
+            return message.getQName().getNamespaceURI();
+        }
+        Iterator<?> parts = message.getParts().values().iterator();
+        if (parts.hasNext()) {
+            Part part = (Part)parts.next();
+            if (part.getElementName() != null) {
+                return part.getElementName().getNamespaceURI();
+            } else if (part.getTypeName() != null) {
+                return part.getTypeName().getNamespaceURI();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The precomputed details of a single operation.
+     */
+    public static final class OperationInfo {
+
+        private final int _ordinal;
+        private final Operation _operation;
+        private final String _soapAction;
+        private final boolean _oneWay;
+        private final String _inputWrapperNamespace;
+        private final String _outputWrapperNamespace;
+        private final Map<String, QName> _faultQNames;
+
+        @SuppressWarnings("unchecked")
+        private OperationInfo(int ordinal, Operation operation, String soapAction, String inputWrapperNamespace, String outputWrapperNamespace) {
+            _ordinal = ordinal;
+            _operation = operation;
+            _soapAction = soapAction;
+            _oneWay = WSDLUtil.isOneWay(operation);
+            _inputWrapperNamespace = inputWrapperNamespace;
+            _outputWrapperNamespace = outputWrapperNamespace;
+            Map<String, QName> faultQNames = new HashMap<String, QName>();
+            for (Fault fault : (Collection<Fault>)operation.getFaults().values()) {
+                if (fault.getMessage() != null) {
+                    faultQNames.put(fault.getName(), fault.getMessage().getQName());
+                }
+            }
+            _faultQNames = Collections.unmodifiableMap(faultQNames);
+        }
+
+        /**
+         * Get the WSDL operation.
+         * @return the operation
+         */
+        public Operation getOperation() {
+            return _operation;
+        }
+
+        /**
+         * Get the operation name.
+         * @return the operation name
+         */
+        public String getName() {
+            return _operation.getName();
+        }
+
+        /**
+         * Get the soapAction value of the operation.
+         * @return the soapAction, or an empty String if none is declared
+         */
+        public String getSoapAction() {
+            return _soapAction;
+        }
+
+        /**
+         * Check if the operation does not expect a response.
+         * @return true if it is a one way operation
+         */
+        public boolean isOneWay() {
+            return _oneWay;
+        }
+
+        /**
+         * Get the namespace of the input or output wrapper element.
+         * @param input true for the input wrapper, false for the output wrapper
+         * @return the namespace, or null if it could not be determined
+         */
+        public String getWrapperNamespace(boolean input) {
+            return input ? _inputWrapperNamespace : _outputWrapperNamespace;
+        }
+
+        /**
+         * Get the fault QName.
+         * @param faultName the name of the Fault
+         * @return the fault QName or null
+         */
+        public QName getFaultQName(String faultName) {
+            return _faultQNames.get(faultName);
+        }
+    }
+}
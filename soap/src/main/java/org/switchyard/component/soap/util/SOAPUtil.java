@@ -324,7 +324,7 @@ public final class SOAPUtil {
                         }
                         InputStream is = attachmentMap.get(contentId).getInputStream();
                         ByteArrayOutputStream os = new ByteArrayOutputStream();
-                        byte[] buff = new byte[128];
+                        byte[] buff = new byte[8192];
                         int read;
                         try {
                             while ((read = is.read(buff)) != -1) {
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.soap;
+
+import javax.wsdl.Definition;
+import javax.wsdl.Port;
+import javax.wsdl.Service;
+import javax.xml.namespace.QName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.component.soap.util.OperationIndex;
+import org.switchyard.component.soap.util.OperationIndex.OperationInfo;
+import org.switchyard.component.soap.util.WSDLUtil;
+
+/**
+ * Tests for the WSDL operation index.
+ */
+public class OperationIndexTest {
+
+    private static final String TNS = "urn:switchyard-component-soap:test-ws:1.0";
+
+    @Test
+    public void lookupByElement() throws Exception {
+        Service service = WSDLUtil.getService("HelloWebService.wsdl", new PortName("HelloWebService:"));
+        Port port = WSDLUtil.getPort(service, new PortName("HelloWebServicePort"));
+        OperationIndex index = new OperationIndex(port, true, null);
+
+        QName sayHello = new QName(TNS, "sayHello");
+        OperationInfo info = index.getOperationByElement(sayHello);
+        Assert.assertSame(WSDLUtil.getOperationByElement(port, sayHello, true), info.getOperation());
+        Assert.assertEquals("uri:something:that:needs#tobevalid", info.getSoapAction());
+        Assert.assertEquals(WSDLUtil.isOneWay(port, sayHello, true), info.isOneWay());
+        Assert.assertEquals(TNS, info.getWrapperNamespace(true));
+        Assert.assertEquals(TNS, info.getWrapperNamespace(false));
+
+        QName helloWS = new QName(TNS, "helloWS");
+        info = index.getOperationByElement(helloWS);
+        Assert.assertSame(WSDLUtil.getOperationByElement(port, helloWS, true), info.getOperation());
+        Assert.assertEquals("", info.getSoapAction());
+        Assert.assertTrue(info.isOneWay());
+
+        Assert.assertNull(index.getOperationByElement(new QName(TNS, "unknown")));
+        Assert.assertSame(WSDLUtil.getOperationByName(port, "helloWS"), index.getOperationByName("helloWS").getOperation());
+    }
+
+    @Test
+    public void lookupByAction() throws Exception {
+        Definition definition = WSDLUtil.readWSDL("HelloWebServiceAddressing.wsdl");
+        String targetNamespace = definition.getTargetNamespace();
+        Service service = WSDLUtil.getService(definition, new PortName("HelloAddressingService:HelloSOAPAddressingServicePort"));
+
+        Port port = WSDLUtil.getPort(service, new PortName("HelloSOAPAddressingServicePort2"));
+        OperationIndex index = new OperationIndex(port, true, targetNamespace);
+        Assert.assertEquals("sayHello", index.getOperationByAction("http://mysite/input").getName());
+        Assert.assertNull(index.getOperationByAction("http://mysite/output"));
+        Assert.assertNull(new OperationIndex(port, true, null).getOperationByAction("http://mysite/input"));
+
+        port = WSDLUtil.getPort(service, new PortName("HelloSOAPAddressingServicePort3"));
+        index = new OperationIndex(port, true, targetNamespace);
+        OperationInfo info = index.getOperationByName("sayHello");
+        Assert.assertEquals(WSDLUtil.getFaultQName(info.getOperation(), "UnknownMessage"), info.getFaultQName("UnknownMessage"));
+        Assert.assertNull(info.getFaultQName("Unknown"));
+    }
+}
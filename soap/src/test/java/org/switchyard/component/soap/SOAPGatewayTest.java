@@ -30,6 +30,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
@@ -100,6 +101,9 @@ public class SOAPGatewayTest {
     @org.switchyard.test.ServiceOperation("webservice-consumer3")
     private Invoker _consumerService3;
 
+    @org.switchyard.test.ServiceOperation("webservice-consumer-pooled")
+    private Invoker _consumerPooled;
+
     private SOAPBindingModel _config;
     private static URL _serviceURL;
     private InboundHandler _soapInbound11;
@@ -108,6 +112,7 @@ public class SOAPGatewayTest {
     private OutboundHandler _soapOutbound11_2;
     private OutboundHandler _soapOutbound12_1;
     private OutboundHandler _soapOutbound3;
+    private OutboundHandler _soapOutboundPooled;
     private long _noOfThreads = DEFAULT_NO_OF_THREADS;
     
     private static ModelPuller<CompositeModel> _puller;
@@ -252,6 +257,21 @@ public class SOAPGatewayTest {
         _soapOutbound3.start();
         _domain.registerService(_consumerService3.getServiceName(), new HelloWebServiceInterface(), _soapOutbound3);
 
+        SOAPBindingModel config5 = new V1SOAPBindingModel(SOAPNamespace.DEFAULT.uri()) {
+            @Override
+            public CompositeReferenceModel getReference() {
+                return new V1CompositeReferenceModel();
+            }
+        };
+        config5.setWsdl(_serviceURL.toExternalForm() + "?wsdl");
+        config5.setServiceName(_consumerPooled.getServiceName());
+        config5.setName("testGateway");
+        config5.setEndpointAddress("http://localhost:8091/slow");
+        config5.setMaxDispatchers(1);
+        _soapOutboundPooled = new OutboundHandler(config5);
+        _soapOutboundPooled.start();
+        _domain.registerService(_consumerPooled.getServiceName(), new HelloWebServiceInterface(), _soapOutboundPooled);
+
         XMLUnit.setIgnoreWhitespace(true);
     }
 
@@ -259,6 +279,7 @@ public class SOAPGatewayTest {
     public void tearDown() throws Exception {
         _soapInbound11.stop();
         _soapInbound12.stop();
+        _soapOutboundPooled.stop();
     }
 
     @Test
@@ -315,6 +336,64 @@ public class SOAPGatewayTest {
         httpServer.stop(0);
     }
 
+    @Test
+    public void soapGatewayReferenceMaxDispatchers() throws Exception {
+        final String output = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+                     + "<test:sayHelloResponse xmlns:test=\"urn:switchyard-component-soap:test-ws:1.0\">"
+                     + "<return>Hello</return>"
+                     + "</test:sayHelloResponse>"
+                     + "</soap:Body></soap:Envelope>";
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(8091), 10);
+        httpServer.setExecutor(Executors.newCachedThreadPool());
+        httpServer.createContext("/slow", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                int current = concurrent.incrementAndGet();
+                synchronized (maxConcurrent) {
+                    maxConcurrent.set(Math.max(maxConcurrent.get(), current));
+                }
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException ie) {
+                    //Ignore
+                } finally {
+                    concurrent.decrementAndGet();
+                }
+                InputStream inStream = exchange.getRequestBody();
+                while (inStream.read() != -1) {
+                    //Ignore
+                }
+                exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+                exchange.sendResponseHeaders(200, output.getBytes().length);
+                exchange.getResponseBody().write(output.getBytes());
+                exchange.close();
+            }});
+        httpServer.start();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Collection<Callable<Message>> callers = new ArrayList<Callable<Message>>();
+            for (int i = 0; i < 3; i++) {
+                callers.add(new Callable<Message>() {
+                    public Message call() throws Exception {
+                        Element input = SOAPUtil.parseAsDom("<test:sayHello xmlns:test=\"urn:switchyard-component-soap:test-ws:1.0\">"
+                                     + "   <arg0>Hello</arg0>"
+                                     + "</test:sayHello>").getDocumentElement();
+                        return _consumerPooled.operation("sayHello").sendInOut(input);
+                    }
+                });
+            }
+            // the requests beyond maxDispatchers wait for the dispatcher rather than creating their own
+            for (Future<Message> future : executor.invokeAll(callers)) {
+                Assert.assertTrue(future.get().getContent(String.class).contains("Hello"));
+            }
+            Assert.assertEquals(1, maxConcurrent.get());
+        } finally {
+            executor.shutdown();
+            httpServer.stop(0);
+        }
+    }
+
     @Ignore // mime headers are not parsed into the SOAPMessage with CXF
     @Test
     public void invokeRequestResponse() throws Exception {
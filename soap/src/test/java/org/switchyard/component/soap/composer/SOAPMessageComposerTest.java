@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.component.soap.composer;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import javax.xml.soap.SOAPBody;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.ws.soap.SOAPBinding;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.switchyard.BaseHandler;
+import org.switchyard.Exchange;
+import org.switchyard.HandlerException;
+import org.switchyard.ServiceDomain;
+import org.switchyard.common.xml.XMLHelper;
+import org.switchyard.component.soap.util.SOAPUtil;
+import org.switchyard.metadata.InOnlyService;
+import org.switchyard.test.Invoker;
+import org.switchyard.test.SwitchYardRunner;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Tests decomposing the payload types a streaming SOAPMessageComposer
+ * transforms straight into the SOAP body.
+ */
+@RunWith(SwitchYardRunner.class)
+public class SOAPMessageComposerTest {
+
+    private static final String NAMESPACE = "urn:switchyard-component-soap:test-ws:1.0";
+    private static final String PAYLOAD = "<test:sayHello xmlns:test=\"" + NAMESPACE + "\">"
+                     + "<arg0>Hello</arg0>"
+                     + "</test:sayHello>";
+
+    private ServiceDomain _domain;
+
+    @org.switchyard.test.ServiceOperation("soap-composer")
+    private Invoker _composerService;
+
+    private DecomposingProvider _provider;
+
+    @Before
+    public void setUp() throws Exception {
+        SOAPMessageComposer composer = (SOAPMessageComposer)SOAPComposition.getMessageComposer();
+        composer.setStreaming(true);
+        _provider = new DecomposingProvider(composer);
+        _domain.registerService(_composerService.getServiceName(), new InOnlyService(), _provider);
+    }
+
+    @Test
+    public void decomposeString() throws Exception {
+        _composerService.sendInOnly(PAYLOAD);
+        assertBody();
+    }
+
+    @Test
+    public void decomposeReader() throws Exception {
+        _composerService.sendInOnly(new StringReader(PAYLOAD));
+        assertBody();
+    }
+
+    @Test
+    public void decomposeInputStream() throws Exception {
+        _composerService.sendInOnly(new ByteArrayInputStream(PAYLOAD.getBytes("UTF-8")));
+        assertBody();
+    }
+
+    @Test
+    public void decomposeStreamSource() throws Exception {
+        _composerService.sendInOnly(new StreamSource(new StringReader(PAYLOAD)));
+        assertBody();
+    }
+
+    private void assertBody() throws Exception {
+        if (_provider._error != null) {
+            throw _provider._error;
+        }
+        Element sayHello = null;
+        NodeList children = _provider._body.getChildNodes();
+        for (int i = 0; i < children.getLength() && sayHello == null; i++) {
+            if (children.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                sayHello = (Element)children.item(i);
+            }
+        }
+        Assert.assertNotNull(sayHello);
+        Assert.assertEquals("sayHello", sayHello.getLocalName());
+        Assert.assertEquals(NAMESPACE, sayHello.getNamespaceURI());
+        Element arg0 = XMLHelper.getFirstChildElementByName(sayHello, "arg0");
+        Assert.assertNotNull(arg0);
+        Assert.assertEquals("Hello", arg0.getTextContent());
+    }
+
+    private static class DecomposingProvider extends BaseHandler {
+
+        private final SOAPMessageComposer _composer;
+        private SOAPBody _body;
+        private Exception _error;
+
+        DecomposingProvider(SOAPMessageComposer composer) {
+            _composer = composer;
+        }
+
+        @Override
+        public void handleMessage(Exchange exchange) throws HandlerException {
+            try {
+                SOAPBindingData target = new SOAPBindingData(SOAPUtil.createMessage(SOAPBinding.SOAP11HTTP_BINDING));
+                _body = _composer.decompose(exchange, target).getSOAPMessage().getSOAPBody();
+            } catch (Exception e) {
+                _error = e;
+            }
+        }
+    }
+}
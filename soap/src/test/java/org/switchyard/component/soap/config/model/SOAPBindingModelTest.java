@@ -30,6 +30,7 @@ public class SOAPBindingModelTest {
     private static final String SOAP_BINDING_INVALID = "soap-binding-invalid.xml";
     private static final String SOAP_BINDING_PROXY = "soap-binding-proxy.xml";
     private static final String SOAP_BINDING_AUTH = "soap-binding-auth.xml";
+    private static final String SOAP_BINDING_POOL = "soap-binding-pool.xml";
 
     @Test
     public void serviceBinding() throws Exception {
@@ -93,4 +94,13 @@ public class SOAPBindingModelTest {
         Assert.assertEquals("domain", authConfig.getDomain());
     }
 
+    @Test
+    public void poolBinding() throws Exception {
+        ModelPuller<SOAPBindingModel> puller = new ModelPuller<SOAPBindingModel>();
+        SOAPBindingModel binding = puller.pull(SOAP_BINDING_POOL, getClass());
+        binding.assertModelValid();
+        Assert.assertEquals(new Integer(5000), binding.getTimeout());
+        Assert.assertEquals(new Integer(50), binding.getMaxDispatchers());
+    }
+
 }
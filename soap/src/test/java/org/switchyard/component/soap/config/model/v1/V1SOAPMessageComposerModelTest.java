@@ -29,12 +29,22 @@ public class V1SOAPMessageComposerModelTest {
 
     private static final String SOAP_BINDING = "soap-binding.xml";
     private static final String COMPOSER_FRAG = "message-composer.xml";
+    private static final String STREAMING_COMPOSER_FRAG = "message-composer-streaming.xml";
     
     @Test
     public void testReadConfigFragment() throws Exception {
         ModelPuller<V1SOAPMessageComposerModel> puller = new ModelPuller<V1SOAPMessageComposerModel>();
         V1SOAPMessageComposerModel model = puller.pull(COMPOSER_FRAG, getClass());
         Assert.assertTrue("Unwrap should be true", model.isUnwrapped());
+        Assert.assertFalse("Streaming should be false", model.isStreaming());
+    }
+
+    @Test
+    public void testReadStreamingConfigFragment() throws Exception {
+        ModelPuller<V1SOAPMessageComposerModel> puller = new ModelPuller<V1SOAPMessageComposerModel>();
+        V1SOAPMessageComposerModel model = puller.pull(STREAMING_COMPOSER_FRAG, getClass());
+        Assert.assertFalse("Unwrap should be false", model.isUnwrapped());
+        Assert.assertTrue("Streaming should be true", model.isStreaming());
     }
     
     @Test